@@ -15,29 +15,110 @@
  */
 package de.gerdiproject.harvest;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
+import javax.servlet.ServletContextEvent;
 import javax.servlet.annotation.WebListener;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import de.gerdiproject.harvest.application.ContextListener;
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.OaiPmhETL;
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.utils.AtomicJsonFile;
+import de.gerdiproject.harvest.etls.utils.OaiPmhHarvestScheduler;
+import de.gerdiproject.harvest.etls.utils.OaiPmhRepository;
 
 
 /**
  * This class initializes the OAI-PMH harvester service.
+ * If the cache folder contains a repository list file, one {@linkplain OaiPmhETL}
+ * is created for each listed repository, so that a single service can harvest
+ * many repositories. Otherwise, the service harvests a single repository.
+ * Additionally, the ETLs are harvested periodically by an {@linkplain OaiPmhHarvestScheduler}.
  *
  * @author Robin Weiss
  */
 @WebListener
 public class OaiPmhContextListener extends ContextListener
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhContextListener.class);
+
+    private OaiPmhHarvestScheduler scheduler;
+
+
     @Override
     protected List<? extends AbstractETL<?, ?>> createETLs()
     {
-        return Arrays.asList(new OaiPmhETL());
+        final List<OaiPmhETL> etls = loadETLs();
+
+        // the ETLs are created anew when the context is reset
+        synchronized (this) {
+            if (scheduler != null)
+                scheduler.stop();
+
+            this.scheduler = new OaiPmhHarvestScheduler(etls);
+            scheduler.start();
+        }
+
+        return etls;
+    }
+
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent sce)
+    {
+        synchronized (this) {
+            if (scheduler != null)
+                scheduler.stop();
+
+            this.scheduler = null;
+        }
+
+        super.contextDestroyed(sce);
+    }
+
+
+    /**
+     * Creates one ETL for each repository of the repository list file, or a single
+     * ETL if the file does not exist.
+     *
+     * @return a list of ETLs that harvest OAI-PMH repositories
+     */
+    private List<OaiPmhETL> loadETLs()
+    {
+        final AtomicJsonFile<OaiPmhRepository[]> repositoryListFile =
+            new AtomicJsonFile<>(OaiPmhConstants.REPOSITORIES_FILE_PATH, OaiPmhRepository[].class);
+
+        final OaiPmhRepository[] repositories = repositoryListFile.load();
+
+        if (repositories == null || repositories.length == 0)
+            return Arrays.asList(new OaiPmhETL());
+
+        final List<OaiPmhETL> etls = new ArrayList<>(repositories.length);
+        final Set<String> etlNames = new HashSet<>();
+
+        for (int i = 0; i < repositories.length; i++) {
+            final String etlName = repositories[i].getEtlName(i);
+
+            // the ETL name is the case-insensitive category of the parameters and must be unique
+            if (etlNames.add(etlName.toLowerCase(Locale.ENGLISH)))
+                etls.add(new OaiPmhETL(etlName, repositories[i]));
+            else
+                LOGGER.error(String.format(OaiPmhConstants.DUPLICATE_REPOSITORY_ERROR, etlName));
+        }
+
+        if (LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.REPOSITORIES_LOADED_INFO, etls.size(), repositoryListFile.getFile()));
+
+        return etls;
     }
 
 
@@ -15,8 +15,13 @@
  */
 package de.gerdiproject.harvest.etls;
 
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -28,17 +33,34 @@ import org.jsoup.select.Elements;
 import de.gerdiproject.harvest.config.Configuration;
 import de.gerdiproject.harvest.config.events.ParameterChangedEvent;
 import de.gerdiproject.harvest.config.parameters.AbstractParameter;
+import de.gerdiproject.harvest.config.parameters.BooleanParameter;
+import de.gerdiproject.harvest.config.parameters.IntegerParameter;
 import de.gerdiproject.harvest.config.parameters.StringParameter;
 import de.gerdiproject.harvest.config.parameters.constants.ParameterConstants;
 import de.gerdiproject.harvest.config.parameters.constants.ParameterMappingFunctions;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.constants.OaiPmhParameterConstants;
+import de.gerdiproject.harvest.etls.enums.ContentEncoding;
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+import de.gerdiproject.harvest.etls.enums.ETLHealth;
+import de.gerdiproject.harvest.etls.enums.ETLState;
 import de.gerdiproject.harvest.etls.events.GetRepositoryNameEvent;
+import de.gerdiproject.harvest.etls.events.HarvestFinishedEvent;
 import de.gerdiproject.harvest.etls.extractors.IExtractor;
+import de.gerdiproject.harvest.etls.extractors.OaiPmhPartition;
 import de.gerdiproject.harvest.etls.extractors.OaiPmhRecordExtractor;
 import de.gerdiproject.harvest.etls.transformers.ITransformer;
+import de.gerdiproject.harvest.etls.utils.AtomicJsonFile;
+import de.gerdiproject.harvest.etls.utils.ConnectionStatistics;
+import de.gerdiproject.harvest.etls.utils.DateWindow;
+import de.gerdiproject.harvest.etls.utils.HighWaterMark;
+import de.gerdiproject.harvest.etls.utils.OaiPmhHttpClient;
+import de.gerdiproject.harvest.etls.utils.OaiPmhRepository;
+import de.gerdiproject.harvest.etls.utils.RetryPolicy;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.event.EventSystem;
-import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.datacite.DataCiteJson;
 
 /**
@@ -56,15 +78,72 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
     private StringParameter logoUrlParam;
     private StringParameter viewUrlParam;
     private StringParameter setParam;
-
+    private IntegerParameter prefetchDepthParam;
+    private BooleanParameter streamRecordsParam;
+    private IntegerParameter dateWindowsParam;
+    private IntegerParameter partitionThreadsParam;
+    private BooleanParameter asyncExtractionParam;
+    private BooleanParameter virtualThreadsParam;
+    private IntegerParameter maxConcurrentHarvestsParam;
+    private BooleanParameter shardBySetsParam;
+    private IntegerParameter recordBufferSizeParam;
+    private IntegerParameter recordBufferBytesParam;
+    private IntegerParameter maxRetriesParam;
+    private IntegerParameter retryDelayParam;
+    private IntegerParameter maxRequestsPerSecondParam;
+    private IntegerParameter maxConcurrentRequestsParam;
+    private BooleanParameter resumeFromCheckpointParam;
+    private BooleanParameter incrementalParam;
+    private IntegerParameter incrementalOverlapParam;
+    private IntegerParameter metadataCacheTtlParam;
+    private BooleanParameter listIdentifiersParam;
+    private IntegerParameter getRecordThreadsParam;
+    private IntegerParameter duplicateFilterSizeParam;
+    private IntegerParameter minHarvestIntervalParam;
+    private IntegerParameter maxHarvestIntervalParam;
+    private IntegerParameter recordsPerScheduledHarvestParam;
+    private IntegerParameter transformThreadsParam;
+    private BooleanParameter unorderedTransformParam;
+
+    private final OaiPmhRepository repository;
     private Map<String, String> schemaUrlMap = new HashMap<>();
+    private OaiPmhHttpClient httpClient;
+    private AtomicJsonFile<HighWaterMark> highWaterMarkFile;
+    private volatile boolean isHarvestingOnSchedule;
+
+
+    /**
+     * Constructor for an ETL that harvests the only repository of the harvester service.
+     */
+    public OaiPmhETL()
+    {
+        this(null, null);
+    }
+
+
+    /**
+     * Constructor for an ETL that harvests one of multiple repositories
+     * that are defined in the repository list file.
+     *
+     * @param name the unique name of the ETL, which is also the category of its parameters
+     * @param repository the definition of the repository that provides the default parameter values,
+     *         or null if the ETL harvests the only repository of the harvester service
+     */
+    public OaiPmhETL(final String name, final OaiPmhRepository repository)
+    {
+        super(name);
+        this.repository = repository;
+    }
 
 
     @Override
     public void addEventListeners()
     {
         super.addEventListeners();
-        EventSystem.addSynchronousListener(GetRepositoryNameEvent.class, this::getRepositoryName);
+
+        // the name of the harvester service can only be determined by the only harvested repository
+        if (repository == null)
+            EventSystem.addSynchronousListener(GetRepositoryNameEvent.class, this::getRepositoryName);
     }
 
 
@@ -72,7 +151,9 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
     public void removeEventListeners()
     {
         super.removeEventListeners();
-        EventSystem.removeSynchronousListener(GetRepositoryNameEvent.class);
+
+        if (repository == null)
+            EventSystem.removeSynchronousListener(GetRepositoryNameEvent.class);
     }
 
 
@@ -98,6 +179,12 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
         final Function<String, String> metadataPrefixFunction =
             ParameterMappingFunctions.createMapperForETL(this::mapStringToMetadataPrefix, this);
 
+        final Function<String, Integer> unsignedIntegerMappingFunction =
+            ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToUnsignedInteger, this);
+
+        final Function<String, Boolean> booleanMappingFunction =
+            ParameterMappingFunctions.createMapperForETL(ParameterMappingFunctions::mapToBoolean, this);
+
         // register parameters
         this.fromParam = Configuration.registerParameter(
                              new StringParameter(
@@ -117,36 +204,234 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
                                 new StringParameter(
                                     OaiPmhParameterConstants.HOST_URL_KEY,
                                     getName(),
-                                    OaiPmhParameterConstants.HOST_URL_DEFAULT_VALUE,
+                                    getDefaultValue(OaiPmhRepository::getHostUrl, OaiPmhParameterConstants.HOST_URL_DEFAULT_VALUE),
                                     urlMappingFunction));
 
         this.metadataPrefixParam = Configuration.registerParameter(
                                        new StringParameter(
                                            OaiPmhParameterConstants.METADATA_PREFIX_KEY,
                                            getName(),
-                                           OaiPmhParameterConstants.METADATA_PREFIX_DEFAULT_VALUE,
+                                           getDefaultValue(OaiPmhRepository::getMetadataPrefix, OaiPmhParameterConstants.METADATA_PREFIX_DEFAULT_VALUE),
                                            metadataPrefixFunction));
 
         this.logoUrlParam = Configuration.registerParameter(
                                 new StringParameter(
                                     OaiPmhParameterConstants.LOGO_URL_KEY,
                                     getName(),
-                                    OaiPmhParameterConstants.LOGO_URL_DEFAULT_VALUE,
+                                    getDefaultValue(OaiPmhRepository::getLogoUrl, OaiPmhParameterConstants.LOGO_URL_DEFAULT_VALUE),
                                     urlMappingFunction));
 
         this.viewUrlParam = Configuration.registerParameter(
                                 new StringParameter(
                                     OaiPmhParameterConstants.VIEW_URL_KEY,
                                     getName(),
-                                    OaiPmhParameterConstants.VIEW_URL_DEFAULT_VALUE,
+                                    getDefaultValue(OaiPmhRepository::getViewUrl, OaiPmhParameterConstants.VIEW_URL_DEFAULT_VALUE),
                                     urlMappingFunction));
 
         this.setParam = Configuration.registerParameter(
                             new StringParameter(
                                 OaiPmhParameterConstants.SET_KEY,
                                 getName(),
-                                OaiPmhParameterConstants.SET_DEFAULT_VALUE,
+                                getDefaultValue(OaiPmhRepository::getSet, OaiPmhParameterConstants.SET_DEFAULT_VALUE),
                                 stringMappingFunction));
+
+        this.prefetchDepthParam = Configuration.registerParameter(
+                                      new IntegerParameter(
+                                          OaiPmhParameterConstants.PREFETCH_DEPTH_KEY,
+                                          getName(),
+                                          OaiPmhParameterConstants.PREFETCH_DEPTH_DEFAULT_VALUE,
+                                          unsignedIntegerMappingFunction));
+
+        this.streamRecordsParam = Configuration.registerParameter(
+                                      new BooleanParameter(
+                                          OaiPmhParameterConstants.STREAM_RECORDS_KEY,
+                                          getName(),
+                                          OaiPmhParameterConstants.STREAM_RECORDS_DEFAULT_VALUE,
+                                          booleanMappingFunction));
+
+        this.dateWindowsParam = Configuration.registerParameter(
+                                    new IntegerParameter(
+                                        OaiPmhParameterConstants.DATE_WINDOWS_KEY,
+                                        getName(),
+                                        OaiPmhParameterConstants.DATE_WINDOWS_DEFAULT_VALUE,
+                                        unsignedIntegerMappingFunction));
+
+        this.partitionThreadsParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             OaiPmhParameterConstants.PARTITION_THREADS_KEY,
+                                             getName(),
+                                             OaiPmhParameterConstants.PARTITION_THREADS_DEFAULT_VALUE,
+                                             unsignedIntegerMappingFunction));
+
+        this.asyncExtractionParam = Configuration.registerParameter(
+                                        new BooleanParameter(
+                                            OaiPmhParameterConstants.ASYNC_EXTRACTION_KEY,
+                                            getName(),
+                                            OaiPmhParameterConstants.ASYNC_EXTRACTION_DEFAULT_VALUE,
+                                            booleanMappingFunction));
+
+        this.virtualThreadsParam = Configuration.registerParameter(
+                                       new BooleanParameter(
+                                           OaiPmhParameterConstants.VIRTUAL_THREADS_KEY,
+                                           getName(),
+                                           OaiPmhParameterConstants.VIRTUAL_THREADS_DEFAULT_VALUE,
+                                           booleanMappingFunction));
+
+        // this parameter is shared by all OAI-PMH ETLs, because it limits them together
+        this.maxConcurrentHarvestsParam = Configuration.registerParameter(
+                                              new IntegerParameter(
+                                                  OaiPmhParameterConstants.MAX_CONCURRENT_HARVESTS_KEY,
+                                                  ETLConstants.PARAMETER_CATEGORY,
+                                                  OaiPmhParameterConstants.MAX_CONCURRENT_HARVESTS_DEFAULT_VALUE,
+                                                  ParameterMappingFunctions.createMapperForETLs(ParameterMappingFunctions::mapToUnsignedInteger)));
+
+        this.shardBySetsParam = Configuration.registerParameter(
+                                    new BooleanParameter(
+                                        OaiPmhParameterConstants.SHARD_BY_SETS_KEY,
+                                        getName(),
+                                        OaiPmhParameterConstants.SHARD_BY_SETS_DEFAULT_VALUE,
+                                        booleanMappingFunction));
+
+        this.recordBufferSizeParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             OaiPmhParameterConstants.RECORD_BUFFER_SIZE_KEY,
+                                             getName(),
+                                             OaiPmhParameterConstants.RECORD_BUFFER_SIZE_DEFAULT_VALUE,
+                                             unsignedIntegerMappingFunction));
+
+        this.recordBufferBytesParam = Configuration.registerParameter(
+                                          new IntegerParameter(
+                                              OaiPmhParameterConstants.RECORD_BUFFER_BYTES_KEY,
+                                              getName(),
+                                              OaiPmhParameterConstants.RECORD_BUFFER_BYTES_DEFAULT_VALUE,
+                                              unsignedIntegerMappingFunction));
+
+        this.maxRetriesParam = Configuration.registerParameter(
+                                   new IntegerParameter(
+                                       OaiPmhParameterConstants.MAX_RETRIES_KEY,
+                                       getName(),
+                                       OaiPmhParameterConstants.MAX_RETRIES_DEFAULT_VALUE,
+                                       unsignedIntegerMappingFunction));
+
+        this.retryDelayParam = Configuration.registerParameter(
+                                   new IntegerParameter(
+                                       OaiPmhParameterConstants.RETRY_DELAY_KEY,
+                                       getName(),
+                                       OaiPmhParameterConstants.RETRY_DELAY_DEFAULT_VALUE,
+                                       unsignedIntegerMappingFunction));
+
+        this.maxRequestsPerSecondParam = Configuration.registerParameter(
+                                             new IntegerParameter(
+                                                 OaiPmhParameterConstants.MAX_REQUESTS_PER_SECOND_KEY,
+                                                 getName(),
+                                                 OaiPmhParameterConstants.MAX_REQUESTS_PER_SECOND_DEFAULT_VALUE,
+                                                 unsignedIntegerMappingFunction));
+
+        this.maxConcurrentRequestsParam = Configuration.registerParameter(
+                                              new IntegerParameter(
+                                                  OaiPmhParameterConstants.MAX_CONCURRENT_REQUESTS_KEY,
+                                                  getName(),
+                                                  OaiPmhParameterConstants.MAX_CONCURRENT_REQUESTS_DEFAULT_VALUE,
+                                                  unsignedIntegerMappingFunction));
+
+        this.resumeFromCheckpointParam = Configuration.registerParameter(
+                                             new BooleanParameter(
+                                                 OaiPmhParameterConstants.RESUME_FROM_CHECKPOINT_KEY,
+                                                 getName(),
+                                                 OaiPmhParameterConstants.RESUME_FROM_CHECKPOINT_DEFAULT_VALUE,
+                                                 booleanMappingFunction));
+
+        this.incrementalParam = Configuration.registerParameter(
+                                    new BooleanParameter(
+                                        OaiPmhParameterConstants.INCREMENTAL_KEY,
+                                        getName(),
+                                        OaiPmhParameterConstants.INCREMENTAL_DEFAULT_VALUE,
+                                        booleanMappingFunction));
+
+        this.incrementalOverlapParam = Configuration.registerParameter(
+                                           new IntegerParameter(
+                                               OaiPmhParameterConstants.INCREMENTAL_OVERLAP_KEY,
+                                               getName(),
+                                               OaiPmhParameterConstants.INCREMENTAL_OVERLAP_DEFAULT_VALUE,
+                                               unsignedIntegerMappingFunction));
+
+        this.metadataCacheTtlParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             OaiPmhParameterConstants.METADATA_CACHE_TTL_KEY,
+                                             getName(),
+                                             OaiPmhParameterConstants.METADATA_CACHE_TTL_DEFAULT_VALUE,
+                                             unsignedIntegerMappingFunction));
+
+        this.listIdentifiersParam = Configuration.registerParameter(
+                                        new BooleanParameter(
+                                            OaiPmhParameterConstants.LIST_IDENTIFIERS_KEY,
+                                            getName(),
+                                            OaiPmhParameterConstants.LIST_IDENTIFIERS_DEFAULT_VALUE,
+                                            booleanMappingFunction));
+
+        this.getRecordThreadsParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             OaiPmhParameterConstants.GET_RECORD_THREADS_KEY,
+                                             getName(),
+                                             OaiPmhParameterConstants.GET_RECORD_THREADS_DEFAULT_VALUE,
+                                             unsignedIntegerMappingFunction));
+
+        this.duplicateFilterSizeParam = Configuration.registerParameter(
+                                            new IntegerParameter(
+                                                OaiPmhParameterConstants.DUPLICATE_FILTER_SIZE_KEY,
+                                                getName(),
+                                                OaiPmhParameterConstants.DUPLICATE_FILTER_SIZE_DEFAULT_VALUE,
+                                                unsignedIntegerMappingFunction));
+
+        this.minHarvestIntervalParam = Configuration.registerParameter(
+                                           new IntegerParameter(
+                                               OaiPmhParameterConstants.MIN_HARVEST_INTERVAL_KEY,
+                                               getName(),
+                                               OaiPmhParameterConstants.MIN_HARVEST_INTERVAL_DEFAULT_VALUE,
+                                               unsignedIntegerMappingFunction));
+
+        this.maxHarvestIntervalParam = Configuration.registerParameter(
+                                           new IntegerParameter(
+                                               OaiPmhParameterConstants.MAX_HARVEST_INTERVAL_KEY,
+                                               getName(),
+                                               OaiPmhParameterConstants.MAX_HARVEST_INTERVAL_DEFAULT_VALUE,
+                                               unsignedIntegerMappingFunction));
+
+        this.recordsPerScheduledHarvestParam = Configuration.registerParameter(
+                                                   new IntegerParameter(
+                                                       OaiPmhParameterConstants.RECORDS_PER_SCHEDULED_HARVEST_KEY,
+                                                       getName(),
+                                                       OaiPmhParameterConstants.RECORDS_PER_SCHEDULED_HARVEST_DEFAULT_VALUE,
+                                                       unsignedIntegerMappingFunction));
+
+        this.transformThreadsParam = Configuration.registerParameter(
+                                         new IntegerParameter(
+                                             OaiPmhParameterConstants.TRANSFORM_THREADS_KEY,
+                                             getName(),
+                                             OaiPmhParameterConstants.TRANSFORM_THREADS_DEFAULT_VALUE,
+                                             unsignedIntegerMappingFunction));
+
+        this.unorderedTransformParam = Configuration.registerParameter(
+                                           new BooleanParameter(
+                                               OaiPmhParameterConstants.UNORDERED_TRANSFORM_KEY,
+                                               getName(),
+                                               OaiPmhParameterConstants.UNORDERED_TRANSFORM_DEFAULT_VALUE,
+                                               booleanMappingFunction));
+    }
+
+
+    /**
+     * Retrieves the default value of a parameter from the definition of the harvested repository.
+     *
+     * @param repositoryValue a getter of the repository definition
+     * @param defaultValue the value that is used if the repository does not define the parameter
+     *
+     * @return the default value of the parameter
+     */
+    private String getDefaultValue(final Function<OaiPmhRepository, String> repositoryValue, final String defaultValue)
+    {
+        final String value = repository == null ? null : repositoryValue.apply(repository);
+        return value == null ? defaultValue : value;
     }
 
 
@@ -173,10 +458,6 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
     {
         // set the transformer to null, if something is broken
         try {
-            // if for the map is not initialized yet, do it
-            if (this.schemaUrlMap.isEmpty())
-                this.schemaUrlMap = createSchemaUrlMap();
-
             // get the metadata schema name
             final String metadataPrefix = metadataPrefixParam.getValue();
 
@@ -215,7 +496,7 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
         else if (hostUrlParam.getValue() == null || hostUrlParam.getValue().isEmpty())
             errorMessageBuilder.append(OaiPmhConstants.NO_HOST_URL_ERROR);
 
-        else if (schemaUrlMap.isEmpty())
+        else if (getSchemaUrlMap().isEmpty())
             errorMessageBuilder.append(OaiPmhConstants.CANNOT_GET_METADATA_SCHEMAS_ERROR);
 
         else {
@@ -265,13 +546,40 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
             this.transformer = createTransformer();
 
         else if (param == hostUrlParam) { // NOPMD == intended, because it is the same object instance
+            // the metadata formats of the new repository are retrieved when they are checked
             this.extractor.init(this);
-            this.schemaUrlMap = createSchemaUrlMap();
-            this.transformer = createTransformer();
+            this.schemaUrlMap = new HashMap<>();
+            this.transformer = null;
         }
     }
 
 
+    @Override
+    public void update() throws ETLPreconditionException
+    {
+        super.update();
+
+        if (transformer == null)
+            this.transformer = createTransformer();
+    }
+
+
+    /**
+     * Returns the map of (non-unique) metadataPrefix names to unique schema URLs
+     * of the harvested repository. The map is not retrieved when the host URL changes,
+     * but by the first metadataPrefix check or harvest that follows.
+     *
+     * @return a map of (non-unique) metadataPrefix names to unique schema URLs
+     */
+    private Map<String, String> getSchemaUrlMap()
+    {
+        if (schemaUrlMap.isEmpty())
+            this.schemaUrlMap = createSchemaUrlMap();
+
+        return schemaUrlMap;
+    }
+
+
     /**
      * Creates a map of (non-unique) metadataPrefix names to unique
      * schema URLs, which helps to determine the correct metadata schema to apply.
@@ -285,7 +593,7 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
         // make a request to retrieve metadata formats
         try {
             final String metadataFormatsUrl = getMetadataFormatsUrl();
-            final Document schemasDoc = new HttpRequester().getHtmlFromUrl(metadataFormatsUrl);
+            final Document schemasDoc = getHttpClient().getCachedDocument(metadataFormatsUrl, getMetadataCacheTtl());
 
             final Elements schemaElements =
                 schemasDoc.select(OaiPmhConstants.ALL_METADATA_PREFIXES_SELECTION);
@@ -307,11 +615,12 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
      *
      * @throws IllegalStateException if either the host URL or the metadata prefix is not set
      *
-     * @return a ListRecords URL, e.g. https://ws.pangaea.de/oai/provider?verb=ListRecords&metadataPrefix=datacite3
+     * @return a ListRecords URL, e.g. https://ws.pangaea.de/oai/provider?verb=ListRecords&metadataPrefix=datacite3,
+     * or a ListIdentifiers URL if the "listIdentifiers"-parameter is true
      */
     public String getListRecordsUrl() throws IllegalStateException
     {
-        return getListRecordsUrl(fromParam.getValue());
+        return getListRecordsUrl(getHarvestedFrom(), untilParam.getValue(), setParam.getValue());
     }
 
 
@@ -341,7 +650,28 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
      */
     public String getResumptionUrlFormat()
     {
-        return String.format(OaiPmhConstants.RESUMPTION_URL, hostUrlParam.getValue());
+        return String.format(
+                   listIdentifiersParam.getValue()
+                   ? OaiPmhConstants.LIST_IDENTIFIERS_RESUMPTION_URL
+                   : OaiPmhConstants.RESUMPTION_URL,
+                   hostUrlParam.getValue());
+    }
+
+
+    /**
+     * Assembles a GetRecord URL with a {@linkplain String} placeholder for
+     * the URL-encoded identifier of the record.
+     *
+     * @throws IllegalStateException if either the host URL or the metadata prefix is not set
+     *
+     * @return a URL string that must be formatted to include a record identifier
+     */
+    public String getRecordUrlFormat() throws IllegalStateException
+    {
+        // make sure that all mandatory parameters are set
+        getListRecordsUrl();
+
+        return String.format(OaiPmhConstants.GET_RECORD_URL, hostUrlParam.getValue(), metadataPrefixParam.getValue());
     }
 
 
@@ -356,7 +686,195 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
      */
     public String getFallbackResumptionUrlFormat()
     {
-        return getListRecordsUrl("%s");
+        return getFallbackUrlFormat(untilParam.getValue(), setParam.getValue(), getGranularity());
+    }
+
+
+    /**
+     * Assembles a fallback URL that must be formatted to include the datestamp from which
+     * the harvest is continued. Since the fallback datestamp is truncated to the granularity of
+     * the repository, and repositories reject queries with "from" and "until" parameters of
+     * different granularities, the "until" parameter is truncated as well.
+     *
+     * @param until the maximum date stamp of records
+     * @param oaiSet the setSpec of the harvested set
+     * @param granularity the datestamp granularity of the repository
+     *
+     * @return a URL string that must be formatted to include the starting date
+     */
+    private String getFallbackUrlFormat(final String until, final String oaiSet, final DatestampGranularity granularity)
+    {
+        String fallbackUntil = until;
+
+        if (until != null && !until.isEmpty()) {
+            try {
+                fallbackUntil = granularity.truncate(until);
+            } catch (final DateTimeException e) {
+                logger.warn(String.format(OaiPmhConstants.CANNOT_PARSE_DATESTAMP_ERROR, until), e);
+            }
+        }
+
+        return getListRecordsUrl("%s", fallbackUntil, oaiSet);
+    }
+
+
+    /**
+     * Splits the harvest into a number of partitions that can be harvested independently of each other.
+     * If the "dateWindows"-parameter is greater than 1, the harvested date range is split into
+     * date windows. If the "shardBySets"-parameter is true, each of these windows is harvested
+     * once per set.
+     *
+     * @throws IllegalStateException if either the host URL or the metadata prefix is not set
+     *
+     * @return a list of partitions that cover the harvested records
+     */
+    public List<OaiPmhPartition> getPartitions() throws IllegalStateException
+    {
+        // make sure that all mandatory parameters are set, before sending requests
+        getListRecordsUrl();
+
+        final List<DateWindow> windows = splitDateRange();
+        final List<String> sets = getHarvestedSets();
+        final DatestampGranularity granularity = getGranularity();
+        final List<OaiPmhPartition> partitions = new ArrayList<>(windows.size() * sets.size());
+
+        for (final String set : sets) {
+            for (final DateWindow window : windows) {
+                partitions.add(new OaiPmhPartition(
+                                   getListRecordsUrl(window.getFrom(), window.getUntil(), set),
+                                   getFallbackUrlFormat(window.getUntil(), set, granularity)));
+            }
+        }
+
+        if (partitions.size() > 1 && logger.isInfoEnabled())
+            logger.info(String.format(OaiPmhConstants.PARTITIONS_INFO, windows.size(), sets.size(), getPartitionThreads()));
+
+        return partitions;
+    }
+
+
+    /**
+     * Splits the harvested date range into a number of date windows, as specified by the
+     * "dateWindows"-parameter.
+     * If no "from"-parameter is set, the earliest datestamp of the repository is used
+     * as the start of the range. If no "until"-parameter is set, the range ends now.
+     * The datestamps are aligned to the granularity that is supported by the repository.
+     *
+     * @return a list of consecutive date windows that cover the harvested date range
+     */
+    private List<DateWindow> splitDateRange()
+    {
+        final DateWindow completeRange = new DateWindow(getHarvestedFrom(), untilParam.getValue());
+
+        if (dateWindowsParam.getValue() <= 1)
+            return Collections.singletonList(completeRange);
+
+        final List<DateWindow> windows;
+
+        try {
+            final Document identifyDoc = getIdentifyDocument();
+            final DatestampGranularity granularity = getGranularity();
+
+            final String from = completeRange.getFrom();
+            final Instant fromDate = from == null || from.isEmpty()
+                                     ? DatestampGranularity.parse(
+                                         HtmlUtils.getString(identifyDoc, OaiPmhConstants.EARLIEST_DATESTAMP_ELEMENT))
+                                     : DatestampGranularity.parse(from);
+
+            final String until = untilParam.getValue();
+            final Instant untilDate = until == null || until.isEmpty()
+                                      ? Instant.now()
+                                      : granularity.parseUpperBound(until);
+
+            windows = DateWindow.split(fromDate, untilDate, dateWindowsParam.getValue(), granularity);
+
+        } catch (DateTimeException | NullPointerException e) { // NOPMD missing Identify values are handled the same as malformed ones
+            logger.warn(OaiPmhConstants.CANNOT_SPLIT_DATE_RANGE_ERROR, e);
+            return Collections.singletonList(completeRange);
+        }
+
+        // keep the configured borders of the range, to not lose records that are added during the harvest
+        final int lastIndex = windows.size() - 1;
+        windows.set(0, new DateWindow(completeRange.getFrom(), windows.get(0).getUntil()));
+        windows.set(lastIndex, new DateWindow(windows.get(lastIndex).getFrom(), completeRange.getUntil()));
+
+        return windows;
+    }
+
+
+    /**
+     * Retrieves the sets that are to be harvested independently of each other.
+     * If the "shardBySets"-parameter is false, the "set"-parameter is harvested as a whole.
+     * Otherwise, the "set"-parameter is treated as a comma-separated list of sets. If it is empty,
+     * all sets of the repository are retrieved via the ListSets verb.
+     * Sets that are subsets of other harvested sets are omitted, because their records are
+     * part of the superset.
+     *
+     * @return a list of setSpecs, or a list containing only the "set"-parameter
+     * if the harvest is not to be split by sets
+     */
+    private List<String> getHarvestedSets()
+    {
+        final String setParamValue = setParam.getValue() == null ? "" : setParam.getValue();
+
+        if (!shardBySetsParam.getValue())
+            return Collections.singletonList(setParamValue);
+
+        final List<String> sets = new ArrayList<>();
+
+        if (setParamValue.isEmpty())
+            sets.addAll(getRepositorySets());
+        else {
+            for (final String set : setParamValue.split(OaiPmhConstants.SET_SEPARATOR)) {
+                if (!set.trim().isEmpty())
+                    sets.add(set.trim());
+            }
+        }
+
+        // remove subsets, because their records are harvested with their supersets
+        final List<String> topLevelSets = sets.stream()
+                                          .distinct()
+                                          .filter((final String set) -> sets.stream().noneMatch(
+                                                      (final String superset) -> set.startsWith(superset + OaiPmhConstants.SET_SPEC_DELIMITER)))
+                                          .collect(Collectors.toList());
+
+        if (topLevelSets.isEmpty()) {
+            logger.warn(OaiPmhConstants.NO_SETS_ERROR);
+            return Collections.singletonList(setParamValue);
+        }
+
+        return topLevelSets;
+    }
+
+
+    /**
+     * Retrieves the setSpecs of all sets of the harvested repository via the ListSets verb,
+     * following resumption tokens.
+     *
+     * @return a list of setSpecs, or an empty list if the repository does not support sets
+     */
+    private List<String> getRepositorySets()
+    {
+        final List<String> sets = new ArrayList<>();
+        String listSetsUrl = String.format(OaiPmhConstants.LIST_SETS_URL, hostUrlParam.getValue());
+
+        while (listSetsUrl != null) {
+            final Document setsDoc = getHttpClient().getDocument(listSetsUrl);
+
+            if (setsDoc == null)
+                break;
+
+            for (final Element setSpec : SelectorCache.select(setsDoc, OaiPmhConstants.SET_SPEC_SELECTION))
+                sets.add(setSpec.text().trim());
+
+            final Element resumptionToken = SelectorCache.selectFirst(setsDoc, OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT);
+
+            listSetsUrl = resumptionToken == null || resumptionToken.text().trim().isEmpty()
+                          ? null
+                          : String.format(OaiPmhConstants.LIST_SETS_RESUMPTION_URL, hostUrlParam.getValue(), resumptionToken.text().trim());
+        }
+
+        return sets;
     }
 
 
@@ -367,10 +885,8 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
      */
     public String getRepositoryName()
     {
-        final HttpRequester httpRequester = new HttpRequester();
-
         if (hostUrlParam.getValue() != null && !hostUrlParam.getValue().isEmpty()) {
-            final Document identifyDoc = httpRequester.getHtmlFromUrl(String.format(OaiPmhConstants.IDENTIFY_URL, hostUrlParam.getValue()));
+            final Document identifyDoc = getIdentifyDocument();
 
             if (identifyDoc != null)
                 return identifyDoc.select(OaiPmhConstants.REPOSITORY_NAME_ELEMENT).first().text();
@@ -380,6 +896,205 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
     }
 
 
+    /**
+     * Retrieves the finest datestamp granularity that is supported by the harvested repository,
+     * as announced in the "granularity" element of the Identify response.
+     *
+     * @return the datestamp granularity of the repository, or {@linkplain DatestampGranularity#DAY}
+     * if it cannot be retrieved
+     */
+    public DatestampGranularity getGranularity()
+    {
+        final Document identifyDoc = hostUrlParam.getValue() == null || hostUrlParam.getValue().isEmpty()
+                                     ? null
+                                     : getIdentifyDocument();
+
+        return DatestampGranularity.fromIdentifyValue(
+                   identifyDoc == null
+                   ? null
+                   : HtmlUtils.getString(identifyDoc, OaiPmhConstants.GRANULARITY_ELEMENT));
+    }
+
+
+    /**
+     * Retrieves the content encodings that are supported by both the harvested repository
+     * and the harvester, as announced in the "compression" elements of the Identify response.
+     * If the repository does not announce any compression, gzip is assumed to be supported,
+     * because servers that do not support it simply ignore the request header.
+     *
+     * @return a list of encodings that can be used to compress the OAI-PMH responses
+     */
+    public List<ContentEncoding> getSupportedEncodings()
+    {
+        final List<ContentEncoding> encodings = new ArrayList<>();
+        final Document identifyDoc = hostUrlParam.getValue() == null || hostUrlParam.getValue().isEmpty()
+                                     ? null
+                                     : getIdentifyDocument();
+
+        if (identifyDoc != null) {
+            for (final Element compression : identifyDoc.select(OaiPmhConstants.COMPRESSION_ELEMENT)) {
+                final ContentEncoding encoding = ContentEncoding.fromValue(compression.text());
+
+                if (encoding != null && !encodings.contains(encoding))
+                    encodings.add(encoding);
+            }
+        }
+
+        if (encodings.isEmpty())
+            encodings.add(ContentEncoding.GZIP);
+
+        return encodings;
+    }
+
+
+    /**
+     * Retrieves the earliest datestamp of the harvested records. If incremental harvesting
+     * is enabled and a previous harvest was successful, the latest datestamp of the previous
+     * harvest minus the "incrementalOverlap"-parameter is used, unless the "from"-parameter
+     * is even later.
+     *
+     * @return the value of the "from" query parameter, or an empty string if the
+     * harvest is to start at the earliest datestamp of the repository
+     */
+    private String getHarvestedFrom()
+    {
+        final String from = fromParam.getValue();
+
+        if (!incrementalParam.getValue())
+            return from;
+
+        final HighWaterMark highWaterMark = loadHighWaterMark();
+
+        if (highWaterMark == null)
+            return from;
+
+        try {
+            final DatestampGranularity granularity = highWaterMark.getGranularity() == null
+                                                     ? DatestampGranularity.DAY
+                                                     : highWaterMark.getGranularity();
+            final Instant incrementalDate = granularity.truncate(
+                                                DatestampGranularity.parse(highWaterMark.getDatestamp())
+                                                .minusSeconds(incrementalOverlapParam.getValue()));
+
+            return from == null || from.isEmpty() || DatestampGranularity.parse(from).isBefore(incrementalDate)
+                   ? granularity.format(incrementalDate)
+                   : from;
+
+        } catch (final DateTimeException e) {
+            logger.warn(String.format(OaiPmhConstants.CANNOT_PARSE_DATESTAMP_ERROR, highWaterMark.getDatestamp()), e);
+            return from;
+        }
+    }
+
+
+    /**
+     * Loads the latest datestamp of the previous successful harvest of the
+     * repository, metadata prefix and set that are currently configured.
+     *
+     * @return the high-water mark of the previous harvest, or null if there is none
+     */
+    private HighWaterMark loadHighWaterMark()
+    {
+        final HighWaterMark highWaterMark = getHighWaterMarkFile().load();
+
+        return highWaterMark != null
+               && highWaterMark.getDatestamp() != null
+               && getListUrl(OaiPmhConstants.LIST_RECORDS_URL, null, null, setParam.getValue()).equals(highWaterMark.getRecordsUrl())
+               ? highWaterMark
+               : null;
+    }
+
+
+    /**
+     * Saves the latest datestamp of a successful harvest, so that the subsequent
+     * harvest can continue from there. The datestamp is only saved if it is later
+     * than the datestamp of a previous harvest.
+     *
+     * @param latestDatestamp the latest datestamp of all harvested records
+     */
+    private void saveHighWaterMark(final String latestDatestamp)
+    {
+        final HighWaterMark previousMark = loadHighWaterMark();
+
+        try {
+            if (previousMark != null
+                && !DatestampGranularity.parse(latestDatestamp).isAfter(DatestampGranularity.parse(previousMark.getDatestamp())))
+                return;
+
+        } catch (final DateTimeException e) {
+            logger.warn(String.format(OaiPmhConstants.CANNOT_PARSE_DATESTAMP_ERROR, latestDatestamp), e);
+            return;
+        }
+
+        getHighWaterMarkFile().save(new HighWaterMark(
+                                        getListUrl(OaiPmhConstants.LIST_RECORDS_URL, null, null, setParam.getValue()),
+                                        latestDatestamp,
+                                        getGranularity()));
+
+        if (logger.isInfoEnabled())
+            logger.info(String.format(OaiPmhConstants.HIGH_WATER_MARK_INFO, latestDatestamp));
+    }
+
+
+    /**
+     * Returns the file in which the latest datestamp of the previous successful harvest is stored.
+     * The file is named after this ETL, which is why it cannot be created before init() was called.
+     *
+     * @return the high-water mark file of this ETL
+     */
+    private synchronized AtomicJsonFile<HighWaterMark> getHighWaterMarkFile()
+    {
+        if (highWaterMarkFile == null)
+            this.highWaterMarkFile = new AtomicJsonFile<>(
+                String.format(OaiPmhConstants.HIGH_WATER_MARK_FILE_PATH, getName()),
+                HighWaterMark.class);
+
+        return highWaterMarkFile;
+    }
+
+
+    /**
+     * Retrieves the response of the Identify verb of the harvested OAI-PMH repository.
+     * The response is cached for the duration of the "metadataCacheTtl"-parameter.
+     *
+     * @return the Identify response, or null if it could not be retrieved
+     */
+    private Document getIdentifyDocument()
+    {
+        return getHttpClient().getCachedDocument(
+                   String.format(OaiPmhConstants.IDENTIFY_URL, hostUrlParam.getValue()),
+                   getMetadataCacheTtl());
+    }
+
+
+    /**
+     * Returns the number of milliseconds for which Identify and ListMetadataFormats
+     * responses are cached before they are revalidated.
+     *
+     * @return the value of the "metadataCacheTtl"-parameter in milliseconds
+     */
+    private long getMetadataCacheTtl()
+    {
+        return metadataCacheTtlParam.getValue() * 1000L;
+    }
+
+
+    /**
+     * Returns the client that sends all HTTP requests to the harvested repository.
+     * The client reads its disk cache settings from the {@linkplain Configuration}, which is why
+     * it is only created once it is used, rather than before the configuration exists.
+     *
+     * @return the HTTP client of this ETL
+     */
+    public synchronized OaiPmhHttpClient getHttpClient()
+    {
+        if (httpClient == null)
+            this.httpClient = new OaiPmhHttpClient(getRetryPolicy());
+
+        return httpClient;
+    }
+
+
     /**
      * Returns a URL that should point to the repository provider logo.
      * The URL is directly retrieved from the corresponding parameter.
@@ -403,17 +1118,349 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
     }
 
 
+    /**
+     * Returns the maximum number of record pages that are retrieved in the background,
+     * while the records of the current page are being processed.
+     * If the value is 0, pages are only retrieved when all records of the previous page
+     * are processed.
+     *
+     * @return the value of the "prefetchDepth"-parameter
+     */
+    public int getPrefetchDepth()
+    {
+        return prefetchDepthParam.getValue();
+    }
+
+
+    /**
+     * Returns true if records are to be read one by one from the response streams,
+     * instead of parsing each page of records as a whole. This reduces the memory
+     * consumption for repositories that return very large pages.
+     * The "prefetchDepth"-parameter is ignored in this mode, because prefetched pages
+     * would have to be kept in memory.
+     *
+     * @return the value of the "streamRecords"-parameter
+     */
+    public boolean isStreamingRecords()
+    {
+        return streamRecordsParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of date windows into which the harvested date range
+     * is split. Each window is harvested with its own chain of resumption tokens.
+     * If the value is 1 or lower, the date range is harvested as a whole.
+     *
+     * @return the value of the "dateWindows"-parameter
+     */
+    public int getDateWindows()
+    {
+        return dateWindowsParam.getValue();
+    }
+
+
+    /**
+     * Returns true if multiple partitions are to be harvested asynchronously. Instead of
+     * dedicating a thread to each partition, the pages of all partitions are requested by
+     * a pool of "partitionThreads" threads and parsed by a separate pool, so that
+     * many partitions can be harvested with few threads.
+     * The parameter is ignored if records are streamed, or if the harvest is not partitioned.
+     *
+     * @return the value of the "asyncExtraction"-parameter
+     */
+    public boolean isExtractingAsynchronously()
+    {
+        return asyncExtractionParam.getValue();
+    }
+
+
+    /**
+     * Returns true if the background threads of the extraction are to be virtual threads.
+     * Virtual threads are cheap to create and to block, which allows many repositories to be
+     * harvested at the same time. The parameter is ignored if the Java runtime does not
+     * support virtual threads.
+     *
+     * @return the value of the "virtualThreads"-parameter
+     */
+    public boolean isUsingVirtualThreads()
+    {
+        return virtualThreadsParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of OAI-PMH ETLs that may extract records at the same time.
+     * Further ETLs wait until a running harvest is finished.
+     * This parameter is shared by all OAI-PMH ETLs.
+     *
+     * @return the value of the "AllETLs.maxConcurrentHarvests"-parameter, or 0 if it is unlimited
+     */
+    public int getMaxConcurrentHarvests()
+    {
+        return maxConcurrentHarvestsParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of date windows that are harvested concurrently.
+     *
+     * @return the value of the "partitionThreads"-parameter, but at least 1
+     */
+    public int getPartitionThreads()
+    {
+        return Math.max(1, partitionThreadsParam.getValue());
+    }
+
+
+    /**
+     * Returns true if each set is to be harvested with its own chain of resumption tokens.
+     * Records that belong to multiple sets are skipped by the duplicate filter,
+     * as specified by the "duplicateFilterSize"-parameter.
+     *
+     * @return the value of the "shardBySets"-parameter
+     */
+    public boolean isShardingBySets()
+    {
+        return shardBySetsParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of records that are buffered between the
+     * extraction threads and the transformation of the records.
+     *
+     * @return the value of the "recordBufferSize"-parameter, but at least 1
+     */
+    public int getRecordBufferSize()
+    {
+        return Math.max(1, recordBufferSizeParam.getValue());
+    }
+
+
+    /**
+     * Returns the maximum estimated memory consumption of the records that are buffered
+     * between the extraction threads and the transformation of the records.
+     *
+     * @return the value of the "recordBufferBytes"-parameter, or 0 if the memory is not to be limited
+     */
+    public long getRecordBufferBytes()
+    {
+        return recordBufferBytesParam.getValue();
+    }
+
+
+    /**
+     * Checks if an unfinished harvest is to be continued from its last checkpoint,
+     * instead of being restarted from scratch.
+     *
+     * @return the value of the "resumeFromCheckpoint"-parameter
+     */
+    public boolean isResumingFromCheckpoint()
+    {
+        return resumeFromCheckpointParam.getValue();
+    }
+
+
+    /**
+     * Checks if only records that were added or changed since the previous
+     * successful harvest are to be harvested.
+     *
+     * @return the value of the "incremental"-parameter
+     */
+    public boolean isHarvestingIncrementally()
+    {
+        return incrementalParam.getValue();
+    }
+
+
+    /**
+     * Returns the number of seconds before the latest datestamp of the previous harvest,
+     * from which an incremental harvest starts.
+     *
+     * @return the value of the "incrementalOverlap"-parameter
+     */
+    public int getIncrementalOverlap()
+    {
+        return incrementalOverlapParam.getValue();
+    }
+
+
+    /**
+     * Returns the minimum number of minutes between two harvests that are started by the scheduler.
+     *
+     * @return the value of the "minHarvestInterval"-parameter,
+     *         or 0 if the repository is not harvested by the scheduler
+     */
+    public int getMinHarvestInterval()
+    {
+        return minHarvestIntervalParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of minutes between two harvests that are started by the scheduler.
+     * Repositories that rarely change are harvested at least this often.
+     *
+     * @return the value of the "maxHarvestInterval"-parameter, but at least the minimum interval
+     */
+    public int getMaxHarvestInterval()
+    {
+        return Math.max(getMinHarvestInterval(), maxHarvestIntervalParam.getValue());
+    }
+
+
+    /**
+     * Returns the number of records that each harvest that is started by the scheduler
+     * should yield. The interval between two harvests is chosen accordingly, depending
+     * on how many records per hour the repository changed in the past.
+     *
+     * @return the value of the "recordsPerScheduledHarvest"-parameter, but at least 1
+     */
+    public int getRecordsPerScheduledHarvest()
+    {
+        return Math.max(1, recordsPerScheduledHarvestParam.getValue());
+    }
+
+
+    /**
+     * Returns the number of worker threads that transform records concurrently.
+     * If it is 1, records are transformed one by one on the harvesting thread.
+     *
+     * @return the value of the "transformThreads"-parameter, but at least 1
+     */
+    public int getTransformThreads()
+    {
+        return Math.max(1, transformThreadsParam.getValue());
+    }
+
+
+    /**
+     * Returns true if records that are transformed by multiple worker threads may be
+     * loaded in the order in which their transformation finished, rather than in the order
+     * in which they were harvested. This prevents slow records from holding back the loader.
+     *
+     * @return the value of the "unorderedTransform"-parameter
+     */
+    public boolean isTransformingUnordered()
+    {
+        return unorderedTransformParam.getValue();
+    }
+
+
+    /**
+     * Returns true if the identifiers of the records are to be listed via the ListIdentifiers verb,
+     * and the records themselves are to be retrieved one by one via the GetRecord verb.
+     * This helps with repositories that serve ListRecords pages slowly or time out on them.
+     * The "streamRecords"-parameter is ignored in this mode.
+     *
+     * @return the value of the "listIdentifiers"-parameter
+     */
+    public boolean isListingIdentifiers()
+    {
+        return listIdentifiersParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of GetRecord requests that are sent concurrently,
+     * if records are retrieved via ListIdentifiers and GetRecord.
+     *
+     * @return the value of the "getRecordThreads"-parameter, but at least 1
+     */
+    public int getGetRecordThreads()
+    {
+        return Math.max(1, getRecordThreadsParam.getValue());
+    }
+
+
+    /**
+     * Returns the number of most recently extracted records of which the identifier
+     * and datestamp are remembered, in order to skip duplicates before they are transformed.
+     * Duplicates occur if a harvest is continued via a fallback URL, or if harvested sets overlap.
+     *
+     * @return the value of the "duplicateFilterSize"-parameter, or 0 if duplicates are not to be skipped
+     */
+    public int getDuplicateFilterSize()
+    {
+        return duplicateFilterSizeParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of HTTP requests per second that are sent to the repository.
+     *
+     * @return the value of the "maxRequestsPerSecond"-parameter, or 0 if the rate is unlimited
+     */
+    public int getMaxRequestsPerSecond()
+    {
+        return maxRequestsPerSecondParam.getValue();
+    }
+
+
+    /**
+     * Returns the maximum number of concurrent HTTP requests to the repository.
+     * The actual number of concurrent requests is reduced while the repository
+     * is overloaded or responds slowly.
+     *
+     * @return the value of the "maxConcurrentRequests"-parameter, or 0 if the concurrency is unlimited
+     */
+    public int getMaxConcurrentRequests()
+    {
+        return maxConcurrentRequestsParam.getValue();
+    }
+
+
+    /**
+     * Assembles the policy that decides if and when failed HTTP requests are repeated.
+     *
+     * @return a retry policy, based on the "maxRetries" and "retryDelay"-parameters
+     */
+    public RetryPolicy getRetryPolicy()
+    {
+        return new RetryPolicy(
+                   maxRetriesParam.getValue(),
+                   retryDelayParam.getValue(),
+                   OaiPmhParameterConstants.MAX_RETRY_DELAY);
+    }
+
+
     /**
      * Assembles an OAI-PMH compliant Query-URL for retrieving a record list. Harvester preconfigured parameters
      * are used, but can also be manually configured via REST.
      *
      * @param dateFrom the minimum date stamp of records
+     * @param dateUntil the maximum date stamp of records
+     * @param oaiSet the setSpec of the harvested set
+     *
+     * @return a ListRecords URL, e.g. https://ws.pangaea.de/oai/provider?verb=ListRecords&metadataPrefix=datacite3,
+     * or a ListIdentifiers URL if the "listIdentifiers"-parameter is true
+     *
+     * @throws IllegalStateException if either the host URL or the metadata prefix is not set
+     */
+    private String getListRecordsUrl(final String dateFrom, final String dateUntil, final String oaiSet) throws IllegalStateException
+    {
+        return getListUrl(
+                   listIdentifiersParam.getValue() ? OaiPmhConstants.LIST_IDENTIFIERS_URL : OaiPmhConstants.LIST_RECORDS_URL,
+                   dateFrom,
+                   dateUntil,
+                   oaiSet);
+    }
+
+
+    /**
+     * Assembles an OAI-PMH compliant Query-URL for a list verb, such as ListRecords or ListIdentifiers.
+     *
+     * @param listUrlFormat a URL that must be formatted to include the host URL and the query
+     * @param dateFrom the minimum date stamp of records
+     * @param dateUntil the maximum date stamp of records
+     * @param oaiSet the setSpec of the harvested set
      *
-     * @return a ListRecords URL, e.g. https://ws.pangaea.de/oai/provider?verb=ListRecords&metadataPrefix=datacite3
+     * @return a list URL, e.g. https://ws.pangaea.de/oai/provider?verb=ListRecords&metadataPrefix=datacite3
      *
      * @throws IllegalStateException if either the host URL or the metadata prefix is not set
      */
-    private String getListRecordsUrl(final String dateFrom) throws IllegalStateException // NOPMD NPath complexity is high due to not adding null values to the query
+    private String getListUrl(final String listUrlFormat, final String dateFrom, final String dateUntil, final String oaiSet) throws IllegalStateException // NOPMD NPath complexity is high due to not adding null values to the query
     {
         final String hostUrl = hostUrlParam.getValue();
 
@@ -432,17 +1479,101 @@ public class OaiPmhETL extends AbstractIteratorETL<Element, DataCiteJson>
         if (dateFrom != null && !dateFrom.isEmpty())
             queryBuilder.append(OaiPmhConstants.DATE_FROM_QUERY).append(dateFrom);
 
-        final String dateUntil = untilParam.getValue();
-
         if (dateUntil != null && !dateUntil.isEmpty())
             queryBuilder.append(OaiPmhConstants.DATE_TO_QUERY).append(dateUntil);
 
-        final String oaiSet = setParam.getValue();
-
         if (oaiSet != null && !oaiSet.isEmpty())
             queryBuilder.append(OaiPmhConstants.SET_QUERY).append(oaiSet);
 
-        return String.format(OaiPmhConstants.LIST_RECORDS_URL, hostUrl, queryBuilder.toString());
+        return String.format(listUrlFormat, hostUrl, queryBuilder.toString());
+    }
+
+
+    @Override
+    public synchronized void prepareHarvest() throws ETLPreconditionException
+    {
+        // the ETL manager must not harvest the repository while the scheduler harvests it
+        if (isHarvestingOnSchedule)
+            throw new ETLPreconditionException(String.format(OaiPmhConstants.SCHEDULED_HARVEST_RUNNING_ERROR, getName()));
+
+        super.prepareHarvest();
+    }
+
+
+    @Override
+    public void abortHarvest() throws IllegalStateException
+    {
+        super.abortHarvest();
+
+        // interrupt the extraction, which may be waiting for other harvests or for the repository
+        if (getState() == ETLState.ABORTING && extractor != null)
+            extractor.clear();
+    }
+
+
+    /**
+     * Harvests this ETL independently of the ETL manager and of all other ETLs.
+     * This method blocks until the harvest is finished.
+     *
+     * @return true if the harvest was started, or false if the ETL was busy
+     *         or could not be prepared for the harvest
+     */
+    public boolean harvestOnSchedule()
+    {
+        synchronized (this) {
+            if (isHarvestingOnSchedule || getState() != ETLState.IDLE)
+                return false;
+
+            this.isHarvestingOnSchedule = true;
+        }
+
+        try {
+            super.prepareHarvest();
+            harvest();
+            finishHarvest();
+            return true;
+        } catch (final ETLPreconditionException e) {
+            logger.info(String.format(OaiPmhConstants.CANNOT_START_SCHEDULED_HARVEST_ERROR, getName()), e);
+            return false;
+        } finally {
+            if (getState() == ETLState.DONE)
+                setStatus(ETLState.IDLE);
+
+            this.isHarvestingOnSchedule = false;
+        }
+    }
+
+
+    @Override
+    protected void onHarvestFinished(final HarvestFinishedEvent event)
+    {
+        // harvests of the ETL manager cannot finish a harvest of the scheduler
+        if (isHarvestingOnSchedule)
+            return;
+
+        super.onHarvestFinished(event);
+        finishHarvest();
+    }
+
+
+    /**
+     * Persists the progress of a successful incremental harvest and logs connection statistics.
+     */
+    private void finishHarvest()
+    {
+        // remember where the next incremental harvest has to start
+        if (isHarvestingIncrementally() && getHealth() == ETLHealth.OK && extractor != null) {
+            final String latestDatestamp = ((OaiPmhRecordExtractor)extractor).getLatestDatestamp();
+
+            if (latestDatestamp != null)
+                saveHighWaterMark(latestDatestamp);
+        }
+
+        // log how many requests reused existing connections since the service was started
+        if (logger.isInfoEnabled()) {
+            for (final ConnectionStatistics statistics : OaiPmhHttpClient.getAllStatistics())
+                logger.info(statistics.toString());
+        }
     }
 
 
@@ -31,18 +31,92 @@ public class OaiPmhConstants
     public static final String DATE_TO_QUERY = "&until=";
     public static final String METADATA_PREFIX_QUERY = "&metadataPrefix=";
     public static final String SET_QUERY = "&set=";
+    public static final String SET_SEPARATOR = ",";
+    public static final String SET_SPEC_DELIMITER = ":";
 
     // URLs
     public static final String LIST_RECORDS_URL = "%s?verb=ListRecords%s";
     public static final String IDENTIFY_URL = "%s?verb=Identify";
     public static final String METADATA_FORMATS_URL = "%s?verb=ListMetadataFormats";
+    public static final String LIST_SETS_URL = "%s?verb=ListSets";
+    public static final String LIST_SETS_RESUMPTION_URL = "%s?verb=ListSets&resumptionToken=%s";
     public static final String RESUMPTION_URL =  "%s?verb=ListRecords&resumptionToken=%%s";
+    public static final String LIST_IDENTIFIERS_URL = "%s?verb=ListIdentifiers%s";
+    public static final String LIST_IDENTIFIERS_RESUMPTION_URL = "%s?verb=ListIdentifiers&resumptionToken=%%s";
+    public static final String GET_RECORD_URL = "%s?verb=GetRecord&metadataPrefix=%s&identifier=%%s";
     public static final String DOI_URL = "https://doi.org/%s";
 
+    // HTTP
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    public static final String ENCODING_SEPARATOR = ", ";
+    public static final String RESPONSE_CHARSET = "UTF-8";
+    public static final String HOST_KEY_FORMAT = "%s://%s:%d";
+    public static final String RATE_LIMITER_KEY_FORMAT = "%s %d/s %d";
+    public static final String TLS_PROTOCOL = "TLS";
+    public static final int TLS_SESSION_TIMEOUT_SECONDS = 3600;
+    public static final int TLS_SESSION_CACHE_SIZE = 1024;
+    public static final int DRAIN_BUFFER_SIZE = 4096;
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final String ETAG_HEADER = "ETag";
+    public static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+    public static final int HTTP_REQUEST_TIMEOUT = 408;
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+    public static final int HTTP_SERVER_ERROR_MIN = 500;
+    public static final int MAX_BACKOFF_EXPONENT = 30;
+    public static final long MAX_RETRY_AFTER = 10 * 60 * 1000L;
+
+    // Rate limiting
+    public static final double CONCURRENCY_DECREASE_FACTOR = 0.5;
+    public static final long CONCURRENCY_DECREASE_INTERVAL = 1000L;
+    public static final long CONGESTION_LATENCY_FACTOR = 3;
+    public static final long CONGESTION_LATENCY_MARGIN = 500L;
+    public static final int LATENCY_WINDOW_SIZE = 100;
+
+    // Extraction
+    public static final long FIRST_PAGE_MAX_AGE = 10 * 60 * 1000L;
+
+    // Duplicate filter
+    public static final String DUPLICATE_KEY_SEPARATOR = "\n";
+    public static final String HEADER_SET_SPEC_SELECTION = "header > setSpec";
+    public static final int DUPLICATE_FILTER_INITIAL_CAPACITY = 1 << 16;
+    public static final double DUPLICATE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    // Persisted harvest state
+    public static final String CHECKPOINT_FILE_PATH = "checkpoints/%s.json";
+    // a loader batch of 1 MiB holds at most this many documents of at least 1 KiB
+    public static final int CHECKPOINT_LOADER_BATCH_RECORDS = 1024;
+    public static final String HIGH_WATER_MARK_FILE_PATH = "highWaterMarks/%s.json";
+    public static final String CACHED_RESPONSES_FOLDER = "repositoryMetadata";
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    // Scheduled harvests
+    public static final String SCHEDULE_FILE_PATH = "schedules/%s.json";
+    public static final String SCHEDULER_THREAD_NAME = "OAI-PMH Scheduler";
+    public static final String SCHEDULED_HARVEST_THREAD_NAME = "OAI-PMH Scheduled Harvest";
+    public static final long SCHEDULER_CHECK_INTERVAL = 60 * 1000L;
+    public static final int INITIAL_HARVESTS_PER_CHECK = 4;
+    public static final double CHANGE_RATE_SMOOTHING = 0.5;
+
+    // Repository list
+    public static final String REPOSITORIES_FILE_PATH = "config/oaiPmhRepositories.json";
+    public static final String INVALID_ETL_NAME_CHARACTERS = "\\W";
+    public static final String DEFAULT_ETL_NAME = "%s%d";
+
     // Elements and Attributes
     public static final String REPOSITORY_NAME_ELEMENT = "repositoryName";
+    public static final String EARLIEST_DATESTAMP_ELEMENT = "earliestDatestamp";
+    public static final String GRANULARITY_ELEMENT = "granularity";
+    public static final String COMPRESSION_ELEMENT = "compression";
     public static final String RECORD_ELEMENT = "record";
     public static final String RESUMPTION_TOKEN_ELEMENT = "resumptionToken";
+    public static final String ERROR_ELEMENT = "error";
+    public static final String ERROR_CODE_ATTRIBUTE = "code";
+    public static final String NO_RECORDS_MATCH_CODE = "noRecordsMatch";
+    public static final String NO_RECORDS_MATCH_SELECTION = ERROR_ELEMENT + "[" + ERROR_CODE_ATTRIBUTE + "=" + NO_RECORDS_MATCH_CODE + "]";
+    public static final String ID_DOES_NOT_EXIST_CODE = "idDoesNotExist";
+    public static final String ID_DOES_NOT_EXIST_SELECTION = ERROR_ELEMENT + "[" + ERROR_CODE_ATTRIBUTE + "=" + ID_DOES_NOT_EXIST_CODE + "]";
 
     public static final String RECORD_HEADER = "header";
     public static final String RECORD_METADATA = "metadata";
@@ -59,10 +133,25 @@ public class OaiPmhConstants
     public static final String LANGUAGE_ATTRIBUTE = "xml:lang";
     public static final String LIST_SIZE_ATTRIBUTE = "completeListSize";
     public static final String ALL_METADATA_PREFIXES_SELECTION = "metadataFormat";
+    public static final String SET_SPEC_SELECTION = "set > setSpec";
     public static final String METADATA_PREFIX_SELECTION = "metadataPrefix";
     public static final String METADATA_SCHEMA_SELECTION = "schema";
     public static final String LOGO_URL_TITLE = "logo";
     public static final String VIEW_URL_NAME = "Browse Repository";
+    public static final String EXTRACTION_THREAD_NAME = "OAI-PMH Extraction";
+    public static final String PREFETCH_THREAD_NAME = "OAI-PMH Prefetch";
+    public static final String PARTITION_THREAD_NAME = "OAI-PMH Partition";
+    public static final String GET_RECORD_THREAD_NAME = "OAI-PMH GetRecord";
+    public static final String ASYNC_REQUEST_THREAD_NAME = "OAI-PMH Request";
+    public static final String ASYNC_PARSE_THREAD_NAME = "OAI-PMH Parse";
+    public static final String TRANSFORM_THREAD_NAME = "OAI-PMH Transform";
+    public static final int TRANSFORMATIONS_PER_THREAD = 4;
+    public static final int ASYNC_PARTITIONS_PER_THREAD = 2;
+    public static final String BACKGROUND_THREAD_NAME = "%s #%d";
+    public static final String VIRTUAL_THREAD_BUILDER_METHOD = "ofVirtual";
+    public static final String THREAD_BUILDER_CLASS = "java.lang.Thread$Builder";
+    public static final String UNSTARTED_THREAD_METHOD = "unstarted";
+    public static final String UNLIMITED = "unlimited";
 
     // Errors
     public static final String CANNOT_CREATE_TRANSFORMER = "Cannot create transformer!";
@@ -78,5 +167,45 @@ public class OaiPmhConstants
         "The harvest stopped at date stamp: %s%nYou may try to harvest the remaining records by setting the '%s."
         + OaiPmhParameterConstants.FROM_KEY
         + "' parameter accordingly!";
+    public static final String PREFETCH_INTERRUPTED_ERROR = "The prefetching of records was interrupted!";
+    public static final String EXTRACTION_ABORTED_ERROR = "The extraction of records was aborted!";
+    public static final String REPOSITORIES_LOADED_INFO = "Harvesting %d OAI-PMH repositories that are defined in: %s";
+    public static final String DUPLICATE_REPOSITORY_ERROR = "Skipping the repository '%s' of the repository list, because another repository has the same name!";
+    public static final String SCHEDULED_HARVEST_RUNNING_ERROR = "%s is currently harvested by the scheduler!";
+    public static final String CANNOT_START_SCHEDULED_HARVEST_ERROR = "Could not start the scheduled harvest of %s!";
+    public static final String SCHEDULED_HARVEST_FINISHED_INFO = "Scheduled harvest of %s yielded %d records, %.2f records per hour. Next harvest at: %s";
+    public static final String SCHEDULED_HARVEST_FAILED_INFO = "Scheduled harvest of %s failed! Next attempt at: %s";
+    public static final String SCHEDULER_ERROR = "Could not start scheduled harvests!";
+    public static final String HARVEST_SLOT_WAITING_INFO = "%s is waiting, because %d harvests are already running.";
+    public static final String CANNOT_CREATE_VIRTUAL_THREAD_ERROR = "Cannot create a virtual thread!";
+    public static final String VIRTUAL_THREADS_UNSUPPORTED_INFO = "Virtual threads are not supported by this Java runtime, using platform threads instead.";
+    public static final String GET_RECORD_INTERRUPTED_ERROR = "The retrieval of records via GetRecord was interrupted!";
+    public static final String CANNOT_GET_RECORD_ERROR = "Could not retrieve the record via: %s";
+    public static final String TRANSFORMATION_INTERRUPTED_ERROR = "The parallel transformation of records was interrupted!";
+    public static final String TRANSFORMATION_CANCELLED_ERROR = "The parallel transformation of records was cancelled!";
+    public static final String RECORD_NOT_FOUND_INFO = "The record '%s' no longer exists and is treated as deleted.";
+    public static final String MISSING_IDENTIFIER_ERROR = "Skipping a header without an identifier: %s";
+    public static final String CANNOT_READ_STREAM_ERROR = "Could not read records from the response of: %s";
+    public static final String CANNOT_READ_RESPONSE_ERROR = "Could not load and parse from web: %s";
+    public static final String CANNOT_REVALIDATE_RESPONSE_ERROR = "Could not revalidate the cached response of '%s', using the expired response instead!";
+    public static final String CANNOT_CREATE_SSL_CONTEXT_ERROR = "Cannot create a shared TLS context, using the default TLS settings instead!";
+    public static final String CONNECTION_STATISTICS_INFO = "HTTP requests to %s: %d (%d failed), new TLS connections: %d (%d resumed sessions)";
+    public static final String HTTP_STATUS_ERROR = "The URL '%s' returned HTTP status code %d!";
+    public static final String CONCURRENCY_DECREASED_INFO = "Reduced the number of concurrent requests to %s to %d.";
+    public static final String RETRY_INFO = "Request to '%s' failed: %s Retrying in %d ms (retry %d of %d).";
+    public static final String CANNOT_SPLIT_DATE_RANGE_ERROR = "Cannot split the harvested date range into windows, harvesting it as a whole instead!";
+    public static final String PARTITIONS_INFO = "Harvesting %d date window(s) of %d set(s) using up to %d threads.";
+    public static final String NO_SETS_ERROR = "Cannot retrieve any sets of the repository, harvesting all records as a whole instead!";
+    public static final String EMPTY_DATE_WINDOW_INFO = "The date window '%s' does not contain any records.";
+    public static final String CHECKPOINT_RESUMED_INFO = "Resuming the harvest after %d records via '%s'.";
+    public static final String CHECKPOINT_MISMATCH_INFO = "Ignoring the checkpoint '%s', because it belongs to a harvest with different parameters.";
+    public static final String CANNOT_PARSE_DATESTAMP_ERROR = "Could not parse the datestamp '%s'!";
+    public static final String CANNOT_SAVE_FILE_ERROR = "Could not save the file '%s'!";
+    public static final String HIGH_WATER_MARK_INFO = "Saved the latest harvested datestamp %s for incremental harvests.";
+    public static final String RECORD_BUFFER_METRICS = "Record buffer usage - added records: %d, peak: %d/%d records, %d/%s bytes, producers blocked: %d times for %d ms";
+    public static final String DUPLICATES_SKIPPED_INFO = "Skipped %d duplicate records.";
+    public static final String UNVERIFIED_DUPLICATES_INFO =
+        "%d records were probably duplicates of older records, but were kept, because they were not among the records"
+        + " remembered by the '" + OaiPmhParameterConstants.DUPLICATE_FILTER_SIZE_KEY + "'-parameter.";
     public static final String FALLBACK_URL_INFO = "The resumption URL '%s' did not yield any harvestable records! Attempting to continue the harvest via the fallback URL '%s'.";
 }
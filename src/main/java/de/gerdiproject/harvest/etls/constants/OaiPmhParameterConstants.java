@@ -68,9 +68,91 @@ public class OaiPmhParameterConstants
     public static final String SET_KEY = "set";
     public static final String SET_DEFAULT_VALUE = "";
 
+    public static final String PREFETCH_DEPTH_KEY = "prefetchDepth";
+    public static final int PREFETCH_DEPTH_DEFAULT_VALUE = 0;
+
+    public static final String STREAM_RECORDS_KEY = "streamRecords";
+    public static final boolean STREAM_RECORDS_DEFAULT_VALUE = false;
+
+    public static final String DATE_WINDOWS_KEY = "dateWindows";
+    public static final int DATE_WINDOWS_DEFAULT_VALUE = 1;
+
+    public static final String PARTITION_THREADS_KEY = "partitionThreads";
+    public static final int PARTITION_THREADS_DEFAULT_VALUE = 4;
+
+    public static final String ASYNC_EXTRACTION_KEY = "asyncExtraction";
+    public static final boolean ASYNC_EXTRACTION_DEFAULT_VALUE = false;
+
+    public static final String VIRTUAL_THREADS_KEY = "virtualThreads";
+    public static final boolean VIRTUAL_THREADS_DEFAULT_VALUE = false;
+
+    public static final String MAX_CONCURRENT_HARVESTS_KEY = "maxConcurrentHarvests";
+    public static final int MAX_CONCURRENT_HARVESTS_DEFAULT_VALUE = 0;
+
+    public static final String SHARD_BY_SETS_KEY = "shardBySets";
+    public static final boolean SHARD_BY_SETS_DEFAULT_VALUE = false;
+
+    public static final String RECORD_BUFFER_SIZE_KEY = "recordBufferSize";
+    public static final int RECORD_BUFFER_SIZE_DEFAULT_VALUE = 1000;
+
+    public static final String RECORD_BUFFER_BYTES_KEY = "recordBufferBytes";
+    public static final int RECORD_BUFFER_BYTES_DEFAULT_VALUE = 64 * 1024 * 1024;
+
+    public static final String MAX_RETRIES_KEY = "maxRetries";
+    public static final int MAX_RETRIES_DEFAULT_VALUE = 3;
+
+    public static final String RETRY_DELAY_KEY = "retryDelay";
+    public static final int RETRY_DELAY_DEFAULT_VALUE = 1000;
+
+    public static final long MAX_RETRY_DELAY = 60 * 1000L;
+
+    public static final String MAX_REQUESTS_PER_SECOND_KEY = "maxRequestsPerSecond";
+    public static final int MAX_REQUESTS_PER_SECOND_DEFAULT_VALUE = 0;
+
+    public static final String MAX_CONCURRENT_REQUESTS_KEY = "maxConcurrentRequests";
+    public static final int MAX_CONCURRENT_REQUESTS_DEFAULT_VALUE = 8;
+
+    public static final String RESUME_FROM_CHECKPOINT_KEY = "resumeFromCheckpoint";
+    public static final boolean RESUME_FROM_CHECKPOINT_DEFAULT_VALUE = false;
+
+    public static final String INCREMENTAL_KEY = "incremental";
+    public static final boolean INCREMENTAL_DEFAULT_VALUE = false;
+
+    public static final String INCREMENTAL_OVERLAP_KEY = "incrementalOverlap";
+    public static final int INCREMENTAL_OVERLAP_DEFAULT_VALUE = 24 * 60 * 60;
+
+    public static final String METADATA_CACHE_TTL_KEY = "metadataCacheTtl";
+    public static final int METADATA_CACHE_TTL_DEFAULT_VALUE = 24 * 60 * 60;
+
+    public static final String LIST_IDENTIFIERS_KEY = "listIdentifiers";
+    public static final boolean LIST_IDENTIFIERS_DEFAULT_VALUE = false;
+
+    public static final String GET_RECORD_THREADS_KEY = "getRecordThreads";
+    public static final int GET_RECORD_THREADS_DEFAULT_VALUE = 4;
+
+    public static final String DUPLICATE_FILTER_SIZE_KEY = "duplicateFilterSize";
+    public static final int DUPLICATE_FILTER_SIZE_DEFAULT_VALUE = 100000;
+
+    public static final String MIN_HARVEST_INTERVAL_KEY = "minHarvestInterval";
+    public static final int MIN_HARVEST_INTERVAL_DEFAULT_VALUE = 0;
+
+    public static final String MAX_HARVEST_INTERVAL_KEY = "maxHarvestInterval";
+    public static final int MAX_HARVEST_INTERVAL_DEFAULT_VALUE = 7 * 24 * 60;
+
+    public static final String RECORDS_PER_SCHEDULED_HARVEST_KEY = "recordsPerScheduledHarvest";
+    public static final int RECORDS_PER_SCHEDULED_HARVEST_DEFAULT_VALUE = 1000;
+
+    public static final String TRANSFORM_THREADS_KEY = "transformThreads";
+    public static final int TRANSFORM_THREADS_DEFAULT_VALUE = 1;
+
+    public static final String UNORDERED_TRANSFORM_KEY = "unorderedTransform";
+    public static final boolean UNORDERED_TRANSFORM_DEFAULT_VALUE = false;
+
     /**
      * Creates a map for assigning {@linkplain AbstractIteratorTransformer} constructor calls to
      * metadata schema URLs as they appear in the ListMetadataFormats query.
+     * Every call creates a new transformer, because transformers are initialized
+     * with the repository of the ETL that uses them.
      *
      * @return a map of metadata schema URLs to {@linkplain AbstractIteratorTransformer} constructor calls
      */
@@ -79,31 +161,31 @@ public class OaiPmhParameterConstants
         final Map<String, Supplier<AbstractIteratorTransformer<Element, DataCiteJson>>> map = new HashMap<>();
 
         // add DataCite transformers
-        final DataCite2Transformer dataCite2Transformer = new DataCite2Transformer();
-        final DataCite2Transformer dataCite3Transformer = new DataCite3Transformer();
-        final DataCite2Transformer dataCite4Transformer = new DataCite4Transformer();
-        final DataCiteFlexTransformer dataCiteTransformer = new DataCiteFlexTransformer();
-
-        map.put(DataCiteConstants.SCHEMA_2_URL, () -> dataCite2Transformer);
-        map.put(DataCiteConstants.SCHEMA_2_0_URL, () -> dataCite2Transformer);
-        map.put(DataCiteConstants.SCHEMA_2_1_URL, () -> dataCite2Transformer);
-        map.put(DataCiteConstants.SCHEMA_2_2_URL, () -> dataCite2Transformer);
-        map.put(DataCiteConstants.SCHEMA_3_URL, () -> dataCite3Transformer);
-        map.put(DataCiteConstants.SCHEMA_3_0_URL, () -> dataCite3Transformer);
-        map.put(DataCiteConstants.SCHEMA_3_1_URL, () -> dataCite3Transformer);
-        map.put(DataCiteConstants.SCHEMA_4_URL, () -> dataCite4Transformer);
-        map.put(DataCiteConstants.SCHEMA_4_0_URL, () -> dataCite4Transformer);
-        map.put(DataCiteConstants.SCHEMA_4_1_URL, () -> dataCite4Transformer);
-        map.put(DataCiteConstants.SCHEMA_4_2_URL, () -> dataCite4Transformer);
-        map.put(DataCiteConstants.SCHEMA_4_3_URL, () -> dataCite4Transformer);
-
-        map.put(DataCiteConstants.OAI_SCHEMA_1_0_URL, () -> dataCiteTransformer);
-        map.put(DataCiteConstants.OAI_SCHEMA_1_1_URL, () -> dataCiteTransformer);
-        map.put(DataCiteConstants.NO_SCHEMA_URL, () -> dataCiteTransformer);
+        final Supplier<AbstractIteratorTransformer<Element, DataCiteJson>> dataCite2Transformer = DataCite2Transformer::new;
+        final Supplier<AbstractIteratorTransformer<Element, DataCiteJson>> dataCite3Transformer = DataCite3Transformer::new;
+        final Supplier<AbstractIteratorTransformer<Element, DataCiteJson>> dataCite4Transformer = DataCite4Transformer::new;
+        final Supplier<AbstractIteratorTransformer<Element, DataCiteJson>> dataCiteTransformer = DataCiteFlexTransformer::new;
+
+        map.put(DataCiteConstants.SCHEMA_2_URL, dataCite2Transformer);
+        map.put(DataCiteConstants.SCHEMA_2_0_URL, dataCite2Transformer);
+        map.put(DataCiteConstants.SCHEMA_2_1_URL, dataCite2Transformer);
+        map.put(DataCiteConstants.SCHEMA_2_2_URL, dataCite2Transformer);
+        map.put(DataCiteConstants.SCHEMA_3_URL, dataCite3Transformer);
+        map.put(DataCiteConstants.SCHEMA_3_0_URL, dataCite3Transformer);
+        map.put(DataCiteConstants.SCHEMA_3_1_URL, dataCite3Transformer);
+        map.put(DataCiteConstants.SCHEMA_4_URL, dataCite4Transformer);
+        map.put(DataCiteConstants.SCHEMA_4_0_URL, dataCite4Transformer);
+        map.put(DataCiteConstants.SCHEMA_4_1_URL, dataCite4Transformer);
+        map.put(DataCiteConstants.SCHEMA_4_2_URL, dataCite4Transformer);
+        map.put(DataCiteConstants.SCHEMA_4_3_URL, dataCite4Transformer);
+
+        map.put(DataCiteConstants.OAI_SCHEMA_1_0_URL, dataCiteTransformer);
+        map.put(DataCiteConstants.OAI_SCHEMA_1_1_URL, dataCiteTransformer);
+        map.put(DataCiteConstants.NO_SCHEMA_URL, dataCiteTransformer);
 
         // add other transformers
-        map.put(DublinCoreConstants.SCHEMA_URL, () -> new DublinCoreTransformer());
-        map.put(Iso19139Constants.SCHEMA_URL, () -> new Iso19139Transformer());
+        map.put(DublinCoreConstants.SCHEMA_URL, DublinCoreTransformer::new);
+        map.put(Iso19139Constants.SCHEMA_URL, Iso19139Transformer::new);
 
         // NOT IMPLEMENTED:
         //map.put("http://www.openarchives.org/OAI/2.0/rdf.xsd", () -> new RdfTransformer());
@@ -0,0 +1,138 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.enums;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * This enumeration represents the HTTP content encodings that can be used
+ * to compress OAI-PMH responses, as announced in the "compression" elements
+ * of the Identify response.
+ *
+ * @author Robin Weiss
+ */
+public enum ContentEncoding
+{
+    /**
+     * The gzip file format (RFC 1952).
+     */
+    GZIP("gzip"),
+
+    /**
+     * The zlib format (RFC 1950). Some servers send raw deflate data (RFC 1951)
+     * instead, which is decoded as well.
+     */
+    DEFLATE("deflate");
+
+
+    // the compression method "deflate" in the lower four bits of the first byte of a zlib header
+    private static final int ZLIB_DEFLATE_METHOD = 8;
+    private static final int ZLIB_HEADER_CHECKSUM_DIVISOR = 31;
+
+    private final String headerValue;
+
+
+    /**
+     * Constructor that sets up the encoding.
+     *
+     * @param headerValue the value that is used in the "Accept-Encoding" and
+     *         "Content-Encoding" HTTP headers, as well as in the Identify response
+     */
+    ContentEncoding(final String headerValue)
+    {
+        this.headerValue = headerValue;
+    }
+
+
+    /**
+     * Returns the value that is used in the HTTP headers.
+     *
+     * @return the value that is used in the HTTP headers, e.g. "gzip"
+     */
+    public String getHeaderValue()
+    {
+        return headerValue;
+    }
+
+
+    /**
+     * Wraps a stream of encoded data in a stream that decodes it on the fly.
+     *
+     * @param encodedStream a stream of data that was encoded with this encoding
+     *
+     * @throws IOException if the stream cannot be read
+     *
+     * @return a stream of decoded data
+     */
+    public InputStream decode(final InputStream encodedStream) throws IOException
+    {
+        if (this == GZIP)
+            return new GZIPInputStream(encodedStream);
+
+        // peek at the first two bytes to check if there is a zlib header
+        final BufferedInputStream bufferedStream = new BufferedInputStream(encodedStream);
+        bufferedStream.mark(2);
+        final int firstByte = bufferedStream.read();
+        final int secondByte = bufferedStream.read();
+        bufferedStream.reset();
+
+        final boolean hasZlibHeader = firstByte != -1 && secondByte != -1
+                                      && (firstByte & 0x0F) == ZLIB_DEFLATE_METHOD
+                                      && ((firstByte << 8) | secondByte) % ZLIB_HEADER_CHECKSUM_DIVISOR == 0;
+
+        return new InflaterInputStream(bufferedStream, new Inflater(!hasZlibHeader)) {
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+
+                // a custom inflater is not released by the stream itself
+                inf.end();
+            }
+        };
+    }
+
+
+    /**
+     * Retrieves the encoding that corresponds to the value of an HTTP header
+     * or a "compression" element of an Identify response.
+     *
+     * @param value the value of the header or element, or null if it does not exist
+     *
+     * @return the corresponding encoding, or null if the value is not supported or
+     * signifies that no encoding was used
+     */
+    public static ContentEncoding fromValue(final String value)
+    {
+        if (value == null)
+            return null;
+
+        final String trimmedValue = value.trim();
+
+        for (final ContentEncoding encoding : values()) {
+            if (encoding.headerValue.equalsIgnoreCase(trimmedValue))
+                return encoding;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.enums;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * This enumeration represents the datestamp granularities that
+ * are supported by OAI-PMH repositories, as announced in the
+ * "granularity" element of the Identify response.
+ *
+ * @author Robin Weiss
+ */
+public enum DatestampGranularity
+{
+    /**
+     * Datestamps are days, e.g. 2018-12-24.
+     */
+    DAY("YYYY-MM-DD", ChronoUnit.DAYS, DateTimeFormatter.ISO_LOCAL_DATE),
+
+    /**
+     * Datestamps are seconds in UTC, e.g. 2018-12-24T13:37:00Z.
+     */
+    SECOND("YYYY-MM-DDThh:mm:ssZ", ChronoUnit.SECONDS, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'"));
+
+
+    private static final int DAY_DATESTAMP_LENGTH = 10;
+
+    private final String identifyValue;
+    private final ChronoUnit unit;
+    private final DateTimeFormatter formatter;
+
+
+    /**
+     * Constructor that sets up the granularity.
+     *
+     * @param identifyValue the value of the "granularity" element of an Identify response
+     * @param unit the smallest time unit that can be expressed with this granularity
+     * @param formatter a formatter for converting dates to datestamps
+     */
+    DatestampGranularity(final String identifyValue, final ChronoUnit unit, final DateTimeFormatter formatter)
+    {
+        this.identifyValue = identifyValue;
+        this.unit = unit;
+        this.formatter = formatter.withZone(ZoneOffset.UTC);
+    }
+
+
+    /**
+     * Returns the smallest time unit that can be expressed with this granularity.
+     *
+     * @return the smallest time unit that can be expressed with this granularity
+     */
+    public ChronoUnit getUnit()
+    {
+        return unit;
+    }
+
+
+    /**
+     * Converts a date to a datestamp of this granularity.
+     *
+     * @param date the date that is to be converted
+     *
+     * @return a datestamp that can be used in the "from" and "until" query parameters
+     */
+    public String format(final Instant date)
+    {
+        return formatter.format(date);
+    }
+
+
+    /**
+     * Cuts off all parts of a date that are smaller than this granularity.
+     *
+     * @param date the date that is to be truncated
+     *
+     * @return the truncated date
+     */
+    public Instant truncate(final Instant date)
+    {
+        return date.truncatedTo(unit);
+    }
+
+
+    /**
+     * Converts a datestamp that is finer than this granularity to a datestamp of this granularity,
+     * e.g. 2018-12-24T13:37:00Z to 2018-12-24. Datestamps that are not finer than this granularity
+     * are returned unchanged.
+     *
+     * @param datestamp a datestamp of any OAI-PMH granularity
+     *
+     * @throws DateTimeParseException if the datestamp cannot be parsed
+     *
+     * @return a datestamp that is not finer than this granularity
+     */
+    public String truncate(final String datestamp) throws DateTimeParseException
+    {
+        final Instant date = parse(datestamp);
+
+        return this == DAY && datestamp.trim().length() != DAY_DATESTAMP_LENGTH
+               ? format(date)
+               : datestamp;
+    }
+
+
+    /**
+     * Parses a datestamp that is used as the inclusive upper bound of a date range.
+     * If the datestamp is less precise than this granularity, the last second of the
+     * datestamp day is returned.
+     *
+     * @param datestamp a datestamp of any OAI-PMH granularity
+     *
+     * @throws DateTimeParseException if the datestamp cannot be parsed
+     *
+     * @return the latest date that is covered by the datestamp
+     */
+    public Instant parseUpperBound(final String datestamp) throws DateTimeParseException
+    {
+        final Instant date = parse(datestamp);
+
+        return this == SECOND && datestamp.trim().length() == DAY_DATESTAMP_LENGTH
+               ? date.plus(1, ChronoUnit.DAYS).minusSeconds(1)
+               : date;
+    }
+
+
+    /**
+     * Parses a datestamp of any OAI-PMH granularity.
+     *
+     * @param datestamp a datestamp, e.g. 2018-12-24 or 2018-12-24T13:37:00Z
+     *
+     * @throws DateTimeParseException if the datestamp cannot be parsed
+     *
+     * @return the date that is represented by the datestamp
+     */
+    public static Instant parse(final String datestamp) throws DateTimeParseException
+    {
+        final String trimmedDatestamp = datestamp.trim();
+
+        return trimmedDatestamp.length() == DAY_DATESTAMP_LENGTH
+               ? LocalDate.parse(trimmedDatestamp).atStartOfDay(ZoneOffset.UTC).toInstant()
+               : Instant.parse(trimmedDatestamp);
+    }
+
+
+    /**
+     * Retrieves the granularity that corresponds to the "granularity" element of an Identify response.
+     *
+     * @param identifyValue the text of the "granularity" element, or null if it does not exist
+     *
+     * @return the corresponding granularity, or {@linkplain #DAY} if the value is unknown,
+     * because it must be supported by all repositories
+     */
+    public static DatestampGranularity fromIdentifyValue(final String identifyValue)
+    {
+        return SECOND.identifyValue.equals(identifyValue == null ? null : identifyValue.trim())
+               ? SECOND
+               : DAY;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import lombok.Value;
+
+/**
+ * This class represents the position of an unfinished harvest, from which the
+ * harvest can be continued after the harvester service was restarted.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class OaiPmhCheckpoint
+{
+    /**
+     * The ListRecords URL of the first page of records, which contains all request parameters
+     * of the harvest. A checkpoint can only be resumed by a harvest with the same URL.
+     */
+    private final String recordsUrl;
+
+    /**
+     * The URL of the first page of records that was not completely emitted,
+     * including the resumption token.
+     */
+    private final String resumptionUrl;
+
+    /**
+     * The datestamp of the most recently emitted record, which can be used to continue
+     * the harvest if the resumption token has expired.
+     */
+    private final String lastDatestamp;
+
+    /**
+     * The number of records that were emitted before the checkpoint was saved.
+     */
+    private final int recordCount;
+}
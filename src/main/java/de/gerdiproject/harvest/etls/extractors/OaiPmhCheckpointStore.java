@@ -0,0 +1,121 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.utils.AtomicJsonFile;
+
+/**
+ * This class saves and loads the {@linkplain OaiPmhCheckpoint} of a harvest.
+ * Checkpoints are replaced atomically, so that a crash can never leave a partially written checkpoint.
+ * <br><br>
+ * Records that were retrieved by the extractor may still be pending in its record buffer,
+ * in the transformer or in a batch of the loader. Therefore, a checkpoint is only saved after
+ * a whole page and a configurable number of records were emitted after it, and is held back until then.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhCheckpointStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhCheckpointStore.class);
+
+    private final AtomicJsonFile<OaiPmhCheckpoint> checkpointFile;
+    private final Deque<OaiPmhCheckpoint> pendingCheckpoints;
+    private final int checkpointLag;
+
+
+    /**
+     * Constructor that determines the checkpoint file of a harvest.
+     *
+     * @param etlName the name of the harvesting ETL
+     * @param checkpointLag the minimum number of records that must be emitted
+     *         after a checkpoint, before it is saved
+     */
+    public OaiPmhCheckpointStore(final String etlName, final int checkpointLag)
+    {
+        this.checkpointFile = new AtomicJsonFile<>(
+            String.format(OaiPmhConstants.CHECKPOINT_FILE_PATH, etlName),
+            OaiPmhCheckpoint.class);
+        this.pendingCheckpoints = new ArrayDeque<>();
+        this.checkpointLag = checkpointLag;
+    }
+
+
+    /**
+     * Loads the checkpoint of an unfinished harvest.
+     *
+     * @param recordsUrl the ListRecords URL of the first page of records of the harvest
+     *
+     * @return the checkpoint of the harvest, or null if there is no checkpoint
+     *          or it belongs to a harvest with different request parameters
+     */
+    public OaiPmhCheckpoint load(final String recordsUrl)
+    {
+        final OaiPmhCheckpoint checkpoint = checkpointFile.load();
+
+        if (checkpoint == null)
+            return null;
+
+        if (checkpoint.getResumptionUrl() == null || !recordsUrl.equals(checkpoint.getRecordsUrl())) {
+            if (LOGGER.isInfoEnabled())
+                LOGGER.info(String.format(OaiPmhConstants.CHECKPOINT_MISMATCH_INFO, checkpointFile.getFile()));
+
+            return null;
+        }
+
+        return checkpoint;
+    }
+
+
+    /**
+     * Memorizes the checkpoint of a page that was completely emitted, and replaces the
+     * saved checkpoint with the most recent memorized one that is followed by at least one
+     * more page and at least as many records as the checkpoint lag.
+     *
+     * @param checkpoint the checkpoint after the most recently emitted page
+     */
+    public void save(final OaiPmhCheckpoint checkpoint)
+    {
+        pendingCheckpoints.add(checkpoint);
+
+        OaiPmhCheckpoint passedCheckpoint = null;
+
+        // the most recent checkpoint is never saved, so that at least one page lies after it
+        while (pendingCheckpoints.size() > 1
+               && pendingCheckpoints.peek().getRecordCount() + checkpointLag <= checkpoint.getRecordCount())
+            passedCheckpoint = pendingCheckpoints.remove();
+
+        if (passedCheckpoint != null)
+            checkpointFile.save(passedCheckpoint);
+    }
+
+
+    /**
+     * Deletes the saved checkpoint and all memorized checkpoints, because the harvest was completed.
+     */
+    public void delete()
+    {
+        pendingCheckpoints.clear();
+        checkpointFile.delete();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.utils.ScalableBloomFilter;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
+
+/**
+ * This iterator skips records that were already iterated, identified by their identifier
+ * and datestamp. Duplicates occur if the harvest is continued from the datestamp of the
+ * most recent record after a resumption token failed, or if harvested sets overlap.
+ * <br><br>
+ * The most recently iterated records are remembered exactly, and a record is only skipped
+ * if it is found among them, so that no record is ever skipped by mistake. Records that belong
+ * to more than one set are remembered exactly during the whole harvest, because they are
+ * harvested once per set when harvested sets overlap, no matter how far apart.
+ * All other iterated records are remembered by a {@linkplain ScalableBloomFilter}, which only
+ * needs a few bits per record, in order to count duplicates of older records that could not be
+ * verified and were kept. If there are many of those, the number of exactly remembered records
+ * should be raised.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhDuplicateFilter implements Iterator<Element>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhDuplicateFilter.class);
+
+    private final Iterator<Element> records;
+    private final ScalableBloomFilter iteratedKeys;
+    private final Set<String> recentKeys;
+    private final Set<String> multiSetKeys;
+
+    private Element nextRecord;
+    private long skippedCount;
+    private long unverifiableCount;
+
+
+    /**
+     * Constructor that wraps an iterator of records.
+     *
+     * @param records the records that may contain duplicates
+     * @param recentKeyCount the number of most recently iterated records that are remembered exactly
+     */
+    public OaiPmhDuplicateFilter(final Iterator<Element> records, final int recentKeyCount)
+    {
+        this.records = records;
+        this.iteratedKeys = new ScalableBloomFilter(
+            OaiPmhConstants.DUPLICATE_FILTER_INITIAL_CAPACITY,
+            OaiPmhConstants.DUPLICATE_FILTER_FALSE_POSITIVE_RATE);
+        this.recentKeys = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) { // NOPMD the anonymous class only bounds the map
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest)
+            {
+                return size() > recentKeyCount;
+            }
+        });
+        this.multiSetKeys = new HashSet<>();
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        while (nextRecord == null && records.hasNext()) {
+            final Element record = records.next();
+
+            if (isDuplicate(record))
+                skippedCount++;
+            else
+                this.nextRecord = record;
+        }
+
+        if (nextRecord == null)
+            logSummary();
+
+        return nextRecord != null;
+    }
+
+
+    @Override
+    public Element next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final Element record = nextRecord;
+        this.nextRecord = null;
+        return record;
+    }
+
+
+    /**
+     * Logs the number of skipped and unverifiable duplicates once all records were iterated.
+     */
+    private void logSummary()
+    {
+        if (skippedCount > 0 && LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.DUPLICATES_SKIPPED_INFO, skippedCount));
+
+        if (unverifiableCount > 0 && LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.UNVERIFIED_DUPLICATES_INFO, unverifiableCount));
+
+        this.skippedCount = 0;
+        this.unverifiableCount = 0;
+    }
+
+
+    /**
+     * Checks if a record was already iterated and remembers it.
+     *
+     * @param record the record that is to be checked
+     *
+     * @return true if the record was definitely iterated before
+     */
+    private boolean isDuplicate(final Element record)
+    {
+        final String identifier = SelectorCache.getString(record, OaiPmhConstants.HEADER_IDENTIFIER);
+
+        // records without identifier cannot be told apart
+        if (identifier == null)
+            return false;
+
+        final String key = identifier
+                           + OaiPmhConstants.DUPLICATE_KEY_SEPARATOR
+                           + SelectorCache.getString(record, OaiPmhConstants.HEADER_DATESTAMP);
+
+        final boolean mightBeIterated = iteratedKeys.add(key);
+        final boolean isRecent = !recentKeys.add(key);
+
+        // records of several sets are harvested once per set
+        final boolean isIteratedInOtherSet =
+            SelectorCache.select(record, OaiPmhConstants.HEADER_SET_SPEC_SELECTION).size() > 1
+            && !multiSetKeys.add(key);
+
+        if (isRecent || isIteratedInOtherSet)
+            return true;
+
+        // the record is either a duplicate of an old record, or a false positive of the filter
+        if (mightBeIterated)
+            unverifiableCount++;
+
+        return false;
+    }
+}
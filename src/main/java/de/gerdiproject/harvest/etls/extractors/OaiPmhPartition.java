@@ -0,0 +1,41 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import lombok.Value;
+
+/**
+ * This class represents a part of an OAI-PMH repository that can be harvested
+ * independently of other parts, by following its own chain of resumption tokens.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class OaiPmhPartition
+{
+    /**
+     * The ListRecords or ListIdentifiers URL of the first page of records.
+     */
+    private final String recordsUrl;
+
+    /**
+     * A ListRecords or ListIdentifiers URL that must be formatted to include the datestamp
+     * from which the harvest of the partition is to be continued if
+     * a resumption token fails.
+     */
+    private final String fallbackUrlFormat;
+}
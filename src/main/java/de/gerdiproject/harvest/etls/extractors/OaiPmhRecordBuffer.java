@@ -0,0 +1,377 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This class is a bounded buffer of records that are passed from one or more
+ * producing threads to a single consuming thread. Its capacity is limited by
+ * both the number of records and their estimated memory consumption.
+ * Producers are blocked while the buffer is full, so that the heap does not grow
+ * if records are retrieved faster than they can be transformed and loaded.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhRecordBuffer
+{
+    // rough memory consumption of Jsoup nodes and attributes, excluding their texts
+    private static final int ELEMENT_OVERHEAD_BYTES = 160;
+    private static final int TEXT_NODE_OVERHEAD_BYTES = 64;
+    private static final int ATTRIBUTE_OVERHEAD_BYTES = 48;
+
+    private final int maxRecords;
+    private final long maxBytes;
+
+    private final Queue<Element> records = new ArrayDeque<>();
+    private final Queue<Long> recordSizes = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    private long bufferedBytes;
+    private boolean isClosed;
+    private RuntimeException failure;
+
+    // metrics
+    private long addedRecords;
+    private int peakRecords;
+    private long peakBytes;
+    private long blockedCount;
+    private long blockedNanos;
+
+
+    /**
+     * Constructor that sets the capacity of the buffer.
+     *
+     * @param maxRecords the maximum number of buffered records, must be at least 1
+     * @param maxBytes the maximum estimated size of all buffered records in bytes,
+     *         or 0 if the size is not to be limited
+     */
+    public OaiPmhRecordBuffer(final int maxRecords, final long maxBytes)
+    {
+        this.maxRecords = Math.max(1, maxRecords);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+
+    /**
+     * Adds a record to the buffer, waiting for space to become available if necessary.
+     * A record that exceeds the byte capacity on its own is accepted if the buffer is empty.
+     *
+     * @param record the record that is to be added
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *
+     * @return false if the buffer was closed and the record was discarded
+     */
+    public boolean put(final Element record) throws InterruptedException
+    {
+        final long recordSize = estimateSize(record);
+
+        lock.lockInterruptibly();
+
+        try {
+            if (isFull(recordSize) && !isClosed) {
+                final long waitStart = System.nanoTime();
+                blockedCount++;
+
+                while (isFull(recordSize) && !isClosed)
+                    notFull.await();
+
+                blockedNanos += System.nanoTime() - waitStart;
+            }
+
+            if (isClosed)
+                return false;
+
+            records.add(record);
+            recordSizes.add(recordSize);
+            bufferedBytes += recordSize;
+            addedRecords++;
+            peakRecords = Math.max(peakRecords, records.size());
+            peakBytes = Math.max(peakBytes, bufferedBytes);
+
+            notEmpty.signal();
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Removes the oldest record from the buffer, waiting for a record to become available
+     * if necessary.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws RuntimeException if a producer failed, after all previously added records were taken
+     *
+     * @return the oldest record, or null if the buffer is closed and empty
+     */
+    public Element take() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+
+        try {
+            while (records.isEmpty() && !isClosed)
+                notEmpty.await();
+
+            if (records.isEmpty()) {
+                if (failure != null)
+                    throw failure;
+
+                return null;
+            }
+
+            return removeOldest();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Removes the oldest record from the buffer, if there is one, without waiting.
+     *
+     * @return the oldest record, or null if the buffer is empty
+     */
+    public Element poll()
+    {
+        lock.lock();
+
+        try {
+            return records.isEmpty() ? null : removeOldest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Signals that no more records will be added. Records that are still
+     * buffered can be taken, after which {@linkplain #take()} returns null.
+     */
+    public void close()
+    {
+        lock.lock();
+
+        try {
+            isClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Signals that a producer failed. All buffered records are discarded, and the
+     * error is thrown by the next call of {@linkplain #take()}.
+     * Only the first error is memorized.
+     *
+     * @param error the cause of the failure
+     */
+    public void fail(final RuntimeException error)
+    {
+        lock.lock();
+
+        try {
+            if (failure == null) {
+                failure = error;
+                records.clear();
+                recordSizes.clear();
+                bufferedBytes = 0;
+            }
+
+            isClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Checks if a producer failed.
+     *
+     * @return true if {@linkplain #fail(RuntimeException)} was called
+     */
+    public boolean hasFailed()
+    {
+        lock.lock();
+
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of currently buffered records.
+     *
+     * @return the number of currently buffered records
+     */
+    public int size()
+    {
+        lock.lock();
+
+        try {
+            return records.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the estimated memory consumption of all currently buffered records.
+     *
+     * @return the estimated size of all buffered records in bytes
+     */
+    public long getBufferedBytes()
+    {
+        lock.lock();
+
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the fill level of the buffer with regard to whichever
+     * capacity limit is closer to being reached.
+     *
+     * @return a value between 0 and 1, where 1 means that the buffer is full
+     */
+    public double getFillLevel()
+    {
+        lock.lock();
+
+        try {
+            final double recordLevel = (double) records.size() / maxRecords;
+            final double byteLevel = maxBytes == 0 ? 0 : (double) bufferedBytes / maxBytes;
+            return Math.min(1, Math.max(recordLevel, byteLevel));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns a summary of the buffer usage since its creation, including
+     * the peak fill level and how often producers had to wait for free space.
+     *
+     * @return a human readable summary of the buffer metrics
+     */
+    public String getMetrics()
+    {
+        lock.lock();
+
+        try {
+            return String.format(
+                       OaiPmhConstants.RECORD_BUFFER_METRICS,
+                       addedRecords,
+                       peakRecords,
+                       maxRecords,
+                       peakBytes,
+                       maxBytes == 0 ? OaiPmhConstants.UNLIMITED : String.valueOf(maxBytes),
+                       blockedCount,
+                       TimeUnit.NANOSECONDS.toMillis(blockedNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Checks if a record of a specified size does not fit into the buffer.
+     * Must only be called while holding the lock.
+     *
+     * @param recordSize the estimated size of the record in bytes
+     *
+     * @return true if the buffer has no space for the record
+     */
+    private boolean isFull(final long recordSize)
+    {
+        if (records.size() >= maxRecords)
+            return true;
+
+        return maxBytes != 0
+               && !records.isEmpty()
+               && bufferedBytes + recordSize > maxBytes;
+    }
+
+
+    /**
+     * Removes the oldest record from the buffer and allows waiting producers to add more records.
+     * Must only be called while holding the lock, and if the buffer is not empty.
+     *
+     * @return the oldest record
+     */
+    private Element removeOldest()
+    {
+        bufferedBytes -= recordSizes.remove();
+        notFull.signalAll();
+        return records.remove();
+    }
+
+
+    /**
+     * Estimates the heap memory that is occupied by a Jsoup element, including
+     * all of its descendants. Strings are assumed to consist of two bytes per character.
+     *
+     * @param record the element of which the size is to be estimated
+     *
+     * @return the estimated size of the element in bytes
+     */
+    public static long estimateSize(final Element record)
+    {
+        long size = 0;
+
+        for (final Element element : record.getAllElements()) {
+            size += ELEMENT_OVERHEAD_BYTES + 2L * element.tagName().length();
+
+            for (final Attribute attribute : element.attributes())
+                size += ATTRIBUTE_OVERHEAD_BYTES + 2L * (attribute.getKey().length() + attribute.getValue().length());
+
+            for (final TextNode textNode : element.textNodes())
+                size += TEXT_NODE_OVERHEAD_BYTES + 2L * textNode.getWholeText().length();
+        }
+
+        return size;
+    }
+}
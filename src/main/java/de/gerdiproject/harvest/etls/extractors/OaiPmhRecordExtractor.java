@@ -16,9 +16,33 @@
  */
 package de.gerdiproject.harvest.etls.extractors;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -29,12 +53,16 @@ import org.slf4j.LoggerFactory;
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.OaiPmhETL;
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
-import de.gerdiproject.harvest.utils.HtmlUtils;
-import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+import de.gerdiproject.harvest.etls.utils.BackgroundThreadFactory;
+import de.gerdiproject.harvest.etls.utils.ConcurrentHarvestLimiter;
+import de.gerdiproject.harvest.etls.utils.OaiPmhHttpClient;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 
 /**
  * This extractor retrieves the HTML records from the harvested OAI-PMH repository,
- * considering resumption tokens.
+ * considering resumption tokens. The records are either listed via ListRecords, or their
+ * identifiers are listed via ListIdentifiers and the records are retrieved via GetRecord.
  *
  * @author Robin Weiss
  */
@@ -42,19 +70,50 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
 {
     // protected fields used by the inner class
     protected static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhRecordExtractor.class);
-    protected final HttpRequester httpRequester = new HttpRequester();
-    protected String lastHarvestedDate;
-    protected String fallbackUrlFormat;
+    protected OaiPmhHttpClient httpClient;
     protected String resumptionUrlFormat;
 
+    private static final ConcurrentHarvestLimiter HARVEST_LIMITER = new ConcurrentHarvestLimiter();
+
+    private final List<ExecutorService> backgroundExecutors = new LinkedList<>();
+    private final AtomicBoolean isHoldingHarvestSlot = new AtomicBoolean();
+    private final Set<OaiPmhRecordStreamReader> openRecordStreams = ConcurrentHashMap.newKeySet();
+
+    private OaiPmhETL oaiEtl;
     private String recordsBaseUrl;
     private String versionString;
     private int recordCount = -1;
+    private boolean isFirstPageLoaded;
+    private OaiPmhRecordPage firstPage;
+    private long firstPageTimestamp;
+    private int prefetchDepth;
+    private int partitionThreads;
+    private boolean isStreaming;
+    private boolean isAsynchronous;
+    private boolean isUsingVirtualThreads;
+    private int duplicateFilterSize;
+    private int recordBufferSize;
+    private long recordBufferBytes;
+    private volatile boolean isPartitioned;
+    private volatile OaiPmhRecordBuffer recordBuffer;
+    private volatile Element lastExtractedRecord;
+    private boolean isListingIdentifiers;
+    private int getRecordThreads;
+    private String getRecordUrlFormat;
+    private ExecutorService getRecordExecutor;
+    private OaiPmhCheckpointStore checkpointStore;
+    private boolean isResumingFromCheckpoint;
+    private boolean isIncremental;
+    private Instant latestDate;
+    private String latestDatestamp;
+    private DatestampGranularity granularity;
+    private volatile boolean isExtractionComplete;
 
 
     @Override
     public String getUniqueVersionString()
     {
+        loadFirstPage();
         return versionString;
     }
 
@@ -62,6 +121,7 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
     @Override
     public int size()
     {
+        loadFirstPage();
         return recordCount;
     }
 
@@ -69,7 +129,152 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
     @Override
     protected Iterator<Element> extractAll() throws ExtractorException
     {
-        return new OaiPmhRecordsIterator(recordsBaseUrl);
+        clear();
+
+        synchronized (this) {
+            this.latestDate = null;
+            this.latestDatestamp = null;
+            this.isExtractionComplete = false;
+            this.lastExtractedRecord = null;
+        }
+
+        final OaiPmhRecordBuffer extractedRecords = new OaiPmhRecordBuffer(recordBufferSize, recordBufferBytes);
+        this.recordBuffer = extractedRecords;
+
+        // the ETL manager harvests all ETLs on a small pool of threads,
+        // which must neither wait for other harvests, nor for the repository
+        createBackgroundExecutor(1, OaiPmhConstants.EXTRACTION_THREAD_NAME)
+        .execute(() -> extractRecords(extractedRecords));
+
+        return filterDuplicates(new ExtractedRecordsIterator(extractedRecords));
+    }
+
+
+    /**
+     * Waits until the harvest may run, and retrieves the records of all partitions
+     * of the harvested repository in the background. The records are handed over to
+     * the iterating thread via a bounded buffer.
+     *
+     * @param extractedRecords the buffer to which the retrieved records are added
+     */
+    private void extractRecords(final OaiPmhRecordBuffer extractedRecords)
+    {
+        try {
+            acquireHarvestSlot();
+            loadFirstPage();
+
+            final List<OaiPmhPartition> partitions = oaiEtl.getPartitions();
+            this.granularity = oaiEtl.getGranularity();
+            this.isPartitioned = partitions.size() > 1;
+
+            this.getRecordExecutor = isListingIdentifiers
+                                     ? createBackgroundExecutor(getRecordThreads, OaiPmhConstants.GET_RECORD_THREAD_NAME)
+                                     : null;
+
+            if (!isPartitioned)
+                harvestSinglePartition(partitions.get(0), extractedRecords);
+
+            else if (isAsynchronous)
+                new AsyncPartitionHarvester(partitions, partitionThreads, extractedRecords).start();
+
+            else {
+                final AtomicInteger unfinishedPartitions = new AtomicInteger(partitions.size());
+                final ExecutorService workers = createBackgroundExecutor(
+                                                    Math.max(1, Math.min(partitionThreads, partitions.size())),
+                                                    OaiPmhConstants.PARTITION_THREAD_NAME);
+
+                for (final OaiPmhPartition partition : partitions)
+                    workers.execute(() -> harvestPartition(partition, extractedRecords, unfinishedPartitions));
+            }
+
+        } catch (final InterruptedException e) {
+            // the harvest was finished or aborted, there is nothing left to do
+            Thread.currentThread().interrupt();
+
+        } catch (final RuntimeException e) { // NOPMD the error is re-thrown by the iterating thread
+            extractedRecords.fail(e);
+        }
+    }
+
+
+    /**
+     * Iterates through all records of a repository that is harvested as a whole and
+     * adds them to the extracted records. Only the position of such a sequential harvest
+     * can be restored from a checkpoint.
+     *
+     * @param partition the partition that covers all harvested records
+     * @param extractedRecords the buffer to which the records are added
+     *
+     * @throws InterruptedException if the thread is interrupted while the buffer is full
+     */
+    private void harvestSinglePartition(final OaiPmhPartition partition, final OaiPmhRecordBuffer extractedRecords) throws InterruptedException
+    {
+        final OaiPmhCheckpoint checkpoint = isResumingFromCheckpoint
+                                            ? checkpointStore.load(partition.getRecordsUrl())
+                                            : null;
+
+        if (checkpoint != null && LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.CHECKPOINT_RESUMED_INFO, checkpoint.getRecordCount(), checkpoint.getResumptionUrl()));
+
+        // an incremental harvest finds no records if nothing has changed
+        final AbstractPartitionIterator partitionRecords = createPartitionIterator(partition, checkpoint, isIncremental);
+        partitionRecords.enableCheckpoints();
+
+        while (partitionRecords.hasNext()) {
+            // stop if the buffer was closed, because the extraction was aborted
+            if (!extractedRecords.put(partitionRecords.next()))
+                return;
+        }
+
+        extractedRecords.close();
+    }
+
+
+    /**
+     * Iterates through all records of one of multiple partitions and adds them to the
+     * extracted records. If the partition cannot be harvested, all other partitions are aborted.
+     *
+     * @param partition the partition that is to be harvested
+     * @param extractedRecords the buffer to which the records are added
+     * @param unfinishedPartitions the number of partitions that were not harvested completely yet
+     */
+    private void harvestPartition(final OaiPmhPartition partition, final OaiPmhRecordBuffer extractedRecords, final AtomicInteger unfinishedPartitions)
+    {
+        try {
+            final Iterator<Element> partitionRecords = createPartitionIterator(partition, null, true);
+
+            while (partitionRecords.hasNext()) {
+                // stop if the buffer was closed due to an error of another partition
+                if (!extractedRecords.put(partitionRecords.next()))
+                    return;
+            }
+
+            if (unfinishedPartitions.decrementAndGet() == 0)
+                extractedRecords.close();
+
+        } catch (final InterruptedException e) {
+            // the harvest was finished or aborted, there is nothing left to do
+            Thread.currentThread().interrupt();
+
+        } catch (final RuntimeException e) { // NOPMD the error is re-thrown by the iterating thread
+            extractedRecords.fail(e);
+        }
+    }
+
+
+    /**
+     * Skips records that were already extracted, before they reach the transformer.
+     *
+     * @param records the extracted records
+     *
+     * @return an iterator of the extracted records without duplicates,
+     * or the same iterator if duplicates are not to be skipped
+     */
+    private Iterator<Element> filterDuplicates(final Iterator<Element> records)
+    {
+        return duplicateFilterSize > 0
+               ? new OaiPmhDuplicateFilter(records, duplicateFilterSize)
+               : records;
     }
 
 
@@ -78,10 +283,43 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
     {
         super.init(etl);
 
-        this.lastHarvestedDate = null;
-
         final OaiPmhETL oaiEtl = (OaiPmhETL) etl;
 
+        synchronized (this) {
+            this.oaiEtl = oaiEtl;
+            this.isPartitioned = false;
+            this.lastExtractedRecord = null;
+            this.latestDate = null;
+            this.latestDatestamp = null;
+            this.isExtractionComplete = false;
+            this.isFirstPageLoaded = false;
+            this.firstPage = null;
+            this.versionString = null;
+            this.recordCount = -1;
+        }
+
+        this.prefetchDepth = oaiEtl.getPrefetchDepth();
+        this.isListingIdentifiers = oaiEtl.isListingIdentifiers();
+        this.getRecordThreads = oaiEtl.getGetRecordThreads();
+        this.isStreaming = oaiEtl.isStreamingRecords() && !isListingIdentifiers;
+        this.isAsynchronous = oaiEtl.isExtractingAsynchronously() && !isStreaming;
+        this.partitionThreads = oaiEtl.getPartitionThreads();
+        this.isUsingVirtualThreads = oaiEtl.isUsingVirtualThreads();
+
+        if (isUsingVirtualThreads && !BackgroundThreadFactory.isVirtualThreadSupported())
+            LOGGER.info(OaiPmhConstants.VIRTUAL_THREADS_UNSUPPORTED_INFO);
+        this.duplicateFilterSize = oaiEtl.getDuplicateFilterSize();
+        this.recordBufferSize = oaiEtl.getRecordBufferSize();
+        this.recordBufferBytes = oaiEtl.getRecordBufferBytes();
+        this.isResumingFromCheckpoint = oaiEtl.isResumingFromCheckpoint();
+        this.isIncremental = oaiEtl.isHarvestingIncrementally();
+        // records may be pending in the record buffer, in the transformer and in the current batch of the loader
+        this.checkpointStore = new OaiPmhCheckpointStore(
+            etl.getName(),
+            recordBufferSize
+            + oaiEtl.getTransformThreads() * OaiPmhConstants.TRANSFORMATIONS_PER_THREAD
+            + OaiPmhConstants.CHECKPOINT_LOADER_BATCH_RECORDS);
+
         try {
             this.recordsBaseUrl = oaiEtl.getListRecordsUrl();
         } catch (IllegalStateException e) {
@@ -91,17 +329,113 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
         }
 
         this.resumptionUrlFormat = oaiEtl.getResumptionUrlFormat();
-        this.fallbackUrlFormat = oaiEtl.getFallbackResumptionUrlFormat();
+        this.getRecordUrlFormat = oaiEtl.getRecordUrlFormat();
+        this.httpClient = oaiEtl.getHttpClient();
+        httpClient.setRetryPolicy(oaiEtl.getRetryPolicy());
+        httpClient.setRateLimits(oaiEtl.getMaxRequestsPerSecond(), oaiEtl.getMaxConcurrentRequests());
+    }
+
+
+    /**
+     * Retrieves the first page of records, unless it was already retrieved since the
+     * extractor was initialized. The page is not retrieved during the initialization,
+     * because parameter changes re-initialize the extractor and must not be blocked
+     * by slow repositories.
+     */
+    private synchronized void loadFirstPage()
+    {
+        if (isFirstPageLoaded || recordsBaseUrl == null)
+            return;
 
+        this.isFirstPageLoaded = true;
+        httpClient.setAcceptedEncodings(oaiEtl.getSupportedEncodings());
+
+        if (isStreaming)
+            initFromStream();
+        else
+            initFromDocument();
+    }
+
+
+    /**
+     * Retrieves the version string and the number of records from
+     * the first page of records, which is parsed as a whole.
+     * The records of the page are kept, so that the harvest does not need to
+     * retrieve them again.
+     */
+    private void initFromDocument()
+    {
         // retrieve version as first record
-        final Document doc = httpRequester.getHtmlFromUrl(recordsBaseUrl);
-        final Element identifier = doc == null ? null : doc.selectFirst(OaiPmhConstants.HEADER_IDENTIFIER);
+        final Document doc = httpClient.getDocument(recordsBaseUrl);
+        final Element identifier = doc == null ? null : SelectorCache.selectFirst(doc, OaiPmhConstants.HEADER_IDENTIFIER);
         this.versionString = identifier == null ? null : identifier.text();
 
         // retrieve number of documents, if known
-        final Element resumptionToken = doc == null ? null : doc.selectFirst(OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT);
+        final Element resumptionToken = doc == null ? null : SelectorCache.selectFirst(doc, OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT);
         final String listSizeString = resumptionToken == null ? "" : resumptionToken.attr(OaiPmhConstants.LIST_SIZE_ATTRIBUTE);
         this.recordCount = listSizeString.isEmpty() ? -1 : Integer.parseInt(listSizeString);
+
+        this.firstPage = doc == null ? null : parsePage(doc);
+        this.firstPageTimestamp = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Removes the first page of records from the extractor and returns it, if it
+     * was retrieved from a specified URL recently enough to be harvested.
+     * The page can only be taken once, so that subsequent harvests retrieve up-to-date records.
+     *
+     * @param recordsUrl the URL of a page that is about to be retrieved
+     *
+     * @return the first page of records, or null if the page must be retrieved
+     */
+    private synchronized OaiPmhRecordPage takeFirstPage(final String recordsUrl)
+    {
+        final OaiPmhRecordPage page = firstPage;
+        this.firstPage = null;
+
+        return page != null
+               && recordsUrl.equals(recordsBaseUrl)
+               && System.currentTimeMillis() - firstPageTimestamp < OaiPmhConstants.FIRST_PAGE_MAX_AGE
+               ? page
+               : null;
+    }
+
+
+    /**
+     * Retrieves the version string and the number of records from
+     * the first page of records, which is read record by record.
+     * The number of records is only known at the end of the page, which is why
+     * the records of the page are kept, so that the harvest does not need to
+     * retrieve them again.
+     */
+    private void initFromStream()
+    {
+        this.versionString = null;
+        this.recordCount = -1;
+
+        try (OaiPmhRecordStreamReader reader = new OaiPmhRecordStreamReader(httpClient.getResponseStream(recordsBaseUrl), recordsBaseUrl)) {
+            final List<Element> records = new ArrayList<>();
+
+            while (reader.hasNext())
+                records.add(reader.next());
+
+            // retrieve version as first record
+            if (!records.isEmpty())
+                this.versionString = SelectorCache.getString(records.get(0), OaiPmhConstants.HEADER_IDENTIFIER);
+
+            // retrieve number of documents, if known
+            this.recordCount = reader.getCompleteListSize();
+
+            final String resumptionToken = reader.getResumptionToken();
+            this.firstPage = records.isEmpty()
+                             ? null
+                             : new OaiPmhRecordPage(records, resumptionToken == null ? null : String.format(resumptionUrlFormat, resumptionToken));
+            this.firstPageTimestamp = System.currentTimeMillis();
+
+        } catch (IOException | ExtractorException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_STREAM_ERROR, recordsBaseUrl), e);
+        }
     }
 
 
@@ -109,115 +443,1246 @@ public class OaiPmhRecordExtractor extends AbstractIteratorExtractor<Element>
      * Retrieves the date stamp of the most recent extracted batch of records.
      * This date can be logged if the harvest fails, and can be used to re-attempt
      * the harvest from where it left off.
+     * If the repository is harvested in multiple partitions, there is no such date.
      *
-     * @return the Datestamp header field of the first record of the currently extracted batch
+     * @return the Datestamp header field of the most recently extracted record,
+     * or null if no record was extracted yet or the harvest is partitioned
      */
     public String getLastHarvestedDate()
     {
-        return lastHarvestedDate;
+        final Element record = lastExtractedRecord;
+        return record == null || isPartitioned
+               ? null
+               : SelectorCache.getString(record, OaiPmhConstants.HEADER_DATESTAMP);
+    }
+
+
+    /**
+     * Retrieves the latest datestamp of all records of the most recent extraction,
+     * if all records were extracted.
+     *
+     * @return the latest datestamp of all extracted records, or null if no records were
+     * extracted, or the extraction was not completed
+     */
+    public synchronized String getLatestDatestamp()
+    {
+        return isExtractionComplete ? latestDatestamp : null;
+    }
+
+
+    /**
+     * Memorizes the datestamp of an extracted record, if it is later than all
+     * previously extracted datestamps.
+     *
+     * @param datestamp the datestamp of an extracted record
+     */
+    protected synchronized void updateLatestDatestamp(final String datestamp)
+    {
+        if (datestamp == null)
+            return;
+
+        try {
+            final Instant date = DatestampGranularity.parse(datestamp);
+
+            if (latestDate == null || date.isAfter(latestDate)) {
+                this.latestDate = date;
+                this.latestDatestamp = datestamp;
+            }
+        } catch (final DateTimeParseException e) {
+            LOGGER.debug(String.format(OaiPmhConstants.CANNOT_PARSE_DATESTAMP_ERROR, datestamp));
+        }
+    }
+
+
+    /**
+     * Assembles the URL from which the harvest is continued if a resumption token fails.
+     * The datestamp of the most recently retrieved record is truncated to the granularity
+     * of the repository, because repositories reject "from" parameters that are finer
+     * than their granularity.
+     *
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record
+     *
+     * @return a URL that retrieves all records since the fallback date
+     */
+    private String getFallbackUrl(final String fallbackUrlFormat, final String fallbackDate)
+    {
+        String fallbackFrom = fallbackDate;
+
+        if (granularity != null) {
+            try {
+                fallbackFrom = granularity.truncate(fallbackDate);
+            } catch (final DateTimeParseException e) {
+                LOGGER.debug(String.format(OaiPmhConstants.CANNOT_PARSE_DATESTAMP_ERROR, fallbackDate));
+            }
+        }
+
+        return String.format(fallbackUrlFormat, fallbackFrom);
     }
 
 
     @Override
     public void clear()
     {
-        // nothing to clean up
+        // stop all background threads
+        synchronized (backgroundExecutors) {
+            for (final ExecutorService executor : backgroundExecutors)
+                executor.shutdownNow();
+
+            backgroundExecutors.clear();
+        }
+
+        // wake up the iterating thread, if it waits for records that are no longer retrieved
+        final OaiPmhRecordBuffer extractedRecords = recordBuffer;
+
+        if (extractedRecords != null) {
+            extractedRecords.fail(new ExtractorException(OaiPmhConstants.EXTRACTION_ABORTED_ERROR));
+            this.recordBuffer = null;
+        }
+
+        // close all response streams
+        for (final OaiPmhRecordStreamReader recordStream : openRecordStreams)
+            recordStream.close();
+
+        openRecordStreams.clear();
+
+        // allow the next waiting harvest to start
+        if (isHoldingHarvestSlot.compareAndSet(true, false))
+            HARVEST_LIMITER.release();
     }
 
 
     /**
-     * An OAI-PMH iterator that iterates through records using the resumption token.
+     * Waits until fewer than the maximum number of concurrent harvests are extracting records.
+     * All OAI-PMH ETLs share the same limit, so that many repositories can be harvested
+     * by the same service without exhausting its memory or network connections.
+     * The permit is released when the extractor is cleared, which also interrupts the wait.
      *
-     * @author Robin Weiss
+     * @throws InterruptedException if the harvest is finished or aborted while waiting
      */
-    private class OaiPmhRecordsIterator implements Iterator<Element>
+    private void acquireHarvestSlot() throws InterruptedException
     {
-        private final Queue<Element> records = new LinkedList<>();
-        private String recordsUrl;
+        final int maxHarvests = oaiEtl.getMaxConcurrentHarvests();
+        HARVEST_LIMITER.setLimit(maxHarvests);
 
+        if (maxHarvests > 0 && HARVEST_LIMITER.getRunningHarvests() >= maxHarvests && LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.HARVEST_SLOT_WAITING_INFO, oaiEtl.getName(), maxHarvests));
 
-        /**
-         * Constructor that requires a URL that leads to OAI-PMH records.
-         *
-         * @param recordsUrl a URL that leads to OAI-PMH records
-         */
-        public OaiPmhRecordsIterator(final String recordsUrl)
-        {
-            this.recordsUrl = recordsUrl;
+        HARVEST_LIMITER.acquire();
+        isHoldingHarvestSlot.set(true);
+    }
+
+
+    /**
+     * Creates an iterator for the records of a single partition, depending on
+     * the extractor configuration.
+     *
+     * @param partition the partition of which the records are to be iterated
+     * @param checkpoint the position from which the iteration is resumed, or null if it starts from scratch
+     * @param isEmptyAllowed if true, the partition may contain no records at all
+     *
+     * @return an iterator for the records of the partition
+     */
+    private AbstractPartitionIterator createPartitionIterator(final OaiPmhPartition partition, final OaiPmhCheckpoint checkpoint, final boolean isEmptyAllowed)
+    {
+        if (isStreaming)
+            return new StreamingRecordsIterator(partition, checkpoint, isEmptyAllowed);
+
+        return prefetchDepth > 0
+               ? new PrefetchingRecordsIterator(partition, checkpoint, isEmptyAllowed, prefetchDepth)
+               : new OaiPmhRecordsIterator(partition, checkpoint, isEmptyAllowed);
+    }
+
+
+    /**
+     * Creates an {@linkplain ExecutorService} for background threads that mostly wait for
+     * HTTP responses and that is shut down when the extractor is cleared.
+     * The threads are virtual threads, if the "virtualThreads"-parameter is set.
+     *
+     * @param threadCount the number of threads, or -1 if threads are to be created on demand
+     * @param threadName the name of the threads
+     *
+     * @return a new {@linkplain ExecutorService}
+     */
+    private ExecutorService createBackgroundExecutor(final int threadCount, final String threadName)
+    {
+        return createBackgroundExecutor(threadCount, threadName, isUsingVirtualThreads);
+    }
+
+
+    /**
+     * Creates an {@linkplain ExecutorService} for background threads
+     * that is shut down when the extractor is cleared.
+     *
+     * @param threadCount the number of threads, or -1 if threads are to be created on demand
+     * @param threadName the name of the threads
+     * @param isVirtual if true, the threads are virtual threads if the runtime supports them
+     *
+     * @return a new {@linkplain ExecutorService}
+     */
+    private ExecutorService createBackgroundExecutor(final int threadCount, final String threadName, final boolean isVirtual)
+    {
+        final BackgroundThreadFactory threadFactory = new BackgroundThreadFactory(threadName, isVirtual);
+        final ExecutorService executor;
+
+        if (threadCount == -1)
+            executor = Executors.newCachedThreadPool(threadFactory);
+        else
+            executor = Executors.newFixedThreadPool(threadCount, threadFactory);
+
+        synchronized (backgroundExecutors) {
+            backgroundExecutors.add(executor);
         }
 
+        return executor;
+    }
+
 
-        @Override
-        public boolean hasNext()
-        {
-            return !records.isEmpty() || recordsUrl != null;
+    /**
+     * Opens a stream of records and makes sure that it yields at least one record,
+     * unless the repository reports that no records match the query.
+     * If the URL does not yield any records, a fallback URL is assembled using the
+     * specified datestamp.
+     *
+     * @param recordsUrl a URL that leads to OAI-PMH records
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     * @param isUsingFallbackUrl if true, this is a fallback attempt to retrieve records
+     * using an alternative URL
+     *
+     * @throws ExtractorException if no records could be retrieved
+     *
+     * @return a stream of records that has at least one more record,
+     * or an empty stream if no records match the query
+     */
+    private OaiPmhRecordStreamReader openRecordStream(final String recordsUrl, final String fallbackUrlFormat, final String fallbackDate, final boolean isUsingFallbackUrl) throws ExtractorException // NOPMD the parameters are all required
+    {
+        OaiPmhRecordStreamReader reader = null;
+
+        try {
+            reader = new OaiPmhRecordStreamReader(httpClient.getResponseStream(recordsUrl), recordsUrl);
+            openRecordStreams.add(reader);
+
+            if (reader.hasNext())
+                return reader;
+
+        } catch (IOException | ExtractorException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_STREAM_ERROR, recordsUrl), e);
         }
 
+        if (reader != null) {
+            reader.close();
+            openRecordStreams.remove(reader);
 
-        @Override
-        public Element next()
-        {
-            // if the current records queue is empty, retrieve more via the resumption url
-            if (records.isEmpty())
-                retrieveRecords(false);
+            // the query was answered correctly, but it has no results
+            if (!isUsingFallbackUrl && fallbackDate == null
+                && OaiPmhConstants.NO_RECORDS_MATCH_CODE.equals(reader.getErrorCode()))
+                return reader;
+        }
 
-            // retrieve the next record
-            final Element nextRecord = records.remove();
+        // if no records could be retrieved even via the fallback URL, abort
+        if (isUsingFallbackUrl)
+            throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_RESUMED_ERROR, recordsUrl));
+
+        else if (fallbackDate == null)
+            throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_ERROR, recordsUrl));
+
+        // assemble fallback URL, using the date of the last successfully harvested record
+        final String fallbackUrl = getFallbackUrl(fallbackUrlFormat, fallbackDate);
+
+        // log the fallback
+        if (LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.FALLBACK_URL_INFO, recordsUrl, fallbackUrl));
+
+        // try to retrieve records again, via the fallback URL
+        return openRecordStream(fallbackUrl, fallbackUrlFormat, fallbackDate, true);
+    }
+
+
+    /**
+     * Retrieves a page of records and if possible the resumption URL from the OAI-PMH repository.
+     * If the URL does not yield any records, a fallback URL is assembled using the specified
+     * datestamp.
+     *
+     * @param recordsUrl a URL that leads to OAI-PMH records
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     *
+     * @throws ExtractorException if no records could be retrieved
+     *
+     * @return a page of records, or an empty page if no records match the query
+     */
+    protected OaiPmhRecordPage retrievePage(final String recordsUrl, final String fallbackUrlFormat, final String fallbackDate) throws ExtractorException
+    {
+        final OaiPmhRecordPage page = retrievePage(recordsUrl, fallbackUrlFormat, fallbackDate, false);
+
+        return isListingIdentifiers
+               ? retrieveRecords(page)
+               : page;
+    }
+
+
+    /**
+     * Retrieves the records of a page of ListIdentifiers headers via GetRecord requests,
+     * which are sent concurrently by the GetRecord worker threads.
+     * Deleted records are not requested, because their headers are all there is to them.
+     * Headers without an identifier are skipped, because their records cannot be requested.
+     *
+     * @param headerPage a page of ListIdentifiers headers
+     *
+     * @throws ExtractorException if a record could not be retrieved
+     *
+     * @return a page of records in the order of their headers
+     */
+    private OaiPmhRecordPage retrieveRecords(final OaiPmhRecordPage headerPage) throws ExtractorException
+    {
+        final List<Element> headers = headerPage.getRecords();
+        final List<CompletableFuture<Element>> futureRecords = requestRecords(headers);
+        final List<Element> records = new ArrayList<>(headers.size());
 
-            // memorize the datestamp of the first record, in case the harvest fails
-            lastHarvestedDate = HtmlUtils.getString(nextRecord, OaiPmhConstants.HEADER_DATESTAMP);
+        try {
+            for (final CompletableFuture<Element> futureRecord : futureRecords)
+                records.add(futureRecord.get());
+
+        } catch (final InterruptedException e) {
+            futureRecords.forEach((final CompletableFuture<Element> f) -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ExtractorException(OaiPmhConstants.GET_RECORD_INTERRUPTED_ERROR, e);
 
-            return nextRecord;
+        } catch (final ExecutionException e) {
+            futureRecords.forEach((final CompletableFuture<Element> f) -> f.cancel(true));
+
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            else
+                throw new ExtractorException(e.getCause());
         }
 
+        return new OaiPmhRecordPage(records, headerPage.getNextUrl());
+    }
+
 
-        /**
-         * Retrieves records and if possible the resumption URL from the OAI-PMH repository.
-         *
-         * @param isUsingFallbackUrl if true, this is a fallback attempt to retrieve records
-         * using an alternative URL
-         */
-        private void retrieveRecords(final boolean isUsingFallbackUrl)
-        {
-            final Document doc = httpRequester.getHtmlFromUrl(recordsUrl);
+    /**
+     * Retrieves the records of a page of ListIdentifiers headers asynchronously,
+     * the same way as {@linkplain #retrieveRecords(OaiPmhRecordPage)} does synchronously.
+     *
+     * @param headerPage a page of ListIdentifiers headers
+     *
+     * @return a future of a page of records in the order of their headers
+     */
+    private CompletableFuture<OaiPmhRecordPage> retrieveRecordsAsync(final OaiPmhRecordPage headerPage)
+    {
+        final List<CompletableFuture<Element>> futureRecords = requestRecords(headerPage.getRecords());
+
+        return CompletableFuture
+               .allOf(futureRecords.toArray(new CompletableFuture<?>[futureRecords.size()]))
+               .whenComplete((final Void v, final Throwable error) -> {
+                   if (error != null)
+                       futureRecords.forEach((final CompletableFuture<Element> f) -> f.cancel(true));
+               })
+               .thenApply((final Void v) -> {
+                   final List<Element> records = new ArrayList<>(futureRecords.size());
+                   futureRecords.forEach((final CompletableFuture<Element> f) -> records.add(f.join()));
+                   return new OaiPmhRecordPage(records, headerPage.getNextUrl());
+               });
+    }
+
+
+    /**
+     * Sends GetRecord requests for a list of ListIdentifiers headers via the GetRecord worker threads.
+     * Deleted records are not requested, because their headers are all there is to them.
+     * Headers without an identifier are skipped, because their records cannot be requested.
+     *
+     * @param headers the ListIdentifiers headers of the records
+     *
+     * @return futures of the records in the order of their headers
+     */
+    private List<CompletableFuture<Element>> requestRecords(final List<Element> headers)
+    {
+        final List<CompletableFuture<Element>> futureRecords = new ArrayList<>(headers.size());
 
-            final Elements newRecords = doc == null
-                                        ? null
-                                        : doc.select(OaiPmhConstants.RECORD_ELEMENT);
+        for (final Element header : headers) {
+            final String identifier = SelectorCache.getString(header, OaiPmhConstants.HEADER_IDENTIFIER);
 
-            // make sure the web request returns a set of records
-            if (newRecords == null || newRecords.isEmpty()) {
+            if (identifier == null || identifier.isEmpty()) {
+                if (LOGGER.isWarnEnabled())
+                    LOGGER.warn(String.format(OaiPmhConstants.MISSING_IDENTIFIER_ERROR, header.text()));
 
-                // if no records could be retrieved even via the fallback URL, abort
-                if (isUsingFallbackUrl)
-                    throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_RESUMED_ERROR, recordsUrl));
+            } else if (OaiPmhConstants.HEADER_STATUS_ATTRIBUTE_DELETED.equalsIgnoreCase(header.attr(OaiPmhConstants.HEADER_STATUS_ATTRIBUTE)))
+                futureRecords.add(CompletableFuture.completedFuture(createDeletedRecord(header)));
+            else
+                futureRecords.add(CompletableFuture.supplyAsync(() -> retrieveRecord(header, identifier), getRecordExecutor));
+        }
 
-                else if (lastHarvestedDate == null)
-                    throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_ERROR, recordsUrl));
+        return futureRecords;
+    }
 
-                else {
-                    // assemble fallback URL, using the date of the last successfully harvested record
-                    final String fallbackUrl = String.format(fallbackUrlFormat, lastHarvestedDate);
 
-                    // log the fallback
-                    if (LOGGER.isInfoEnabled())
-                        LOGGER.info(String.format(OaiPmhConstants.FALLBACK_URL_INFO, recordsUrl, fallbackUrl));
+    /**
+     * Retrieves a single record via the GetRecord verb.
+     * If the repository reports that the identifier does not exist, the record was
+     * deleted since its identifier was listed, and a deleted record is returned instead.
+     *
+     * @param header the ListIdentifiers header of the record
+     * @param identifier the identifier of the record
+     *
+     * @throws ExtractorException if the record could not be retrieved
+     *
+     * @return the retrieved record
+     */
+    private Element retrieveRecord(final Element header, final String identifier) throws ExtractorException
+    {
+        final String recordUrl;
 
-                    // try to retrieve records again, via the fallback URL
-                    this.recordsUrl = fallbackUrl;
-                    retrieveRecords(true);
-                }
+        try {
+            recordUrl = String.format(getRecordUrlFormat, URLEncoder.encode(identifier, OaiPmhConstants.RESPONSE_CHARSET));
+        } catch (final UnsupportedEncodingException e) {
+            throw new ExtractorException(e);
+        }
 
-            } else {
-                this.records.addAll(newRecords);
+        final Document doc = httpClient.getDocument(recordUrl);
 
-                final Element resumptionToken = doc.selectFirst(OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT);
+        if (doc == null)
+            throw new ExtractorException(String.format(OaiPmhConstants.CANNOT_GET_RECORD_ERROR, recordUrl));
 
-                if (resumptionToken == null || resumptionToken.text() == null || resumptionToken.text().isEmpty())
-                    this.recordsUrl = null;
-                else
-                    this.recordsUrl = String.format(resumptionUrlFormat, resumptionToken.text());
-            }
+        final Element record = SelectorCache.selectFirst(doc, OaiPmhConstants.RECORD_ELEMENT);
+
+        if (record == null) {
+            if (SelectorCache.selectFirst(doc, OaiPmhConstants.ID_DOES_NOT_EXIST_SELECTION) == null)
+                throw new ExtractorException(String.format(OaiPmhConstants.CANNOT_GET_RECORD_ERROR, recordUrl));
+
+            if (LOGGER.isInfoEnabled())
+                LOGGER.info(String.format(OaiPmhConstants.RECORD_NOT_FOUND_INFO, identifier));
+
+            header.attr(OaiPmhConstants.HEADER_STATUS_ATTRIBUTE, OaiPmhConstants.HEADER_STATUS_ATTRIBUTE_DELETED);
+            return createDeletedRecord(header);
+        }
+
+        // detach the record from the document, so that it can be garbage collected
+        record.remove();
+        return record;
+    }
+
+
+    /**
+     * Wraps the header of a deleted record in a record element, which is
+     * how deleted records are represented in ListRecords responses.
+     *
+     * @param header the header of a deleted record
+     *
+     * @return a record that consists of the header only
+     */
+    private static Element createDeletedRecord(final Element header)
+    {
+        return new Element(OaiPmhConstants.RECORD_ELEMENT).appendChild(header);
+    }
+
+
+    /**
+     * Retrieves a page of records and if possible the resumption URL from the OAI-PMH repository.
+     *
+     * @param recordsUrl a URL that leads to OAI-PMH records
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     * @param isUsingFallbackUrl if true, this is a fallback attempt to retrieve records
+     * using an alternative URL
+     *
+     * @throws ExtractorException if no records could be retrieved
+     *
+     * @return a page of records, or an empty page if no records match the query
+     */
+    private OaiPmhRecordPage retrievePage(final String recordsUrl, final String fallbackUrlFormat, final String fallbackDate, final boolean isUsingFallbackUrl) throws ExtractorException // NOPMD the parameters are all required
+    {
+        // the first page may have been retrieved during the initialization
+        final OaiPmhRecordPage cachedPage = isUsingFallbackUrl ? null : takeFirstPage(recordsUrl);
+
+        if (cachedPage != null)
+            return cachedPage;
+
+        final Document doc = httpClient.getDocument(recordsUrl);
+        final OaiPmhRecordPage page = doc == null ? null : parsePage(doc);
+
+        // make sure the web request returns a set of records
+        if (page == null) {
+            final String fallbackUrl = getFallbackPageUrl(recordsUrl, doc, fallbackUrlFormat, fallbackDate, isUsingFallbackUrl);
+
+            // try to retrieve records again, via the fallback URL
+            return fallbackUrl == null
+                   ? new OaiPmhRecordPage(Collections.emptyList(), null)
+                   : retrievePage(fallbackUrl, fallbackUrlFormat, fallbackDate, true);
+        }
+
+        return page;
+    }
+
+
+    /**
+     * Retrieves a page of records asynchronously, the same way as
+     * {@linkplain #retrievePage(String, String, String)} does synchronously.
+     * Requests are sent by the request executor, whereas responses are parsed by the parse executor.
+     *
+     * @param recordsUrl a URL that leads to OAI-PMH records
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     * @param requestExecutor the executor that sends the requests
+     * @param parseExecutor the executor that parses the responses
+     *
+     * @return a future of a page of records, or of an empty page if no records match the query
+     */
+    private CompletableFuture<OaiPmhRecordPage> retrievePageAsync(final String recordsUrl, final String fallbackUrlFormat, final String fallbackDate, final Executor requestExecutor, final Executor parseExecutor) // NOPMD the parameters are all required
+    {
+        final CompletableFuture<OaiPmhRecordPage> futurePage =
+            retrievePageAsync(recordsUrl, fallbackUrlFormat, fallbackDate, false, requestExecutor, parseExecutor);
+
+        return isListingIdentifiers
+               ? futurePage.thenCompose(this::retrieveRecordsAsync)
+               : futurePage;
+    }
+
+
+    /**
+     * Retrieves a page of records asynchronously and if the URL does not yield any records,
+     * retrieves the page via a fallback URL instead.
+     *
+     * @param recordsUrl a URL that leads to OAI-PMH records
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     * @param isUsingFallbackUrl if true, the recordsUrl is a fallback URL
+     * @param requestExecutor the executor that sends the requests
+     * @param parseExecutor the executor that parses the responses
+     *
+     * @return a future of a page of records, or of an empty page if no records match the query
+     */
+    private CompletableFuture<OaiPmhRecordPage> retrievePageAsync(final String recordsUrl, final String fallbackUrlFormat, final String fallbackDate, final boolean isUsingFallbackUrl, final Executor requestExecutor, final Executor parseExecutor) // NOPMD the parameters are all required
+    {
+        // the first page may have been retrieved during the initialization
+        final OaiPmhRecordPage cachedPage = isUsingFallbackUrl ? null : takeFirstPage(recordsUrl);
+
+        if (cachedPage != null)
+            return CompletableFuture.completedFuture(cachedPage);
+
+        return httpClient.getDocumentAsync(recordsUrl, requestExecutor, parseExecutor)
+               .thenCompose((final Document doc) -> {
+                   final OaiPmhRecordPage page = doc == null ? null : parsePage(doc);
+
+                   if (page != null)
+                       return CompletableFuture.completedFuture(page);
+
+                   final String fallbackUrl = getFallbackPageUrl(recordsUrl, doc, fallbackUrlFormat, fallbackDate, isUsingFallbackUrl);
+
+                   return fallbackUrl == null
+                          ? CompletableFuture.completedFuture(new OaiPmhRecordPage(Collections.emptyList(), null))
+                          : retrievePageAsync(fallbackUrl, fallbackUrlFormat, fallbackDate, true, requestExecutor, parseExecutor);
+               });
+    }
+
+
+    /**
+     * Decides how to continue if a URL did not yield any records. If the harvest
+     * cannot be continued via a fallback URL, an exception is thrown.
+     *
+     * @param recordsUrl the URL that did not yield any records
+     * @param doc the response of the URL, or null if it could not be retrieved
+     * @param fallbackUrlFormat a URL that must be formatted to include the fallback date
+     * @param fallbackDate the datestamp of the most recently retrieved record,
+     *         or null if no record was retrieved yet
+     * @param isUsingFallbackUrl if true, the recordsUrl is a fallback URL
+     *
+     * @throws ExtractorException if no records can be retrieved
+     *
+     * @return the fallback URL from which the records are to be retrieved instead,
+     * or null if the query was answered correctly, but has no results
+     */
+    private String getFallbackPageUrl(final String recordsUrl, final Document doc, final String fallbackUrlFormat, final String fallbackDate, final boolean isUsingFallbackUrl) throws ExtractorException // NOPMD the parameters are all required
+    {
+        // the query was answered correctly, but it has no results
+        if (!isUsingFallbackUrl && fallbackDate == null
+            && doc != null && SelectorCache.selectFirst(doc, OaiPmhConstants.NO_RECORDS_MATCH_SELECTION) != null)
+            return null;
+
+        // if no records could be retrieved even via the fallback URL, abort
+        if (isUsingFallbackUrl)
+            throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_RESUMED_ERROR, recordsUrl));
+
+        else if (fallbackDate == null)
+            throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_ERROR, recordsUrl));
+
+        // assemble fallback URL, using the date of the last successfully harvested record
+        final String fallbackUrl = getFallbackUrl(fallbackUrlFormat, fallbackDate);
+
+        // log the fallback
+        if (LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.FALLBACK_URL_INFO, recordsUrl, fallbackUrl));
+
+        return fallbackUrl;
+    }
+
+
+    /**
+     * Extracts the records and the resumption URL from an OAI-PMH response.
+     * If identifiers are listed, the record headers are extracted instead.
+     *
+     * @param doc an OAI-PMH ListRecords or ListIdentifiers response
+     *
+     * @return a page of records, or null if the response does not contain any records
+     */
+    private OaiPmhRecordPage parsePage(final Document doc)
+    {
+        final Elements newRecords = SelectorCache.select(doc, isListingIdentifiers
+                                               ? OaiPmhConstants.RECORD_HEADER
+                                               : OaiPmhConstants.RECORD_ELEMENT);
+
+        if (newRecords.isEmpty())
+            return null;
+
+        // detach the records from the document, so that it can be garbage collected
+        // while the records are still being processed
+        for (final Element record : newRecords)
+            record.remove();
+
+        final Element resumptionToken = SelectorCache.selectFirst(doc, OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT);
+        final String nextUrl;
+
+        if (resumptionToken == null || resumptionToken.text() == null || resumptionToken.text().isEmpty())
+            nextUrl = null;
+        else
+            nextUrl = String.format(resumptionUrlFormat, resumptionToken.text());
+
+        return new OaiPmhRecordPage(newRecords, nextUrl);
+    }
+
+
+    /**
+     * An abstract OAI-PMH iterator that iterates through the records of a single
+     * {@linkplain OaiPmhPartition} using the resumption token.
+     *
+     * @author Robin Weiss
+     */
+    private abstract class AbstractPartitionIterator implements Iterator<Element>
+    {
+        protected final String fallbackUrlFormat;
+        protected String recordsUrl;
+        private final String firstRecordsUrl;
+        private final boolean isEmptyAllowed;
+        private volatile String lastDatestamp;
+        private int recordCount;
+        private boolean isSavingCheckpoints;
+
+
+        /**
+         * Constructor that requires the partition of which the records are iterated.
+         *
+         * @param partition the partition of which the records are iterated
+         * @param checkpoint the position from which the iteration is resumed, or null if it starts from scratch
+         * @param isEmptyAllowed if true, the partition may contain no records at all
+         */
+        public AbstractPartitionIterator(final OaiPmhPartition partition, final OaiPmhCheckpoint checkpoint, final boolean isEmptyAllowed)
+        {
+            this.firstRecordsUrl = partition.getRecordsUrl();
+            this.fallbackUrlFormat = partition.getFallbackUrlFormat();
+            this.isEmptyAllowed = isEmptyAllowed;
+
+            if (checkpoint == null)
+                this.recordsUrl = firstRecordsUrl;
+            else {
+                this.recordsUrl = checkpoint.getResumptionUrl();
+                this.lastDatestamp = checkpoint.getLastDatestamp();
+                this.recordCount = checkpoint.getRecordCount();
+            }
+        }
+
+
+        /**
+         * Enables saving a checkpoint whenever all records of a page were iterated,
+         * and deleting it when all records of the partition were iterated.
+         */
+        public void enableCheckpoints()
+        {
+            this.isSavingCheckpoints = true;
+        }
+
+
+        /**
+         * Retrieves the datestamp of the most recently iterated record.
+         *
+         * @return the datestamp of the most recently iterated record,
+         * or null if no record was iterated yet
+         */
+        public String getLastDatestamp()
+        {
+            return lastDatestamp;
+        }
+
+
+        /**
+         * Memorizes the datestamp of the record that is about to be returned by the iterator,
+         * in case the harvest fails.
+         *
+         * @param record the record that is about to be returned by the iterator
+         *
+         * @return the record
+         */
+        protected Element onRecordIterated(final Element record)
+        {
+            this.lastDatestamp = SelectorCache.getString(record, OaiPmhConstants.HEADER_DATESTAMP);
+            this.recordCount++;
+            updateLatestDatestamp(lastDatestamp);
+            return record;
+        }
+
+
+        /**
+         * Offers a checkpoint after all records of a page were iterated, so that an aborted
+         * harvest can be continued from the subsequent page once the checkpoint store
+         * considers the records of the page to be loaded.
+         *
+         * @param nextUrl the URL of the page that is to be iterated next, or null if there is none
+         */
+        protected void onPageIterated(final String nextUrl)
+        {
+            if (!isSavingCheckpoints)
+                return;
+
+            if (nextUrl == null) {
+                // the harvest is complete and must not be resumed
+                checkpointStore.delete();
+                this.isSavingCheckpoints = false;
+
+            } else if (recordCount > 0)
+                checkpointStore.save(new OaiPmhCheckpoint(firstRecordsUrl, nextUrl, lastDatestamp, recordCount));
+        }
+
+
+        /**
+         * Handles the case that the repository reports that no records match the
+         * query of the partition.
+         *
+         * @throws ExtractorException if the partition must not be empty
+         */
+        protected void onNoRecordsMatch() throws ExtractorException
+        {
+            if (!isEmptyAllowed)
+                throw new ExtractorException(String.format(OaiPmhConstants.NO_RECORDS_ERROR, recordsUrl));
+
+            if (LOGGER.isInfoEnabled())
+                LOGGER.info(String.format(OaiPmhConstants.EMPTY_DATE_WINDOW_INFO, recordsUrl));
+        }
+    }
+
+
+    /**
+     * An OAI-PMH iterator that iterates through records using the resumption token.
+     *
+     * @author Robin Weiss
+     */
+    private class OaiPmhRecordsIterator extends AbstractPartitionIterator
+    {
+        private final Queue<Element> records = new ArrayDeque<>();
+
+
+        /**
+         * Constructor that requires the partition of which the records are iterated.
+         *
+         * @param partition the partition of which the records are iterated
+         * @param checkpoint the position from which the iteration is resumed, or null if it starts from scratch
+         * @param isEmptyAllowed if true, the partition may contain no records at all
+         */
+        public OaiPmhRecordsIterator(final OaiPmhPartition partition, final OaiPmhCheckpoint checkpoint, final boolean isEmptyAllowed)
+        {
+            super(partition, checkpoint, isEmptyAllowed);
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            // if the current records queue is empty, retrieve more via the resumption url
+            while (records.isEmpty() && recordsUrl != null) {
+                onPageIterated(recordsUrl);
+                final OaiPmhRecordPage page = retrieveNextPage();
+
+                if (page.getRecords().isEmpty())
+                    onNoRecordsMatch();
+
+                this.records.addAll(page.getRecords());
+                this.recordsUrl = page.getNextUrl();
+            }
+
+            if (records.isEmpty())
+                onPageIterated(null);
+
+            return !records.isEmpty();
+        }
+
+
+        @Override
+        public Element next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            // retrieve the next record
+            return onRecordIterated(records.remove());
+        }
+
+
+        /**
+         * Retrieves the page of records that is to be iterated next.
+         *
+         * @throws ExtractorException if no records could be retrieved
+         *
+         * @return the page of records that is to be iterated next
+         */
+        protected OaiPmhRecordPage retrieveNextPage() throws ExtractorException
+        {
+            return retrievePage(recordsUrl, fallbackUrlFormat, getLastDatestamp());
+        }
+    }
+
+
+    /**
+     * An OAI-PMH iterator that retrieves pages of records in a background thread,
+     * as soon as the resumption token of the previous page is known.
+     * That way, the network latency of the resumption requests overlaps with the
+     * transformation and loading of the records of the current page.
+     *
+     * @author Robin Weiss
+     */
+    private class PrefetchingRecordsIterator extends OaiPmhRecordsIterator
+    {
+        private final BlockingQueue<CompletableFuture<OaiPmhRecordPage>> prefetchedPages;
+
+
+        /**
+         * Constructor that requires the partition of which the records are iterated,
+         * and starts prefetching pages of records in the background.
+         *
+         * @param partition the partition of which the records are iterated
+         * @param checkpoint the position from which the iteration is resumed, or null if it starts from scratch
+         * @param isEmptyAllowed if true, the partition may contain no records at all
+         * @param prefetchDepth the maximum number of pages that may be retrieved
+         *         ahead of the page that is currently iterated
+         */
+        public PrefetchingRecordsIterator(final OaiPmhPartition partition, final OaiPmhCheckpoint checkpoint, final boolean isEmptyAllowed, final int prefetchDepth)
+        {
+            super(partition, checkpoint, isEmptyAllowed);
+            this.prefetchedPages = new ArrayBlockingQueue<>(prefetchDepth);
+
+            final String firstUrl = recordsUrl;
+            final String firstFallbackDate = getLastDatestamp();
+
+            createBackgroundExecutor(1, OaiPmhConstants.PREFETCH_THREAD_NAME)
+            .execute(() -> prefetchPages(firstUrl, firstFallbackDate));
+        }
+
+
+        @Override
+        protected OaiPmhRecordPage retrieveNextPage() throws ExtractorException
+        {
+            try {
+                return prefetchedPages.take().join();
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExtractorException(OaiPmhConstants.PREFETCH_INTERRUPTED_ERROR, e);
+
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                else
+                    throw new ExtractorException(e.getCause());
+            }
+        }
+
+
+        /**
+         * Follows the resumption token chain and retrieves pages of records until either
+         * the last page was retrieved, or the thread is interrupted.
+         * If a page cannot be retrieved, the error is passed on to the iterating thread.
+         *
+         * @param firstUrl the URL of the first page of records
+         * @param firstFallbackDate the datestamp from which the harvest is continued if the
+         *         first page cannot be retrieved, or null if the harvest starts from scratch
+         */
+        private void prefetchPages(final String firstUrl, final String firstFallbackDate)
+        {
+            String nextUrl = firstUrl;
+            String fallbackDate = firstFallbackDate;
+
+            try {
+                while (nextUrl != null && !Thread.currentThread().isInterrupted()) {
+                    CompletableFuture<OaiPmhRecordPage> pageFuture;
+
+                    try {
+                        final OaiPmhRecordPage page = retrievePage(nextUrl, fallbackUrlFormat, fallbackDate);
+                        pageFuture = CompletableFuture.completedFuture(page);
+                        nextUrl = page.getNextUrl();
+                        fallbackDate = page.getLastDatestamp();
+
+                    } catch (final RuntimeException e) { // NOPMD the error is re-thrown by the iterating thread
+                        pageFuture = new CompletableFuture<>();
+                        pageFuture.completeExceptionally(e);
+                        nextUrl = null;
+                    }
+
+                    prefetchedPages.put(pageFuture);
+                }
+            } catch (final InterruptedException e) {
+                // the harvest was finished or aborted, there is nothing left to do
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * An OAI-PMH iterator that reads records one by one from the response streams,
+     * using the resumption token. Pages of records are never parsed as a whole.
+     *
+     * @author Robin Weiss
+     */
+    private class StreamingRecordsIterator extends AbstractPartitionIterator
+    {
+        private OaiPmhRecordStreamReader currentStream;
+        private Iterator<Element> firstPageRecords;
+
+
+        /**
+         * Constructor that requires the partition of which the records are iterated.
+         *
+         * @param partition the partition of which the records are iterated
+         * @param checkpoint the position from which the iteration is resumed, or null if it starts from scratch
+         * @param isEmptyAllowed if true, the partition may contain no records at all
+         */
+        public StreamingRecordsIterator(final OaiPmhPartition partition, final OaiPmhCheckpoint checkpoint, final boolean isEmptyAllowed)
+        {
+            super(partition, checkpoint, isEmptyAllowed);
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            while (!hasNextInFirstPage() && (currentStream == null || !hasNextInCurrentStream())) {
+
+                // continue with the resumption token of the completely read response
+                if (currentStream != null) {
+                    final String resumptionToken = currentStream.getResumptionToken();
+                    this.recordsUrl = resumptionToken == null
+                                      ? null
+                                      : String.format(resumptionUrlFormat, resumptionToken);
+                    openRecordStreams.remove(currentStream);
+                    this.currentStream = null;
+                }
+
+                onPageIterated(recordsUrl);
+
+                if (recordsUrl == null)
+                    return false;
+
+                // the first page may have been read during the initialization
+                final OaiPmhRecordPage cachedPage = takeFirstPage(recordsUrl);
+
+                if (cachedPage != null) {
+                    this.firstPageRecords = cachedPage.getRecords().iterator();
+                    this.recordsUrl = cachedPage.getNextUrl();
+                } else {
+                    this.currentStream = openRecordStream(recordsUrl, fallbackUrlFormat, getLastDatestamp(), false);
+
+                    if (currentStream.isFinished())
+                        onNoRecordsMatch();
+                }
+            }
+
+            return true;
+        }
+
+
+        @Override
+        public Element next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            // retrieve the next record
+            return onRecordIterated(hasNextInFirstPage() ? firstPageRecords.next() : currentStream.next());
+        }
+
+
+        /**
+         * Checks if there are more records of the first page, which was read
+         * during the initialization of the extractor.
+         *
+         * @return true if the first page has more records
+         */
+        private boolean hasNextInFirstPage()
+        {
+            return firstPageRecords != null && firstPageRecords.hasNext();
+        }
+
+
+        /**
+         * Checks if the current response stream has more records. If the stream
+         * breaks off, the harvest is continued from the datestamp of the most
+         * recently read record.
+         *
+         * @throws ExtractorException if the stream breaks off before any record was read
+         *
+         * @return true if the current stream has more records
+         */
+        private boolean hasNextInCurrentStream() throws ExtractorException
+        {
+            try {
+                return currentStream.hasNext();
+
+            } catch (final ExtractorException e) {
+                final String lastDatestamp = getLastDatestamp();
+
+                if (lastDatestamp == null)
+                    throw e;
+
+                final String fallbackUrl = getFallbackUrl(fallbackUrlFormat, lastDatestamp);
+
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info(String.format(OaiPmhConstants.FALLBACK_URL_INFO, recordsUrl, fallbackUrl));
+
+                openRecordStreams.remove(currentStream);
+                this.recordsUrl = fallbackUrl;
+                this.currentStream = openRecordStream(fallbackUrl, fallbackUrlFormat, lastDatestamp, true);
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * An iterator of the records that are retrieved by background threads, and handed over
+     * via a bounded buffer in the order in which they are retrieved.
+     * If the iterating thread belongs to a {@linkplain ForkJoinPool}, such as the common pool
+     * on which the ETL manager harvests, the pool may start another thread while this one waits
+     * for records. That way, harvests that wait for each other or for the harvested repositories
+     * do not keep the remaining harvests of the pool from being started.
+     *
+     * @author Robin Weiss
+     */
+    private class ExtractedRecordsIterator implements Iterator<Element>, ForkJoinPool.ManagedBlocker
+    {
+        private final OaiPmhRecordBuffer extractedRecords;
+        private Element nextRecord;
+        private boolean isFinished;
+
+
+        /**
+         * Constructor that requires the buffer to which the background threads add the records.
+         *
+         * @param extractedRecords the buffer to which the retrieved records are added
+         */
+        public ExtractedRecordsIterator(final OaiPmhRecordBuffer extractedRecords)
+        {
+            this.extractedRecords = extractedRecords;
+        }
+
+
+        @Override
+        public boolean hasNext()
+        {
+            try {
+                ForkJoinPool.managedBlock(this);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExtractorException(OaiPmhConstants.PREFETCH_INTERRUPTED_ERROR, e);
+            }
+
+            return nextRecord != null;
+        }
+
+
+        @Override
+        public Element next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final Element record = nextRecord;
+            this.nextRecord = null;
+            lastExtractedRecord = record;
+            return record;
+        }
+
+
+        @Override
+        public boolean isReleasable()
+        {
+            if (nextRecord == null && !isFinished)
+                this.nextRecord = extractedRecords.poll();
+
+            return nextRecord != null || isFinished;
+        }
+
+
+        @Override
+        public boolean block() throws InterruptedException
+        {
+            // throws errors of the background threads
+            final Element record = extractedRecords.take();
+
+            if (record == null) {
+                this.isFinished = true;
+                isExtractionComplete = true;
+
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug(extractedRecords.getMetrics());
+            } else
+                this.nextRecord = record;
+
+            return true;
+        }
+    }
+
+
+    /**
+     * A harvester of multiple {@linkplain OaiPmhPartition}s that retrieves them asynchronously.
+     * Instead of dedicating a thread to each partition, every page of every partition is
+     * retrieved as a {@linkplain CompletableFuture}: requests are sent by a pool of request threads,
+     * responses are parsed by a pool of parse threads, and the records are handed over to the
+     * iterating thread via the bounded buffer of extracted records. The request of the next page of
+     * a partition is only sent after the records of the current page were handed over, so that
+     * a full buffer slows down the harvest instead of filling up the memory.
+     *
+     * @author Robin Weiss
+     */
+    private class AsyncPartitionHarvester
+    {
+        private final OaiPmhRecordBuffer extractedRecords;
+        private final AtomicInteger unfinishedPartitions;
+        private final Queue<OaiPmhPartition> pendingPartitions;
+        private final Executor requestExecutor;
+        private final Executor parseExecutor;
+        private final int activePartitions;
+
+
+        /**
+         * Constructor that prepares the threads that harvest the partitions.
+         *
+         * @param partitions the partitions that are to be harvested
+         * @param requestThreads the maximum number of concurrent requests
+         * @param extractedRecords the buffer to which the retrieved records are added
+         */
+        public AsyncPartitionHarvester(final List<OaiPmhPartition> partitions, final int requestThreads, final OaiPmhRecordBuffer extractedRecords)
+        {
+            this.extractedRecords = extractedRecords;
+            this.unfinishedPartitions = new AtomicInteger(partitions.size());
+            this.pendingPartitions = new ConcurrentLinkedQueue<>(partitions);
+            this.requestExecutor = createBackgroundExecutor(requestThreads, OaiPmhConstants.ASYNC_REQUEST_THREAD_NAME);
+            // parsing keeps the CPU busy, which is not what virtual threads are meant for
+            this.parseExecutor = createBackgroundExecutor(
+                                     Runtime.getRuntime().availableProcessors(),
+                                     OaiPmhConstants.ASYNC_PARSE_THREAD_NAME,
+                                     false);
+
+            // while the records of some partitions are being parsed or handed over,
+            // other partitions can already wait for their responses
+            this.activePartitions = Math.min(partitions.size(), requestThreads * OaiPmhConstants.ASYNC_PARTITIONS_PER_THREAD);
+        }
+
+
+        /**
+         * Starts harvesting the partitions in the background.
+         */
+        public void start()
+        {
+            for (int i = 0; i < activePartitions; i++)
+                harvestNextPartition();
+        }
+
+
+        /**
+         * Starts harvesting the next partition that was not harvested yet, if there is one.
+         */
+        private void harvestNextPartition()
+        {
+            final OaiPmhPartition partition = pendingPartitions.poll();
+
+            if (partition != null)
+                harvestPage(partition, partition.getRecordsUrl(), null);
+        }
+
+
+        /**
+         * Retrieves a page of records of a partition asynchronously and hands its records over
+         * to the iterating thread. Afterwards, the next page of the partition is retrieved, or
+         * the next partition is harvested if there are no more pages.
+         *
+         * @param partition the partition that is being harvested
+         * @param recordsUrl the URL of the page that is to be retrieved
+         * @param fallbackDate the datestamp of the most recently retrieved record of the partition,
+         *         or null if no record was retrieved yet
+         */
+        private void harvestPage(final OaiPmhPartition partition, final String recordsUrl, final String fallbackDate)
+        {
+            retrievePageAsync(recordsUrl, partition.getFallbackUrlFormat(), fallbackDate, requestExecutor, parseExecutor)
+            .thenAccept((final OaiPmhRecordPage page) -> {
+                if (page.getRecords().isEmpty() && LOGGER.isInfoEnabled())
+                    LOGGER.info(String.format(OaiPmhConstants.EMPTY_DATE_WINDOW_INFO, recordsUrl));
+
+                // stop if the buffer was closed due to an error of another partition
+                if (!handOver(page.getRecords()))
+                    return;
+
+                if (page.getNextUrl() == null) {
+                    if (unfinishedPartitions.decrementAndGet() == 0)
+                        extractedRecords.close();
+
+                    harvestNextPartition();
+                } else {
+                    final String lastDatestamp = page.getLastDatestamp();
+                    harvestPage(partition, page.getNextUrl(), lastDatestamp == null ? fallbackDate : lastDatestamp);
+                }
+            })
+            .exceptionally((final Throwable error) -> {
+                final Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                        ? error.getCause()
+                                        : error;
+
+                // the error is re-thrown by the iterating thread
+                extractedRecords.fail(cause instanceof RuntimeException
+                                   ? (RuntimeException) cause
+                                   : new ExtractorException(cause));
+                return null;
+            });
+        }
+
+
+        /**
+         * Adds the records of a page to the extracted records, blocking while the buffer is full.
+         *
+         * @param records the records of a page
+         *
+         * @throws ExtractorException if the thread is interrupted while waiting
+         *
+         * @return false if the buffer was closed and no more records are to be added
+         */
+        private boolean handOver(final List<Element> records) throws ExtractorException
+        {
+            try {
+                for (final Element record : records) {
+                    updateLatestDatestamp(SelectorCache.getString(record, OaiPmhConstants.HEADER_DATESTAMP));
+
+                    if (!extractedRecords.put(record))
+                        return false;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExtractorException(OaiPmhConstants.PREFETCH_INTERRUPTED_ERROR, e);
+            }
+
+            return true;
         }
     }
 }
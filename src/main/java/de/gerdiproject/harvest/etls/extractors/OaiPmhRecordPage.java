@@ -0,0 +1,53 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.util.List;
+
+import org.jsoup.nodes.Element;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
+import lombok.Value;
+
+/**
+ * This class represents a single page of records of a ListRecords response,
+ * as well as the URL that leads to the subsequent page.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class OaiPmhRecordPage
+{
+    private final List<Element> records;
+    private final String nextUrl;
+
+
+    /**
+     * Retrieves the datestamp of the last record of the page.
+     * This date can be used to assemble a fallback URL, if the
+     * subsequent page cannot be retrieved.
+     *
+     * @return the datestamp of the last record of the page, or null if it has none
+     */
+    public String getLastDatestamp()
+    {
+        return records.isEmpty()
+               ? null
+               : SelectorCache.getString(records.get(records.size() - 1), OaiPmhConstants.HEADER_DATESTAMP);
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
+
+/**
+ * This class reads the records of an OAI-PMH response from an {@linkplain InputStream}
+ * one by one, without keeping the whole response in memory.
+ * Each record is converted to a Jsoup {@linkplain Element} as soon as its end tag is read,
+ * whereas the resumption token can be retrieved after all records were read.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhRecordStreamReader implements Iterator<Element>, Closeable
+{
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final InputStream inputStream;
+    private final XMLStreamReader xmlReader;
+    private final String baseUri;
+    private final StringBuilder recordBuilder;
+
+    private Element nextRecord;
+    private String resumptionToken;
+    private String errorCode;
+    private int completeListSize = -1;
+    private boolean isFinished;
+
+
+    /**
+     * Constructor that prepares the reading of records from an OAI-PMH response.
+     *
+     * @param inputStream a stream of an OAI-PMH response
+     * @param baseUri the URL from which the response was retrieved
+     *
+     * @throws ExtractorException if the stream cannot be read
+     */
+    public OaiPmhRecordStreamReader(final InputStream inputStream, final String baseUri) throws ExtractorException
+    {
+        this.inputStream = inputStream;
+        this.baseUri = baseUri;
+        this.recordBuilder = new StringBuilder();
+
+        try {
+            this.xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        } catch (final XMLStreamException e) {
+            close();
+            throw new ExtractorException(String.format(OaiPmhConstants.CANNOT_READ_STREAM_ERROR, baseUri), e);
+        }
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        if (nextRecord == null && !isFinished)
+            nextRecord = readNextRecord();
+
+        return nextRecord != null;
+    }
+
+
+    @Override
+    public Element next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final Element record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+
+    /**
+     * Returns the resumption token of the response. This value is only
+     * available after all records were read.
+     *
+     * @return the resumption token or null, if it does not exist or was not read yet
+     */
+    public String getResumptionToken()
+    {
+        return resumptionToken;
+    }
+
+
+    /**
+     * Returns the code of the OAI-PMH error of the response. This value is only
+     * available after all records were read.
+     *
+     * @return the error code, e.g. "noRecordsMatch", or null if the response has no error
+     */
+    public String getErrorCode()
+    {
+        return errorCode;
+    }
+
+
+    /**
+     * Returns the value of the "completeListSize"-attribute of the resumption token.
+     * This value is only available after all records were read.
+     *
+     * @return the complete list size or -1, if it is unknown
+     */
+    public int getCompleteListSize()
+    {
+        return completeListSize;
+    }
+
+
+    /**
+     * Checks if all records of the response were read.
+     *
+     * @return true if all records were read
+     */
+    public boolean isFinished()
+    {
+        return isFinished;
+    }
+
+
+    @Override
+    public void close()
+    {
+        isFinished = true;
+
+        try {
+            if (xmlReader != null)
+                xmlReader.close();
+        } catch (final XMLStreamException e) { // NOPMD the stream is closed below anyway
+        }
+
+        try {
+            inputStream.close();
+        } catch (final IOException e) { // NOPMD nothing to do if closing fails
+        }
+    }
+
+
+    /**
+     * Reads the XML stream until the next record was read completely, or until the
+     * stream ends. Resumption token and error information is memorized along the way.
+     *
+     * @throws ExtractorException if the stream cannot be parsed
+     *
+     * @return the next record or null, if there are no more records
+     */
+    private Element readNextRecord() throws ExtractorException
+    {
+        try {
+            while (xmlReader.hasNext()) {
+                if (xmlReader.next() != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                final String elementName = xmlReader.getLocalName();
+
+                if (isElement(elementName, OaiPmhConstants.RECORD_ELEMENT))
+                    return parseRecord();
+
+                if (isElement(elementName, OaiPmhConstants.RESUMPTION_TOKEN_ELEMENT))
+                    parseResumptionToken();
+
+                else if (isElement(elementName, OaiPmhConstants.ERROR_ELEMENT))
+                    errorCode = xmlReader.getAttributeValue(null, OaiPmhConstants.ERROR_CODE_ATTRIBUTE);
+            }
+        } catch (final XMLStreamException e) {
+            close();
+            throw new ExtractorException(String.format(OaiPmhConstants.CANNOT_READ_STREAM_ERROR, baseUri), e);
+        }
+
+        close();
+        return null;
+    }
+
+
+    /**
+     * Serializes the XML of the record at which the stream currently points and parses it
+     * with the same Jsoup parser that is used for complete responses.
+     *
+     * @throws XMLStreamException if the stream cannot be parsed
+     *
+     * @return the record that was read from the stream
+     */
+    private Element parseRecord() throws XMLStreamException
+    {
+        recordBuilder.setLength(0);
+        int depth = 0;
+        boolean isStartTagOpen = false;
+
+        do {
+            final int event = depth == 0 ? XMLStreamConstants.START_ELEMENT : xmlReader.next();
+
+            if (isStartTagOpen && event != XMLStreamConstants.END_ELEMENT)
+                recordBuilder.append('>');
+
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    appendStartTag();
+                    isStartTagOpen = true;
+                    depth++;
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    if (isStartTagOpen)
+                        recordBuilder.append(" />");
+                    else
+                        recordBuilder.append("</").append(xmlReader.getLocalName()).append('>');
+
+                    isStartTagOpen = false;
+                    depth--;
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    appendEscaped(xmlReader.getText(), false);
+                    isStartTagOpen = false;
+                    break;
+
+                default:
+                    // comments and processing instructions are irrelevant for the transformation
+                    isStartTagOpen = false;
+                    break;
+            }
+        } while (depth > 0);
+
+        final Element record = SelectorCache.selectFirst(Jsoup.parse(recordBuilder.toString(), baseUri), OaiPmhConstants.RECORD_ELEMENT);
+
+        // detach the record from the document that was created by the parser
+        if (record != null)
+            record.remove();
+
+        return record;
+    }
+
+
+    /**
+     * Memorizes the text and the list size of the resumption token at which the stream currently points.
+     *
+     * @throws XMLStreamException if the stream cannot be parsed
+     */
+    private void parseResumptionToken() throws XMLStreamException
+    {
+        final String listSize = xmlReader.getAttributeValue(null, OaiPmhConstants.LIST_SIZE_ATTRIBUTE);
+
+        if (listSize != null && !listSize.isEmpty()) {
+            try {
+                completeListSize = Integer.parseInt(listSize.trim());
+            } catch (final NumberFormatException e) {
+                completeListSize = -1;
+            }
+        }
+
+        final String tokenText = xmlReader.getElementText().trim();
+        resumptionToken = tokenText.isEmpty() ? null : tokenText;
+    }
+
+
+    /**
+     * Appends the start tag at which the stream currently points, including all attributes,
+     * but excluding the closing bracket.
+     */
+    private void appendStartTag()
+    {
+        recordBuilder.append('<').append(xmlReader.getLocalName());
+
+        final int attributeCount = xmlReader.getAttributeCount();
+
+        for (int i = 0; i < attributeCount; i++) {
+            final String prefix = xmlReader.getAttributePrefix(i);
+
+            recordBuilder.append(' ');
+
+            if (prefix != null && !prefix.isEmpty())
+                recordBuilder.append(prefix).append(':');
+
+            recordBuilder.append(xmlReader.getAttributeLocalName(i)).append("=\"");
+            appendEscaped(xmlReader.getAttributeValue(i), true);
+            recordBuilder.append('"');
+        }
+    }
+
+
+    /**
+     * Appends text to the serialized record, escaping characters that would otherwise
+     * be interpreted as markup.
+     *
+     * @param text the text that is to be appended
+     * @param isAttribute if true, quotation marks are escaped as well
+     */
+    private void appendEscaped(final String text, final boolean isAttribute)
+    {
+        final int len = text.length();
+
+        for (int i = 0; i < len; i++) {
+            final char c = text.charAt(i);
+
+            switch (c) {
+                case '&':
+                    recordBuilder.append("&amp;");
+                    break;
+
+                case '<':
+                    recordBuilder.append("&lt;");
+                    break;
+
+                case '>':
+                    recordBuilder.append("&gt;");
+                    break;
+
+                case '"':
+                    recordBuilder.append(isAttribute ? "&quot;" : "\"");
+                    break;
+
+                default:
+                    recordBuilder.append(c);
+            }
+        }
+    }
+
+
+    /**
+     * Checks if a qualified XML element name has a specified local name.
+     *
+     * @param qualifiedName the name of the element, possibly including a namespace prefix
+     * @param localName the expected name, without a namespace prefix
+     *
+     * @return true if the element has the specified local name
+     */
+    private static boolean isElement(final String qualifiedName, final String localName)
+    {
+        final int prefixEnd = qualifiedName.indexOf(':');
+
+        return prefixEnd == -1
+               ? qualifiedName.equals(localName)
+               : qualifiedName.regionMatches(prefixEnd + 1, localName, 0, localName.length())
+               && qualifiedName.length() - prefixEnd - 1 == localName.length();
+    }
+
+
+    /**
+     * Creates a non-validating, namespace-unaware XML parser factory that does not resolve
+     * external entities. Namespace prefixes are kept as part of the element names, because
+     * the transformers select elements by their prefixed names.
+     *
+     * @return a factory for XML stream readers
+     */
+    private static XMLInputFactory createXmlInputFactory()
+    {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
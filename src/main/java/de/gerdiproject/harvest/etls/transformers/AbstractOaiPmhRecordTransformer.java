@@ -18,6 +18,7 @@ package de.gerdiproject.harvest.etls.transformers;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.jsoup.nodes.Element;
@@ -26,6 +27,7 @@ import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.OaiPmhETL;
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.Date;
@@ -40,14 +42,18 @@ import de.gerdiproject.json.datacite.extension.generic.enums.WebLinkType;
 /**
  * This class offers a skeleton for transforming OAI-PMH records to {@linkplain DataCiteJson} objects.
  * The identifier and repository identifier are set by this class and do not have to be
- * specified by the sub-classes.
+ * specified by the sub-classes. Each ETL creates its own transformer, and transformers are
+ * stateless apart from their immutable {@linkplain OaiPmhRepositoryContext}, which allows
+ * records to be transformed by multiple threads at the same time.
  *
  * @author Robin Weiss
  */
 public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTransformer<Element, DataCiteJson>
 {
-    protected String repositoryIdentifier;
-    protected List<WebLink> defaultLinks;
+    private volatile OaiPmhRepositoryContext repositoryContext = OaiPmhRepositoryContext.EMPTY;
+    private int transformThreadCount = 1;
+    private boolean isPreservingOrder = true;
+    private ParallelTransformIterator<Element, DataCiteJson> parallelTransformation;
 
 
     /**
@@ -65,13 +71,59 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
     {
         final OaiPmhETL oaiEtl = (OaiPmhETL) etl;
 
-        // retrieve info from the ETL
-        this.repositoryIdentifier = oaiEtl.getRepositoryName();
-
-        // set default links
+        // retrieve info from the ETL and set default links
         final WebLink logoLink = createLogoWebLink(oaiEtl.getLogoUrl());
         final WebLink viewLink = createViewWebLink(oaiEtl.getViewUrl());
-        this.defaultLinks = Arrays.asList(logoLink, viewLink);
+        this.repositoryContext = new OaiPmhRepositoryContext(
+            oaiEtl.getRepositoryName(),
+            Arrays.asList(logoLink, viewLink));
+
+        // retrieve parallelization settings
+        this.transformThreadCount = oaiEtl.getTransformThreads();
+        this.isPreservingOrder = !oaiEtl.isTransformingUnordered();
+    }
+
+
+    /**
+     * Transforms the records on a pool of worker threads, if more than one transform thread
+     * is configured. Otherwise, the records are transformed one by one when they are retrieved.
+     */
+    @Override
+    public Iterator<DataCiteJson> transform(final Iterator<Element> records) throws TransformerException
+    {
+        if (transformThreadCount <= 1)
+            return super.transform(records);
+
+        clear();
+        this.parallelTransformation = new ParallelTransformIterator<>(
+            records,
+            this::transformElement,
+            transformThreadCount,
+            isPreservingOrder);
+
+        return parallelTransformation;
+    }
+
+
+    /**
+     * Returns the information about the harvested repository that is added to every document.
+     *
+     * @return the repository context with which the transformer was initialized
+     */
+    protected OaiPmhRepositoryContext getRepositoryContext()
+    {
+        return repositoryContext;
+    }
+
+
+    @Override
+    public void clear()
+    {
+        // stop the worker threads of a parallel transformation
+        if (parallelTransformation != null) {
+            parallelTransformation.close();
+            parallelTransformation = null;
+        }
     }
 
 
@@ -79,6 +131,7 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
     protected DataCiteJson transformElement(final Element record) throws TransformerException
     {
         final Element header = getHeader(record);
+        final OaiPmhRepositoryContext context = repositoryContext;
         final DataCiteJson document;
 
         if (isRecordDeleted(header))
@@ -87,11 +140,11 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
             final String identifierString = parseIdentifierFromHeader(header);
             document = new DataCiteJson(identifierString);
             document.setIdentifier(new Identifier(identifierString));
-            document.setRepositoryIdentifier(repositoryIdentifier);
+            document.setRepositoryIdentifier(context.getRepositoryIdentifier());
             document.addSubjects(parseSubjectsFromHeader(header));
 
-            if (defaultLinks != null)
-                document.addWebLinks(defaultLinks);
+            if (!context.getDefaultLinks().isEmpty())
+                document.addWebLinks(context.getDefaultLinks());
 
             setDocumentFieldsFromRecord(document, record);
         }
@@ -109,7 +162,7 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
      */
     protected Element getHeader(final Element record)
     {
-        return record.selectFirst(OaiPmhConstants.RECORD_HEADER);
+        return SelectorCache.selectFirst(record, OaiPmhConstants.RECORD_HEADER);
 
     }
 
@@ -123,7 +176,7 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
      */
     protected Element getMetadata(final Element record)
     {
-        return record.selectFirst(OaiPmhConstants.RECORD_METADATA);
+        return SelectorCache.selectFirst(record, OaiPmhConstants.RECORD_METADATA);
     }
 
 
@@ -195,7 +248,7 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
      */
     protected String parseIdentifierFromHeader(final Element header)
     {
-        return HtmlUtils.getString(header, OaiPmhConstants.HEADER_IDENTIFIER);
+        return SelectorCache.getString(header, OaiPmhConstants.HEADER_IDENTIFIER);
     }
 
 
@@ -209,7 +262,7 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
      */
     protected List<Subject> parseSubjectsFromHeader(final Element header)
     {
-        return HtmlUtils.getObjects(
+        return SelectorCache.getObjects(
                    header,
                    OaiPmhConstants.HEADER_SET_SPEC,
                    (Element ele) -> new Subject(ele.text()));
@@ -255,8 +308,8 @@ public abstract class AbstractOaiPmhRecordTransformer extends AbstractIteratorTr
      */
     protected String getErrorPrefix(final Element record)
     {
-        final String identifier = HtmlUtils.getString(record, OaiPmhConstants.HEADER_IDENTIFIER);
-        final String dateStamp = HtmlUtils.getString(record, OaiPmhConstants.HEADER_DATESTAMP);
+        final String identifier = SelectorCache.getString(record, OaiPmhConstants.HEADER_IDENTIFIER);
+        final String dateStamp = SelectorCache.getString(record, OaiPmhConstants.HEADER_DATESTAMP);
 
         return String.format(
                    DataCiteConstants.RECORD_ERROR_PREFIX,
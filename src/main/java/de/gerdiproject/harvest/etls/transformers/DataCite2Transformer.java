@@ -23,6 +23,7 @@ import org.jsoup.nodes.Element;
 
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.DateUtils;
 import de.gerdiproject.json.datacite.AlternateIdentifier;
@@ -64,57 +65,129 @@ import de.gerdiproject.json.datacite.nested.Publisher;
 @SuppressWarnings("PMD.CouplingBetweenObjects") // caused by the high number of fields required by DataCiteJson
 public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
 {
+    protected final SinglePassMapper<MappedRecord> recordMapper;
+
+
+    /**
+     * Constructor that sets up the handlers that map the elements of a record to document fields.
+     */
+    public DataCite2Transformer()
+    {
+        super();
+        this.recordMapper = new SinglePassMapper<>();
+        registerFieldHandlers(recordMapper); // NOPMD the handlers are only invoked after construction
+    }
+
+
     @Override
-    //@SuppressWarnings("CPD-START") // we want to keep duplicates here, because there will be slight changes in other transformers
     protected void setDocumentFieldsFromRecord(final DataCiteJson document, final Element record)
     {
-        final Element metadata = getMetadata(record);
+        final MappedRecord mappedRecord = new MappedRecord(document);
+        recordMapper.map(mappedRecord, getMetadata(record));
 
-        // overwrite the identifier parsed from the header
-        final Identifier identifier = HtmlUtils.getObject(metadata, DataCiteConstants.IDENTIFIER, this::parseIdentifier);
+        document.addWebLinks(createWebLinks(mappedRecord.getIdentifier(), mappedRecord.getRelatedIdentifiers()));
+    }
 
-        if (identifier != null)
-            document.setIdentifier(identifier);
-
-        // parse and cache related identifiers, they are reused in weblink creation
-        final List<RelatedIdentifier> relatedIdentifiers =
-            HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.RELATED_IDENTIFIERS, this::parseRelatedIdentifier);
-        document.addRelatedIdentifiers(relatedIdentifiers);
-
-        document.setPublisher(parsePublisher(metadata));
-        document.setLanguage(HtmlUtils.getString(metadata, DataCiteConstants.LANGUAGE));
-        document.setVersion(HtmlUtils.getString(metadata, DataCiteConstants.VERSION));
-        document.setPublicationYear(parsePublicationYear(metadata));
-        document.addSizes(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.SIZES));
-        document.addFormats(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.FORMATS));
-        document.setResourceType(HtmlUtils.getObject(metadata, DataCiteConstants.RESOURCE_TYPE, this::parseResourceType));
-        document.addCreators(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CREATORS, this::parseCreator));
-        document.addContributors(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CONTRIBUTORS, this::parseContributor));
-        document.addTitles(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.TITLES, this::parseTitle));
-        document.addDescriptions(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DESCRIPTIONS, this::parseDescription));
-        document.addSubjects(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.SUBJECTS, this::parseSubject));
-        document.addAlternateIdentifiers(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.ALTERNATE_IDENTIFIERS, this::parseAlternateIdentifier));
-        document.addDates(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DATES, this::parseDate));
-        document.addDates(parseDateRanges(metadata));
-        document.addWebLinks(createWebLinks(identifier, relatedIdentifiers));
+
+    /**
+     * Registers the handlers that map the metadata elements of a record to document fields.
+     * Transformers of later DataCite versions can replace, remove, or add handlers.
+     * This method is called by the constructor, so handlers must not rely on fields
+     * that are not yet initialized at that time.
+     *
+     * @param mapper the mapper to which the handlers are added
+     */
+    protected void registerFieldHandlers(final SinglePassMapper<MappedRecord> mapper)
+    {
+        mapper.put(DataCiteConstants.IDENTIFIER, this::mapIdentifier);
+        mapper.put(DataCiteConstants.RELATED_IDENTIFIERS, this::mapRelatedIdentifiers);
+        mapper.put(DataCiteConstants.PUBLISHER, (mapped, ele) -> mapped.getDocument().setPublisher(parsePublisher(ele)));
+        mapper.put(DataCiteConstants.LANGUAGE, (mapped, ele) -> mapped.getDocument().setLanguage(SinglePassMapper.getText(ele)));
+        mapper.put(DataCiteConstants.VERSION, (mapped, ele) -> mapped.getDocument().setVersion(SinglePassMapper.getText(ele)));
+        mapper.put(DataCiteConstants.PUBLICATION_YEAR, (mapped, ele) -> mapped.getDocument().setPublicationYear(parsePublicationYear(ele)));
+        mapper.put(DataCiteConstants.SIZES, (mapped, ele) -> mapped.getDocument().addSizes(SinglePassMapper.getChildObjects(ele, Element::text)));
+        mapper.put(DataCiteConstants.FORMATS, (mapped, ele) -> mapped.getDocument().addFormats(SinglePassMapper.getChildObjects(ele, Element::text)));
+        mapper.put(DataCiteConstants.RESOURCE_TYPE, (mapped, ele) -> mapped.getDocument().setResourceType(SinglePassMapper.getObject(ele, this::parseResourceType)));
+        mapper.put(DataCiteConstants.CREATORS, (mapped, ele) -> mapped.getDocument().addCreators(SinglePassMapper.getChildObjects(ele, this::parseCreator)));
+        mapper.put(DataCiteConstants.CONTRIBUTORS, this::mapContributors);
+        mapper.put(DataCiteConstants.TITLES, (mapped, ele) -> mapped.getDocument().addTitles(SinglePassMapper.getChildObjects(ele, this::parseTitle)));
+        mapper.put(DataCiteConstants.DESCRIPTIONS, (mapped, ele) -> mapped.getDocument().addDescriptions(SinglePassMapper.getChildObjects(ele, this::parseDescription)));
+        mapper.put(DataCiteConstants.SUBJECTS, (mapped, ele) -> mapped.getDocument().addSubjects(SinglePassMapper.getChildObjects(ele, this::parseSubject)));
+        mapper.put(DataCiteConstants.ALTERNATE_IDENTIFIERS, (mapped, ele) -> mapped.getDocument().addAlternateIdentifiers(SinglePassMapper.getChildObjects(ele, this::parseAlternateIdentifier)));
+        mapper.put(DataCiteConstants.DATES, this::mapDates);
 
         // to be compliant to DC 4.1, convert the single rights-object to a rightsList
-        document.addRights(Arrays.asList(HtmlUtils.getObject(metadata, DataCiteConstants.RIGHTS, this::parseRights)));
+        mapper.put(DataCiteConstants.RIGHTS, (mapped, ele) -> mapped.getDocument().addRights(Arrays.asList(SinglePassMapper.getObject(ele, this::parseRights))));
+    }
+
 
-        // to be compliant to DC 4.1, convert contributors with type "funder" to fundingReferences
-        document.addFundingReferences(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CONTRIBUTORS, this::parseFundingReference));
+    /**
+     * Overwrites the identifier that was parsed from the record header, and memorizes it for the web link creation.
+     *
+     * @param mapped the record that is being mapped
+     * @param ele the identifier element, or null if it does not exist
+     */
+    protected void mapIdentifier(final MappedRecord mapped, final Element ele)
+    {
+        final Identifier identifier = SinglePassMapper.getObject(ele, this::parseIdentifier);
+        mapped.setIdentifier(identifier);
+
+        if (identifier != null)
+            mapped.getDocument().setIdentifier(identifier);
+    }
+
+
+    /**
+     * Adds the related identifiers to the document, and memorizes them for the web link creation.
+     *
+     * @param mapped the record that is being mapped
+     * @param ele the parent element of all related identifiers, or null if it does not exist
+     */
+    protected void mapRelatedIdentifiers(final MappedRecord mapped, final Element ele)
+    {
+        final List<RelatedIdentifier> relatedIdentifiers = SinglePassMapper.getChildObjects(ele, this::parseRelatedIdentifier);
+        mapped.setRelatedIdentifiers(relatedIdentifiers);
+        mapped.getDocument().addRelatedIdentifiers(relatedIdentifiers);
+    }
+
+
+    /**
+     * Adds the contributors to the document. To be compliant to DC 4.1,
+     * contributors with type "funder" are converted to fundingReferences.
+     *
+     * @param mapped the record that is being mapped
+     * @param ele the parent element of all contributors, or null if it does not exist
+     */
+    protected void mapContributors(final MappedRecord mapped, final Element ele)
+    {
+        mapped.getDocument().addContributors(SinglePassMapper.getChildObjects(ele, this::parseContributor));
+        mapped.getDocument().addFundingReferences(SinglePassMapper.getChildObjects(ele, this::parseFundingReference));
+    }
+
+
+    /**
+     * Adds the dates to the document, including date ranges that were
+     * defined via dedicated start and end dates.
+     *
+     * @param mapped the record that is being mapped
+     * @param ele the parent element of all dates, or null if it does not exist
+     */
+    protected void mapDates(final MappedRecord mapped, final Element ele)
+    {
+        mapped.getDocument().addDates(SinglePassMapper.getChildObjects(ele, this::parseDate));
+        mapped.getDocument().addDates(parseDateRanges(ele));
     }
 
 
     /**
      * Parses the {@linkplain Publisher} field from the HTML representation thereof.
      *
-     * @param metadata DataCite record metadata
+     * @param ele the publisher element, or null if it does not exist
      * @return the {@linkplain Publisher} of the record
      */
-    protected Publisher parsePublisher(final Element metadata)
+    protected Publisher parsePublisher(final Element ele)
     {
-        final String publisherValue = HtmlUtils.getString(metadata, DataCiteConstants.PUBLISHER);
+        final String publisherValue = SinglePassMapper.getText(ele);
         return publisherValue == null ? null : new Publisher(publisherValue);
     }
 
@@ -143,8 +216,8 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
      */
     protected Creator parseCreator(final Element ele)
     {
-        final PersonName creatorName = parsePersonName(ele.selectFirst(DataCiteConstants.CREATOR_NAME));
-        final List<NameIdentifier> nameIdentifiers = HtmlUtils.elementsToList(ele.select(DataCiteConstants.NAME_IDENTIFIER), this::parseNameIdentifier);
+        final PersonName creatorName = parsePersonName(SelectorCache.selectFirst(ele, DataCiteConstants.CREATOR_NAME));
+        final List<NameIdentifier> nameIdentifiers = HtmlUtils.elementsToList(SelectorCache.select(ele, DataCiteConstants.NAME_IDENTIFIER), this::parseNameIdentifier);
 
         final Creator creator = new Creator(creatorName);
         creator.addNameIdentifiers(nameIdentifiers);
@@ -168,9 +241,9 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
         if (contributorTypeString.equalsIgnoreCase(DataCiteConstants.CONTRIBUTOR_TYPE_FUNDER))
             return null;
 
-        final PersonName contributorName = parsePersonName(ele.selectFirst(DataCiteConstants.CONTRIBUTOR_NAME));
+        final PersonName contributorName = parsePersonName(SelectorCache.selectFirst(ele, DataCiteConstants.CONTRIBUTOR_NAME));
         final ContributorType contributorType = HtmlUtils.getEnumAttribute(ele, DataCiteConstants.CONTRIBUTOR_TYPE, ContributorType.class);
-        final List<NameIdentifier> nameIdentifiers = HtmlUtils.elementsToList(ele.select(DataCiteConstants.NAME_IDENTIFIER), this::parseNameIdentifier);
+        final List<NameIdentifier> nameIdentifiers = HtmlUtils.elementsToList(SelectorCache.select(ele, DataCiteConstants.NAME_IDENTIFIER), this::parseNameIdentifier);
 
         final Contributor contributor = new Contributor(contributorName, contributorType);
         contributor.addNameIdentifiers(nameIdentifiers);
@@ -405,14 +478,14 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
     /**
      * Attempts to parse the publication year from DataCite record metadata.
      *
-     * @param metadata DataCite record metadata
+     * @param ele the publicationYear element, or null if it does not exist
      *
      * @return the publication year or null, if it does not exist
      */
-    protected Integer parsePublicationYear(final Element metadata)
+    protected Integer parsePublicationYear(final Element ele)
     {
         try {
-            final String publicationYear = HtmlUtils.getString(metadata, DataCiteConstants.PUBLICATION_YEAR);
+            final String publicationYear = SinglePassMapper.getText(ele);
             return Integer.parseInt(publicationYear);
 
         } catch (NumberFormatException e) {
@@ -437,8 +510,8 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
         if (!contributorType.equalsIgnoreCase(DataCiteConstants.CONTRIBUTOR_TYPE_FUNDER))
             return null;
 
-        final PersonName contributorName = parsePersonName(ele.selectFirst(DataCiteConstants.CONTRIBUTOR_NAME));
-        final NameIdentifier nameIdentifier = parseNameIdentifier(ele.selectFirst(DataCiteConstants.NAME_IDENTIFIER));
+        final PersonName contributorName = parsePersonName(SelectorCache.selectFirst(ele, DataCiteConstants.CONTRIBUTOR_NAME));
+        final NameIdentifier nameIdentifier = parseNameIdentifier(SelectorCache.selectFirst(ele, DataCiteConstants.NAME_IDENTIFIER));
         FunderIdentifier funderIdentifier = null;
 
         // convert nameIdentifier to funder identifier
@@ -494,14 +567,12 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
      * In DataCite 2.2 and earlier, date ranges were defined via dedicated elements with dateTypes
      * "StartDate" and "EndDate", and must therefore be handled separately.
      *
-     * @param metadata the record metadata HTML element
+     * @param datesParent the parent element of all dates, or null if it does not exist
      *
      * @return a list of {@linkplain DateRange}s
      */
-    private List<AbstractDate> parseDateRanges(final Element metadata)
+    private List<AbstractDate> parseDateRanges(final Element datesParent)
     {
-        final Element datesParent = metadata.selectFirst(DataCiteConstants.DATES);
-
         if (datesParent == null)
             return null;
 
@@ -546,9 +617,82 @@ public class DataCite2Transformer extends AbstractOaiPmhRecordTransformer
     }
 
 
-    @Override
-    public void clear()
+    /**
+     * This class holds the document to which a record is mapped, as well as the
+     * identifiers that are needed for creating {@linkplain WebLink}s after all elements were mapped.
+     *
+     * @author Robin Weiss
+     */
+    protected static class MappedRecord
     {
-        // nothing to clean up
+        private final DataCiteJson document;
+        private Identifier identifier;
+        private List<RelatedIdentifier> relatedIdentifiers;
+
+
+        /**
+         * Constructor that requires the document to which the record is mapped.
+         *
+         * @param document the document to which the record is mapped
+         */
+        public MappedRecord(final DataCiteJson document)
+        {
+            this.document = document;
+        }
+
+
+        /**
+         * Returns the document to which the record is mapped.
+         *
+         * @return the document to which the record is mapped
+         */
+        public DataCiteJson getDocument()
+        {
+            return document;
+        }
+
+
+        /**
+         * Returns the identifier of the record.
+         *
+         * @return the identifier of the record, or null if it does not exist
+         */
+        public Identifier getIdentifier()
+        {
+            return identifier;
+        }
+
+
+        /**
+         * Memorizes the identifier of the record.
+         *
+         * @param identifier the identifier of the record, or null if it does not exist
+         */
+        public void setIdentifier(final Identifier identifier)
+        {
+            this.identifier = identifier;
+        }
+
+
+        /**
+         * Returns the related identifiers of the record.
+         *
+         * @return the related identifiers of the record, or null if they do not exist
+         */
+        public List<RelatedIdentifier> getRelatedIdentifiers()
+        {
+            return relatedIdentifiers;
+        }
+
+
+        /**
+         * Memorizes the related identifiers of the record.
+         *
+         * @param relatedIdentifiers the related identifiers of the record, or null if they do not exist
+         */
+        public void setRelatedIdentifiers(final List<RelatedIdentifier> relatedIdentifiers)
+        {
+            this.relatedIdentifiers = relatedIdentifiers;
+        }
     }
 }
@@ -25,15 +25,13 @@ import com.vividsolutions.jts.geom.Point;
 
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.DateUtils;
 import de.gerdiproject.json.datacite.Contributor;
 import de.gerdiproject.json.datacite.Creator;
-import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.Description;
 import de.gerdiproject.json.datacite.GeoLocation;
-import de.gerdiproject.json.datacite.Identifier;
-import de.gerdiproject.json.datacite.RelatedIdentifier;
 import de.gerdiproject.json.datacite.Rights;
 import de.gerdiproject.json.datacite.Subject;
 import de.gerdiproject.json.datacite.Title;
@@ -54,44 +52,17 @@ public class DataCite3Transformer extends DataCite2Transformer
     protected final GeometryFactory geometryFactory = new GeometryFactory();
 
     @Override
-    @SuppressWarnings("CPD-START") // we want to keep duplicates here, because there will be slight changes in other transformers
-    protected void setDocumentFieldsFromRecord(final DataCiteJson document, final Element record)
+    protected void registerFieldHandlers(final SinglePassMapper<MappedRecord> mapper)
     {
-        final Element metadata = getMetadata(record);
-
-        // overwrite the identifier parsed from the header
-        final Identifier identifier = HtmlUtils.getObject(metadata, DataCiteConstants.IDENTIFIER, this::parseIdentifier);
-
-        if (identifier != null)
-            document.setIdentifier(identifier);
-
-        // parse and cache related identifiers, they are reused in weblink creation
-        final List<RelatedIdentifier> relatedIdentifiers =
-            HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.RELATED_IDENTIFIERS, this::parseRelatedIdentifier);
-        document.addRelatedIdentifiers(relatedIdentifiers);
-
-        document.setPublisher(parsePublisher(metadata));
-        document.setLanguage(HtmlUtils.getString(metadata, DataCiteConstants.LANGUAGE));
-        document.setVersion(HtmlUtils.getString(metadata, DataCiteConstants.VERSION));
-        document.setPublicationYear(parsePublicationYear(metadata));
-        document.addSizes(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.SIZES));
-        document.addFormats(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.FORMATS));
-        document.setResourceType(HtmlUtils.getObject(metadata, DataCiteConstants.RESOURCE_TYPE, this::parseResourceType));
-        document.addCreators(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CREATORS, this::parseCreator));
-        document.addContributors(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CONTRIBUTORS, this::parseContributor));
-        document.addTitles(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.TITLES, this::parseTitle));
-        document.addDescriptions(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DESCRIPTIONS, this::parseDescription));
-        document.addSubjects(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.SUBJECTS, this::parseSubject));
-        document.addAlternateIdentifiers(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.ALTERNATE_IDENTIFIERS, this::parseAlternateIdentifier));
-        document.addDates(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DATES, this::parseDate));
-        document.addGeoLocations(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.GEO_LOCATIONS, this::parseGeoLocation));
-        document.addWebLinks(createWebLinks(identifier, relatedIdentifiers));
-
-        // to be compliant to DC 4.1, convert contributors with type "funder" to fundingReferences
-        document.addFundingReferences(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CONTRIBUTORS, this::parseFundingReference));
+        super.registerFieldHandlers(mapper);
+
+        // in DataCite 3.0, date ranges are defined via a dedicated date format
+        mapper.put(DataCiteConstants.DATES, (mapped, ele) -> mapped.getDocument().addDates(SinglePassMapper.getChildObjects(ele, this::parseDate)));
+        mapper.put(DataCiteConstants.GEO_LOCATIONS, (mapped, ele) -> mapped.getDocument().addGeoLocations(SinglePassMapper.getChildObjects(ele, this::parseGeoLocation)));
 
         // in DataCite 3.0, rights is a reapeatable Element of rightsList
-        document.addRights(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.RIGHTS_LIST, this::parseRights));
+        mapper.remove(DataCiteConstants.RIGHTS);
+        mapper.put(DataCiteConstants.RIGHTS_LIST, (mapped, ele) -> mapped.getDocument().addRights(SinglePassMapper.getChildObjects(ele, this::parseRights)));
     }
 
 
@@ -104,9 +75,9 @@ public class DataCite3Transformer extends DataCite2Transformer
      */
     protected GeoLocation parseGeoLocation(final Element ele)
     {
-        final String geoLocationPlace = HtmlUtils.getString(ele, DataCiteConstants.GEOLOCATION_PLACE);
-        final Point geoLocationPoint = HtmlUtils.getObject(ele, DataCiteConstants.GEOLOCATION_POINT, this::parseGeoLocationPoint);
-        final double[] geoLocationBox = HtmlUtils.getObject(ele, DataCiteConstants.GEOLOCATION_BOX, this::parseGeoLocationBox);
+        final String geoLocationPlace = SelectorCache.getString(ele, DataCiteConstants.GEOLOCATION_PLACE);
+        final Point geoLocationPoint = SelectorCache.getObject(ele, DataCiteConstants.GEOLOCATION_POINT, this::parseGeoLocationPoint);
+        final double[] geoLocationBox = SelectorCache.getObject(ele, DataCiteConstants.GEOLOCATION_BOX, this::parseGeoLocationBox);
 
         final GeoLocation geoLocation = new GeoLocation();
         geoLocation.setPlace(geoLocationPlace);
@@ -193,7 +164,7 @@ public class DataCite3Transformer extends DataCite2Transformer
 
         // in DataCite 3.1, affiliations are added
         if (contributor != null) {
-            final List<Affiliation> affiliations = HtmlUtils.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
+            final List<Affiliation> affiliations = SelectorCache.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
             contributor.addAffiliations(affiliations);
         }
 
@@ -207,7 +178,7 @@ public class DataCite3Transformer extends DataCite2Transformer
         final Creator creator = super.parseCreator(ele);
 
         // in DataCite 3.1, affiliations are added
-        final List<Affiliation> affiliations = HtmlUtils.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
+        final List<Affiliation> affiliations = SelectorCache.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
         creator.addAffiliations(affiliations);
 
         return creator;
@@ -26,13 +26,12 @@ import com.vividsolutions.jts.geom.Polygon;
 
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.datacite.Contributor;
 import de.gerdiproject.json.datacite.Creator;
-import de.gerdiproject.json.datacite.DataCiteJson;
 import de.gerdiproject.json.datacite.FundingReference;
 import de.gerdiproject.json.datacite.GeoLocation;
-import de.gerdiproject.json.datacite.Identifier;
 import de.gerdiproject.json.datacite.RelatedIdentifier;
 import de.gerdiproject.json.datacite.Rights;
 import de.gerdiproject.json.datacite.Subject;
@@ -57,40 +56,13 @@ import de.gerdiproject.json.datacite.nested.Publisher;
 public class DataCite4Transformer extends DataCite3Transformer
 {
     @Override
-    @SuppressWarnings("CPD-START") // we want to keep duplicates here, because there will be slight changes in other transformers
-    protected void setDocumentFieldsFromRecord(final DataCiteJson document, final Element record)
+    protected void registerFieldHandlers(final SinglePassMapper<MappedRecord> mapper)
     {
-        final Element metadata = getMetadata(record);
-
-        // overwrite the identifier parsed from the header
-        final Identifier identifier = HtmlUtils.getObject(metadata, DataCiteConstants.IDENTIFIER, this::parseIdentifier);
-
-        if (identifier != null)
-            document.setIdentifier(identifier);
-
-        // parse and cache related identifiers, they are reused in weblink creation
-        final List<RelatedIdentifier> relatedIdentifiers =
-            HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.RELATED_IDENTIFIERS, this::parseRelatedIdentifier);
-        document.addRelatedIdentifiers(relatedIdentifiers);
-
-        document.setPublisher(parsePublisher(metadata));
-        document.setLanguage(HtmlUtils.getString(metadata, DataCiteConstants.LANGUAGE));
-        document.setVersion(HtmlUtils.getString(metadata, DataCiteConstants.VERSION));
-        document.setPublicationYear(parsePublicationYear(metadata));
-        document.addSizes(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.SIZES));
-        document.addFormats(HtmlUtils.getStringsFromParent(metadata, DataCiteConstants.FORMATS));
-        document.setResourceType(HtmlUtils.getObject(metadata, DataCiteConstants.RESOURCE_TYPE, this::parseResourceType));
-        document.addCreators(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CREATORS, this::parseCreator));
-        document.addContributors(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.CONTRIBUTORS, this::parseContributor));
-        document.addTitles(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.TITLES, this::parseTitle));
-        document.addDescriptions(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DESCRIPTIONS, this::parseDescription));
-        document.addSubjects(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.SUBJECTS, this::parseSubject));
-        document.addAlternateIdentifiers(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.ALTERNATE_IDENTIFIERS, this::parseAlternateIdentifier));
-        document.addRights(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.RIGHTS_LIST, this::parseRights));
-        document.addDates(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.DATES, this::parseDate));
-        document.addGeoLocations(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.GEO_LOCATIONS, this::parseGeoLocation));
-        document.addFundingReferences(HtmlUtils.getObjectsFromParent(metadata, DataCiteConstants.FUNDING_REFERENCES, this::parseFundingReference));
-        document.addWebLinks(createWebLinks(identifier, relatedIdentifiers));
+        super.registerFieldHandlers(mapper);
+
+        // in DataCite 4.0, there are dedicated FundingReferences instead of funder-Contributors
+        mapper.put(DataCiteConstants.CONTRIBUTORS, (mapped, ele) -> mapped.getDocument().addContributors(SinglePassMapper.getChildObjects(ele, this::parseContributor)));
+        mapper.put(DataCiteConstants.FUNDING_REFERENCES, (mapped, ele) -> mapped.getDocument().addFundingReferences(SinglePassMapper.getChildObjects(ele, this::parseFundingReference)));
     }
 
 
@@ -109,14 +81,13 @@ public class DataCite4Transformer extends DataCite3Transformer
 
 
     @Override
-    protected Publisher parsePublisher(final Element metadata)
+    protected Publisher parsePublisher(final Element ele)
     {
-        final Publisher publisher = super.parsePublisher(metadata);
+        final Publisher publisher = super.parsePublisher(ele);
 
         // in DataCite 4.2, a xml:lang attribute is added
         if (publisher != null) {
-            final Element publisherEle = metadata.selectFirst(DataCiteConstants.PUBLISHER);
-            final String language = HtmlUtils.getAttribute(publisherEle, OaiPmhConstants.LANGUAGE_ATTRIBUTE);
+            final String language = HtmlUtils.getAttribute(ele, OaiPmhConstants.LANGUAGE_ATTRIBUTE);
             publisher.setLang(language);
         }
 
@@ -130,7 +101,7 @@ public class DataCite4Transformer extends DataCite3Transformer
         final GeoLocation geoLocation = super.parseGeoLocation(ele);
 
         // in DataCite 4, polygons were added to GeoLocations
-        geoLocation.addPolygons(HtmlUtils.getObjects(ele, DataCiteConstants.GEOLOCATION_POLYGON, this::parseGeoLocationPolygon));
+        geoLocation.addPolygons(SelectorCache.getObjects(ele, DataCiteConstants.GEOLOCATION_POLYGON, this::parseGeoLocationPolygon));
 
         return geoLocation;
     }
@@ -148,7 +119,7 @@ public class DataCite4Transformer extends DataCite3Transformer
         final Coordinate[] coordinates;
         {
             final List<Coordinate> polygonPoints = HtmlUtils.elementsToList(
-                                                       ele.select(DataCiteConstants.POLYGON_POINT),
+                                                       SelectorCache.select(ele, DataCiteConstants.POLYGON_POINT),
                                                        this::parseGeoLocationCoordinate);
 
             // convert list to array
@@ -158,7 +129,7 @@ public class DataCite4Transformer extends DataCite3Transformer
 
         // in DataCite 4.1, inPolygonPoint was added
         // TODO: Not sure how to treat this one, yet
-        // final Point inPolygonPoint = HtmlUtils.getObject(
+        // final Point inPolygonPoint = SelectorCache.getObject(
         //                                 ele,
         //                                 DataCiteConstants.IN_POLYGON_POINT,
         //                                 this::parseGeoLocationPoint);
@@ -183,8 +154,8 @@ public class DataCite4Transformer extends DataCite3Transformer
     {
         // in DataCite 4.0, longitude and latitude are swapped
         try {
-            final double longitude = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.POINT_LONG));
-            final double latitude = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.POINT_LAT));
+            final double longitude = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.POINT_LONG));
+            final double latitude = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.POINT_LAT));
             return new Coordinate(longitude, latitude);
 
         } catch (final NumberFormatException e) {
@@ -200,10 +171,10 @@ public class DataCite4Transformer extends DataCite3Transformer
         try {
             final double[] boxParameters = new double[4];
 
-            boxParameters[0] = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.BOX_WEST_LONG));
-            boxParameters[1] = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.BOX_EAST_LONG));
-            boxParameters[2] = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.BOX_SOUTH_LAT));
-            boxParameters[3] = Double.parseDouble(HtmlUtils.getString(ele, DataCiteConstants.BOX_NORTH_LAT));
+            boxParameters[0] = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.BOX_WEST_LONG));
+            boxParameters[1] = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.BOX_EAST_LONG));
+            boxParameters[2] = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.BOX_SOUTH_LAT));
+            boxParameters[3] = Double.parseDouble(SelectorCache.getString(ele, DataCiteConstants.BOX_NORTH_LAT));
 
             return boxParameters;
         } catch (NumberFormatException | NullPointerException e) { // NOPMD NPE is highly unlikely and an edge case
@@ -223,10 +194,10 @@ public class DataCite4Transformer extends DataCite3Transformer
     protected FundingReference parseFundingReference(final Element ele)
     {
         // in DataCite 4.0, there are dedicated FundingReferences instead of funder-Contributors
-        final String funderName = HtmlUtils.getString(ele, DataCiteConstants.FUNDER_NAME);
-        final FunderIdentifier funderIdentifier = HtmlUtils.getObject(ele, DataCiteConstants.FUNDER_IDENTIFIER, this::parseFunderIdentifier);
-        final AwardNumber awardNumber = HtmlUtils.getObject(ele, DataCiteConstants.AWARD_NUMBER, this::parseAwardNumber);
-        final String awardTitle = HtmlUtils.getString(ele, DataCiteConstants.AWARD_TITLE);
+        final String funderName = SelectorCache.getString(ele, DataCiteConstants.FUNDER_NAME);
+        final FunderIdentifier funderIdentifier = SelectorCache.getObject(ele, DataCiteConstants.FUNDER_IDENTIFIER, this::parseFunderIdentifier);
+        final AwardNumber awardNumber = SelectorCache.getObject(ele, DataCiteConstants.AWARD_NUMBER, this::parseAwardNumber);
+        final String awardTitle = SelectorCache.getString(ele, DataCiteConstants.AWARD_TITLE);
 
         return new FundingReference(
                    funderName,
@@ -286,18 +257,18 @@ public class DataCite4Transformer extends DataCite3Transformer
         // in DataCite 4.0, there are no "funder" Contributors,
         // so there is no need to check for them anymore
 
-        final PersonName contributorName = HtmlUtils.getObject(ele, DataCiteConstants.CONTRIBUTOR_NAME, this::parsePersonName);
+        final PersonName contributorName = SelectorCache.getObject(ele, DataCiteConstants.CONTRIBUTOR_NAME, this::parsePersonName);
         final ContributorType contributorType = HtmlUtils.getEnumAttribute(ele, DataCiteConstants.CONTRIBUTOR_TYPE, ContributorType.class);
-        final List<NameIdentifier> nameIdentifiers = HtmlUtils.getObjects(ele, DataCiteConstants.NAME_IDENTIFIER, this::parseNameIdentifier);
-        final List<Affiliation> affiliations = HtmlUtils.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
+        final List<NameIdentifier> nameIdentifiers = SelectorCache.getObjects(ele, DataCiteConstants.NAME_IDENTIFIER, this::parseNameIdentifier);
+        final List<Affiliation> affiliations = SelectorCache.getObjects(ele, DataCiteConstants.AFFILIATION, this::parseAffiliation);
 
         final Contributor contributor = new Contributor(contributorName, contributorType);
         contributor.addNameIdentifiers(nameIdentifiers);
         contributor.addAffiliations(affiliations);
 
         // in DataCite 4.0, givenName and familyName are added
-        final String givenName = HtmlUtils.getString(ele, DataCiteConstants.GIVEN_NAME);
-        final String familyName = HtmlUtils.getString(ele, DataCiteConstants.FAMILY_NAME);
+        final String givenName = SelectorCache.getString(ele, DataCiteConstants.GIVEN_NAME);
+        final String familyName = SelectorCache.getString(ele, DataCiteConstants.FAMILY_NAME);
         contributor.setGivenName(givenName);
         contributor.setFamilyName(familyName);
 
@@ -311,8 +282,8 @@ public class DataCite4Transformer extends DataCite3Transformer
         final Creator creator = super.parseCreator(ele);
 
         // in DataCite 4.0, givenName and familyName are added
-        final String givenName = HtmlUtils.getString(ele, DataCiteConstants.GIVEN_NAME);
-        final String familyName = HtmlUtils.getString(ele, DataCiteConstants.FAMILY_NAME);
+        final String givenName = SelectorCache.getString(ele, DataCiteConstants.GIVEN_NAME);
+        final String familyName = SelectorCache.getString(ele, DataCiteConstants.FAMILY_NAME);
         creator.setGivenName(givenName);
         creator.setFamilyName(familyName);
 
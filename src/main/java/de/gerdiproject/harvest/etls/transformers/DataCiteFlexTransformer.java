@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import de.gerdiproject.harvest.etls.AbstractETL;
 import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.datacite.DataCiteJson;
 
@@ -68,6 +69,8 @@ public class DataCiteFlexTransformer extends AbstractOaiPmhRecordTransformer
     @Override
     public void clear()
     {
+        super.clear();
+
         for (final AbstractOaiPmhRecordTransformer transformer : transformerMap.values())
             transformer.clear();
     }
@@ -121,7 +124,7 @@ public class DataCiteFlexTransformer extends AbstractOaiPmhRecordTransformer
      */
     private static String getSchemaLocation(final Element record)
     {
-        final Element resource = record.selectFirst(DataCiteConstants.RESOURCE_ELEMENT);
+        final Element resource = SelectorCache.selectFirst(record, DataCiteConstants.RESOURCE_ELEMENT);
 
         // try to get the xsi:schemaLocation attribute
         String schemaLocation = HtmlUtils.getAttribute(resource, DataCiteConstants.SCHEMA_LOCATION_ATTRIBUTE);
@@ -24,7 +24,7 @@ import java.util.function.Function;
 import org.jsoup.nodes.Element;
 
 import de.gerdiproject.harvest.etls.transformers.constants.DublinCoreConstants;
-import de.gerdiproject.harvest.utils.HtmlUtils;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.json.datacite.Contributor;
 import de.gerdiproject.json.datacite.Creator;
 import de.gerdiproject.json.datacite.DataCiteJson;
@@ -54,52 +54,52 @@ public class DublinCoreTransformer extends AbstractOaiPmhRecordTransformer
         // get header and meta data for each record
         final Element metadata = getMetadata(record);
 
-        document.setPublisher(new Publisher(HtmlUtils.getString(metadata, DublinCoreConstants.PUBLISHER)));
-        document.setLanguage(HtmlUtils.getString(metadata, DublinCoreConstants.LANG));
-        document.addFormats(HtmlUtils.getStrings(metadata, DublinCoreConstants.FORMATS));
-        document.addFormats(HtmlUtils.getStrings(metadata, DublinCoreConstants.RES_TYPE));
+        document.setPublisher(new Publisher(SelectorCache.getString(metadata, DublinCoreConstants.PUBLISHER)));
+        document.setLanguage(SelectorCache.getString(metadata, DublinCoreConstants.LANG));
+        document.addFormats(SelectorCache.getStrings(metadata, DublinCoreConstants.FORMATS));
+        document.addFormats(SelectorCache.getStrings(metadata, DublinCoreConstants.RES_TYPE));
 
         document.addSubjects(parseSeparatedTextElements(
                                  metadata,
                                  DublinCoreConstants.SUBJECTS,
                                  (String s) -> new Subject(s)));
 
-        document.setIdentifier(HtmlUtils.getObject(
+        document.setIdentifier(SelectorCache.getObject(
                                    metadata,
                                    DublinCoreConstants.IDENTIFIERS,
                                    (final Element e) -> new Identifier(e.text())));
 
-        document.addDates(HtmlUtils.getObjects(
+        document.addDates(SelectorCache.getObjects(
                               metadata,
                               DublinCoreConstants.DATES,
                               (final Element e) -> new Date(e.text(), DateType.Issued)));
 
-        document.addCreators(HtmlUtils.getObjects(
+        document.addCreators(SelectorCache.getObjects(
                                  metadata,
                                  DublinCoreConstants.CREATORS,
                                  (final Element e) -> new Creator(e.text())));
 
-        document.addContributors(HtmlUtils.getObjects(
+        document.addContributors(SelectorCache.getObjects(
                                      metadata,
                                      DublinCoreConstants.CONTRIBUTORS,
                                      (final Element e) -> new Contributor(e.text(), ContributorType.ContactPerson)));
 
-        document.addTitles(HtmlUtils.getObjects(
+        document.addTitles(SelectorCache.getObjects(
                                metadata,
                                DublinCoreConstants.TITLES,
                                (final Element e) -> new Title(e.text())));
 
-        document.addDescriptions(HtmlUtils.getObjects(
+        document.addDescriptions(SelectorCache.getObjects(
                                      metadata,
                                      DublinCoreConstants.DESCRIPTIONS,
                                      (final Element e) ->new Description(e.text(), DescriptionType.Abstract)));
 
-        document.addRights(HtmlUtils.getObjects(
+        document.addRights(SelectorCache.getObjects(
                                metadata,
                                DublinCoreConstants.RIGHTS,
                                (final Element e) -> new Rights(e.text())));
 
-        document.addWebLinks(HtmlUtils.getObjects(
+        document.addWebLinks(SelectorCache.getObjects(
                                  metadata,
                                  DublinCoreConstants.IDENTIFIERS, this::identifierToWebLink));
 
@@ -132,13 +132,6 @@ public class DublinCoreTransformer extends AbstractOaiPmhRecordTransformer
     }
 
 
-    @Override
-    public void clear()
-    {
-        // nothing to clean up
-    }
-
-
     /**
      * This helper function retrieves all HTML elements of a specified name,
      * splits the text content by commas and semicolons and converts each
@@ -155,7 +148,7 @@ public class DublinCoreTransformer extends AbstractOaiPmhRecordTransformer
     {
         final List<T> outputList = new LinkedList<>();
 
-        final List<Element> textElements = metadata.select(tag);
+        final List<Element> textElements = SelectorCache.select(metadata, tag);
 
         for (final Element ele : textElements)
             outputList.addAll(stringToList(ele.text(), mappingFunction));
@@ -28,6 +28,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.gerdiproject.harvest.etls.transformers.constants.Iso19139Constants;
+import de.gerdiproject.harvest.etls.utils.NamespaceResolver;
+import de.gerdiproject.harvest.etls.utils.ResolvedQueries;
+import de.gerdiproject.harvest.etls.utils.SelectorCache;
 import de.gerdiproject.harvest.utils.HtmlUtils;
 import de.gerdiproject.json.datacite.Creator;
 import de.gerdiproject.json.datacite.DataCiteJson;
@@ -73,36 +76,61 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
 {
     protected static final Logger LOGGER = LoggerFactory.getLogger(Iso19139Transformer.class);
 
+    private static final NamespaceResolver NAMESPACE_RESOLVER = new NamespaceResolver(
+        Iso19139Constants.DATA_IDENTIFICATION,
+        Iso19139Constants.PUBLISHER,
+        Iso19139Constants.TITLE,
+        Iso19139Constants.ALTERNATE_TITLE,
+        Iso19139Constants.KEYWORDS,
+        Iso19139Constants.DATESTAMP,
+        Iso19139Constants.RESEARCH_DATA,
+        Iso19139Constants.DATES,
+        Iso19139Constants.GEO_LOCATION_BOX,
+        Iso19139Constants.GEO_LOCATION_DESCRIPTION,
+        Iso19139Constants.GEO_LOCATION_WEST,
+        Iso19139Constants.GEO_LOCATION_EAST,
+        Iso19139Constants.GEO_LOCATION_SOUTH,
+        Iso19139Constants.GEO_LOCATION_NORTH,
+        Iso19139Constants.RESOURCE_TYPE,
+        Iso19139Constants.DATE,
+        Iso19139Constants.DATE_TYPE,
+        Iso19139Constants.DESCRIPTIONS,
+        Iso19139Constants.LANGUAGE);
+
 
     @Override
     protected void setDocumentFieldsFromRecord(final DataCiteJson document, final Element record)
     {
         final Element metadata = getMetadata(record);
 
-        final Title mainTitle = HtmlUtils.getObject(
+        // look up the namespace prefix once, so that each query only needs to match this prefix
+        final ResolvedQueries queries = NAMESPACE_RESOLVER.resolve(metadata);
+
+        final Title mainTitle = SelectorCache.getObject(
                                     metadata,
-                                    Iso19139Constants.TITLE,
+                                    queries.get(Iso19139Constants.TITLE),
                                     (final Element e) -> new Title(e.text()));
 
         document.addTitles(Arrays.asList(mainTitle));
 
-        document.addCreators(HtmlUtils.getObjects(metadata, Iso19139Constants.PUBLISHER,
+        document.addCreators(SelectorCache.getObjects(metadata, queries.get(Iso19139Constants.PUBLISHER),
                                                   (final Element e) -> new Creator(e.text())));
-        document.setPublisher(new Publisher(HtmlUtils.getString(metadata, Iso19139Constants.PUBLISHER)));
-        document.addSubjects(HtmlUtils.getObjects(metadata, Iso19139Constants.KEYWORDS,
+        document.setPublisher(new Publisher(SelectorCache.getString(metadata, queries.get(Iso19139Constants.PUBLISHER))));
+        document.addSubjects(SelectorCache.getObjects(metadata, queries.get(Iso19139Constants.KEYWORDS),
                                                   (final Element e) -> new Subject(e.text())));
-        document.addDates(HtmlUtils.getObjects(metadata, Iso19139Constants.DATES, this::parseDate));
-        document.setPublicationYear(parsePublicationYear(metadata, document.getDates()));
-        document.setResourceType(HtmlUtils.getObject(metadata, Iso19139Constants.RESOURCE_TYPE,
+        document.addDates(SelectorCache.getObjects(metadata, queries.get(Iso19139Constants.DATES),
+                                               (final Element e) -> parseDate(e, queries)));
+        document.setPublicationYear(parsePublicationYear(metadata, document.getDates(), queries));
+        document.setResourceType(SelectorCache.getObject(metadata, queries.get(Iso19139Constants.RESOURCE_TYPE),
                                                      (final Element e) -> new ResourceType(e.text(), ResourceTypeGeneral.Dataset)));
-        document.addDescriptions(HtmlUtils.getObjects(metadata, Iso19139Constants.DESCRIPTIONS,
+        document.addDescriptions(SelectorCache.getObjects(metadata, queries.get(Iso19139Constants.DESCRIPTIONS),
                                                       (final Element e) -> new Description(e.text(), DescriptionType.Abstract)));
-        document.addTitles(HtmlUtils.getObjects(metadata, Iso19139Constants.ALTERNATE_TITLE,
+        document.addTitles(SelectorCache.getObjects(metadata, queries.get(Iso19139Constants.ALTERNATE_TITLE),
                                                 (final Element e) -> new Title(e.text(), TitleType.AlternativeTitle, null)));
 
-        document.addGeoLocations(parseGeoLocations(metadata));
-        document.addResearchData(parseResearchData(metadata, mainTitle));
-        document.setLanguage(parseLanguage(metadata));
+        document.addGeoLocations(parseGeoLocations(metadata, queries));
+        document.addResearchData(parseResearchData(metadata, mainTitle, queries));
+        document.setLanguage(parseLanguage(metadata, queries));
     }
 
 
@@ -110,16 +138,17 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      * Parses the main- and alternative titles from the ISO19139 metadata.
      *
      * @param metadata the metadata that is to be parsed
+     * @param queries the queries for the namespace prefix of the metadata
      *
      * @return a list of parsed titles
      */
-    private List<GeoLocation> parseGeoLocations(final Element metadata)
+    private List<GeoLocation> parseGeoLocations(final Element metadata, final ResolvedQueries queries)
     {
         final List<GeoLocation> geoLocations = new LinkedList<>();
 
-        for (final Element dataSet : metadata.select(Iso19139Constants.DATA_IDENTIFICATION)) {
-            final String geoDescription = HtmlUtils.getString(dataSet, Iso19139Constants.GEO_LOCATION_DESCRIPTION);
-            final Element geoBox = dataSet.selectFirst(Iso19139Constants.GEO_LOCATION_BOX);
+        for (final Element dataSet : SelectorCache.select(metadata, queries.get(Iso19139Constants.DATA_IDENTIFICATION))) {
+            final String geoDescription = SelectorCache.getString(dataSet, queries.get(Iso19139Constants.GEO_LOCATION_DESCRIPTION));
+            final Element geoBox = SelectorCache.selectFirst(dataSet, queries.get(Iso19139Constants.GEO_LOCATION_BOX));
 
             // skip this metadata if it contains nothing related to geography
             if (geoDescription == null && geoBox == null)
@@ -128,7 +157,7 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
             // add metadata to the geo location
             final GeoLocation geo = new GeoLocation();
             geo.setPlace(geoDescription);
-            parseGeoLocationBox(geoBox, geo);
+            parseGeoLocationBox(geoBox, geo, queries);
             geoLocations.add(geo);
         }
 
@@ -140,12 +169,13 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      * Retrieves the language from ISO19139 metadata.
      *
      * @param metadata the metadata that is to be parsed
+     * @param queries the queries for the namespace prefix of the metadata
      *
      * @return the language code if such an element exists, or null
      */
-    private String parseLanguage(final Element metadata)
+    private String parseLanguage(final Element metadata, final ResolvedQueries queries)
     {
-        final Element langElement = metadata.selectFirst(Iso19139Constants.LANGUAGE);
+        final Element langElement = SelectorCache.selectFirst(metadata, queries.get(Iso19139Constants.LANGUAGE));
 
         return langElement == null
                ? null
@@ -165,17 +195,18 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      *
      * @param metadata the metadata that is to be parsed
      * @param dateList a list of parsed DataCite dates
+     * @param queries the queries for the namespace prefix of the metadata
      *
      * @return the publication year or null, if it could not be parsed
      */
-    private Integer parsePublicationYear(final Element metadata, final Collection<AbstractDate> dateList)
+    private Integer parsePublicationYear(final Element metadata, final Collection<AbstractDate> dateList, final ResolvedQueries queries)
     {
         // first look for the publication year in already harvested dates
         Integer publicationYear = parsePublicationYearFromDates(dateList);
 
         // fallback: use the datestamp of the record
         if (publicationYear == null) {
-            final Element datestamp = metadata.selectFirst(Iso19139Constants.DATESTAMP);
+            final Element datestamp = SelectorCache.selectFirst(metadata, queries.get(Iso19139Constants.DATESTAMP));
 
             if (datestamp != null) {
                 try {
@@ -196,17 +227,18 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      * Parses a date (D8) from an ISO19139 record date.
      *
      * @param isoDate the date element that is to be parsed
+     * @param queries the queries for the namespace prefix of the metadata
      *
      * @return a date
      */
-    private AbstractDate parseDate(final Element isoDate)
+    private AbstractDate parseDate(final Element isoDate, final ResolvedQueries queries)
     {
         final DateType dateType = Iso19139Constants.DATE_TYPE_MAP.get(
-                                      isoDate.selectFirst(Iso19139Constants.DATE_TYPE).text());
+                                      SelectorCache.selectFirst(isoDate, queries.get(Iso19139Constants.DATE_TYPE)).text());
 
         return dateType == null
                ? null
-               : new Date(isoDate.selectFirst(Iso19139Constants.DATE).text(), dateType);
+               : new Date(SelectorCache.selectFirst(isoDate, queries.get(Iso19139Constants.DATE)).text(), dateType);
     }
 
 
@@ -214,17 +246,18 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      * Parses box coordinates for a specified {@linkplain GeoLocation} from an ISO19139 extent.
      *
      * @param isoBox the box coordinates element that is to be parsed
+     * @param queries the queries for the namespace prefix of the metadata
      */
-    private void parseGeoLocationBox(final Element isoBox, final GeoLocation geoLocation)
+    private void parseGeoLocationBox(final Element isoBox, final GeoLocation geoLocation, final ResolvedQueries queries)
     {
         if (isoBox == null)
             return;
 
         try {
-            final double west = Double.parseDouble(HtmlUtils.getString(isoBox, Iso19139Constants.GEO_LOCATION_WEST));
-            final double east = Double.parseDouble(HtmlUtils.getString(isoBox, Iso19139Constants.GEO_LOCATION_EAST));
-            final double south = Double.parseDouble(HtmlUtils.getString(isoBox, Iso19139Constants.GEO_LOCATION_SOUTH));
-            final double north = Double.parseDouble(HtmlUtils.getString(isoBox, Iso19139Constants.GEO_LOCATION_NORTH));
+            final double west = Double.parseDouble(SelectorCache.getString(isoBox, queries.get(Iso19139Constants.GEO_LOCATION_WEST)));
+            final double east = Double.parseDouble(SelectorCache.getString(isoBox, queries.get(Iso19139Constants.GEO_LOCATION_EAST)));
+            final double south = Double.parseDouble(SelectorCache.getString(isoBox, queries.get(Iso19139Constants.GEO_LOCATION_SOUTH)));
+            final double north = Double.parseDouble(SelectorCache.getString(isoBox, queries.get(Iso19139Constants.GEO_LOCATION_NORTH)));
 
             // is it a point or a polygon?
             if (west == east && south == north)
@@ -244,16 +277,17 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
      *
      * @param metadata the metadata that is to be parsed
      * @param titleList the already parsed titles of the record
+     * @param queries the queries for the namespace prefix of the metadata
      *
      * @return a list of parsed research data
      */
-    private List<ResearchData> parseResearchData(final Element metadata, final Title mainTitle)
+    private List<ResearchData> parseResearchData(final Element metadata, final Title mainTitle, final ResolvedQueries queries)
     {
         final List<ResearchData> researchDataList = new LinkedList<>();
 
         if (mainTitle != null) {
             final String researchTitle = mainTitle.getValue();
-            final String researchDataURL = HtmlUtils.getString(metadata, Iso19139Constants.RESEARCH_DATA);
+            final String researchDataURL = SelectorCache.getString(metadata, queries.get(Iso19139Constants.RESEARCH_DATA));
 
             if (researchDataURL != null)
                 researchDataList.add(new ResearchData(researchDataURL, researchTitle));
@@ -261,11 +295,4 @@ public class Iso19139Transformer extends AbstractOaiPmhRecordTransformer
 
         return researchDataList;
     }
-
-
-    @Override
-    public void clear()
-    {
-        // nothing to clean up
-    }
 }
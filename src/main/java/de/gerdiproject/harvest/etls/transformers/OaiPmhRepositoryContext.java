@@ -0,0 +1,57 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.gerdiproject.json.datacite.DataCiteJson;
+import de.gerdiproject.json.datacite.extension.generic.WebLink;
+import lombok.Value;
+
+/**
+ * This class represents the information about the harvested repository that is added
+ * to every transformed {@linkplain DataCiteJson} document. It is immutable, so that it can
+ * be read by multiple transformation threads without synchronization.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class OaiPmhRepositoryContext
+{
+    /**
+     * A context that is used until a transformer is initialized.
+     */
+    public static final OaiPmhRepositoryContext EMPTY = new OaiPmhRepositoryContext(null, Collections.emptyList());
+
+    private final String repositoryIdentifier;
+    private final List<WebLink> defaultLinks;
+
+
+    /**
+     * Constructor that copies the default links, so that they cannot be changed afterwards.
+     *
+     * @param repositoryIdentifier the name of the repository
+     * @param defaultLinks links that are added to every document, such as the logo of the repository
+     */
+    public OaiPmhRepositoryContext(final String repositoryIdentifier, final List<WebLink> defaultLinks)
+    {
+        this.repositoryIdentifier = repositoryIdentifier;
+        this.defaultLinks = Collections.unmodifiableList(new ArrayList<>(defaultLinks));
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+
+/**
+ * This iterator transforms the elements of another iterator on a {@linkplain ForkJoinPool}.
+ * The input is read on the consuming thread only, and at most a fixed number of elements
+ * are transformed ahead of the consumer, which keeps the memory usage bounded.
+ * Transformed elements are either returned in the order of the input, or in the order
+ * in which their transformation finished.
+ * Exceptions are wrapped the same way as by {@linkplain AbstractIteratorTransformer}
+ * and are thrown when the affected element is retrieved.
+ *
+ * @param <T> the type of the input elements
+ * @param <S> the type of the transformed elements
+ *
+ * @author Robin Weiss
+ */
+public class ParallelTransformIterator<T, S> implements Iterator<S>, Closeable
+{
+    private final Iterator<T> input;
+    private final Function<T, S> transformFunction;
+    private final ForkJoinPool pool;
+    private final boolean isPreservingOrder;
+    private final int maxPendingTransformations;
+
+    private final Queue<CompletableFuture<S>> pendingResults;
+    private final BlockingQueue<CompletableFuture<S>> finishedResults;
+    private int pendingCount;
+    private boolean isInputExhausted;
+
+
+    /**
+     * Constructor that sets up the worker pool of the transformation.
+     *
+     * @param input the elements that are to be transformed
+     * @param transformFunction a thread-safe function that transforms a single element
+     * @param threadCount the number of worker threads
+     * @param isPreservingOrder if true, the transformed elements are returned in the order of the input
+     */
+    public ParallelTransformIterator(final Iterator<T> input, final Function<T, S> transformFunction, final int threadCount, final boolean isPreservingOrder)
+    {
+        final int parallelism = Math.max(1, threadCount);
+
+        this.input = input;
+        this.transformFunction = transformFunction;
+        this.isPreservingOrder = isPreservingOrder;
+        this.maxPendingTransformations = parallelism * OaiPmhConstants.TRANSFORMATIONS_PER_THREAD;
+        this.pool = new ForkJoinPool(parallelism, createThreadFactory(), null, true);
+        this.pendingResults = new ConcurrentLinkedQueue<>();
+        this.finishedResults = new LinkedBlockingQueue<>();
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        submitTransformations();
+
+        if (pendingCount == 0) {
+            pool.shutdown();
+            return false;
+        }
+
+        return true;
+    }
+
+
+    @Override
+    public S next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        final CompletableFuture<S> result;
+
+        if (isPreservingOrder)
+            result = pendingResults.poll();
+        else {
+            try {
+                result = finishedResults.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransformerException(OaiPmhConstants.TRANSFORMATION_INTERRUPTED_ERROR, e);
+            }
+        }
+
+        pendingCount--;
+
+        // keep the workers busy while the consumer processes the result
+        submitTransformations();
+
+        return getResult(result);
+    }
+
+
+    /**
+     * Cancels all pending transformations and stops the worker threads.
+     */
+    @Override
+    public void close()
+    {
+        isInputExhausted = true;
+
+        for (final CompletableFuture<S> result : pendingResults)
+            result.cancel(true);
+
+        pool.shutdownNow();
+    }
+
+
+    /**
+     * Reads elements from the input and submits their transformation to the worker pool,
+     * until the maximum number of pending transformations is reached or the input is exhausted.
+     * If the input cannot be read, the error is queued like a transformation result,
+     * so that it is thrown after all previously read elements were retrieved.
+     */
+    private void submitTransformations()
+    {
+        while (!isInputExhausted && pendingCount < maxPendingTransformations) {
+            final CompletableFuture<S> result = submitNextTransformation();
+
+            if (result == null)
+                break;
+
+            pendingCount++;
+            pendingResults.add(result);
+
+            // in unordered mode, results are retrieved as soon as they are finished
+            if (!isPreservingOrder) {
+                result.whenComplete((final S transformed, final Throwable error) -> {
+                    pendingResults.remove(result);
+                    finishedResults.add(result);
+                });
+            }
+        }
+    }
+
+
+    /**
+     * Reads the next element from the input and submits its transformation to the worker pool.
+     *
+     * @return the pending result of the transformation, or null if the input is exhausted
+     */
+    private CompletableFuture<S> submitNextTransformation()
+    {
+        try {
+            if (!input.hasNext()) {
+                isInputExhausted = true;
+                return null;
+            }
+
+            final T element = input.next();
+
+            return element == null
+                   ? CompletableFuture.completedFuture(null)
+                   : CompletableFuture.supplyAsync(() -> transform(element), pool);
+
+        } catch (final RuntimeException e) { // NOPMD the error is thrown when the result is retrieved
+            isInputExhausted = true;
+
+            final CompletableFuture<S> failedResult = new CompletableFuture<>();
+            failedResult.completeExceptionally(e instanceof ExtractorException ? e : new ExtractorException(e));
+            return failedResult;
+        }
+    }
+
+
+    /**
+     * Transforms a single element, wrapping unexpected errors in a {@linkplain TransformerException}.
+     *
+     * @param element the element that is to be transformed
+     *
+     * @return the transformed element
+     */
+    private S transform(final T element)
+    {
+        try {
+            return transformFunction.apply(element);
+        } catch (final TransformerException e) {
+            throw e;
+        } catch (final RuntimeException e) {
+            throw new TransformerException(e);
+        }
+    }
+
+
+    /**
+     * Waits for a transformation to finish and returns its result.
+     *
+     * @param result the pending result of a transformation
+     *
+     * @throws TransformerException if the transformation failed or was cancelled
+     * @throws ExtractorException if the element could not be read from the input
+     *
+     * @return the transformed element
+     */
+    private S getResult(final CompletableFuture<S> result)
+    {
+        try {
+            return result.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof TransformerException)
+                throw (TransformerException) cause;
+
+            if (cause instanceof ExtractorException)
+                throw (ExtractorException) cause;
+
+            throw new TransformerException(cause);
+        } catch (final CancellationException e) {
+            throw new TransformerException(OaiPmhConstants.TRANSFORMATION_CANCELLED_ERROR, e);
+        }
+    }
+
+
+    /**
+     * Creates a factory for the worker threads of the pool, which assigns
+     * recognizable names to the threads.
+     *
+     * @return a factory for worker threads
+     */
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory createThreadFactory()
+    {
+        final AtomicInteger threadIndex = new AtomicInteger();
+
+        return (final ForkJoinPool workerPool) -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(workerPool);
+            thread.setName(String.format(OaiPmhConstants.BACKGROUND_THREAD_NAME, OaiPmhConstants.TRANSFORM_THREAD_NAME, threadIndex.incrementAndGet()));
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import de.gerdiproject.harvest.utils.HtmlUtils;
+
+/**
+ * This class maps the elements of an HTML tree to an object by walking the tree only once.
+ * Handlers are registered for local element names, that is, names without namespace prefix.
+ * During the walk, the first element of each name is memorized, in the same document order
+ * in which {@linkplain Element#selectFirst(String)} searches. Afterwards, all handlers are called
+ * in the order of their registration, either with the memorized element, or with null if the
+ * tree has no element of that name.
+ * <p>
+ * The handler table must not be changed after it was used for the first time,
+ * but it can then be used by multiple threads at the same time.
+ *
+ * @param <T> the type of the object to which the elements are mapped
+ *
+ * @author Robin Weiss
+ */
+public class SinglePassMapper<T>
+{
+    private static final String QUERY_FORMAT = "%s, *|%s";
+    private static final char PREFIX_SEPARATOR = ':';
+
+    private final Map<String, BiConsumer<T, Element>> handlers;
+
+
+    /**
+     * Constructor that creates an empty handler table.
+     */
+    public SinglePassMapper()
+    {
+        this.handlers = new LinkedHashMap<>();
+    }
+
+
+    /**
+     * Registers a handler for elements that are matched by a CSS query of the form "name, *|name",
+     * which matches elements with the local name "name", regardless of their namespace prefix.
+     * If a handler is already registered for the name, it is replaced, but keeps its position.
+     *
+     * @param cssQuery a CSS query of the form "name, *|name"
+     * @param handler a function that maps the first matched element, or null, to the object
+     *
+     * @throws IllegalArgumentException if the query does not have the form "name, *|name"
+     */
+    public void put(final String cssQuery, final BiConsumer<T, Element> handler)
+    {
+        handlers.put(getLocalName(cssQuery), handler);
+    }
+
+
+    /**
+     * Removes the handler of elements that are matched by a CSS query of the form "name, *|name".
+     *
+     * @param cssQuery a CSS query of the form "name, *|name"
+     *
+     * @throws IllegalArgumentException if the query does not have the form "name, *|name"
+     */
+    public void remove(final String cssQuery)
+    {
+        handlers.remove(getLocalName(cssQuery));
+    }
+
+
+    /**
+     * Walks an element and its descendants and calls all handlers.
+     *
+     * @param target the object to which the elements are mapped
+     * @param root the element at which the walk starts, which is included in the walk
+     */
+    public void map(final T target, final Element root)
+    {
+        final List<String> names = new ArrayList<>(handlers.keySet());
+        final Element[] firstElements = new Element[names.size()];
+
+        if (root != null)
+            NodeTraversor.filter(new FirstElementFilter(names, firstElements), root);
+
+        int i = 0;
+
+        for (final BiConsumer<T, Element> handler : handlers.values())
+            handler.accept(target, firstElements[i++]);
+    }
+
+
+    /**
+     * Retrieves the text of an element that was passed to a handler.
+     *
+     * @param element the element of which the text is retrieved, or null
+     *
+     * @return the text of the element, or null if the element is null
+     */
+    public static String getText(final Element element)
+    {
+        return element == null ? null : element.text();
+    }
+
+
+    /**
+     * Converts an element that was passed to a handler to an object.
+     *
+     * @param element the element that is converted, or null
+     * @param eleToObject a function that converts the element
+     * @param <S> the type of the object
+     *
+     * @return the converted element, or null if the element is null
+     */
+    public static <S> S getObject(final Element element, final Function<Element, S> eleToObject)
+    {
+        return element == null ? null : eleToObject.apply(element);
+    }
+
+
+    /**
+     * Converts the children of an element that was passed to a handler to a list of objects.
+     *
+     * @param parent the element of which the children are converted, or null
+     * @param eleToObject a function that converts a child element
+     * @param <S> the type of the objects
+     *
+     * @return the list of converted children, or null if the parent is null or no child could be converted
+     */
+    public static <S> List<S> getChildObjects(final Element parent, final Function<Element, S> eleToObject)
+    {
+        return parent == null ? null : HtmlUtils.elementsToList(parent.children(), eleToObject);
+    }
+
+
+    /**
+     * Retrieves the local element name of a CSS query of the form "name, *|name".
+     *
+     * @param cssQuery a CSS query of the form "name, *|name"
+     *
+     * @throws IllegalArgumentException if the query does not have the form "name, *|name"
+     *
+     * @return the local element name in lower case, as it is compared by Jsoup
+     */
+    private static String getLocalName(final String cssQuery)
+    {
+        final int separator = cssQuery.indexOf(',');
+        final String localName = separator == -1 ? cssQuery : cssQuery.substring(0, separator);
+
+        if (!cssQuery.equals(String.format(QUERY_FORMAT, localName, localName)))
+            throw new IllegalArgumentException(cssQuery);
+
+        return localName.toLowerCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * This filter memorizes the first element of each name and stops
+     * the walk when all names were found.
+     *
+     * @author Robin Weiss
+     */
+    private static class FirstElementFilter implements NodeFilter
+    {
+        private final List<String> names;
+        private final Element[] firstElements;
+        private int missingCount;
+
+
+        /**
+         * Constructor that requires the names that are searched, and an array
+         * in which the found elements are stored.
+         *
+         * @param names the local names of the searched elements in lower case
+         * @param firstElements an array with the same size as the names, to which the found elements are written
+         */
+        FirstElementFilter(final List<String> names, final Element[] firstElements)
+        {
+            this.names = names;
+            this.firstElements = firstElements;
+            this.missingCount = names.size();
+        }
+
+
+        @Override
+        public FilterResult head(final Node node, final int depth)
+        {
+            if (!(node instanceof Element))
+                return FilterResult.SKIP_ENTIRELY;
+
+            final int index = names.indexOf(getLocalName((Element) node));
+
+            if (index != -1 && firstElements[index] == null) {
+                firstElements[index] = (Element) node;
+                missingCount--;
+            }
+
+            return missingCount == 0
+                   ? FilterResult.STOP
+                   : FilterResult.CONTINUE;
+        }
+
+
+        @Override
+        public FilterResult tail(final Node node, final int depth)
+        {
+            return FilterResult.CONTINUE;
+        }
+
+
+        /**
+         * Retrieves the name of an element that is compared to the registered names.
+         * Like Jsoup, names without prefix are compared case-insensitively,
+         * whereas the local part of prefixed names is compared case-sensitively.
+         *
+         * @param element the element of which the name is retrieved
+         *
+         * @return the local name of the element
+         */
+        private static String getLocalName(final Element element)
+        {
+            final String tagName = element.tagName();
+            final int prefixEnd = tagName.lastIndexOf(PREFIX_SEPARATOR);
+
+            return prefixEnd == -1
+                   ? tagName.toLowerCase(Locale.ENGLISH)
+                   : tagName.substring(prefixEnd + 1);
+        }
+    }
+}
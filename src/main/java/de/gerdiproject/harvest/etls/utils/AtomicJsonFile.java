@@ -0,0 +1,127 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.harvest.utils.file.FileUtils;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class persists a single object as a JSON file in the cache folder of the harvester service.
+ * The object is written to a temporary file first, which then atomically replaces the
+ * previous file, so that a crash can never leave a partially written file.
+ *
+ * @param <T> the type of the persisted object
+ *
+ * @author Robin Weiss
+ */
+public class AtomicJsonFile<T>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtomicJsonFile.class);
+
+    private final DiskIO diskIO;
+    private final File file;
+    private final Class<T> objectClass;
+
+
+    /**
+     * Constructor that determines the path of the file within the cache folder.
+     *
+     * @param relativePath the path of the file, relative to the cache folder
+     * @param objectClass the class of the persisted object
+     */
+    public AtomicJsonFile(final String relativePath, final Class<T> objectClass)
+    {
+        final File cacheFolder = EventSystem.sendSynchronousEvent(new GetCacheFolderEvent());
+
+        this.diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8);
+        this.file = cacheFolder == null ? null : new File(cacheFolder, relativePath);
+        this.objectClass = objectClass;
+    }
+
+
+    /**
+     * Returns the persisted file.
+     *
+     * @return the persisted file, or null if there is no cache folder
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+
+    /**
+     * Loads the persisted object.
+     *
+     * @return the persisted object, or null if it does not exist or cannot be parsed
+     */
+    public T load()
+    {
+        return file == null || !file.exists()
+               ? null
+               : diskIO.getObject(file, objectClass);
+    }
+
+
+    /**
+     * Replaces the persisted object with a new one.
+     *
+     * @param object the object that is to be persisted
+     */
+    public void save(final T object)
+    {
+        if (file == null)
+            return;
+
+        final File tempFile = new File(file.getPath() + OaiPmhConstants.TEMP_FILE_SUFFIX);
+        diskIO.writeObjectToFile(tempFile, object);
+
+        try {
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_SAVE_FILE_ERROR, file), e);
+        }
+    }
+
+
+    /**
+     * Deletes the persisted object.
+     */
+    public void delete()
+    {
+        if (file != null)
+            FileUtils.deleteFile(file);
+    }
+}
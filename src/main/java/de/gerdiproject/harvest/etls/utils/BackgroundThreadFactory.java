@@ -0,0 +1,156 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This factory creates the background threads of an extraction. The threads are
+ * either daemon threads that do not prevent the JVM from shutting down, or virtual threads
+ * if they are requested and supported by the runtime. Virtual threads are cheap to block,
+ * which allows many extractions that mostly wait for HTTP responses to run at the same time.
+ * Since the harvester is compiled for older runtimes, virtual threads are created via reflection.
+ *
+ * @author Robin Weiss
+ */
+public class BackgroundThreadFactory implements ThreadFactory
+{
+    private static final Method VIRTUAL_BUILDER_METHOD = getVirtualThreadMethod(Thread.class, OaiPmhConstants.VIRTUAL_THREAD_BUILDER_METHOD);
+    private static final Method UNSTARTED_THREAD_METHOD = getVirtualThreadMethod(
+                                                              getThreadBuilderClass(),
+                                                              OaiPmhConstants.UNSTARTED_THREAD_METHOD,
+                                                              Runnable.class);
+
+    private final String threadName;
+    private final boolean isVirtual;
+    private final AtomicInteger threadIndex;
+
+
+    /**
+     * Constructor that requires the name and the kind of the created threads.
+     *
+     * @param threadName the name of the threads, which is suffixed by a unique index
+     * @param isVirtual if true, virtual threads are created if the runtime supports them
+     */
+    public BackgroundThreadFactory(final String threadName, final boolean isVirtual)
+    {
+        this.threadName = threadName;
+        this.isVirtual = isVirtual && isVirtualThreadSupported();
+        this.threadIndex = new AtomicInteger();
+    }
+
+
+    @Override
+    public Thread newThread(final Runnable runnable)
+    {
+        final Thread thread = isVirtual
+                              ? createVirtualThread(runnable)
+                              : new Thread(runnable);
+
+        thread.setName(String.format(OaiPmhConstants.BACKGROUND_THREAD_NAME, threadName, threadIndex.incrementAndGet()));
+
+        // virtual threads are always daemon threads
+        if (!isVirtual)
+            thread.setDaemon(true);
+
+        return thread;
+    }
+
+
+    /**
+     * Checks if the created threads are virtual threads.
+     *
+     * @return true if the created threads are virtual threads
+     */
+    public boolean isVirtual()
+    {
+        return isVirtual;
+    }
+
+
+    /**
+     * Checks if the runtime is able to create virtual threads, which requires Java 21 or later.
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported()
+    {
+        return VIRTUAL_BUILDER_METHOD != null && UNSTARTED_THREAD_METHOD != null;
+    }
+
+
+    /**
+     * Creates an unstarted virtual thread.
+     *
+     * @param runnable the task of the thread
+     *
+     * @throws IllegalStateException if the virtual thread cannot be created
+     *
+     * @return a new virtual thread
+     */
+    private static Thread createVirtualThread(final Runnable runnable)
+    {
+        try {
+            final Object builder = VIRTUAL_BUILDER_METHOD.invoke(null);
+            return (Thread) UNSTARTED_THREAD_METHOD.invoke(builder, runnable);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(OaiPmhConstants.CANNOT_CREATE_VIRTUAL_THREAD_ERROR, e);
+        }
+    }
+
+
+    /**
+     * Retrieves the interface of thread builders, which only exists if virtual threads are supported.
+     *
+     * @return the thread builder interface, or null if it does not exist
+     */
+    private static Class<?> getThreadBuilderClass()
+    {
+        try {
+            return Class.forName(OaiPmhConstants.THREAD_BUILDER_CLASS);
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Retrieves a public method that is required for creating virtual threads.
+     *
+     * @param declaringClass the class or interface that declares the method, or null if it does not exist
+     * @param methodName the name of the method
+     * @param parameterTypes the parameter types of the method
+     *
+     * @return the method, or null if it does not exist
+     */
+    private static Method getVirtualThreadMethod(final Class<?> declaringClass, final String methodName, final Class<?>... parameterTypes)
+    {
+        if (declaringClass == null)
+            return null;
+
+        try {
+            return declaringClass.getMethod(methodName, parameterTypes);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import lombok.Value;
+
+/**
+ * This class represents the cached response of a rarely changing OAI-PMH request,
+ * such as Identify or ListMetadataFormats, including the validators that are
+ * needed to revalidate the response with a conditional request.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class CachedResponse
+{
+    /**
+     * The URL from which the response was retrieved.
+     */
+    private final String url;
+
+    /**
+     * The body of the response.
+     */
+    private final String content;
+
+    /**
+     * The value of the "ETag"-header of the response, or null if it was not sent.
+     */
+    private final String entityTag;
+
+    /**
+     * The value of the "Last-Modified"-header of the response, or null if it was not sent.
+     */
+    private final String lastModified;
+
+    /**
+     * The time at which the response was retrieved or revalidated, in milliseconds since the epoch.
+     */
+    private final long validationTime;
+
+
+    /**
+     * Checks if the response must be revalidated before it can be used.
+     *
+     * @param timeToLive the number of milliseconds for which a response is used without revalidation
+     *
+     * @return true if the response was retrieved or revalidated longer than the time to live ago
+     */
+    public boolean isExpired(final long timeToLive)
+    {
+        return System.currentTimeMillis() - validationTime >= timeToLive;
+    }
+
+
+    /**
+     * Checks if the response can be revalidated with a conditional request.
+     *
+     * @return true if the response has an "ETag"- or "Last-Modified"-header
+     */
+    public boolean isRevalidatable()
+    {
+        return entityTag != null || lastModified != null;
+    }
+
+
+    /**
+     * Creates a copy of this response that is valid from now on.
+     *
+     * @return a copy of this response with the current time as validation time
+     */
+    public CachedResponse revalidate()
+    {
+        return new CachedResponse(url, content, entityTag, lastModified, System.currentTimeMillis());
+    }
+}
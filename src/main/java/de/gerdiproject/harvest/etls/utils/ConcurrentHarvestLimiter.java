@@ -0,0 +1,111 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class limits the number of harvests that are extracting records at the same time.
+ * It works like a semaphore of which the number of permits can be changed at any time,
+ * without affecting the harvests that are already running.
+ *
+ * @author Robin Weiss
+ */
+public class ConcurrentHarvestLimiter
+{
+    private final Lock lock = new ReentrantLock();
+    private final Condition harvestFinished = lock.newCondition();
+
+    private int maxHarvests;
+    private int runningHarvests;
+
+
+    /**
+     * Changes the maximum number of harvests that may run at the same time.
+     *
+     * @param maxHarvests the maximum number of concurrent harvests, or 0 if it is unlimited
+     */
+    public void setLimit(final int maxHarvests)
+    {
+        lock.lock();
+
+        try {
+            this.maxHarvests = maxHarvests;
+            harvestFinished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Blocks until the number of running harvests is below the limit, and
+     * counts the calling harvest as running. The harvest must call
+     * {@linkplain #release()} when it is done.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting,
+     *         for instance because the harvest was aborted
+     */
+    public void acquire() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+
+        try {
+            while (maxHarvests > 0 && runningHarvests >= maxHarvests)
+                harvestFinished.await();
+
+            runningHarvests++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Marks a harvest as finished, allowing a waiting harvest to run.
+     */
+    public void release()
+    {
+        lock.lock();
+
+        try {
+            runningHarvests = Math.max(0, runningHarvests - 1);
+            harvestFinished.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the number of harvests that are currently running.
+     *
+     * @return the number of harvests that acquired a permit and did not release it yet
+     */
+    public int getRunningHarvests()
+    {
+        lock.lock();
+
+        try {
+            return runningHarvests;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This class counts the HTTP requests that were sent to a single host, and how
+ * many of them could reuse an existing connection or TLS session.
+ *
+ * @author Robin Weiss
+ */
+public class ConnectionStatistics
+{
+    private final String host;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong tlsConnections = new AtomicLong();
+    private final AtomicLong resumedTlsSessions = new AtomicLong();
+
+
+    /**
+     * Constructor that requires the host of which the requests are counted.
+     *
+     * @param host the scheme, host name and port of the requested URLs
+     */
+    public ConnectionStatistics(final String host)
+    {
+        this.host = host;
+    }
+
+
+    /**
+     * Returns the host of which the requests are counted.
+     *
+     * @return the scheme, host name and port of the requested URLs
+     */
+    public String getHost()
+    {
+        return host;
+    }
+
+
+    /**
+     * Counts a request that was sent to the host.
+     *
+     * @param isSuccessful if false, the request failed or returned an error status
+     */
+    public void addRequest(final boolean isSuccessful)
+    {
+        requests.incrementAndGet();
+
+        if (!isSuccessful)
+            failedRequests.incrementAndGet();
+    }
+
+
+    /**
+     * Counts a new TLS connection to the host.
+     *
+     * @param isSessionResumed if true, the TLS session of a previous connection was reused,
+     *         skipping the full handshake
+     */
+    public void addTlsConnection(final boolean isSessionResumed)
+    {
+        tlsConnections.incrementAndGet();
+
+        if (isSessionResumed)
+            resumedTlsSessions.incrementAndGet();
+    }
+
+
+    /**
+     * Returns the number of requests that were sent to the host.
+     *
+     * @return the number of requests that were sent to the host
+     */
+    public long getRequests()
+    {
+        return requests.get();
+    }
+
+
+    /**
+     * Returns the number of requests that failed or returned an error status.
+     *
+     * @return the number of failed requests
+     */
+    public long getFailedRequests()
+    {
+        return failedRequests.get();
+    }
+
+
+    /**
+     * Returns the number of TLS connections that were opened to the host.
+     * Requests that were sent via a kept-alive connection do not open a new one.
+     *
+     * @return the number of TLS connections, or 0 if the host is not accessed via HTTPS
+     */
+    public long getTlsConnections()
+    {
+        return tlsConnections.get();
+    }
+
+
+    /**
+     * Returns the number of TLS connections that resumed the session of a previous connection.
+     *
+     * @return the number of resumed TLS sessions
+     */
+    public long getResumedTlsSessions()
+    {
+        return resumedTlsSessions.get();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return String.format(
+                   OaiPmhConstants.CONNECTION_STATISTICS_INFO,
+                   host,
+                   getRequests(),
+                   getFailedRequests(),
+                   getTlsConnections(),
+                   getResumedTlsSessions());
+    }
+}
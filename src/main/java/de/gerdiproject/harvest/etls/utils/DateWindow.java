@@ -0,0 +1,76 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+import lombok.Value;
+
+/**
+ * This class represents an inclusive range of OAI-PMH datestamps
+ * that can be used as "from" and "until" query parameters.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class DateWindow
+{
+    private final String from;
+    private final String until;
+
+
+    /**
+     * Splits an inclusive date range into a number of non-overlapping windows of roughly the same duration.
+     * The window borders are aligned to the specified granularity, so that every datestamp of the
+     * range is covered by exactly one window.
+     *
+     * @param from the earliest date of the range
+     * @param until the latest date of the range
+     * @param windowCount the maximum number of windows, the actual number of windows can be lower
+     *         if the range cannot be split any further
+     * @param granularity the datestamp granularity of the harvested repository
+     *
+     * @return a list of consecutive date windows, ordered from earliest to latest
+     */
+    public static List<DateWindow> split(final Instant from, final Instant until, final int windowCount, final DatestampGranularity granularity)
+    {
+        final Instant start = granularity.truncate(from);
+        final Instant end = granularity.truncate(until);
+
+        // the number of datestamps in the range, including both borders
+        final long rangeSize = end.isBefore(start)
+                               ? 1
+                               : granularity.getUnit().between(start, end) + 1;
+
+        final int count = (int) Math.max(1, Math.min(windowCount, rangeSize));
+        final List<DateWindow> windows = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final long windowStart = i * rangeSize / count;
+            final long windowEnd = (i + 1) * rangeSize / count - 1;
+
+            windows.add(new DateWindow(
+                            granularity.format(start.plus(windowStart, granularity.getUnit())),
+                            granularity.format(start.plus(windowEnd, granularity.getUnit()))));
+        }
+
+        return windows;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import lombok.Value;
+
+/**
+ * This class represents the schedule of a single repository. It keeps track of
+ * how many records per hour the repository changes, which is learned from past
+ * incremental harvests, and derives the time of the next harvest from it, so that
+ * busy repositories are harvested often and quiet ones rarely.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class HarvestSchedule
+{
+    /**
+     * A schedule of a repository that was never harvested by the scheduler.
+     */
+    public static final HarvestSchedule INITIAL = new HarvestSchedule(-1, -1, 0, 0);
+
+    /**
+     * The start time of the latest successful harvest, in milliseconds since the epoch,
+     * or -1 if there was none.
+     */
+    private final long lastHarvestTime;
+
+    /**
+     * The average number of changed records per hour,
+     * or -1 if the change rate is unknown.
+     */
+    private final double recordsPerHour;
+
+    /**
+     * The number of milliseconds between the latest successful harvest and the next harvest.
+     */
+    private final long interval;
+
+    /**
+     * The time at which the repository is due to be harvested next,
+     * in milliseconds since the epoch.
+     */
+    private final long nextHarvestTime;
+
+
+    /**
+     * Creates the schedule that follows a successful harvest. The change rate is only
+     * updated by incremental harvests, because only they harvest the records that changed since
+     * the previous harvest. The next interval is chosen so that the next harvest is expected
+     * to yield the targeted number of records. If a repository did not change at all,
+     * the interval is doubled. Incremental harvests also cover an overlap before the
+     * previous harvest, so the records that changed during the overlap are included in the rate.
+     *
+     * @param harvestTime the start time of the harvest, in milliseconds since the epoch
+     * @param harvestedRecords the number of records that were harvested
+     * @param isIncremental true if only records that changed since the previous harvest were harvested
+     * @param overlap the number of milliseconds before the previous harvest that were harvested again
+     * @param minInterval the minimum number of milliseconds between two harvests
+     * @param maxInterval the maximum number of milliseconds between two harvests
+     * @param targetRecords the number of records that each harvest should yield
+     *
+     * @return the schedule of the next harvest
+     */
+    public HarvestSchedule afterHarvest(final long harvestTime, final int harvestedRecords, final boolean isIncremental, final long overlap, final long minInterval, final long maxInterval, final int targetRecords)
+    {
+        double changeRate = recordsPerHour;
+
+        if (isIncremental && lastHarvestTime >= 0 && harvestTime > lastHarvestTime) {
+            final double hours = (harvestTime - lastHarvestTime + overlap) / (double) TimeUnit.HOURS.toMillis(1);
+            final double measuredRate = harvestedRecords / hours;
+
+            changeRate = changeRate < 0
+                         ? measuredRate
+                         : changeRate + OaiPmhConstants.CHANGE_RATE_SMOOTHING * (measuredRate - changeRate);
+        }
+
+        final long nextInterval;
+
+        if (changeRate > 0)
+            nextInterval = (long)(targetRecords / changeRate * TimeUnit.HOURS.toMillis(1));
+
+        else if (changeRate == 0 && interval > 0)
+            nextInterval = interval * 2;
+
+        else
+            nextInterval = minInterval;
+
+        final long boundedInterval = Math.max(minInterval, Math.min(maxInterval, nextInterval));
+
+        return new HarvestSchedule(harvestTime, changeRate, boundedInterval, harvestTime + boundedInterval);
+    }
+
+
+    /**
+     * Creates the schedule that follows a failed harvest, which is retried after the minimum interval.
+     * The change rate is not updated, and the next successful harvest covers the time
+     * since the latest successful harvest.
+     *
+     * @param harvestTime the start time of the failed harvest, in milliseconds since the epoch
+     * @param minInterval the minimum number of milliseconds between two harvests
+     *
+     * @return the schedule of the next harvest
+     */
+    public HarvestSchedule afterFailure(final long harvestTime, final long minInterval)
+    {
+        return new HarvestSchedule(lastHarvestTime, recordsPerHour, interval, harvestTime + minInterval);
+    }
+}
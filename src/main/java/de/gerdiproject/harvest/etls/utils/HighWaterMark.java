@@ -0,0 +1,46 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+import lombok.Value;
+
+/**
+ * This class represents the latest datestamp of all records of a successful harvest,
+ * from which the subsequent harvest can continue incrementally.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class HighWaterMark
+{
+    /**
+     * A ListRecords URL without date range, which identifies the harvested
+     * repository, metadata prefix and set.
+     */
+    private final String recordsUrl;
+
+    /**
+     * The latest datestamp of all harvested records.
+     */
+    private final String datestamp;
+
+    /**
+     * The datestamp granularity of the harvested repository.
+     */
+    private final DatestampGranularity granularity;
+}
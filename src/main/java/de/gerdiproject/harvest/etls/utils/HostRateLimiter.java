@@ -0,0 +1,364 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This class limits the load that is put on a single host. Requests are throttled
+ * by a token bucket that allows a maximum number of requests per second, and
+ * the number of concurrent requests is limited as well.
+ * The concurrency limit is adjusted by an additive-increase/multiplicative-decrease
+ * algorithm: Every response that is not slower than usual raises the limit a little,
+ * whereas rate limits, overloaded servers, timeouts, and unusually slow responses
+ * halve it, down to a single request at a time.
+ * Waiting threads are parked via a {@linkplain Lock} instead of a monitor, so that
+ * virtual threads do not block their carrier threads while they wait.
+ *
+ * @author Robin Weiss
+ */
+public class HostRateLimiter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(HostRateLimiter.class);
+
+    private final String host;
+    private final Lock lock = new ReentrantLock();
+    private final Condition limitsChanged = lock.newCondition();
+
+    private double requestsPerSecond;
+    private double availableTokens;
+    private long lastRefillTime;
+
+    private int maxConcurrentRequests;
+    private double concurrencyLimit;
+    private int concurrentRequests;
+    private long lastDecreaseTime;
+    private long pausedUntil;
+
+    private long baselineLatency = -1;
+    private long windowMinLatency = Long.MAX_VALUE;
+    private int windowSampleCount;
+
+
+    /**
+     * Constructor that requires the host of which the requests are limited.
+     *
+     * @param host the scheme, host name and port of the requested URLs
+     */
+    public HostRateLimiter(final String host)
+    {
+        this.host = host;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+
+    /**
+     * Changes the limits of the host. The token bucket is refilled if the
+     * maximum number of requests per second changes, and the current concurrency limit is
+     * reset if the maximum number of concurrent requests changes. Unchanged limits keep
+     * the current state.
+     *
+     * @param requestsPerSecond the maximum number of requests per second, or 0 if the rate is unlimited
+     * @param maxConcurrentRequests the maximum number of concurrent requests,
+     *         or 0 if the concurrency is unlimited
+     */
+    public void setLimits(final double requestsPerSecond, final int maxConcurrentRequests)
+    {
+        lock.lock();
+
+        try {
+            if (this.requestsPerSecond == requestsPerSecond && this.maxConcurrentRequests == maxConcurrentRequests)
+                return;
+
+            if (this.requestsPerSecond != requestsPerSecond) {
+                this.requestsPerSecond = requestsPerSecond;
+                this.availableTokens = getBurstSize();
+                this.lastRefillTime = System.nanoTime();
+            }
+
+            if (this.maxConcurrentRequests != maxConcurrentRequests) {
+                this.maxConcurrentRequests = maxConcurrentRequests;
+                this.concurrencyLimit = maxConcurrentRequests;
+            }
+
+            limitsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Blocks until a request to the host is allowed by all limits.
+     * The returned permit must be released when the response was read.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     *
+     * @return a permit that counts as one concurrent request until it is released
+     */
+    public Permit acquire() throws InterruptedException
+    {
+        lock.lock();
+
+        try {
+            while (true) {
+                final long pauseDelay = pausedUntil - System.currentTimeMillis();
+
+                if (pauseDelay > 0)
+                    limitsChanged.await(pauseDelay, TimeUnit.MILLISECONDS);
+
+                else if (maxConcurrentRequests > 0 && concurrentRequests >= (int) concurrencyLimit)
+                    limitsChanged.await();
+
+                else {
+                    final long tokenDelay = takeToken();
+
+                    if (tokenDelay == 0)
+                        break;
+
+                    limitsChanged.await(tokenDelay, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            concurrentRequests++;
+            return new Permit(this);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Registers the response time of a request that was answered by the host.
+     * The concurrency limit is halved if the response was unusually slow,
+     * and raised a little otherwise.
+     *
+     * @param latency the number of milliseconds until the response status was received
+     */
+    public void onResponse(final long latency)
+    {
+        lock.lock();
+
+        try {
+            updateBaselineLatency(latency);
+
+            if (latency > baselineLatency * OaiPmhConstants.CONGESTION_LATENCY_FACTOR + OaiPmhConstants.CONGESTION_LATENCY_MARGIN)
+                decreaseConcurrency();
+
+            else if (maxConcurrentRequests > 0 && concurrencyLimit < maxConcurrentRequests) {
+                concurrencyLimit = Math.min(maxConcurrentRequests, concurrencyLimit + 1.0 / concurrencyLimit);
+                limitsChanged.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Registers a request that failed, because the host is overloaded or rate limited.
+     * The concurrency limit is halved and if the host specified a delay, all requests
+     * to the host are paused accordingly.
+     *
+     * @param retryAfter the number of milliseconds to wait before the next request,
+     *         or -1 if the host did not specify a delay
+     */
+    public void onOverload(final long retryAfter)
+    {
+        lock.lock();
+
+        try {
+            decreaseConcurrency();
+
+            if (retryAfter > 0)
+                pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + retryAfter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the current maximum number of concurrent requests to the host.
+     *
+     * @return the number of concurrent requests that are currently allowed,
+     *         or 0 if the concurrency is unlimited
+     */
+    public int getConcurrencyLimit()
+    {
+        lock.lock();
+
+        try {
+            return maxConcurrentRequests > 0 ? (int) concurrencyLimit : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Checks if an HTTP status code indicates that the host is overloaded or
+     * rate limits the harvester.
+     *
+     * @param statusCode the HTTP status code of a failed request
+     *
+     * @return true if fewer requests are to be sent to the host
+     */
+    public static boolean isOverloaded(final int statusCode)
+    {
+        return statusCode == OaiPmhConstants.HTTP_TOO_MANY_REQUESTS
+               || statusCode == HttpURLConnection.HTTP_UNAVAILABLE
+               || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+
+    /**
+     * Frees the concurrent request of a released permit.
+     */
+    private void release()
+    {
+        lock.lock();
+
+        try {
+            concurrentRequests--;
+            limitsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Halves the concurrency limit, unless it was already halved recently,
+     * because the concurrent requests of the same congestion are to be counted only once.
+     */
+    private void decreaseConcurrency()
+    {
+        final long now = System.currentTimeMillis();
+
+        if (maxConcurrentRequests <= 0 || now - lastDecreaseTime < OaiPmhConstants.CONCURRENCY_DECREASE_INTERVAL)
+            return;
+
+        this.lastDecreaseTime = now;
+        this.concurrencyLimit = Math.max(1, concurrencyLimit * OaiPmhConstants.CONCURRENCY_DECREASE_FACTOR);
+
+        if (LOGGER.isInfoEnabled())
+            LOGGER.info(String.format(OaiPmhConstants.CONCURRENCY_DECREASED_INFO, host, (int) concurrencyLimit));
+    }
+
+
+    /**
+     * Refills the token bucket according to the elapsed time and takes a token if possible.
+     *
+     * @return 0 if a token was taken, or the number of milliseconds until the next token is available
+     */
+    private long takeToken()
+    {
+        if (requestsPerSecond <= 0)
+            return 0;
+
+        final long now = System.nanoTime();
+        availableTokens = Math.min(getBurstSize(), availableTokens + (now - lastRefillTime) * requestsPerSecond / 1e9);
+        lastRefillTime = now;
+
+        if (availableTokens >= 1) {
+            availableTokens--;
+            return 0;
+        }
+
+        return Math.max(1, (long) Math.ceil((1 - availableTokens) * 1000 / requestsPerSecond));
+    }
+
+
+    /**
+     * Returns the maximum number of tokens of the bucket, which allows
+     * the requests of up to one second to be sent at once.
+     *
+     * @return the maximum number of tokens of the bucket
+     */
+    private double getBurstSize()
+    {
+        return Math.max(1, requestsPerSecond);
+    }
+
+
+    /**
+     * Updates the usual response time of the host, which is the fastest response time
+     * of the most recent requests. The usual response time can only increase after
+     * a number of requests, so that it adapts to generally slower responses.
+     *
+     * @param latency the number of milliseconds until the response status was received
+     */
+    private void updateBaselineLatency(final long latency)
+    {
+        windowMinLatency = Math.min(windowMinLatency, latency);
+
+        if (baselineLatency < 0 || latency < baselineLatency)
+            baselineLatency = latency;
+
+        if (++windowSampleCount >= OaiPmhConstants.LATENCY_WINDOW_SIZE) {
+            baselineLatency = windowMinLatency;
+            windowMinLatency = Long.MAX_VALUE;
+            windowSampleCount = 0;
+        }
+    }
+
+
+    /**
+     * A permission to send a single request to a host, which counts
+     * as one concurrent request until it is released.
+     *
+     * @author Robin Weiss
+     */
+    public static class Permit
+    {
+        private final HostRateLimiter limiter;
+        private final AtomicBoolean isReleased = new AtomicBoolean();
+
+
+        /**
+         * Constructor that requires the limiter that issued the permit.
+         *
+         * @param limiter the limiter that issued the permit
+         */
+        Permit(final HostRateLimiter limiter)
+        {
+            this.limiter = limiter;
+        }
+
+
+        /**
+         * Releases the permit, allowing other requests to be sent.
+         * Subsequent calls have no effect.
+         */
+        public void release()
+        {
+            if (isReleased.compareAndSet(false, true))
+                limiter.release();
+        }
+    }
+}
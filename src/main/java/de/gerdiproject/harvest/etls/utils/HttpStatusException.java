@@ -0,0 +1,72 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.io.IOException;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This exception is thrown when an HTTP request is answered with an error status code.
+ *
+ * @author Robin Weiss
+ */
+public class HttpStatusException extends IOException
+{
+    private static final long serialVersionUID = -2749160617349826015L;
+
+    private final int statusCode;
+    private final long retryAfter;
+
+
+    /**
+     * Constructor that requires the request URL and the response status.
+     *
+     * @param url the URL that was requested
+     * @param statusCode the HTTP status code of the response
+     * @param retryAfter the number of milliseconds to wait before the request may be repeated,
+     *         as requested by the "Retry-After" header, or -1 if there was no such header
+     */
+    public HttpStatusException(final String url, final int statusCode, final long retryAfter)
+    {
+        super(String.format(OaiPmhConstants.HTTP_STATUS_ERROR, url, statusCode));
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+
+    /**
+     * Returns the HTTP status code of the response.
+     *
+     * @return the HTTP status code of the response
+     */
+    public int getStatusCode()
+    {
+        return statusCode;
+    }
+
+
+    /**
+     * Returns the time that the server asked to wait before the request is repeated.
+     *
+     * @return the value of the "Retry-After" header in milliseconds, or -1 if there was no such header
+     */
+    public long getRetryAfter()
+    {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+/**
+ * This class resolves CSS queries of the form "a &gt; b, *|a &gt; *|b" that match elements
+ * with and without namespace prefix. Such a query consists of one branch that matches elements
+ * without prefix, and one branch that matches elements with any prefix. Evaluating both
+ * branches is wasteful, because records usually use only one prefix.
+ * <p>
+ * The resolver looks up the prefix of all elements that have a local name of any registered query.
+ * If all of these elements share the same prefix, each query is resolved to a single branch that
+ * matches exactly this prefix, and which selects the same elements as the original query.
+ * Otherwise, the queries remain unchanged.
+ * <p>
+ * The prefixes stem from harvested records, and each resolved query is cached by the
+ * {@linkplain SelectorCache}. Therefore, only a few prefixes are resolved, and the queries
+ * of any further prefixes remain unchanged.
+ *
+ * @author Robin Weiss
+ */
+public class NamespaceResolver
+{
+    private static final String ANY_PREFIX = "*|";
+    private static final char PREFIX_SEPARATOR = ':';
+    private static final Pattern QUERY_NAME = Pattern.compile("(?<![\\w|-])(\\*\\|)?([A-Za-z_][\\w-]*)(?![\\w|-])");
+    private static final Pattern VALID_PREFIX = Pattern.compile("[\\w-]+");
+    private static final int MAX_RESOLVED_PREFIXES = 8;
+
+    private final Map<String, String[]> queryBranches;
+    private final Set<String> localNames;
+    private final Map<String, ResolvedQueries> resolvedQueries;
+
+
+    /**
+     * Constructor that registers the queries that are to be resolved.
+     * Queries that do not consist of one branch with, and one branch without the "*|" prefix
+     * are ignored, and are never resolved.
+     *
+     * @param cssQueries queries of the form "a &gt; b, *|a &gt; *|b"
+     */
+    public NamespaceResolver(final String... cssQueries)
+    {
+        this.queryBranches = new HashMap<>();
+        this.localNames = new HashSet<>();
+        this.resolvedQueries = new ConcurrentHashMap<>();
+
+        for (final String cssQuery : cssQueries) {
+            final String[] branches = splitBranches(cssQuery);
+
+            if (branches != null) {
+                queryBranches.put(cssQuery, branches);
+                addLocalNames(cssQuery);
+            }
+        }
+    }
+
+
+    /**
+     * Looks up the namespace prefix of an element and its descendants,
+     * and resolves all registered queries for this prefix.
+     *
+     * @param root the element to which the queries are applied
+     *
+     * @return the exact counterparts of all registered queries
+     */
+    public ResolvedQueries resolve(final Element root)
+    {
+        if (root == null)
+            return ResolvedQueries.UNRESOLVED;
+
+        final PrefixFilter filter = new PrefixFilter();
+
+        // the ancestors are relevant, too, because queries can check the parents of the root
+        for (final Element ancestor : root.parents())
+            filter.head(ancestor, 0);
+
+        if (!filter.isMixed)
+            NodeTraversor.filter(filter, root);
+
+        if (filter.isMixed)
+            return ResolvedQueries.UNRESOLVED;
+
+        final String prefix = filter.prefix == null ? "" : filter.prefix;
+
+        if (!prefix.isEmpty() && !VALID_PREFIX.matcher(prefix).matches())
+            return ResolvedQueries.UNRESOLVED;
+
+        final ResolvedQueries cachedQueries = resolvedQueries.get(prefix);
+
+        if (cachedQueries != null)
+            return cachedQueries;
+
+        // the number of prefixes of harvested records is unbounded
+        if (resolvedQueries.size() >= MAX_RESOLVED_PREFIXES)
+            return ResolvedQueries.UNRESOLVED;
+
+        return resolvedQueries.computeIfAbsent(prefix, this::createResolvedQueries);
+    }
+
+
+    /**
+     * Resolves all registered queries for a namespace prefix.
+     *
+     * @param prefix a namespace prefix, or an empty string for elements without prefix
+     *
+     * @return the exact counterparts of all registered queries
+     */
+    private ResolvedQueries createResolvedQueries(final String prefix)
+    {
+        final Map<String, String> exactQueries = new HashMap<>();
+
+        for (final Map.Entry<String, String[]> entry : queryBranches.entrySet()) {
+            final String[] branches = entry.getValue();
+            final String exactQuery = prefix.isEmpty()
+                                      ? branches[0]
+                                      : branches[1].replace(ANY_PREFIX, prefix + '|');
+            exactQueries.put(entry.getKey(), exactQuery);
+        }
+
+        return new ResolvedQueries(prefix, Collections.unmodifiableMap(exactQueries));
+    }
+
+
+    /**
+     * Splits a query into the branch without, and the branch with the "*|" prefix.
+     *
+     * @param cssQuery a query of the form "a &gt; b, *|a &gt; *|b"
+     *
+     * @return an array of the branch without prefix and the branch with the "*|" prefix,
+     * or null if the query does not have the expected form
+     */
+    private static String[] splitBranches(final String cssQuery)
+    {
+        final String[] branches = cssQuery.split(",");
+
+        if (branches.length != 2)
+            return null;
+
+        final String unprefixed = branches[0].trim();
+        final String prefixed = branches[1].trim();
+
+        return !unprefixed.isEmpty() && !unprefixed.contains(ANY_PREFIX) && prefixed.contains(ANY_PREFIX)
+               ? new String[] {unprefixed, prefixed}
+               : null;
+    }
+
+
+    /**
+     * Memorizes the names of all elements that are matched either without prefix,
+     * or with the "*|" prefix. Names that have an explicit prefix, such as "gco|Decimal", are skipped.
+     *
+     * @param cssQuery a query of the form "a &gt; b, *|a &gt; *|b"
+     */
+    private void addLocalNames(final String cssQuery)
+    {
+        final Matcher matcher = QUERY_NAME.matcher(cssQuery);
+
+        while (matcher.find())
+            localNames.add(matcher.group(2).toLowerCase(Locale.ENGLISH));
+    }
+
+
+    /**
+     * This filter looks up the namespace prefix of all elements that have a local name
+     * of a registered query, and stops as soon as two different prefixes are found.
+     *
+     * @author Robin Weiss
+     */
+    private class PrefixFilter implements NodeFilter
+    {
+        private String prefix;
+        private boolean isMixed;
+
+
+        @Override
+        public FilterResult head(final Node node, final int depth)
+        {
+            if (!(node instanceof Element))
+                return FilterResult.SKIP_ENTIRELY;
+
+            final String tagName = ((Element) node).tagName();
+            final int prefixEnd = tagName.lastIndexOf(PREFIX_SEPARATOR);
+            final String localName = tagName.substring(prefixEnd + 1);
+            final String lowerCaseLocalName = localName.toLowerCase(Locale.ENGLISH);
+
+            if (!localNames.contains(lowerCaseLocalName))
+                return FilterResult.CONTINUE;
+
+            // prefixed names are compared case-sensitively by Jsoup, exact names are not
+            if (prefixEnd == 0 || prefixEnd != -1 && !localName.equals(lowerCaseLocalName))
+                isMixed = true;
+
+            else if (prefix == null)
+                prefix = prefixEnd == -1 ? "" : tagName.substring(0, prefixEnd);
+
+            else if (prefix.length() != Math.max(prefixEnd, 0) || !tagName.startsWith(prefix))
+                isMixed = true;
+
+            return isMixed ? FilterResult.STOP : FilterResult.CONTINUE;
+        }
+
+
+        @Override
+        public FilterResult tail(final Node node, final int depth)
+        {
+            return FilterResult.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.OaiPmhETL;
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.enums.ETLHealth;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+
+/**
+ * This class periodically harvests OAI-PMH repositories, independently of each other.
+ * Each repository is harvested as soon as its {@linkplain HarvestSchedule} is due,
+ * which depends on how many records per hour the repository changed in the past.
+ * Repositories are only harvested by the scheduler if their "minHarvestInterval"-parameter
+ * is set, and the "AllETLs.maxConcurrentHarvests"-parameter limits how many of them are
+ * harvested at the same time. Without such a limit, the first harvests of repositories that
+ * were never harvested are staggered across several checks, instead of all starting at once.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhHarvestScheduler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhHarvestScheduler.class);
+
+    private final List<OaiPmhETL> etls;
+    private final Map<OaiPmhETL, AtomicJsonFile<HarvestSchedule>> scheduleFiles;
+    private final Map<OaiPmhETL, HarvestSchedule> schedules;
+    private final Set<OaiPmhETL> runningHarvests;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService harvestExecutor;
+    private final ExecutorService virtualHarvestExecutor;
+
+
+    /**
+     * Constructor that requires all ETLs that may be harvested by the scheduler.
+     *
+     * @param etls the ETLs of the harvester service
+     */
+    public OaiPmhHarvestScheduler(final List<OaiPmhETL> etls)
+    {
+        this.etls = etls;
+        this.scheduleFiles = new ConcurrentHashMap<>();
+        this.schedules = new ConcurrentHashMap<>();
+        this.runningHarvests = ConcurrentHashMap.newKeySet();
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                         new BackgroundThreadFactory(OaiPmhConstants.SCHEDULER_THREAD_NAME, false));
+        this.harvestExecutor = Executors.newCachedThreadPool(
+                                   new BackgroundThreadFactory(OaiPmhConstants.SCHEDULED_HARVEST_THREAD_NAME, false));
+        this.virtualHarvestExecutor = Executors.newCachedThreadPool(
+                                          new BackgroundThreadFactory(OaiPmhConstants.SCHEDULED_HARVEST_THREAD_NAME, true));
+    }
+
+
+    /**
+     * Starts checking periodically which repositories are due to be harvested.
+     */
+    public void start()
+    {
+        timer.scheduleWithFixedDelay(
+            this::startDueHarvests,
+            OaiPmhConstants.SCHEDULER_CHECK_INTERVAL,
+            OaiPmhConstants.SCHEDULER_CHECK_INTERVAL,
+            TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stops the scheduler. Harvests that are already running are finished,
+     * but no further harvests are started.
+     */
+    public void stop()
+    {
+        timer.shutdownNow();
+        harvestExecutor.shutdown();
+        virtualHarvestExecutor.shutdown();
+    }
+
+
+    /**
+     * Starts the harvests of all repositories that are due, beginning with the most overdue
+     * repository, until the maximum number of concurrent harvests is reached.
+     * The harvests run on virtual threads if the ETL uses virtual threads and the runtime supports them.
+     */
+    private void startDueHarvests()
+    {
+        try {
+            final long now = System.currentTimeMillis();
+
+            final List<OaiPmhETL> dueEtls = etls.stream()
+                                            .filter((final OaiPmhETL etl) -> etl.getState() == ETLState.IDLE)
+                                            .filter((final OaiPmhETL etl) -> etl.getMinHarvestInterval() > 0)
+                                            .filter((final OaiPmhETL etl) -> !runningHarvests.contains(etl))
+                                            .filter((final OaiPmhETL etl) -> getSchedule(etl).getNextHarvestTime() <= now)
+                                            .sorted(Comparator.comparingLong((final OaiPmhETL etl) -> getSchedule(etl).getNextHarvestTime()))
+                                            .collect(Collectors.toList());
+
+            int initialHarvests = 0;
+
+            for (final OaiPmhETL etl : dueEtls) {
+                final int maxHarvests = etl.getMaxConcurrentHarvests();
+
+                if (maxHarvests > 0 && runningHarvests.size() >= maxHarvests)
+                    break;
+
+                // without a limit, all repositories would be harvested for the first time at once
+                if (maxHarvests == 0 && getSchedule(etl).getLastHarvestTime() < 0
+                    && initialHarvests++ >= OaiPmhConstants.INITIAL_HARVESTS_PER_CHECK)
+                    continue;
+
+                runningHarvests.add(etl);
+
+                if (etl.isUsingVirtualThreads())
+                    virtualHarvestExecutor.execute(() -> harvest(etl));
+                else
+                    harvestExecutor.execute(() -> harvest(etl));
+            }
+        } catch (final RuntimeException e) { // NOPMD the scheduler must keep running
+            LOGGER.error(OaiPmhConstants.SCHEDULER_ERROR, e);
+        }
+    }
+
+
+    /**
+     * Harvests a single repository and schedules its next harvest.
+     *
+     * @param etl the ETL that harvests the repository
+     */
+    private void harvest(final OaiPmhETL etl)
+    {
+        try {
+            final long harvestTime = System.currentTimeMillis();
+            final long minInterval = TimeUnit.MINUTES.toMillis(etl.getMinHarvestInterval());
+            final HarvestSchedule schedule = getSchedule(etl);
+            final HarvestSchedule nextSchedule;
+
+            if (etl.harvestOnSchedule() && etl.getHealth() == ETLHealth.OK) {
+                nextSchedule = schedule.afterHarvest(
+                                   harvestTime,
+                                   etl.getHarvestedCount(),
+                                   etl.isHarvestingIncrementally(),
+                                   TimeUnit.SECONDS.toMillis(etl.getIncrementalOverlap()),
+                                   minInterval,
+                                   TimeUnit.MINUTES.toMillis(etl.getMaxHarvestInterval()),
+                                   etl.getRecordsPerScheduledHarvest());
+
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info(String.format(
+                                    OaiPmhConstants.SCHEDULED_HARVEST_FINISHED_INFO,
+                                    etl.getName(),
+                                    etl.getHarvestedCount(),
+                                    Math.max(0, nextSchedule.getRecordsPerHour()),
+                                    Instant.ofEpochMilli(nextSchedule.getNextHarvestTime())));
+            } else {
+                nextSchedule = schedule.afterFailure(harvestTime, minInterval);
+
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info(String.format(
+                                    OaiPmhConstants.SCHEDULED_HARVEST_FAILED_INFO,
+                                    etl.getName(),
+                                    Instant.ofEpochMilli(nextSchedule.getNextHarvestTime())));
+            }
+
+            schedules.put(etl, nextSchedule);
+            getScheduleFile(etl).save(nextSchedule);
+        } finally {
+            runningHarvests.remove(etl);
+        }
+    }
+
+
+    /**
+     * Retrieves the current schedule of a repository. A schedule that was persisted
+     * before the service was restarted is loaded once, and kept in memory afterwards.
+     *
+     * @param etl the ETL that harvests the repository
+     *
+     * @return the current schedule of the repository
+     */
+    private HarvestSchedule getSchedule(final OaiPmhETL etl)
+    {
+        return schedules.computeIfAbsent(etl, (final OaiPmhETL key) -> {
+            final HarvestSchedule persistedSchedule = getScheduleFile(key).load();
+            return persistedSchedule == null ? HarvestSchedule.INITIAL : persistedSchedule;
+        });
+    }
+
+
+    /**
+     * Returns the file in which the schedule of a repository is persisted.
+     *
+     * @param etl the ETL that harvests the repository
+     *
+     * @return the schedule file of the repository
+     */
+    private AtomicJsonFile<HarvestSchedule> getScheduleFile(final OaiPmhETL etl)
+    {
+        return scheduleFiles.computeIfAbsent(etl, (final OaiPmhETL key) ->
+                                             new AtomicJsonFile<>(
+                                                 String.format(OaiPmhConstants.SCHEDULE_FILE_PATH, key.getName()),
+                                                 HarvestSchedule.class));
+    }
+}
@@ -0,0 +1,934 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.enums.ContentEncoding;
+import de.gerdiproject.harvest.utils.data.DiskIO;
+import de.gerdiproject.harvest.utils.data.HttpRequester;
+import de.gerdiproject.harvest.utils.data.HttpRequesterUtils;
+import de.gerdiproject.json.GsonUtils;
+
+/**
+ * This class sends all HTTP requests of the OAI-PMH harvester. Connections are kept alive
+ * and reused for subsequent requests to the same host, and all HTTPS connections share
+ * a single TLS session cache, so that the TCP and TLS setup is only paid once per connection.
+ * Responses are compressed if the repository supports it, and can be read from and
+ * written to the disk cache of the {@linkplain HttpRequester}.
+ * Failed requests are repeated as specified by a {@linkplain RetryPolicy}.
+ * The load that is put on each host is limited by a {@linkplain HostRateLimiter}.
+ * Responses of rarely changing requests can be cached in memory and on disk, and are
+ * revalidated with conditional requests when they expire.
+ * The number of requests and (re-)used connections is counted per host.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhHttpClient
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaiPmhHttpClient.class);
+    private static final Map<String, ConnectionStatistics> HOST_STATISTICS = new ConcurrentHashMap<>();
+    private static final Map<String, SSLSocketFactory> HOST_SSL_SOCKET_FACTORIES = new ConcurrentHashMap<>();
+    private static final SSLSocketFactory SHARED_SSL_SOCKET_FACTORY = createSslSocketFactory();
+    private static final Map<String, CachedResponse> CACHED_RESPONSES = new ConcurrentHashMap<>();
+    private static final Map<String, Object> CACHED_RESPONSE_LOCKS = new ConcurrentHashMap<>();
+    private static final Map<String, HostRateLimiter> HOST_RATE_LIMITERS = new ConcurrentHashMap<>();
+
+    private final HttpRequester httpRequester;
+    private final DiskIO diskIO;
+    private volatile String acceptedEncodings;
+    private volatile RetryPolicy retryPolicy;
+    private volatile int maxRequestsPerSecond;
+    private volatile int maxConcurrentRequests;
+
+
+    /**
+     * Constructor that reads the disk cache configuration of the {@linkplain HttpRequester}.
+     *
+     * @param retryPolicy decides if and when failed requests are repeated
+     */
+    public OaiPmhHttpClient(final RetryPolicy retryPolicy)
+    {
+        this.httpRequester = new HttpRequester();
+        this.diskIO = new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8);
+        this.acceptedEncodings = ContentEncoding.GZIP.getHeaderValue();
+        this.retryPolicy = retryPolicy;
+    }
+
+
+    /**
+     * Changes the policy that decides if and when failed requests are repeated.
+     *
+     * @param retryPolicy the new retry policy
+     */
+    public void setRetryPolicy(final RetryPolicy retryPolicy)
+    {
+        this.retryPolicy = retryPolicy;
+    }
+
+
+    /**
+     * Changes the limits of the load that is put on each requested host.
+     *
+     * @param maxRequestsPerSecond the maximum number of requests per second and host,
+     *         or 0 if the rate is unlimited
+     * @param maxConcurrentRequests the maximum number of concurrent requests per host,
+     *         or 0 if the concurrency is unlimited
+     */
+    public void setRateLimits(final int maxRequestsPerSecond, final int maxConcurrentRequests)
+    {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+
+    /**
+     * Sets the content encodings that are sent in the "Accept-Encoding" header of all requests.
+     *
+     * @param encodings the encodings that are supported by the requested repository
+     */
+    public void setAcceptedEncodings(final List<ContentEncoding> encodings)
+    {
+        this.acceptedEncodings = encodings.stream()
+                                 .map(ContentEncoding::getHeaderValue)
+                                 .collect(Collectors.joining(OaiPmhConstants.ENCODING_SEPARATOR));
+    }
+
+
+    /**
+     * Opens a stream of the response of a specified URL.
+     * If responses are to be read from disk and a cached response exists, the file is
+     * read instead. The stream must be closed in order to release the connection.
+     *
+     * @param url the URL of which the response is to be read
+     *
+     * @throws IOException if the response cannot be read, even after retrying
+     *
+     * @return a decompressed stream of the response
+     */
+    public InputStream getResponseStream(final String url) throws IOException
+    {
+        final File cachedResponse = getCachedResponseFile(url);
+
+        if (httpRequester.isReadingFromDisk() && cachedResponse != null && cachedResponse.exists())
+            return new FileInputStream(cachedResponse);
+
+        return requestWithRetries(url, Collections.emptyMap(), OaiPmhHttpClient::openResponseStream);
+    }
+
+
+    /**
+     * Retrieves and parses the response of a specified URL.
+     * If responses are to be read from disk and a cached response exists, the file is
+     * parsed instead. If responses are to be written to disk, the parsed response is cached.
+     *
+     * @param url the URL of which the response is to be parsed
+     *
+     * @return the parsed response, or null if it could not be retrieved
+     */
+    public Document getDocument(final String url)
+    {
+        final File cachedResponse = getCachedResponseFile(url);
+
+        if (httpRequester.isReadingFromDisk() && cachedResponse != null && cachedResponse.exists())
+            return httpRequester.getHtmlFromUrl(url);
+
+        Document doc;
+
+        try {
+            // the response is parsed as part of the request, so that broken off responses are retried as well
+            doc = requestWithRetries(url, Collections.emptyMap(), (final HttpURLConnection connection, final HostRateLimiter.Permit permit) -> {
+                try (InputStream closedStream = openResponseStream(connection, permit)) {
+                    return Jsoup.parse(closedStream, OaiPmhConstants.RESPONSE_CHARSET, url);
+                }
+            });
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_RESPONSE_ERROR, url), e);
+            doc = null;
+        }
+
+        if (httpRequester.isWritingToDisk() && cachedResponse != null)
+            diskIO.writeStringToFile(cachedResponse, doc == null ? "" : doc.toString());
+
+        return doc;
+    }
+
+
+    /**
+     * Retrieves the response of a specified URL on one executor and parses it on another,
+     * so that the threads that wait for responses are not occupied by parsing, and vice versa.
+     * Disk caching works the same as for {@linkplain #getDocument(String)}.
+     *
+     * @param url the URL of which the response is to be parsed
+     * @param requestExecutor the executor that sends the request and receives the response
+     * @param parseExecutor the executor that parses the response
+     *
+     * @return a future of the parsed response, which is null if it could not be retrieved
+     */
+    public CompletableFuture<Document> getDocumentAsync(final String url, final Executor requestExecutor, final Executor parseExecutor)
+    {
+        final File cachedResponse = getCachedResponseFile(url);
+
+        if (httpRequester.isReadingFromDisk() && cachedResponse != null && cachedResponse.exists())
+            return CompletableFuture.supplyAsync(() -> httpRequester.getHtmlFromUrl(url), parseExecutor);
+
+        return CompletableFuture
+               .supplyAsync(() -> readResponse(url), requestExecutor)
+               .thenApplyAsync((final byte[] response) -> parseResponse(url, response, cachedResponse), parseExecutor);
+    }
+
+
+    /**
+     * Retrieves the complete, decompressed response of a specified URL.
+     *
+     * @param url the URL of which the response is to be read
+     *
+     * @return the bytes of the response, or null if it could not be retrieved
+     */
+    private byte[] readResponse(final String url)
+    {
+        try {
+            // the response is read as part of the request, so that broken off responses are retried as well
+            return requestWithRetries(url, Collections.emptyMap(), (final HttpURLConnection connection, final HostRateLimiter.Permit permit) -> {
+                try (InputStream closedStream = openResponseStream(connection, permit)) {
+                    return readFully(closedStream).toByteArray();
+                }
+            });
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_RESPONSE_ERROR, url), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Parses a response that was read by {@linkplain #readResponse(String)}.
+     * If responses are to be written to disk, the parsed response is cached.
+     *
+     * @param url the URL from which the response was retrieved
+     * @param response the bytes of the response, or null if it could not be retrieved
+     * @param cachedResponse the file in which the response is cached, or null if there is no cache folder
+     *
+     * @return the parsed response, or null if it could not be retrieved or parsed
+     */
+    private Document parseResponse(final String url, final byte[] response, final File cachedResponse)
+    {
+        Document doc;
+
+        try {
+            doc = response == null
+                  ? null
+                  : Jsoup.parse(new ByteArrayInputStream(response), OaiPmhConstants.RESPONSE_CHARSET, url);
+        } catch (final IOException e) {
+            LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_RESPONSE_ERROR, url), e);
+            doc = null;
+        }
+
+        if (httpRequester.isWritingToDisk() && cachedResponse != null)
+            diskIO.writeStringToFile(cachedResponse, doc == null ? "" : doc.toString());
+
+        return doc;
+    }
+
+
+    /**
+     * Retrieves and parses the response of a rarely changing request, such as Identify or
+     * ListMetadataFormats. The response is cached in memory and in the cache folder of the
+     * harvester service, and is only requested again when it is older than a specified time to live.
+     * Expired responses are revalidated with a conditional request if the repository sent
+     * validators. If the revalidation fails, the expired response is used instead.
+     *
+     * @param url the URL of which the response is to be parsed
+     * @param timeToLive the number of milliseconds for which a cached response is used without revalidation
+     *
+     * @return the parsed response, or null if it could not be retrieved
+     */
+    public Document getCachedDocument(final String url, final long timeToLive)
+    {
+        final File cachedResponseFile = getCachedResponseFile(url);
+
+        // mocked responses of the disk cache take precedence
+        if (httpRequester.isReadingFromDisk() && cachedResponseFile != null && cachedResponseFile.exists())
+            return httpRequester.getHtmlFromUrl(url);
+
+        final CachedResponse response = getCachedResponse(url, timeToLive);
+
+        if (response != null && httpRequester.isWritingToDisk() && cachedResponseFile != null)
+            diskIO.writeStringToFile(cachedResponseFile, response.getContent());
+
+        return response == null
+               ? null
+               : Jsoup.parse(response.getContent(), url);
+    }
+
+
+    /**
+     * Retrieves the cached response of a URL, requesting or revalidating it if it is
+     * missing or expired. Concurrent calls for the same URL send at most one request.
+     *
+     * @param url the URL of which the response is to be retrieved
+     * @param timeToLive the number of milliseconds for which a cached response is used without revalidation
+     *
+     * @return the cached response, or null if it could not be retrieved
+     */
+    private CachedResponse getCachedResponse(final String url, final long timeToLive)
+    {
+        final CachedResponse memorizedResponse = CACHED_RESPONSES.get(url);
+
+        if (memorizedResponse != null && !memorizedResponse.isExpired(timeToLive))
+            return memorizedResponse;
+
+        synchronized (CACHED_RESPONSE_LOCKS.computeIfAbsent(url, (final String u) -> new Object())) {
+            final AtomicJsonFile<CachedResponse> persistedFile = new AtomicJsonFile<>(
+                HttpRequesterUtils.urlToFilePath(url, new File(OaiPmhConstants.CACHED_RESPONSES_FOLDER)).toString(),
+                CachedResponse.class);
+
+            CachedResponse cachedResponse = CACHED_RESPONSES.get(url);
+
+            if (cachedResponse == null) {
+                cachedResponse = persistedFile.load();
+
+                // the file path of a URL is not necessarily unique
+                if (cachedResponse != null && !url.equals(cachedResponse.getUrl()))
+                    cachedResponse = null;
+            }
+
+            if (cachedResponse != null && !cachedResponse.isExpired(timeToLive)) {
+                CACHED_RESPONSES.put(url, cachedResponse);
+                return cachedResponse;
+            }
+
+            final CachedResponse expiredResponse = cachedResponse;
+            final CachedResponse validResponse;
+
+            try {
+                validResponse = requestWithRetries(
+                                    url,
+                                    getValidatorHeaders(expiredResponse),
+                                    (final HttpURLConnection connection, final HostRateLimiter.Permit permit) ->
+                                    readCachedResponse(url, connection, permit, expiredResponse));
+
+            } catch (final IOException e) {
+                if (expiredResponse == null) {
+                    LOGGER.warn(String.format(OaiPmhConstants.CANNOT_READ_RESPONSE_ERROR, url), e);
+                    return null;
+                }
+
+                LOGGER.warn(String.format(OaiPmhConstants.CANNOT_REVALIDATE_RESPONSE_ERROR, url), e);
+                CACHED_RESPONSES.put(url, expiredResponse);
+                return expiredResponse;
+            }
+
+            CACHED_RESPONSES.put(url, validResponse);
+            persistedFile.save(validResponse);
+            return validResponse;
+        }
+    }
+
+
+    /**
+     * Reads a response that is to be cached. If the repository confirmed that an expired
+     * response is still valid, the expired response is revalidated instead.
+     *
+     * @param url the URL from which the response was retrieved
+     * @param connection a connection with a successful response
+     * @param permit the permit of the request, which is released when the response was read
+     * @param expiredResponse the cached response that is revalidated, or null if there is none
+     *
+     * @throws IOException if the response cannot be read
+     *
+     * @return a response that is valid from now on
+     */
+    private static CachedResponse readCachedResponse(final String url, final HttpURLConnection connection, final HostRateLimiter.Permit permit, final CachedResponse expiredResponse) throws IOException
+    {
+        if (expiredResponse != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            try (InputStream emptyStream = new PermitReleasingInputStream(connection.getInputStream(), permit)) {
+                drain(emptyStream);
+            }
+            return expiredResponse.revalidate();
+        }
+
+        final ByteArrayOutputStream content;
+
+        try (InputStream responseStream = openResponseStream(connection, permit)) {
+            content = readFully(responseStream);
+        }
+
+        return new CachedResponse(
+                   url,
+                   content.toString(OaiPmhConstants.RESPONSE_CHARSET),
+                   connection.getHeaderField(OaiPmhConstants.ETAG_HEADER),
+                   connection.getHeaderField(OaiPmhConstants.LAST_MODIFIED_HEADER),
+                   System.currentTimeMillis());
+    }
+
+
+    /**
+     * Assembles the headers of a conditional request that only retrieves
+     * a response if it differs from a cached response.
+     *
+     * @param cachedResponse the cached response, or null if there is none
+     *
+     * @return a map of request header names to values
+     */
+    private static Map<String, String> getValidatorHeaders(final CachedResponse cachedResponse)
+    {
+        if (cachedResponse == null || !cachedResponse.isRevalidatable())
+            return Collections.emptyMap();
+
+        final Map<String, String> headers = new HashMap<>();
+
+        if (cachedResponse.getEntityTag() != null)
+            headers.put(OaiPmhConstants.IF_NONE_MATCH_HEADER, cachedResponse.getEntityTag());
+
+        if (cachedResponse.getLastModified() != null)
+            headers.put(OaiPmhConstants.IF_MODIFIED_SINCE_HEADER, cachedResponse.getLastModified());
+
+        return headers;
+    }
+
+
+    /**
+     * Sends a request and reads its response. If the request fails due to a transient error,
+     * it is repeated after a delay, until it succeeds or the maximum number of retries is reached.
+     * Each attempt waits until the {@linkplain HostRateLimiter} of the host allows it.
+     *
+     * @param url the URL that is to be requested
+     * @param requestHeaders additional headers that are sent with the request
+     * @param responseReader a function that reads the response
+     * @param <T> the type of the read response
+     *
+     * @throws IOException if the request failed and cannot or must not be repeated
+     *
+     * @return the read response
+     */
+    private <T> T requestWithRetries(final String url, final Map<String, String> requestHeaders, final ResponseReader<T> responseReader) throws IOException
+    {
+        final RetryPolicy policy = retryPolicy;
+        final HostRateLimiter rateLimiter = getRateLimiter(new URL(url));
+        int retry = 0;
+
+        while (true) {
+            final long delay;
+            final IOException failure;
+            final HostRateLimiter.Permit permit = acquirePermit(rateLimiter);
+            boolean isSuccessful = false;
+
+            try {
+                final T response = responseReader.read(connect(url, requestHeaders, rateLimiter), permit);
+                isSuccessful = true;
+                return response;
+
+            } catch (final HttpStatusException e) {
+                if (retry >= policy.getMaxRetries() || !policy.isRetryable(e.getStatusCode()))
+                    throw e;
+
+                delay = e.getRetryAfter() < 0 ? policy.getBackoffDelay(retry) : e.getRetryAfter();
+                failure = e;
+
+            } catch (final UnknownHostException e) {
+                // an unknown host will not become known by waiting
+                throw e;
+
+            } catch (final IOException e) {
+                if (retry >= policy.getMaxRetries())
+                    throw e;
+
+                delay = policy.getBackoffDelay(retry);
+                failure = e;
+
+            } finally {
+                // the permit of a successful request is released when its response stream is closed
+                if (!isSuccessful)
+                    permit.release();
+            }
+
+            retry++;
+
+            if (LOGGER.isWarnEnabled())
+                LOGGER.warn(String.format(OaiPmhConstants.RETRY_INFO, url, failure.getMessage(), delay, retry, policy.getMaxRetries()));
+
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Waits until the {@linkplain HostRateLimiter} of a host allows another request.
+     *
+     * @param rateLimiter the rate limiter of the requested host
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     *
+     * @return a permit that must be released when the response was read
+     */
+    private static HostRateLimiter.Permit acquirePermit(final HostRateLimiter rateLimiter) throws InterruptedIOException
+    {
+        try {
+            return rateLimiter.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+
+    /**
+     * Sends a single request to a specified URL. The response time and overload errors
+     * are reported to the {@linkplain HostRateLimiter} of the host.
+     *
+     * @param url the URL that is to be requested
+     * @param requestHeaders additional headers that are sent with the request
+     * @param rateLimiter the rate limiter of the requested host
+     *
+     * @throws IOException if the request failed
+     *
+     * @return a connection with a successful response
+     */
+    private HttpURLConnection connect(final String url, final Map<String, String> requestHeaders, final HostRateLimiter rateLimiter) throws IOException
+    {
+        final URL requestUrl = new URL(url);
+        final String host = getHostKey(requestUrl);
+        final ConnectionStatistics statistics = HOST_STATISTICS.computeIfAbsent(host, ConnectionStatistics::new);
+        final HttpURLConnection connection = (HttpURLConnection) requestUrl.openConnection();
+
+        // the same factory instance must be used for all connections to a host, to be able to reuse them
+        if (connection instanceof HttpsURLConnection && SHARED_SSL_SOCKET_FACTORY != null)
+            ((HttpsURLConnection) connection).setSSLSocketFactory(
+                HOST_SSL_SOCKET_FACTORIES.computeIfAbsent(host, (final String h) -> new StatisticsSSLSocketFactory(statistics)));
+
+        connection.setRequestProperty(OaiPmhConstants.ACCEPT_ENCODING_HEADER, acceptedEncodings);
+        requestHeaders.forEach(connection::setRequestProperty);
+
+        final long requestTime = System.currentTimeMillis();
+        final int responseCode;
+
+        try {
+            responseCode = connection.getResponseCode();
+        } catch (final UnknownHostException e) {
+            statistics.addRequest(false);
+            throw e;
+        } catch (final IOException e) {
+            // timeouts and refused connections indicate an overloaded host
+            statistics.addRequest(false);
+            rateLimiter.onOverload(-1);
+            throw e;
+        }
+
+        if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            statistics.addRequest(false);
+            final long retryAfter = RetryPolicy.parseRetryAfter(connection.getHeaderField(OaiPmhConstants.RETRY_AFTER_HEADER));
+
+            if (HostRateLimiter.isOverloaded(responseCode))
+                rateLimiter.onOverload(retryAfter);
+
+            releaseConnection(connection);
+            throw new HttpStatusException(url, responseCode, retryAfter);
+        }
+
+        statistics.addRequest(true);
+        rateLimiter.onResponse(System.currentTimeMillis() - requestTime);
+        return connection;
+    }
+
+
+    /**
+     * Opens a stream of the response of a connection.
+     *
+     * @param connection a connection with a successful response
+     * @param permit the permit of the request, which is released when the stream is closed
+     *
+     * @throws IOException if the stream cannot be opened
+     *
+     * @return a decompressed stream of the response
+     */
+    private static InputStream openResponseStream(final HttpURLConnection connection, final HostRateLimiter.Permit permit) throws IOException
+    {
+        final InputStream responseStream = new PermitReleasingInputStream(connection.getInputStream(), permit);
+        final ContentEncoding encoding = ContentEncoding.fromValue(connection.getContentEncoding());
+
+        // decompress the response on the fly
+        return encoding == null
+               ? responseStream
+               : encoding.decode(responseStream);
+    }
+
+
+    /**
+     * Returns the request statistics of all hosts that were requested so far.
+     *
+     * @return an unmodifiable collection of request statistics, one per host
+     */
+    public static Collection<ConnectionStatistics> getAllStatistics()
+    {
+        return Collections.unmodifiableCollection(HOST_STATISTICS.values());
+    }
+
+
+    /**
+     * Retrieves the {@linkplain HostRateLimiter} that is shared by all requests to a host
+     * with the same rate limits. Clients with different limits use different limiters,
+     * because changing the limits of a shared limiter would reset its token bucket and
+     * its concurrency limit with every request.
+     *
+     * @param url a requested URL
+     *
+     * @return the rate limiter of the host of the URL
+     */
+    private HostRateLimiter getRateLimiter(final URL url)
+    {
+        final String host = getHostKey(url);
+        final int requestsPerSecond = maxRequestsPerSecond;
+        final int concurrentRequests = maxConcurrentRequests;
+        final String limiterKey = String.format(OaiPmhConstants.RATE_LIMITER_KEY_FORMAT, host, requestsPerSecond, concurrentRequests);
+
+        return HOST_RATE_LIMITERS.computeIfAbsent(limiterKey, (final String key) -> {
+            final HostRateLimiter rateLimiter = new HostRateLimiter(host);
+            rateLimiter.setLimits(requestsPerSecond, concurrentRequests);
+            return rateLimiter;
+        });
+    }
+
+
+    /**
+     * Assembles a string that identifies the host of a URL, including its scheme and port.
+     *
+     * @param url the URL of which the host is to be identified
+     *
+     * @return a host identifier, e.g. https://www.mo.ck:443
+     */
+    private static String getHostKey(final URL url)
+    {
+        return String.format(
+                   OaiPmhConstants.HOST_KEY_FORMAT,
+                   url.getProtocol(),
+                   url.getHost(),
+                   url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+    }
+
+
+    /**
+     * Retrieves the file in which the response of a URL is cached.
+     *
+     * @param url the URL of which the response is cached
+     *
+     * @return the file of the cached response, or null if there is no cache folder
+     */
+    private File getCachedResponseFile(final String url)
+    {
+        return httpRequester.getCacheFolder() == null
+               ? null
+               : new File(HttpRequesterUtils.urlToFilePath(url, httpRequester.getCacheFolder()).toString());
+    }
+
+
+    /**
+     * Reads and closes the error response of a connection, which allows
+     * the connection to be kept alive for subsequent requests.
+     *
+     * @param connection the connection that returned an error
+     */
+    private static void releaseConnection(final HttpURLConnection connection)
+    {
+        try (InputStream errorStream = connection.getErrorStream()) {
+            if (errorStream != null)
+                drain(errorStream);
+        } catch (final IOException e) {
+            // the connection cannot be reused
+            connection.disconnect();
+        }
+    }
+
+
+    /**
+     * Reads the remainder of a response stream into memory.
+     *
+     * @param responseStream the stream that is to be read
+     *
+     * @throws IOException if the stream cannot be read
+     *
+     * @return the read bytes
+     */
+    private static ByteArrayOutputStream readFully(final InputStream responseStream) throws IOException
+    {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[OaiPmhConstants.DRAIN_BUFFER_SIZE];
+        int length;
+
+        while ((length = responseStream.read(buffer)) != -1)
+            content.write(buffer, 0, length);
+
+        return content;
+    }
+
+
+    /**
+     * Reads and discards the remainder of a response stream.
+     *
+     * @param responseStream the stream that is to be drained
+     *
+     * @throws IOException if the stream cannot be read
+     */
+    private static void drain(final InputStream responseStream) throws IOException
+    {
+        final byte[] buffer = new byte[OaiPmhConstants.DRAIN_BUFFER_SIZE];
+
+        while (responseStream.read(buffer) != -1) { // NOPMD the response is discarded
+        }
+    }
+
+
+    /**
+     * Creates an {@linkplain SSLSocketFactory} of which the bounded TLS session cache
+     * is shared by all connections of the harvester.
+     *
+     * @return a shared {@linkplain SSLSocketFactory}, or null if the default TLS settings are to be used
+     */
+    private static SSLSocketFactory createSslSocketFactory()
+    {
+        try {
+            final SSLContext context = SSLContext.getInstance(OaiPmhConstants.TLS_PROTOCOL);
+            context.init(null, null, null);
+            context.getClientSessionContext().setSessionTimeout(OaiPmhConstants.TLS_SESSION_TIMEOUT_SECONDS);
+            context.getClientSessionContext().setSessionCacheSize(OaiPmhConstants.TLS_SESSION_CACHE_SIZE);
+            return context.getSocketFactory();
+
+        } catch (final GeneralSecurityException e) {
+            LOGGER.warn(OaiPmhConstants.CANNOT_CREATE_SSL_CONTEXT_ERROR, e);
+            return null;
+        }
+    }
+
+
+    /**
+     * A function that reads an HTTP response.
+     *
+     * @param <T> the type of the read response
+     *
+     * @author Robin Weiss
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T>
+    {
+        /**
+         * Reads an HTTP response.
+         *
+         * @param connection a connection with a successful response
+         * @param permit the permit of the request, which must be released when the response was read
+         *
+         * @throws IOException if the response cannot be read
+         *
+         * @return the read response
+         */
+        T read(HttpURLConnection connection, HostRateLimiter.Permit permit) throws IOException;
+    }
+
+
+    /**
+     * An {@linkplain InputStream} that releases the permit of its request when it is closed,
+     * so that the request counts as a concurrent request until its response was read.
+     *
+     * @author Robin Weiss
+     */
+    private static class PermitReleasingInputStream extends FilterInputStream
+    {
+        private final HostRateLimiter.Permit permit;
+
+
+        /**
+         * Constructor that requires the response stream and the permit of the request.
+         *
+         * @param responseStream the stream of the response
+         * @param permit the permit of the request
+         */
+        PermitReleasingInputStream(final InputStream responseStream, final HostRateLimiter.Permit permit)
+        {
+            super(responseStream);
+            this.permit = permit;
+        }
+
+
+        @Override
+        public void close() throws IOException
+        {
+            try {
+                super.close();
+            } finally {
+                permit.release();
+            }
+        }
+    }
+
+
+    /**
+     * An {@linkplain SSLSocketFactory} that delegates to the shared factory and
+     * counts new TLS connections, as well as resumed TLS sessions.
+     *
+     * @author Robin Weiss
+     */
+    private static class StatisticsSSLSocketFactory extends SSLSocketFactory
+    {
+        private static final Set<String> KNOWN_SESSION_IDS = createSessionIdSet();
+
+        private final ConnectionStatistics statistics;
+
+
+        /**
+         * Constructor that requires the statistics of the connected host.
+         *
+         * @param statistics the statistics of the connected host
+         */
+        StatisticsSSLSocketFactory(final ConnectionStatistics statistics)
+        {
+            super();
+            this.statistics = statistics;
+        }
+
+
+        @Override
+        public String[] getDefaultCipherSuites()
+        {
+            return SHARED_SSL_SOCKET_FACTORY.getDefaultCipherSuites();
+        }
+
+
+        @Override
+        public String[] getSupportedCipherSuites()
+        {
+            return SHARED_SSL_SOCKET_FACTORY.getSupportedCipherSuites();
+        }
+
+
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose) throws IOException
+        {
+            return observe(SHARED_SSL_SOCKET_FACTORY.createSocket(socket, host, port, autoClose));
+        }
+
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException
+        {
+            return observe(SHARED_SSL_SOCKET_FACTORY.createSocket(host, port));
+        }
+
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException
+        {
+            return observe(SHARED_SSL_SOCKET_FACTORY.createSocket(host, port, localHost, localPort));
+        }
+
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException
+        {
+            return observe(SHARED_SSL_SOCKET_FACTORY.createSocket(host, port));
+        }
+
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException
+        {
+            return observe(SHARED_SSL_SOCKET_FACTORY.createSocket(address, port, localAddress, localPort));
+        }
+
+
+        /**
+         * Creates a set of the IDs of the most recent TLS sessions of the shared factory.
+         * Older sessions are evicted from the session cache of the factory as well,
+         * so they cannot be resumed anyway.
+         *
+         * @return a thread-safe set that holds at most as many IDs as the TLS session cache
+         */
+        private static Set<String> createSessionIdSet()
+        {
+            final Map<String, Boolean> recentSessionIds = new LinkedHashMap<String, Boolean>(16, 0.75f, true) { // NOPMD the anonymous class only bounds the map
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest)
+                {
+                    return size() > OaiPmhConstants.TLS_SESSION_CACHE_SIZE;
+                }
+            };
+            return Collections.synchronizedSet(Collections.newSetFromMap(recentSessionIds));
+        }
+
+
+        /**
+         * Registers a listener that counts the connection as soon as its TLS handshake is completed.
+         *
+         * @param socket a new TLS socket
+         *
+         * @return the same socket
+         */
+        private Socket observe(final Socket socket)
+        {
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(event -> {
+                    final String sessionId = new BigInteger(1, event.getSession().getId()).toString(Character.MAX_RADIX);
+                    statistics.addTlsConnection(!KNOWN_SESSION_IDS.add(sessionId));
+                });
+            }
+
+            return socket;
+        }
+    }
+}
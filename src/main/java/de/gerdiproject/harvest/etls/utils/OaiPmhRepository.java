@@ -0,0 +1,83 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import de.gerdiproject.harvest.etls.OaiPmhETL;
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import lombok.Value;
+
+/**
+ * This class represents a single entry of the repository list file, which
+ * defines an OAI-PMH repository that is harvested by its own {@linkplain OaiPmhETL}.
+ * All values are optional and serve as default values of the ETL parameters.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class OaiPmhRepository
+{
+    /**
+     * The name of the ETL, which is also the category of its parameters.
+     */
+    private final String name;
+
+    /**
+     * The base URL of the OAI-PMH interface of the repository.
+     */
+    private final String hostUrl;
+
+    /**
+     * The metadata prefix of the harvested records.
+     */
+    private final String metadataPrefix;
+
+    /**
+     * The set of which the records are harvested.
+     */
+    private final String set;
+
+    /**
+     * A URL that points to the logo of the repository provider.
+     */
+    private final String logoUrl;
+
+    /**
+     * A URL that points to a web page of the repository.
+     */
+    private final String viewUrl;
+
+
+    /**
+     * Returns the name of the ETL that harvests this repository. The name consists
+     * only of letters, digits, and underscores, because it is part of the parameter keys.
+     *
+     * @param index the position of the repository in the repository list file,
+     *         which is used if the repository has no name
+     *
+     * @return the name of the ETL that harvests this repository
+     */
+    public String getEtlName(final int index)
+    {
+        final String etlName = name == null
+                               ? ""
+                               : name.replaceAll(OaiPmhConstants.INVALID_ETL_NAME_CHARACTERS, "");
+
+        return etlName.isEmpty()
+               ? String.format(OaiPmhConstants.DEFAULT_ETL_NAME, OaiPmhETL.class.getSimpleName(), index + 1)
+               : etlName;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * This class maps CSS queries that match elements regardless of their namespace prefix
+ * to exact queries that only match the namespace prefix that is used by a record.
+ * Instances are created by a {@linkplain NamespaceResolver}.
+ *
+ * @author Robin Weiss
+ */
+public class ResolvedQueries
+{
+    /**
+     * Queries of records that use more than one prefix for the same elements.
+     * All queries remain unchanged.
+     */
+    public static final ResolvedQueries UNRESOLVED = new ResolvedQueries(null, Collections.emptyMap());
+
+    private final String prefix;
+    private final Map<String, String> exactQueries;
+
+
+    /**
+     * Constructor that requires the exact query of each resolvable query.
+     *
+     * @param prefix the namespace prefix of the exact queries, or an empty string
+     *         if the exact queries match elements without prefix
+     * @param exactQueries a map of queries to their exact counterparts
+     */
+    ResolvedQueries(final String prefix, final Map<String, String> exactQueries)
+    {
+        this.prefix = prefix;
+        this.exactQueries = exactQueries;
+    }
+
+
+    /**
+     * Retrieves the exact counterpart of a query.
+     *
+     * @param cssQuery a query that was registered at the {@linkplain NamespaceResolver}
+     *
+     * @return the exact query, or the specified query if it cannot be resolved
+     */
+    public String get(final String cssQuery)
+    {
+        return exactQueries.getOrDefault(cssQuery, cssQuery);
+    }
+
+
+    /**
+     * Returns the namespace prefix that is matched by the exact queries.
+     *
+     * @return the namespace prefix, an empty string if the elements have no prefix,
+     * or null if the queries could not be resolved
+     */
+    public String getPrefix()
+    {
+        return prefix;
+    }
+}
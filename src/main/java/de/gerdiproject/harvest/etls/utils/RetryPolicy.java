@@ -0,0 +1,108 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import lombok.Value;
+
+/**
+ * This class decides if and when a failed HTTP request is to be repeated.
+ * Requests are repeated after an exponentially growing, jittered delay, unless
+ * the server specifies the delay via the "Retry-After" header.
+ *
+ * @author Robin Weiss
+ */
+@Value
+public class RetryPolicy
+{
+    private final int maxRetries;
+    private final long initialDelay;
+    private final long maxDelay;
+
+
+    /**
+     * Checks if a request that was answered with a specified HTTP status code
+     * can succeed if it is repeated. Server errors, timeouts and rate limits
+     * are transient, whereas all other client errors are not.
+     *
+     * @param statusCode the HTTP status code of the failed request
+     *
+     * @return true if the request is to be repeated
+     */
+    public boolean isRetryable(final int statusCode)
+    {
+        return statusCode >= OaiPmhConstants.HTTP_SERVER_ERROR_MIN
+               || statusCode == OaiPmhConstants.HTTP_REQUEST_TIMEOUT
+               || statusCode == OaiPmhConstants.HTTP_TOO_MANY_REQUESTS;
+    }
+
+
+    /**
+     * Calculates the delay before a failed request is repeated. The delay doubles with every
+     * retry until the maximum delay is reached, and is randomly reduced by up to half of its
+     * value, so that concurrent requests do not retry at the same time.
+     *
+     * @param retry the number of retries that were already attempted
+     *
+     * @return the delay in milliseconds
+     */
+    public long getBackoffDelay(final int retry)
+    {
+        final long exponentialDelay = initialDelay << Math.min(retry, OaiPmhConstants.MAX_BACKOFF_EXPONENT);
+        final long cappedDelay = Math.max(0, Math.min(maxDelay, exponentialDelay));
+        final long halfDelay = cappedDelay / 2;
+
+        return halfDelay + ThreadLocalRandom.current().nextLong(cappedDelay - halfDelay + 1);
+    }
+
+
+    /**
+     * Parses the value of a "Retry-After" header, which is either a number
+     * of seconds or an HTTP date.
+     *
+     * @param headerValue the value of the "Retry-After" header, or null if there is no such header
+     *
+     * @return the number of milliseconds to wait, or -1 if the header is missing or cannot be parsed
+     */
+    public static long parseRetryAfter(final String headerValue)
+    {
+        if (headerValue == null || headerValue.trim().isEmpty())
+            return -1;
+
+        final String trimmedValue = headerValue.trim();
+
+        try {
+            return Math.max(0, Math.min(Long.parseLong(trimmedValue) * 1000L, OaiPmhConstants.MAX_RETRY_AFTER));
+        } catch (final NumberFormatException e) { // NOPMD the value may still be a date
+        }
+
+        try {
+            final Instant retryDate = ZonedDateTime.parse(trimmedValue, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            final long delay = retryDate.toEpochMilli() - System.currentTimeMillis();
+            return Math.min(Math.max(0, delay), OaiPmhConstants.MAX_RETRY_AFTER);
+
+        } catch (final DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
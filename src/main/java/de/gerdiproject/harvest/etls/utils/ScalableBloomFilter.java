@@ -0,0 +1,232 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bloom filter that grows with the number of added strings. It consists of a series of
+ * fixed-size filters, each of which has twice the capacity and half the false positive rate
+ * of its predecessor, so that the overall false positive rate stays below the specified rate,
+ * no matter how many strings are added.
+ * Strings that were added are always recognized, whereas strings that were never added
+ * are falsely recognized with a small probability.
+ *
+ * @author Robin Weiss
+ */
+public class ScalableBloomFilter
+{
+    private static final int CAPACITY_GROWTH = 2;
+    private static final double FALSE_POSITIVE_TIGHTENING = 0.5;
+
+    private final List<Slice> slices = new ArrayList<>();
+    private int size;
+
+
+    /**
+     * Constructor that sets up the first fixed-size filter.
+     *
+     * @param initialCapacity the number of strings that can be added before the filter grows
+     * @param falsePositiveRate the maximum probability of recognizing a string that was never added
+     */
+    public ScalableBloomFilter(final int initialCapacity, final double falsePositiveRate)
+    {
+        // the false positive rates of all slices add up to at most twice the rate of the first slice
+        slices.add(new Slice(Math.max(1, initialCapacity), falsePositiveRate * (1 - FALSE_POSITIVE_TIGHTENING)));
+    }
+
+
+    /**
+     * Adds a string to the filter.
+     *
+     * @param value the string that is to be added
+     *
+     * @return true if the string was probably added before, false if it was definitely not
+     */
+    public boolean add(final String value)
+    {
+        final long hash = hash(value);
+
+        for (final Slice slice : slices) {
+            if (slice.mightContain(hash))
+                return true;
+        }
+
+        Slice currentSlice = slices.get(slices.size() - 1);
+
+        if (currentSlice.isFull()) {
+            currentSlice = new Slice(
+                currentSlice.capacity * CAPACITY_GROWTH,
+                currentSlice.falsePositiveRate * FALSE_POSITIVE_TIGHTENING);
+            slices.add(currentSlice);
+        }
+
+        currentSlice.add(hash);
+        size++;
+        return false;
+    }
+
+
+    /**
+     * Checks if a string was probably added to the filter.
+     *
+     * @param value the string that is to be checked
+     *
+     * @return true if the string was probably added, false if it was definitely not
+     */
+    public boolean mightContain(final String value)
+    {
+        final long hash = hash(value);
+
+        for (final Slice slice : slices) {
+            if (slice.mightContain(hash))
+                return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Returns the number of strings that were added to the filter, not counting
+     * strings that were recognized as already added.
+     *
+     * @return the number of added strings
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Calculates a 64 bit hash of a string, using the FNV-1a algorithm
+     * followed by the finalization step of MurmurHash3 to spread the bits.
+     *
+     * @param value the string that is to be hashed
+     *
+     * @return a 64 bit hash of the string
+     */
+    private static long hash(final String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        final int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+
+    /**
+     * A Bloom filter with a fixed capacity. The bit positions of a string are
+     * derived from the two halves of its 64 bit hash via double hashing.
+     *
+     * @author Robin Weiss
+     */
+    private static class Slice
+    {
+        private final int capacity;
+        private final double falsePositiveRate;
+        private final long[] bits;
+        private final long bitCount;
+        private final int hashCount;
+        private int size;
+
+
+        /**
+         * Constructor that calculates the optimal number of bits and hash functions.
+         *
+         * @param capacity the number of strings that can be added while keeping the false positive rate
+         * @param falsePositiveRate the probability of recognizing a string that was never added
+         */
+        Slice(final int capacity, final double falsePositiveRate)
+        {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+
+            final double ln2 = Math.log(2);
+            final long optimalBitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+
+            this.bits = new long[(int) Math.max(1, (optimalBitCount + Long.SIZE - 1) / Long.SIZE)];
+            this.bitCount = (long) bits.length * Long.SIZE;
+            this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) capacity * ln2));
+        }
+
+
+        /**
+         * Checks if the filter holds the maximum number of strings.
+         *
+         * @return true if adding more strings would exceed the false positive rate
+         */
+        boolean isFull()
+        {
+            return size >= capacity;
+        }
+
+
+        /**
+         * Sets all bits of a hash.
+         *
+         * @param hash the 64 bit hash of a string
+         */
+        void add(final long hash)
+        {
+            final int hash1 = (int) hash;
+            final int hash2 = (int) (hash >>> Integer.SIZE) | 1;
+
+            for (int i = 0; i < hashCount; i++) {
+                final long bitIndex = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+                bits[(int) (bitIndex >>> 6)] |= 1L << bitIndex;
+            }
+
+            size++;
+        }
+
+
+        /**
+         * Checks if all bits of a hash are set.
+         *
+         * @param hash the 64 bit hash of a string
+         *
+         * @return true if the string of the hash was probably added
+         */
+        boolean mightContain(final long hash)
+        {
+            final int hash1 = (int) hash;
+            final int hash2 = (int) (hash >>> Integer.SIZE) | 1;
+
+            for (int i = 0; i < hashCount; i++) {
+                final long bitIndex = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+
+                if ((bits[(int) (bitIndex >>> 6)] & (1L << bitIndex)) == 0)
+                    return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import de.gerdiproject.harvest.utils.HtmlUtils;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * This class offers the selector-based functions of {@linkplain HtmlUtils}, but parses
+ * each CSS query only once. Jsoup parses the query string to an {@linkplain Evaluator}
+ * on every call of {@linkplain Element#select(String)}, which is a considerable part of the
+ * transformation of a record, because the transformers query every record dozens of times
+ * with the same constant queries. Evaluators are immutable and can be shared by all threads.
+ *
+ * @author Robin Weiss
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class SelectorCache
+{
+    private static final Map<String, Evaluator> EVALUATORS = new ConcurrentHashMap<>();
+
+
+    /**
+     * Retrieves the parsed representation of a CSS query, parsing it if it
+     * was not requested before.
+     *
+     * @param cssQuery a Jsoup CSS query
+     *
+     * @throws org.jsoup.select.Selector.SelectorParseException if the query is invalid
+     *
+     * @return an {@linkplain Evaluator} that matches the elements of the query
+     */
+    public static Evaluator getEvaluator(final String cssQuery)
+    {
+        final Evaluator cachedEvaluator = EVALUATORS.get(cssQuery);
+
+        return cachedEvaluator != null
+               ? cachedEvaluator
+               : EVALUATORS.computeIfAbsent(cssQuery, QueryParser::parse);
+    }
+
+
+    /**
+     * Finds all elements that match a CSS query, including the element itself.
+     * This is equivalent to {@linkplain Element#select(String)}.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     *
+     * @return all matching elements
+     */
+    public static Elements select(final Element element, final String cssQuery)
+    {
+        return Collector.collect(getEvaluator(cssQuery), element);
+    }
+
+
+    /**
+     * Finds the first element that matches a CSS query, including the element itself.
+     * This is equivalent to {@linkplain Element#selectFirst(String)}.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     *
+     * @return the first matching element, or null if no element matches
+     */
+    public static Element selectFirst(final Element element, final String cssQuery)
+    {
+        return Collector.findFirst(getEvaluator(cssQuery), element);
+    }
+
+
+    /**
+     * Retrieves the text of the first element that matches a CSS query.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     *
+     * @return the text of the first matching element, or null if no element matches
+     *
+     * @see HtmlUtils#getString(Element, String)
+     */
+    public static String getString(final Element element, final String cssQuery)
+    {
+        final Element stringElement = selectFirst(element, cssQuery);
+        return stringElement == null ? null : stringElement.text();
+    }
+
+
+    /**
+     * Retrieves the texts of all elements that match a CSS query.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     *
+     * @return the texts of all matching elements, or null if no element matches
+     *
+     * @see HtmlUtils#getStrings(Element, String)
+     */
+    public static List<String> getStrings(final Element element, final String cssQuery)
+    {
+        return HtmlUtils.elementsToStringList(select(element, cssQuery));
+    }
+
+
+    /**
+     * Retrieves the texts of all children of the first element that matches a CSS query.
+     *
+     * @param element the element of which the descendants are searched
+     * @param parentCssQuery a Jsoup CSS query of the parent element
+     *
+     * @return the texts of all children, or null if no element matches
+     *
+     * @see HtmlUtils#getStringsFromParent(Element, String)
+     */
+    public static List<String> getStringsFromParent(final Element element, final String parentCssQuery)
+    {
+        final Element parent = selectFirst(element, parentCssQuery);
+        return parent == null ? null : HtmlUtils.elementsToStringList(parent.children());
+    }
+
+
+    /**
+     * Converts the first element that matches a CSS query to an object.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     * @param eleToObject a function that converts the element to an object
+     * @param <T> the type of the object
+     *
+     * @return the converted object, or null if no element matches
+     *
+     * @see HtmlUtils#getObject(Element, String, Function)
+     */
+    public static <T> T getObject(final Element element, final String cssQuery, final Function<Element, T> eleToObject)
+    {
+        final Element requestedElement = selectFirst(element, cssQuery);
+        return requestedElement == null ? null : eleToObject.apply(requestedElement);
+    }
+
+
+    /**
+     * Converts all elements that match a CSS query to objects.
+     *
+     * @param element the element of which the descendants are searched
+     * @param cssQuery a Jsoup CSS query
+     * @param eleToObject a function that converts an element to an object
+     * @param <T> the type of the objects
+     *
+     * @return a list of converted objects, or null if no element matches
+     *
+     * @see HtmlUtils#getObjects(Element, String, Function)
+     */
+    public static <T> List<T> getObjects(final Element element, final String cssQuery, final Function<Element, T> eleToObject)
+    {
+        return HtmlUtils.elementsToList(select(element, cssQuery), eleToObject);
+    }
+
+
+    /**
+     * Converts all children of the first element that matches a CSS query to objects.
+     *
+     * @param element the element of which the descendants are searched
+     * @param parentCssQuery a Jsoup CSS query of the parent element
+     * @param eleToObject a function that converts an element to an object
+     * @param <T> the type of the objects
+     *
+     * @return a list of converted objects, or null if no element matches
+     *
+     * @see HtmlUtils#getObjectsFromParent(Element, String, Function)
+     */
+    public static <T> List<T> getObjectsFromParent(final Element element, final String parentCssQuery, final Function<Element, T> eleToObject)
+    {
+        final Element parent = selectFirst(element, parentCssQuery);
+        return parent == null ? null : HtmlUtils.elementsToList(parent.children(), eleToObject);
+    }
+}
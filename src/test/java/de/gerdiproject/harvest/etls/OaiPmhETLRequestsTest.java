@@ -0,0 +1,330 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.nodes.Element;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.config.Configuration;
+import de.gerdiproject.harvest.etls.constants.ETLConstants;
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.etls.constants.OaiPmhParameterConstants;
+import de.gerdiproject.harvest.etls.enums.ETLState;
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.HtmlUtils;
+
+/**
+ * This class provides Unit Tests for the requests that the {@linkplain OaiPmhETL}
+ * sends to the harvested repository. The responses are served by a local HTTP server
+ * that counts the requests it receives.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhETLRequestsTest
+{
+    private static final String MODULE_NAME = "OaiPmhETLRequestsTest";
+    private static final String METADATA_PREFIX = "datacite";
+    private static final String FIRST_PAGE_QUERY = "verb=ListRecords&metadataPrefix=datacite";
+    private static final String FROM_PARAMETER_VALUE = "2000-02-02";
+    private static final String WAITING_ETL_NAME = "WaitingOaiPmhETL";
+    private static final long ABORT_DELAY = 100;
+    private static final List<String> RECORD_IDENTIFIERS = Arrays.asList("FirstRecord", "SecondRecord");
+    private static final Map<String, String> RESPONSES = createResponses();
+
+    @Rule
+    public final TemporaryFolder cacheFolder = new TemporaryFolder();
+
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private Configuration config;
+    private OaiPmhETL testedObject;
+
+
+    /**
+     * Provides a cache folder, starts a local server that answers requests with mocked
+     * responses, and creates the tested ETL without setting its host URL.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void before() throws IOException
+    {
+        EventSystem.addSynchronousListener(GetCacheFolderEvent.class, cacheFolder::getRoot);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/oai", this::respond);
+        server.start();
+
+        this.config = new Configuration(MODULE_NAME);
+        config.addEventListeners();
+
+        this.testedObject = new OaiPmhETL();
+        testedObject.init(MODULE_NAME);
+        testedObject.addEventListeners();
+    }
+
+
+    /**
+     * Aborts the extraction, stops the local server and removes all event listeners.
+     */
+    @After
+    public void after()
+    {
+        testedObject.extractor.clear();
+        testedObject.removeEventListeners();
+        config.removeEventListeners();
+        server.stop(0);
+        EventSystem.removeSynchronousListener(GetCacheFolderEvent.class);
+    }
+
+
+    /**
+     * Tests if changing the host URL does not send any request, because
+     * parameter changes must not wait for slow repositories.
+     */
+    @Test
+    public void testHostUrlChangeSendsNoRequest()
+    {
+        setParameter(OaiPmhParameterConstants.HOST_URL_KEY, getHostUrl());
+        setParameter(OaiPmhParameterConstants.FROM_KEY, FROM_PARAMETER_VALUE);
+
+        assertEquals("Expected no request to be sent when parameters change.",
+                     0,
+                     getRequestCount());
+    }
+
+
+    /**
+     * Tests if the first page of records, which is retrieved to determine
+     * the number of records, is not requested again by the harvest.
+     */
+    @Test
+    public void testFirstPageIsRequestedOnce()
+    {
+        assertRecordsAreExtracted();
+        assertEquals("Expected the first page of records to be requested once.",
+                     1,
+                     requestCounts.get(FIRST_PAGE_QUERY).get());
+    }
+
+
+    /**
+     * Tests if the first page of records, which is read from a stream to determine
+     * the number of records, is not requested again by a streaming harvest.
+     */
+    @Test
+    public void testFirstStreamedPageIsRequestedOnce()
+    {
+        setParameter(OaiPmhParameterConstants.STREAM_RECORDS_KEY, Boolean.TRUE.toString());
+
+        assertRecordsAreExtracted();
+        assertEquals("Expected the first page of records to be requested once when streaming.",
+                     1,
+                     requestCounts.get(FIRST_PAGE_QUERY).get());
+    }
+
+
+    /**
+     * Tests if a harvest that waits for other harvests to finish can be aborted.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(timeout = 10000)
+    public void testWaitingHarvestIsAborted() throws InterruptedException
+    {
+        config.setParameter(
+            String.format("%s.%s", ETLConstants.PARAMETER_CATEGORY, OaiPmhParameterConstants.MAX_CONCURRENT_HARVESTS_KEY),
+            "1");
+
+        // the extraction keeps the only harvest slot until the extractor is cleared
+        assertRecordsAreExtracted();
+
+        final OaiPmhETL waitingEtl = new OaiPmhETL(WAITING_ETL_NAME, null);
+        waitingEtl.init(MODULE_NAME);
+        waitingEtl.addEventListeners();
+
+        try {
+            config.setParameter(String.format("%s.%s", WAITING_ETL_NAME, OaiPmhParameterConstants.HOST_URL_KEY), getHostUrl());
+            waitingEtl.setStatus(ETLState.HARVESTING);
+
+            final Iterator<Element> waitingRecords = waitingEtl.extractor.extract();
+            final Thread abortingThread = new Thread(() -> {
+                try {
+                    Thread.sleep(ABORT_DELAY);
+                    waitingEtl.abortHarvest();
+                } catch (final InterruptedException e) { // NOPMD the test fails if the harvest is not aborted
+                }
+            });
+            abortingThread.start();
+
+            try {
+                waitingRecords.hasNext();
+                fail("Expected the waiting harvest to be aborted.");
+            } catch (final ExtractorException e) { // NOPMD the exception is expected
+            }
+
+            abortingThread.join();
+        } finally {
+            waitingEtl.extractor.clear();
+            waitingEtl.removeEventListeners();
+        }
+    }
+
+
+    /**
+     * Configures the local server as repository of the tested ETL, prepares the
+     * harvest and asserts that all records are extracted.
+     */
+    private void assertRecordsAreExtracted()
+    {
+        setParameter(OaiPmhParameterConstants.HOST_URL_KEY, getHostUrl());
+        setParameter(OaiPmhParameterConstants.METADATA_PREFIX_KEY, METADATA_PREFIX);
+        testedObject.update();
+
+        assertEquals("Expected the number of records to be read from the first page.",
+                     RECORD_IDENTIFIERS.size(),
+                     testedObject.getMaxNumberOfDocuments());
+
+        final List<String> identifiers = new ArrayList<>();
+        final Iterator<Element> records = testedObject.extractor.extract();
+
+        while (records.hasNext())
+            identifiers.add(HtmlUtils.getString(records.next(), OaiPmhConstants.HEADER_IDENTIFIER));
+
+        assertEquals("Expected all records to be extracted.",
+                     RECORD_IDENTIFIERS,
+                     identifiers);
+    }
+
+
+    /**
+     * Changes a parameter of the tested ETL.
+     *
+     * @param key the key of the parameter
+     * @param value the new value of the parameter
+     */
+    private void setParameter(final String key, final String value)
+    {
+        config.setParameter(String.format("%s.%s", testedObject.getName(), key), value);
+    }
+
+
+    /**
+     * Returns the URL of the OAI-PMH interface of the local server.
+     *
+     * @return the URL of the OAI-PMH interface of the local server
+     */
+    private String getHostUrl()
+    {
+        return String.format("http://127.0.0.1:%d/oai", server.getAddress().getPort());
+    }
+
+
+    /**
+     * Returns the number of requests that were received by the local server.
+     *
+     * @return the number of requests that were received by the local server
+     */
+    private int getRequestCount()
+    {
+        return requestCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+
+    /**
+     * Answers a request of the local server with the mocked response of
+     * its query and counts it.
+     *
+     * @param exchange the request and its response
+     *
+     * @throws IOException if the response cannot be sent
+     */
+    private void respond(final HttpExchange exchange) throws IOException
+    {
+        final String query = exchange.getRequestURI().getQuery();
+        requestCounts.computeIfAbsent(query, (final String q) -> new AtomicInteger()).incrementAndGet();
+
+        final String response = RESPONSES.get(query);
+        final byte[] content = (response == null ? "<OAI-PMH><error code=\"badArgument\"/></OAI-PMH>" : response)
+                               .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content);
+        }
+    }
+
+
+    /**
+     * Creates a map of the queries that are answered by the local server,
+     * to the mocked responses of the queries.
+     *
+     * @return a map of queries to mocked responses
+     */
+    private static Map<String, String> createResponses()
+    {
+        final Map<String, String> responses = new ConcurrentHashMap<>();
+        responses.put("verb=Identify",
+                      "<OAI-PMH><Identify>"
+                      + "<repositoryName>Mocked Repository Name</repositoryName>"
+                      + "<granularity>YYYY-MM-DD</granularity>"
+                      + "</Identify></OAI-PMH>");
+        responses.put("verb=ListMetadataFormats",
+                      "<OAI-PMH><ListMetadataFormats><metadataFormat>"
+                      + "<metadataPrefix>datacite</metadataPrefix>"
+                      + "<schema>http://schema.datacite.org/meta/kernel-2/metadata.xsd</schema>"
+                      + "</metadataFormat></ListMetadataFormats></OAI-PMH>");
+        responses.put(FIRST_PAGE_QUERY,
+                      "<OAI-PMH><ListRecords><record><header>"
+                      + "<identifier>FirstRecord</identifier><datestamp>2000-02-02</datestamp>"
+                      + "</header></record>"
+                      + "<resumptionToken completeListSize=\"2\">MockedResumptionToken</resumptionToken>"
+                      + "</ListRecords></OAI-PMH>");
+        responses.put("verb=ListRecords&resumptionToken=MockedResumptionToken",
+                      "<OAI-PMH><ListRecords><record><header>"
+                      + "<identifier>SecondRecord</identifier><datestamp>3000-03-03</datestamp>"
+                      + "</header></record>"
+                      + "<resumptionToken completeListSize=\"2\" />"
+                      + "</ListRecords></OAI-PMH>");
+        return responses;
+    }
+}
@@ -18,9 +18,15 @@ package de.gerdiproject.harvest.etls;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 
 import org.jsoup.nodes.Element;
 import org.junit.Test;
@@ -30,15 +36,26 @@ import de.gerdiproject.harvest.OaiPmhContextListener;
 import de.gerdiproject.harvest.application.ContextListenerTestWrapper;
 import de.gerdiproject.harvest.application.MainContext;
 import de.gerdiproject.harvest.application.MainContextUtils;
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
 import de.gerdiproject.harvest.application.events.ServiceInitializedEvent;
 import de.gerdiproject.harvest.config.events.GetConfigurationEvent;
 import de.gerdiproject.harvest.config.parameters.constants.ParameterConstants;
 import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
 import de.gerdiproject.harvest.etls.constants.OaiPmhParameterConstants;
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+import de.gerdiproject.harvest.etls.enums.ETLHealth;
+import de.gerdiproject.harvest.etls.events.HarvestFinishedEvent;
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+import de.gerdiproject.harvest.etls.extractors.OaiPmhPartition;
+import de.gerdiproject.harvest.etls.extractors.OaiPmhRecordExtractor;
+import de.gerdiproject.harvest.etls.utils.AtomicJsonFile;
+import de.gerdiproject.harvest.etls.utils.HighWaterMark;
 import de.gerdiproject.harvest.event.EventSystem;
 import de.gerdiproject.harvest.utils.HtmlUtils;
+import de.gerdiproject.harvest.utils.data.DiskIO;
 import de.gerdiproject.harvest.utils.data.constants.DataOperationConstants;
 import de.gerdiproject.harvest.utils.file.FileUtils;
+import de.gerdiproject.json.GsonUtils;
 
 /**
  * This class provides Unit Tests for the {@linkplain OaiPmhETL}.
@@ -54,6 +71,19 @@ public class OaiPmhETLTest extends AbstractObjectUnitTest<OaiPmhETL>
     private static final String FROM_PARAMETER_VALUE = "2000-02-02";
     private static final String UNTIL_PARAMETER_VALUE = "4000-04-04";
     private static final String SET_PARAMETER_VALUE = "mocked-set";
+    private static final String PREFETCH_DEPTH_PARAMETER_VALUE = "2";
+    private static final String STREAM_RECORDS_PARAMETER_VALUE = "true";
+    private static final String DATE_WINDOWS_PARAMETER_VALUE = "3";
+    private static final String SHARD_BY_SETS_PARAMETER_VALUE = "true";
+    private static final String ASYNC_EXTRACTION_PARAMETER_VALUE = "true";
+    private static final String LIST_IDENTIFIERS_PARAMETER_VALUE = "true";
+    private static final String DELETED_ELEMENT_ID = "DeletedElement";
+    private static final String VANISHED_ELEMENT_ID = "VanishedElement";
+    private static final String INCREMENTAL_PARAMETER_VALUE = "true";
+    private static final String HIGH_WATER_MARK_DATESTAMP = "2018-05-05T12:00:00Z";
+    private static final String HIGH_WATER_MARK_RECORDS_URL = "http://www.mo.ck/oai?verb=ListRecords&metadataPrefix=datacite";
+    private static final String LATER_FROM_PARAMETER_VALUE = "2019-01-01";
+    private static final int TOP_LEVEL_SET_COUNT = 2;
 
     private ContextListenerTestWrapper<OaiPmhETL> contextInitializer;
 
@@ -169,6 +199,274 @@ public class OaiPmhETLTest extends AbstractObjectUnitTest<OaiPmhETL>
     }
 
 
+    /**
+     * Tests if the resumption token is correctly consumed when record pages are
+     * prefetched in the background.
+     */
+    @Test
+    public void testResumptionTokenWithPrefetching()
+    {
+        initializeContext();
+        enablePrefetching();
+
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        // retrieve first element, memorize the resumptionToken
+        extractorIter.next();
+
+        // retrieve the second element using the resumptionToken
+        final Element resumedElement = extractorIter.next();
+        final String resumedElementId = HtmlUtils.getString(resumedElement, OaiPmhConstants.HEADER_IDENTIFIER);
+
+        assertEquals(
+            "Expected at least two elements to be extractable due to following the resumption token defined in the first element.",
+            RESUMED_ELEMENT_ID,
+            resumedElementId);
+    }
+
+
+    /**
+     * Tests if the datestamp of the most recently harvested record is used to create a fallback URL
+     * if the resumption token points to an erroneous response, while record pages are
+     * prefetched in the background.
+     */
+    @Test
+    public void testResumptionTokenFallbackWithPrefetching()
+    {
+        initializeContext();
+        enablePrefetching();
+
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        // retrieve first element, memorize the resumptionToken
+        extractorIter.next();
+
+        // retrieve the second element using the resumptionToken
+        extractorIter.next();
+
+        // retrieve a third element using the datestamp of the second one as a fallback
+        final Element fallbackElement = extractorIter.next();
+        final String fallbackElementId = HtmlUtils.getString(fallbackElement, OaiPmhConstants.HEADER_IDENTIFIER);
+
+        assertEquals(
+            "Expected at least three elements to be extractable using a fallback URL.",
+            FALLBACK_ELEMENT_ID,
+            fallbackElementId);
+    }
+
+
+    /**
+     * Tests if the resumption token is correctly consumed when records are
+     * read one by one from the response streams.
+     */
+    @Test
+    public void testResumptionTokenWithStreaming()
+    {
+        initializeContext();
+        enableStreaming();
+
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        // retrieve first element, memorize the resumptionToken
+        extractorIter.next();
+
+        // retrieve the second element using the resumptionToken
+        final Element resumedElement = extractorIter.next();
+        final String resumedElementId = HtmlUtils.getString(resumedElement, OaiPmhConstants.HEADER_IDENTIFIER);
+
+        assertEquals(
+            "Expected at least two elements to be extractable due to following the resumption token defined in the first element.",
+            RESUMED_ELEMENT_ID,
+            resumedElementId);
+    }
+
+
+    /**
+     * Tests if the datestamp of the most recently harvested record is used to create a fallback URL
+     * if the resumption token points to an erroneous response, while records are read one by one
+     * from the response streams.
+     */
+    @Test
+    public void testResumptionTokenFallbackWithStreaming()
+    {
+        initializeContext();
+        enableStreaming();
+
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        // retrieve first element, memorize the resumptionToken
+        extractorIter.next();
+
+        // retrieve the second element using the resumptionToken
+        extractorIter.next();
+
+        // retrieve a third element using the datestamp of the second one as a fallback
+        final Element fallbackElement = extractorIter.next();
+        final String fallbackElementId = HtmlUtils.getString(fallbackElement, OaiPmhConstants.HEADER_IDENTIFIER);
+
+        assertEquals(
+            "Expected at least three elements to be extractable using a fallback URL.",
+            FALLBACK_ELEMENT_ID,
+            fallbackElementId);
+    }
+
+
+    /**
+     * Tests if the list size is retrieved from the resumption token when records are
+     * read one by one from the response streams.
+     */
+    @Test
+    public void testListSizeWithStreaming()
+    {
+        initializeContext();
+        enableStreaming();
+
+        assertEquals("Expected the number returned by size() to be the same as in the records response.",
+                     3,
+                     testedObject.extractor.size());
+    }
+
+
+    /**
+     * Tests if setting the "dateWindows" parameter splits the harvested date range
+     * into the specified number of partitions, while keeping the configured borders
+     * of the date range.
+     */
+    @Test
+    public void testDateWindowPartitions()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.FROM_KEY, FROM_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.UNTIL_KEY, UNTIL_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.DATE_WINDOWS_KEY, DATE_WINDOWS_PARAMETER_VALUE);
+
+        final List<OaiPmhPartition> partitions = testedObject.getPartitions();
+
+        assertEquals("Expected the number of partitions to be the same as the 'dateWindows' parameter.",
+                     Integer.parseInt(DATE_WINDOWS_PARAMETER_VALUE),
+                     partitions.size());
+
+        assertTrue("Expected the first partition to start at the 'from' parameter.",
+                   partitions.get(0).getRecordsUrl().contains(OaiPmhConstants.DATE_FROM_QUERY + FROM_PARAMETER_VALUE));
+
+        assertTrue("Expected the last partition to end at the 'until' parameter.",
+                   partitions.get(partitions.size() - 1).getRecordsUrl().contains(OaiPmhConstants.DATE_TO_QUERY + UNTIL_PARAMETER_VALUE));
+    }
+
+
+    /**
+     * Tests if setting the "shardBySets" parameter creates one partition per set
+     * that is listed by the repository, omitting subsets.
+     */
+    @Test
+    public void testSetPartitions()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.SHARD_BY_SETS_KEY, SHARD_BY_SETS_PARAMETER_VALUE);
+
+        final List<OaiPmhPartition> partitions = testedObject.getPartitions();
+
+        assertEquals("Expected one partition per top-level set of the ListSets response.",
+                     TOP_LEVEL_SET_COUNT,
+                     partitions.size());
+
+        assertTrue("Expected the partitions to harvest a single set.",
+                   partitions.get(0).getRecordsUrl().contains(OaiPmhConstants.SET_QUERY + SET_PARAMETER_VALUE));
+    }
+
+
+    /**
+     * Tests if harvesting multiple partitions asynchronously extracts
+     * the same records as harvesting them on partition threads.
+     */
+    @Test
+    public void testAsyncPartitions()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.SHARD_BY_SETS_KEY, SHARD_BY_SETS_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+        final List<String> expectedIds = extractIdentifiers();
+
+        setParameter(OaiPmhParameterConstants.ASYNC_EXTRACTION_KEY, ASYNC_EXTRACTION_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+        final List<String> asyncIds = extractIdentifiers();
+
+        assertEquals("Expected the asynchronous harvest to extract the same records.",
+                     expectedIds,
+                     asyncIds);
+    }
+
+
+    /**
+     * Extracts all records and returns their identifiers in alphabetical order,
+     * because partitions may be harvested in any order.
+     *
+     * @return the sorted identifiers of all extracted records
+     */
+    private List<String> extractIdentifiers()
+    {
+        final List<String> identifiers = new ArrayList<>();
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        while (extractorIter.hasNext())
+            identifiers.add(HtmlUtils.getString(extractorIter.next(), OaiPmhConstants.HEADER_IDENTIFIER));
+
+        Collections.sort(identifiers);
+        return identifiers;
+    }
+
+
+    /**
+     * Sets a parameter of the tested ETL.
+     *
+     * @param key the key of the parameter, without the ETL name
+     * @param value the new value of the parameter
+     */
+    private void setParameter(final String key, final String value)
+    {
+        final String compositeKey = String.format(
+                                        ParameterConstants.COMPOSITE_KEY,
+                                        testedObject.getName(),
+                                        key);
+        config.setParameter(compositeKey, value);
+    }
+
+
+    /**
+     * Sets the "streamRecords" parameter and re-initializes the extractor.
+     */
+    private void enableStreaming()
+    {
+        final String streamParamKey = String.format(
+                                          ParameterConstants.COMPOSITE_KEY,
+                                          testedObject.getName(),
+                                          OaiPmhParameterConstants.STREAM_RECORDS_KEY);
+        config.setParameter(streamParamKey, STREAM_RECORDS_PARAMETER_VALUE);
+
+        // apply changes
+        testedObject.extractor.init(testedObject);
+    }
+
+
+    /**
+     * Sets the "prefetchDepth" parameter and re-initializes the extractor.
+     */
+    private void enablePrefetching()
+    {
+        final String prefetchParamKey = String.format(
+                                            ParameterConstants.COMPOSITE_KEY,
+                                            testedObject.getName(),
+                                            OaiPmhParameterConstants.PREFETCH_DEPTH_KEY);
+        config.setParameter(prefetchParamKey, PREFETCH_DEPTH_PARAMETER_VALUE);
+
+        // apply changes
+        testedObject.extractor.init(testedObject);
+    }
+
+
     /**
      * Tests if setting the "from" parameter results in extracting
      * a different element.
@@ -286,4 +584,297 @@ public class OaiPmhETLTest extends AbstractObjectUnitTest<OaiPmhETL>
         assertNotNull("Expected an element to be retrievable after setting the 'set' parameter.",
                       fromElement);
     }
+
+
+    /**
+     * Tests if records are retrieved via GetRecord when the "listIdentifiers" parameter is set,
+     * if deleted headers and identifiers that no longer exist become deleted records,
+     * and if headers without an identifier are skipped.
+     */
+    @Test
+    public void testListIdentifiers()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.LIST_IDENTIFIERS_KEY, LIST_IDENTIFIERS_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+
+        final List<Element> records = new ArrayList<>();
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        while (extractorIter.hasNext())
+            records.add(extractorIter.next());
+
+        assertEquals("Expected one record per header with an identifier, in the order of the headers.",
+                     3,
+                     records.size());
+
+        assertNotNull("Expected the metadata of an existing record to be retrieved via GetRecord.",
+                      records.get(0).selectFirst(OaiPmhConstants.RECORD_METADATA));
+
+        assertEquals("Expected a deleted header to be extracted as a deleted record.",
+                     DELETED_ELEMENT_ID,
+                     HtmlUtils.getString(records.get(1), OaiPmhConstants.HEADER_IDENTIFIER));
+        assertEquals("Expected a deleted header to be extracted as a deleted record.",
+                     OaiPmhConstants.HEADER_STATUS_ATTRIBUTE_DELETED,
+                     records.get(1).selectFirst(OaiPmhConstants.RECORD_HEADER).attr(OaiPmhConstants.HEADER_STATUS_ATTRIBUTE));
+
+        assertEquals("Expected a record whose identifier does not exist to be extracted as a deleted record.",
+                     VANISHED_ELEMENT_ID,
+                     HtmlUtils.getString(records.get(2), OaiPmhConstants.HEADER_IDENTIFIER));
+        assertEquals("Expected a record whose identifier does not exist to be extracted as a deleted record.",
+                     OaiPmhConstants.HEADER_STATUS_ATTRIBUTE_DELETED,
+                     records.get(2).selectFirst(OaiPmhConstants.RECORD_HEADER).attr(OaiPmhConstants.HEADER_STATUS_ATTRIBUTE));
+    }
+
+
+    /**
+     * Tests if a GetRecord response that neither contains the record, nor reports that
+     * its identifier does not exist, fails the extraction instead of deleting the record.
+     */
+    @Test(expected = ExtractorException.class)
+    public void testListIdentifiersWithMissingRecord()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.LIST_IDENTIFIERS_KEY, LIST_IDENTIFIERS_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.SET_KEY, SET_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+
+        final Iterator<Element> extractorIter = testedObject.extractor.extract();
+
+        while (extractorIter.hasNext())
+            extractorIter.next();
+    }
+
+
+    /**
+     * Tests if an incremental harvest starts at the high-water mark of the
+     * previous harvest minus the "incrementalOverlap" parameter.
+     */
+    @Test
+    public void testIncrementalOverlap()
+    {
+        initializeContext();
+        saveHighWaterMark(HIGH_WATER_MARK_DATESTAMP, DatestampGranularity.SECOND);
+
+        setParameter(OaiPmhParameterConstants.FROM_KEY, FROM_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_OVERLAP_KEY, "3600");
+
+        assertEquals("Expected the harvest to start one overlap before the high-water mark.",
+                     "2018-05-05T11:00:00Z",
+                     getHarvestedFrom());
+    }
+
+
+    /**
+     * Tests if the start of an incremental harvest is truncated to the
+     * datestamp granularity of the repository.
+     */
+    @Test
+    public void testIncrementalGranularity()
+    {
+        initializeContext();
+        saveHighWaterMark(HIGH_WATER_MARK_DATESTAMP, DatestampGranularity.DAY);
+
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_OVERLAP_KEY, "0");
+
+        assertEquals("Expected the start of the harvest to be truncated to whole days.",
+                     "2018-05-05",
+                     getHarvestedFrom());
+
+        // 13 hours before the high-water mark lie on the previous day
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_OVERLAP_KEY, "46800");
+
+        assertEquals("Expected the overlap to be subtracted before the start of the harvest is truncated.",
+                     "2018-05-04",
+                     getHarvestedFrom());
+    }
+
+
+    /**
+     * Tests if the "from" parameter is used if it is later than the start of an incremental harvest.
+     */
+    @Test
+    public void testIncrementalWithLaterFromParameter()
+    {
+        initializeContext();
+        saveHighWaterMark(HIGH_WATER_MARK_DATESTAMP, DatestampGranularity.SECOND);
+
+        setParameter(OaiPmhParameterConstants.FROM_KEY, LATER_FROM_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+
+        assertEquals("Expected the later 'from' parameter to be used.",
+                     LATER_FROM_PARAMETER_VALUE,
+                     getHarvestedFrom());
+    }
+
+
+    /**
+     * Tests if an incremental harvest falls back to the "from" parameter if there is
+     * no high-water mark, or only one of a harvest with different parameters.
+     */
+    @Test
+    public void testIncrementalWithoutHighWaterMark()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.FROM_KEY, FROM_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+
+        assertEquals("Expected the 'from' parameter to be used if there is no high-water mark.",
+                     FROM_PARAMETER_VALUE,
+                     getHarvestedFrom());
+
+        saveHighWaterMark(HIGH_WATER_MARK_DATESTAMP, DatestampGranularity.SECOND);
+        setParameter(OaiPmhParameterConstants.SET_KEY, SET_PARAMETER_VALUE);
+
+        assertEquals("Expected the high-water mark of a different set to be ignored.",
+                     FROM_PARAMETER_VALUE,
+                     getHarvestedFrom());
+    }
+
+
+    /**
+     * Tests if an incremental harvest falls back to the "from" parameter if the
+     * high-water mark file cannot be parsed, or contains an invalid datestamp.
+     */
+    @Test
+    public void testIncrementalWithCorruptHighWaterMark()
+    {
+        initializeContext();
+
+        setParameter(OaiPmhParameterConstants.FROM_KEY, FROM_PARAMETER_VALUE);
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+
+        final File cacheFolder = EventSystem.sendSynchronousEvent(new GetCacheFolderEvent());
+        final File highWaterMarkFile = new File(
+            cacheFolder,
+            String.format(OaiPmhConstants.HIGH_WATER_MARK_FILE_PATH, testedObject.getName()));
+        new DiskIO(GsonUtils.createGerdiDocumentGsonBuilder().create(), StandardCharsets.UTF_8)
+        .writeStringToFile(highWaterMarkFile, "{\"recordsUrl\": ");
+
+        assertEquals("Expected the 'from' parameter to be used if the high-water mark cannot be parsed.",
+                     FROM_PARAMETER_VALUE,
+                     getHarvestedFrom());
+
+        saveHighWaterMark("yesterday", DatestampGranularity.SECOND);
+
+        assertEquals("Expected the 'from' parameter to be used if the high-water mark has an invalid datestamp.",
+                     FROM_PARAMETER_VALUE,
+                     getHarvestedFrom());
+    }
+
+
+    /**
+     * Tests if the latest datestamp of a successful incremental harvest is saved as high-water mark.
+     */
+    @Test
+    public void testHighWaterMarkAfterSuccessfulHarvest()
+    {
+        initializeContext();
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+
+        extractIdentifiers();
+        testedObject.onHarvestFinished(new HarvestFinishedEvent(true, null));
+
+        final HighWaterMark highWaterMark = getHighWaterMarkFile().load();
+
+        assertNotNull("Expected a high-water mark to be saved after a successful harvest.",
+                      highWaterMark);
+        assertEquals("Expected the latest datestamp of all records to be saved.",
+                     ((OaiPmhRecordExtractor) testedObject.extractor).getLatestDatestamp(),
+                     highWaterMark.getDatestamp());
+    }
+
+
+    /**
+     * Tests if no high-water mark is saved after a failed incremental harvest,
+     * so that the records of the failed harvest are harvested again.
+     */
+    @Test
+    public void testNoHighWaterMarkAfterFailedHarvest()
+    {
+        initializeContext();
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+
+        extractIdentifiers();
+        testedObject.setHealth(ETLHealth.LOADING_FAILED);
+        testedObject.onHarvestFinished(new HarvestFinishedEvent(false, null));
+
+        assertNull("Expected no high-water mark to be saved after a failed harvest.",
+                   getHighWaterMarkFile().load());
+    }
+
+
+    /**
+     * Tests if no high-water mark is saved after an aborted incremental harvest,
+     * because the records that were not extracted may be older than the extracted ones.
+     */
+    @Test
+    public void testNoHighWaterMarkAfterAbortedHarvest()
+    {
+        initializeContext();
+        setParameter(OaiPmhParameterConstants.INCREMENTAL_KEY, INCREMENTAL_PARAMETER_VALUE);
+        testedObject.extractor.init(testedObject);
+
+        // abort after the first record
+        testedObject.extractor.extract().next();
+        testedObject.onHarvestFinished(new HarvestFinishedEvent(false, null));
+
+        assertNull("Expected no high-water mark to be saved after an aborted harvest.",
+                   getHighWaterMarkFile().load());
+    }
+
+
+    /**
+     * Saves a high-water mark for the repository, metadata prefix and set of the tested ETL.
+     *
+     * @param datestamp the latest datestamp of the previous harvest
+     * @param granularity the datestamp granularity of the repository
+     */
+    private void saveHighWaterMark(final String datestamp, final DatestampGranularity granularity)
+    {
+        getHighWaterMarkFile().save(new HighWaterMark(HIGH_WATER_MARK_RECORDS_URL, datestamp, granularity));
+    }
+
+
+    /**
+     * Returns the file in which the tested ETL saves its high-water mark.
+     *
+     * @return the high-water mark file of the tested ETL
+     */
+    private AtomicJsonFile<HighWaterMark> getHighWaterMarkFile()
+    {
+        return new AtomicJsonFile<>(
+                   String.format(OaiPmhConstants.HIGH_WATER_MARK_FILE_PATH, testedObject.getName()),
+                   HighWaterMark.class);
+    }
+
+
+    /**
+     * Retrieves the value of the "from" query parameter of the ListRecords URL of the tested ETL.
+     *
+     * @return the earliest datestamp of the harvested records, or null if the harvest
+     *          starts at the earliest datestamp of the repository
+     */
+    private String getHarvestedFrom()
+    {
+        final String recordsUrl = testedObject.getListRecordsUrl();
+        final int fromIndex = recordsUrl.indexOf(OaiPmhConstants.DATE_FROM_QUERY);
+
+        if (fromIndex == -1)
+            return null;
+
+        final int fromStart = fromIndex + OaiPmhConstants.DATE_FROM_QUERY.length();
+        final int fromEnd = recordsUrl.indexOf('&', fromStart);
+
+        return fromEnd == -1
+               ? recordsUrl.substring(fromStart)
+               : recordsUrl.substring(fromStart, fromEnd);
+    }
 }
@@ -0,0 +1,51 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.constants;
+
+import static org.junit.Assert.assertNotSame;
+
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.transformers.AbstractIteratorTransformer;
+import de.gerdiproject.json.datacite.DataCiteJson;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhParameterConstants}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhParameterConstantsTest
+{
+    /**
+     * Tests if every metadata schema creates a new transformer for each ETL,
+     * so that ETLs do not overwrite the repository information of each other.
+     */
+    @Test
+    public void testTransformersAreNotShared()
+    {
+        for (final Entry<String, Supplier<AbstractIteratorTransformer<Element, DataCiteJson>>> entry
+             : OaiPmhParameterConstants.METADATA_SCHEMA_MAP.entrySet()) {
+            assertNotSame("Expected a new transformer for the schema " + entry.getKey(),
+                          entry.getValue().get(),
+                          entry.getValue().get());
+        }
+    }
+}
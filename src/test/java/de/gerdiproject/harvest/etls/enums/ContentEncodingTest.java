@@ -0,0 +1,155 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.enums;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ContentEncoding}.
+ *
+ * @author Robin Weiss
+ */
+public class ContentEncodingTest
+{
+    private static final String RESPONSE = "<OAI-PMH><ListRecords><record/></ListRecords></OAI-PMH>";
+
+
+    /**
+     * Tests if gzip compressed data is decoded correctly.
+     *
+     * @throws IOException if the data cannot be decoded
+     */
+    @Test
+    public void testGzip() throws IOException
+    {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        try (OutputStream encoder = new GZIPOutputStream(encoded)) {
+            encoder.write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("Expected gzip compressed data to be decoded to its original content.",
+                     RESPONSE,
+                     decode(ContentEncoding.GZIP, encoded.toByteArray()));
+    }
+
+
+    /**
+     * Tests if deflate compressed data with a zlib header is decoded correctly.
+     *
+     * @throws IOException if the data cannot be decoded
+     */
+    @Test
+    public void testZlibDeflate() throws IOException
+    {
+        assertEquals("Expected zlib compressed data to be decoded to its original content.",
+                     RESPONSE,
+                     decode(ContentEncoding.DEFLATE, deflate(false)));
+    }
+
+
+    /**
+     * Tests if deflate compressed data without a zlib header is decoded correctly.
+     *
+     * @throws IOException if the data cannot be decoded
+     */
+    @Test
+    public void testRawDeflate() throws IOException
+    {
+        assertEquals("Expected raw deflate compressed data to be decoded to its original content.",
+                     RESPONSE,
+                     decode(ContentEncoding.DEFLATE, deflate(true)));
+    }
+
+
+    /**
+     * Tests if the values of "compression" elements and HTTP headers are mapped correctly.
+     */
+    @Test
+    public void testFromValue()
+    {
+        assertEquals("Expected the value to be case-insensitive.",
+                     ContentEncoding.GZIP,
+                     ContentEncoding.fromValue(" GZIP "));
+
+        assertNull("Expected the 'identity' encoding to be mapped to null.",
+                   ContentEncoding.fromValue("identity"));
+    }
+
+
+    /**
+     * Compresses the test response with the deflate algorithm.
+     *
+     * @param isRaw if true, the zlib header and checksum are omitted
+     *
+     * @throws IOException if the data cannot be compressed
+     *
+     * @return the compressed test response
+     */
+    private static byte[] deflate(final boolean isRaw) throws IOException
+    {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, isRaw);
+
+        try (OutputStream encoder = new DeflaterOutputStream(encoded, deflater)) {
+            encoder.write(RESPONSE.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            deflater.end();
+        }
+
+        return encoded.toByteArray();
+    }
+
+
+    /**
+     * Decodes compressed data to a string.
+     *
+     * @param encoding the encoding that was used to compress the data
+     * @param encodedData the compressed data
+     *
+     * @throws IOException if the data cannot be decoded
+     *
+     * @return the decoded string
+     */
+    private static String decode(final ContentEncoding encoding, final byte[] encodedData) throws IOException
+    {
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+
+        try (InputStream decoder = encoding.decode(new ByteArrayInputStream(encodedData))) {
+            final byte[] buffer = new byte[1024];
+            int readBytes;
+
+            while ((readBytes = decoder.read(buffer)) != -1)
+                decoded.write(buffer, 0, readBytes);
+        }
+
+        return new String(decoded.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.enums;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain DatestampGranularity}.
+ *
+ * @author Robin Weiss
+ */
+public class DatestampGranularityTest
+{
+    private static final String DAY_DATESTAMP = "2000-01-02";
+    private static final String SECOND_DATESTAMP = "2000-01-02T13:37:00Z";
+
+
+    /**
+     * Tests if datestamps that are finer than the granularity are truncated.
+     */
+    @Test
+    public void testTruncateFinerDatestamp()
+    {
+        assertEquals("Expected a second datestamp to be truncated to its day.",
+                     DAY_DATESTAMP,
+                     DatestampGranularity.DAY.truncate(SECOND_DATESTAMP));
+    }
+
+
+    /**
+     * Tests if datestamps that are not finer than the granularity remain unchanged.
+     */
+    @Test
+    public void testTruncateCoarserDatestamp()
+    {
+        assertEquals("Expected a day datestamp to remain unchanged.",
+                     DAY_DATESTAMP,
+                     DatestampGranularity.SECOND.truncate(DAY_DATESTAMP));
+
+        assertEquals("Expected a second datestamp to remain unchanged.",
+                     SECOND_DATESTAMP,
+                     DatestampGranularity.SECOND.truncate(SECOND_DATESTAMP));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.event.EventSystem;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhCheckpointStore}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhCheckpointStoreTest
+{
+    private static final String ETL_NAME = "CheckpointTestETL";
+    private static final String RECORDS_URL = "http://www.mo.ck/oai?verb=ListRecords&metadataPrefix=oai_dc";
+    private static final String RESUMPTION_URL_FORMAT = "http://www.mo.ck/oai?verb=ListRecords&resumptionToken=%d";
+    private static final int PAGE_SIZE = 10;
+    private static final int CHECKPOINT_LAG = 15;
+
+    @Rule
+    public final TemporaryFolder cacheFolder = new TemporaryFolder();
+
+
+    /**
+     * Provides a cache folder for the checkpoint files.
+     */
+    @Before
+    public void before()
+    {
+        EventSystem.addSynchronousListener(GetCacheFolderEvent.class, cacheFolder::getRoot);
+    }
+
+
+    /**
+     * Removes the cache folder provider.
+     */
+    @After
+    public void after()
+    {
+        EventSystem.removeSynchronousListener(GetCacheFolderEvent.class);
+    }
+
+
+    /**
+     * Tests if a checkpoint is not saved, before a whole page and
+     * the checkpoint lag of records were emitted after it.
+     */
+    @Test
+    public void testCheckpointLag()
+    {
+        final OaiPmhCheckpointStore store = new OaiPmhCheckpointStore(ETL_NAME, CHECKPOINT_LAG);
+
+        store.save(createCheckpoint(1));
+        store.save(createCheckpoint(2));
+
+        assertNull("Expected no checkpoint to be saved, while its records may not be loaded yet.",
+                   store.load(RECORDS_URL));
+
+        store.save(createCheckpoint(3));
+
+        assertEquals("Expected the checkpoint to be saved, after enough records were emitted after it.",
+                     createCheckpoint(1),
+                     store.load(RECORDS_URL));
+    }
+
+
+    /**
+     * Tests if the most recent checkpoint is never saved, even if the checkpoint lag is zero.
+     */
+    @Test
+    public void testPageLag()
+    {
+        final OaiPmhCheckpointStore store = new OaiPmhCheckpointStore(ETL_NAME, 0);
+
+        store.save(createCheckpoint(1));
+
+        assertNull("Expected the most recent checkpoint not to be saved.",
+                   store.load(RECORDS_URL));
+
+        store.save(createCheckpoint(2));
+
+        assertEquals("Expected the checkpoint to be saved, after another page was emitted.",
+                     createCheckpoint(1),
+                     store.load(RECORDS_URL));
+    }
+
+
+    /**
+     * Tests if a saved checkpoint can be resumed after a restart,
+     * and only by a harvest with the same records URL.
+     */
+    @Test
+    public void testResumingAfterRestart()
+    {
+        final OaiPmhCheckpointStore store = new OaiPmhCheckpointStore(ETL_NAME, CHECKPOINT_LAG);
+
+        for (int page = 1; page <= 5; page++)
+            store.save(createCheckpoint(page));
+
+        final OaiPmhCheckpointStore restartedStore = new OaiPmhCheckpointStore(ETL_NAME, CHECKPOINT_LAG);
+
+        assertEquals("Expected the last saved checkpoint to be resumed after a restart.",
+                     createCheckpoint(3),
+                     restartedStore.load(RECORDS_URL));
+        assertNull("Expected the checkpoint not to be resumed by a harvest with different parameters.",
+                   restartedStore.load(RECORDS_URL + "&set=other"));
+    }
+
+
+    /**
+     * Tests if a completed harvest deletes its checkpoint.
+     */
+    @Test
+    public void testDeletion()
+    {
+        final OaiPmhCheckpointStore store = new OaiPmhCheckpointStore(ETL_NAME, 0);
+
+        for (int page = 1; page <= 3; page++)
+            store.save(createCheckpoint(page));
+
+        store.delete();
+
+        assertNull("Expected no checkpoint to be resumed after the harvest was completed.",
+                   new OaiPmhCheckpointStore(ETL_NAME, 0).load(RECORDS_URL));
+    }
+
+
+    /**
+     * Creates the checkpoint that is offered after a page of records was emitted.
+     *
+     * @param page the number of emitted pages
+     *
+     * @return the checkpoint after the page
+     */
+    private OaiPmhCheckpoint createCheckpoint(final int page)
+    {
+        return new OaiPmhCheckpoint(
+                   RECORDS_URL,
+                   String.format(RESUMPTION_URL_FORMAT, page),
+                   String.format("2018-01-%02dT00:00:00Z", page),
+                   page * PAGE_SIZE);
+    }
+}
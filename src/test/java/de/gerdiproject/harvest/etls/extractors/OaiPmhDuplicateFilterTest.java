@@ -0,0 +1,151 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.utils.HtmlUtils;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhDuplicateFilter}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhDuplicateFilterTest
+{
+    private static final int RECENT_KEY_COUNT = 2;
+
+
+    /**
+     * Tests if records with the same identifier and datestamp are only iterated once.
+     */
+    @Test
+    public void testDuplicatesAreSkipped()
+    {
+        final List<Element> records = Arrays.asList(
+                                          createRecord("first", "2000-01-01"),
+                                          createRecord("second", "2000-01-02"),
+                                          createRecord("second", "2000-01-02"),
+                                          createRecord("first", "2000-01-01"));
+
+        assertEquals("Expected duplicates to be skipped.",
+                     Arrays.asList("first", "second"),
+                     iterateIdentifiers(new OaiPmhDuplicateFilter(records.iterator(), RECENT_KEY_COUNT)));
+    }
+
+
+    /**
+     * Tests if updated records, which have the same identifier but a later datestamp, are not skipped.
+     */
+    @Test
+    public void testUpdatedRecordsAreKept()
+    {
+        final List<Element> records = Arrays.asList(
+                                          createRecord("first", "2000-01-01"),
+                                          createRecord("first", "2000-02-02"));
+
+        assertEquals("Expected records with different datestamps not to be skipped.",
+                     Arrays.asList("first", "first"),
+                     iterateIdentifiers(new OaiPmhDuplicateFilter(records.iterator(), RECENT_KEY_COUNT)));
+    }
+
+
+    /**
+     * Tests if duplicates of records that are no longer remembered exactly are kept,
+     * rather than risking to skip new records.
+     */
+    @Test
+    public void testOldDuplicatesAreKept()
+    {
+        final List<Element> records = Arrays.asList(
+                                          createRecord("first", "2000-01-01"),
+                                          createRecord("second", "2000-01-02"),
+                                          createRecord("third", "2000-01-03"),
+                                          createRecord("first", "2000-01-01"));
+
+        assertEquals("Expected duplicates of records that were not remembered exactly to be kept.",
+                     Arrays.asList("first", "second", "third", "first"),
+                     iterateIdentifiers(new OaiPmhDuplicateFilter(records.iterator(), RECENT_KEY_COUNT)));
+    }
+
+
+    /**
+     * Tests if duplicates of records that belong to several sets are skipped,
+     * even if they are no longer among the most recently iterated records.
+     */
+    @Test
+    public void testOverlappingSetDuplicatesAreSkipped()
+    {
+        final List<Element> records = Arrays.asList(
+                                          createRecord("first", "2000-01-01", "setA", "setB"),
+                                          createRecord("second", "2000-01-02", "setA"),
+                                          createRecord("third", "2000-01-03", "setA"),
+                                          createRecord("first", "2000-01-01", "setA", "setB"));
+
+        assertEquals("Expected duplicates of records that belong to several sets to be skipped.",
+                     Arrays.asList("first", "second", "third"),
+                     iterateIdentifiers(new OaiPmhDuplicateFilter(records.iterator(), RECENT_KEY_COUNT)));
+    }
+
+
+    /**
+     * Iterates through records and collects their identifiers.
+     *
+     * @param filter the iterated records
+     *
+     * @return the identifiers of the iterated records
+     */
+    private static List<String> iterateIdentifiers(final OaiPmhDuplicateFilter filter)
+    {
+        final List<String> identifiers = new ArrayList<>();
+
+        while (filter.hasNext())
+            identifiers.add(HtmlUtils.getString(filter.next(), "identifier"));
+
+        return identifiers;
+    }
+
+
+    /**
+     * Creates a simple record with an identifier, a datestamp, and optional sets.
+     *
+     * @param identifier the identifier of the record
+     * @param datestamp the datestamp of the record
+     * @param setSpecs the sets to which the record belongs
+     *
+     * @return a record element
+     */
+    private static Element createRecord(final String identifier, final String datestamp, final String... setSpecs)
+    {
+        final Element record = new Element("record");
+        final Element header = record.appendElement("header");
+        header.appendElement("identifier").text(identifier);
+        header.appendElement("datestamp").text(datestamp);
+
+        for (final String setSpec : setSpecs)
+            header.appendElement("setSpec").text(setSpec);
+
+        return record;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhRecordBuffer}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhRecordBufferTest
+{
+    private static final int CAPACITY = 2;
+    private static final long WAIT_MILLISECONDS = 200;
+
+
+    /**
+     * Tests if records are taken in the same order in which they were added.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testOrder() throws InterruptedException
+    {
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 0);
+        final Element first = createRecord("first");
+        final Element second = createRecord("second");
+
+        buffer.put(first);
+        buffer.put(second);
+
+        assertEquals("Expected the first added record to be taken first.",
+                     first,
+                     buffer.take());
+        assertEquals("Expected the second added record to be taken second.",
+                     second,
+                     buffer.take());
+    }
+
+
+    /**
+     * Tests if adding a record to a full buffer blocks until a record is taken.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBlockingWhenFull() throws InterruptedException
+    {
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 0);
+        final CountDownLatch putLatch = new CountDownLatch(1);
+
+        for (int i = 0; i < CAPACITY; i++)
+            buffer.put(createRecord(String.valueOf(i)));
+
+        final Thread producer = new Thread(() -> {
+            try {
+                buffer.put(createRecord("blocked"));
+                putLatch.countDown();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertFalse("Expected adding a record to a full buffer to block.",
+                    putLatch.await(WAIT_MILLISECONDS, TimeUnit.MILLISECONDS));
+
+        buffer.take();
+
+        assertTrue("Expected a blocked producer to continue after a record was taken.",
+                   putLatch.await(WAIT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        producer.join();
+    }
+
+
+    /**
+     * Tests if polling returns null instead of waiting while the buffer is empty.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testPoll() throws InterruptedException
+    {
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 0);
+        final Element record = createRecord("record");
+
+        assertNull("Expected null to be polled from an empty buffer.",
+                   buffer.poll());
+
+        buffer.put(record);
+
+        assertEquals("Expected the added record to be polled.",
+                     record,
+                     buffer.poll());
+        assertEquals("Expected the buffer to be empty after polling its only record.",
+                     0,
+                     buffer.size());
+    }
+
+
+    /**
+     * Tests if the byte capacity limits the buffer, but still accepts a single
+     * record that exceeds it on its own.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testByteCapacity() throws InterruptedException
+    {
+        final Element record = createRecord("record");
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 1);
+
+        buffer.put(record);
+
+        assertEquals("Expected the buffer to be full after adding a record that exceeds the byte capacity.",
+                     1.0,
+                     buffer.getFillLevel(),
+                     0.0);
+        assertEquals("Expected the buffered bytes to be the estimated size of the record.",
+                     OaiPmhRecordBuffer.estimateSize(record),
+                     buffer.getBufferedBytes());
+    }
+
+
+    /**
+     * Tests if taking a record from a closed, empty buffer returns null.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testClose() throws InterruptedException
+    {
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 0);
+        buffer.put(createRecord("remaining"));
+        buffer.close();
+
+        buffer.take();
+
+        assertNull("Expected null to be taken from a closed and empty buffer.",
+                   buffer.take());
+        assertFalse("Expected records to be rejected by a closed buffer.",
+                    buffer.put(createRecord("rejected")));
+    }
+
+
+    /**
+     * Tests if the error of a failed producer is thrown when taking a record.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFailure() throws InterruptedException
+    {
+        final OaiPmhRecordBuffer buffer = new OaiPmhRecordBuffer(CAPACITY, 0);
+        buffer.put(createRecord("discarded"));
+        buffer.fail(new IllegalStateException());
+
+        buffer.take();
+    }
+
+
+    /**
+     * Creates a simple record with an identifier.
+     *
+     * @param identifier the identifier of the record
+     *
+     * @return a record element
+     */
+    private static Element createRecord(final String identifier)
+    {
+        final Element record = new Element("record");
+        record.appendElement("header").appendElement("identifier").text(identifier);
+        return record;
+    }
+}
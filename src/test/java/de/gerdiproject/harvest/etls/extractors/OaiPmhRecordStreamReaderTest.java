@@ -0,0 +1,294 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.extractors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhRecordStreamReader}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhRecordStreamReaderTest
+{
+    private static final String BASE_URI = "http://www.mo.ck/oai?verb=ListRecords&metadataPrefix=oai_dc";
+    private static final String RESPONSE_FORMAT =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\"><ListRecords>%s</ListRecords></OAI-PMH>";
+    private static final String RECORD_FORMAT =
+        "<record><header><identifier>%s</identifier></header><metadata>%s</metadata></record>";
+
+
+    /**
+     * Tests if escaped characters of texts and attributes are unescaped
+     * the same way as if the whole response was parsed by Jsoup.
+     */
+    @Test
+    public void testEscapedCharacters()
+    {
+        final String metadata =
+            "<oai_dc:dc><dc:title xml:lang=\"a &amp; b &lt; c &quot;d&quot;\">"
+            + "a &amp; b &lt; c &gt; \"d\"</dc:title></oai_dc:dc>";
+
+        final Element record = readSingleRecord(String.format(RECORD_FORMAT, "escaped", metadata));
+        final Element title = record.selectFirst("dc|title");
+
+        assertEquals("Expected escaped characters of texts to be unescaped.",
+                     "a & b < c > \"d\"",
+                     title.text());
+        assertEquals("Expected escaped characters of attributes to be unescaped.",
+                     "a & b < c \"d\"",
+                     title.attr("xml:lang"));
+    }
+
+
+    /**
+     * Tests if self-closing elements remain empty and do not enclose their subsequent siblings.
+     */
+    @Test
+    public void testSelfClosingElements()
+    {
+        final String metadata = "<oai_dc:dc><dc:subject /><dc:title>Title</dc:title></oai_dc:dc>";
+
+        final Element record = readSingleRecord(String.format(RECORD_FORMAT, "selfClosing", metadata));
+        final Element subject = record.selectFirst("dc|subject");
+
+        assertEquals("Expected a self-closing element to remain empty.",
+                     0,
+                     subject.childNodeSize());
+        assertEquals("Expected the sibling of a self-closing element not to become its child.",
+                     subject.parent(),
+                     record.selectFirst("dc|title").parent());
+    }
+
+
+    /**
+     * Tests if the text of CDATA sections is kept, and escaped when the record is serialized.
+     */
+    @Test
+    public void testCData()
+    {
+        final String metadata = "<oai_dc:dc><dc:description><![CDATA[a < b & <i>c</i>]]></dc:description></oai_dc:dc>";
+
+        final Element record = readSingleRecord(String.format(RECORD_FORMAT, "cdata", metadata));
+        final Element description = record.selectFirst("dc|description");
+
+        assertEquals("Expected the text of a CDATA section to be kept as text.",
+                     "a < b & <i>c</i>",
+                     description.text());
+        assertEquals("Expected markup within a CDATA section not to become elements.",
+                     0,
+                     description.children().size());
+    }
+
+
+    /**
+     * Tests if the resumption token and the complete list size are available
+     * after all records were read.
+     */
+    @Test
+    public void testResumptionToken()
+    {
+        final String response = String.format(
+                                    RESPONSE_FORMAT,
+                                    String.format(RECORD_FORMAT, "first", "")
+                                    + String.format(RECORD_FORMAT, "second", "")
+                                    + "<resumptionToken completeListSize=\"42\" cursor=\"0\">token/1</resumptionToken>");
+
+        final OaiPmhRecordStreamReader reader = createReader(new CloseTrackingInputStream(response));
+
+        assertEquals("Expected the first record to be read.",
+                     "first",
+                     reader.next().selectFirst(OaiPmhConstants.HEADER_IDENTIFIER).text());
+        assertEquals("Expected the second record to be read.",
+                     "second",
+                     reader.next().selectFirst(OaiPmhConstants.HEADER_IDENTIFIER).text());
+        assertFalse("Expected no more records.",
+                    reader.hasNext());
+
+        assertEquals("Expected the resumption token to be read after all records.",
+                     "token/1",
+                     reader.getResumptionToken());
+        assertEquals("Expected the complete list size of the resumption token to be read.",
+                     42,
+                     reader.getCompleteListSize());
+        assertNull("Expected no error code.",
+                   reader.getErrorCode());
+        assertTrue("Expected the reader to be finished.",
+                   reader.isFinished());
+    }
+
+
+    /**
+     * Tests if the code of an OAI-PMH error is read from a response without records.
+     */
+    @Test
+    public void testErrorElement()
+    {
+        final String response = "<OAI-PMH><error code=\"noRecordsMatch\">No records match.</error></OAI-PMH>";
+        final CloseTrackingInputStream inputStream = new CloseTrackingInputStream(response);
+        final OaiPmhRecordStreamReader reader = createReader(inputStream);
+
+        assertFalse("Expected no records in an error response.",
+                    reader.hasNext());
+        assertEquals("Expected the error code to be read.",
+                     OaiPmhConstants.NO_RECORDS_MATCH_CODE,
+                     reader.getErrorCode());
+        assertNull("Expected no resumption token in an error response.",
+                   reader.getResumptionToken());
+        assertEquals("Expected an unknown list size in an error response.",
+                     -1,
+                     reader.getCompleteListSize());
+        assertTrue("Expected the input stream to be closed after the response was read.",
+                   inputStream.isClosed());
+    }
+
+
+    /**
+     * Tests if a truncated response causes an {@linkplain ExtractorException}
+     * and closes the input stream.
+     */
+    @Test
+    public void testTruncatedStream()
+    {
+        final String response = String.format(RESPONSE_FORMAT, String.format(RECORD_FORMAT, "complete", ""))
+                                .replace("</ListRecords></OAI-PMH>", "<record><header><identif");
+        final CloseTrackingInputStream inputStream = new CloseTrackingInputStream(response);
+        final OaiPmhRecordStreamReader reader = createReader(inputStream);
+
+        assertEquals("Expected the complete record to be read.",
+                     "complete",
+                     reader.next().selectFirst(OaiPmhConstants.HEADER_IDENTIFIER).text());
+
+        try {
+            reader.hasNext();
+            fail("Expected an ExtractorException for a truncated response.");
+        } catch (final ExtractorException e) {
+            assertTrue("Expected the input stream to be closed after the failure.",
+                       inputStream.isClosed());
+            assertTrue("Expected the reader to be finished after the failure.",
+                       reader.isFinished());
+        }
+    }
+
+
+    /**
+     * Tests if a response with mismatched tags causes an {@linkplain ExtractorException}
+     * and closes the input stream.
+     */
+    @Test
+    public void testMalformedStream()
+    {
+        final String response = String.format(RESPONSE_FORMAT, "<record><header></record></header>");
+        final CloseTrackingInputStream inputStream = new CloseTrackingInputStream(response);
+        final OaiPmhRecordStreamReader reader = createReader(inputStream);
+
+        try {
+            reader.hasNext();
+            fail("Expected an ExtractorException for a malformed response.");
+        } catch (final ExtractorException e) {
+            assertTrue("Expected the input stream to be closed after the failure.",
+                       inputStream.isClosed());
+        }
+    }
+
+
+    /**
+     * Reads a response that consists of a single record.
+     *
+     * @param record the XML of the record
+     *
+     * @return the record that was read
+     */
+    private Element readSingleRecord(final String record)
+    {
+        final OaiPmhRecordStreamReader reader = createReader(
+                                                    new CloseTrackingInputStream(String.format(RESPONSE_FORMAT, record)));
+
+        assertTrue("Expected the record to be read.",
+                   reader.hasNext());
+
+        final Element readRecord = reader.next();
+
+        assertFalse("Expected no more records.",
+                    reader.hasNext());
+        return readRecord;
+    }
+
+
+    /**
+     * Creates a reader for a response.
+     *
+     * @param inputStream a stream of the response
+     *
+     * @return a reader of the response
+     */
+    private OaiPmhRecordStreamReader createReader(final CloseTrackingInputStream inputStream)
+    {
+        return new OaiPmhRecordStreamReader(inputStream, BASE_URI);
+    }
+
+
+    /**
+     * An input stream of a string that memorizes if it was closed.
+     */
+    private static class CloseTrackingInputStream extends ByteArrayInputStream
+    {
+        private boolean isClosed;
+
+
+        /**
+         * Constructor that creates a stream of the UTF-8 bytes of a string.
+         *
+         * @param content the content of the stream
+         */
+        CloseTrackingInputStream(final String content)
+        {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+
+        @Override
+        public void close()
+        {
+            isClosed = true;
+        }
+
+
+        /**
+         * Checks if the stream was closed.
+         *
+         * @return true if the stream was closed
+         */
+        boolean isClosed()
+        {
+            return isClosed;
+        }
+    }
+}
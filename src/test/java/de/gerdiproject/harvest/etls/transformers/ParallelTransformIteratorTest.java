@@ -0,0 +1,205 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.extractors.ExtractorException;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ParallelTransformIterator}.
+ *
+ * @author Robin Weiss
+ */
+public class ParallelTransformIteratorTest
+{
+    private static final int THREAD_COUNT = 4;
+    private static final int ELEMENT_COUNT = 100;
+    private static final int FAILING_ELEMENT = 42;
+
+    /**
+     * A transformation that takes longer for lower numbers, so that the
+     * transformations do not finish in the order in which they were started.
+     */
+    private static final Function<Integer, String> SLOW_TRANSFORMATION = (final Integer element) -> {
+        try {
+            Thread.sleep(element % THREAD_COUNT);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return element.toString();
+    };
+
+
+    /**
+     * Tests if transformed elements are returned in the order of the input by default.
+     */
+    @Test
+    public void testOrderedTransformation()
+    {
+        final List<String> expected = getInput().stream().map(String::valueOf).collect(Collectors.toList());
+        final List<String> actual = toList(new ParallelTransformIterator<>(getInput().iterator(), SLOW_TRANSFORMATION, THREAD_COUNT, true));
+
+        assertEquals("Expected the transformed elements to be in the order of the input.", expected, actual);
+    }
+
+
+    /**
+     * Tests if all transformed elements are returned if the order does not need to be preserved.
+     */
+    @Test
+    public void testUnorderedTransformation()
+    {
+        final List<String> expected = getInput().stream().map(String::valueOf).sorted().collect(Collectors.toList());
+        final List<String> actual = toList(new ParallelTransformIterator<>(getInput().iterator(), SLOW_TRANSFORMATION, THREAD_COUNT, false));
+        Collections.sort(actual);
+
+        assertEquals("Expected all elements to be transformed exactly once.", expected, actual);
+    }
+
+
+    /**
+     * Tests if null elements are passed through without being transformed.
+     */
+    @Test
+    public void testNullElements()
+    {
+        final Iterator<String> iter = new ParallelTransformIterator<>(
+            Arrays.asList(1, null, 3).iterator(),
+            String::valueOf,
+            THREAD_COUNT,
+            true);
+
+        assertEquals("1", iter.next());
+        assertEquals("Expected null elements to remain null.", null, iter.next());
+        assertEquals("3", iter.next());
+        assertFalse(iter.hasNext());
+    }
+
+
+    /**
+     * Tests if a failed transformation is thrown as a {@linkplain TransformerException}
+     * when the affected element is retrieved, after all previous elements were returned.
+     */
+    @Test
+    public void testTransformationError()
+    {
+        final Iterator<String> iter = new ParallelTransformIterator<>(
+            getInput().iterator(),
+            (final Integer element) -> {
+                if (element == FAILING_ELEMENT)
+                    throw new IllegalArgumentException();
+
+                return element.toString();
+            },
+            THREAD_COUNT,
+            true);
+
+        for (int i = 0; i < FAILING_ELEMENT; i++)
+            assertEquals(String.valueOf(i), iter.next());
+
+        try {
+            iter.next();
+            fail("Expected a TransformerException to be thrown.");
+        } catch (final TransformerException e) {
+            assertTrue("Expected the original error to be the cause.", e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+
+    /**
+     * Tests if an error of the input is thrown as an {@linkplain ExtractorException}
+     * after all previously read elements were returned.
+     */
+    @Test
+    public void testInputError()
+    {
+        final Iterator<Integer> failingInput = new Iterator<Integer>() {
+            private int index;
+
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public Integer next()
+            {
+                if (index == FAILING_ELEMENT)
+                    throw new IllegalStateException();
+
+                return index++;
+            }
+        };
+
+        final Iterator<String> iter = new ParallelTransformIterator<>(failingInput, String::valueOf, THREAD_COUNT, true);
+
+        for (int i = 0; i < FAILING_ELEMENT; i++)
+            assertEquals(String.valueOf(i), iter.next());
+
+        try {
+            iter.next();
+            fail("Expected an ExtractorException to be thrown.");
+        } catch (final ExtractorException e) {
+            assertFalse("Expected no further elements after the input failed.", iter.hasNext());
+        }
+    }
+
+
+    /**
+     * Creates a list of consecutive numbers.
+     *
+     * @return a list of numbers from 0 to {@linkplain #ELEMENT_COUNT}, exclusively
+     */
+    private static List<Integer> getInput()
+    {
+        return IntStream.range(0, ELEMENT_COUNT).boxed().collect(Collectors.toList());
+    }
+
+
+    /**
+     * Retrieves all remaining elements of an iterator.
+     *
+     * @param iter the iterator of which the elements are retrieved
+     *
+     * @return a list of all remaining elements
+     */
+    private static List<String> toList(final Iterator<String> iter)
+    {
+        final List<String> list = new ArrayList<>();
+
+        while (iter.hasNext())
+            list.add(iter.next());
+
+        return list;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.transformers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain SinglePassMapper}.
+ *
+ * @author Robin Weiss
+ */
+public class SinglePassMapperTest
+{
+    private static final String RECORD =
+        "<record><metadata><resource>"
+        + "<datacite:titles><datacite:title>Prefixed Title</datacite:title></datacite:titles>"
+        + "<titles><title>Title</title></titles>"
+        + "<creators><creator><creatorName>Doe, Jane</creatorName></creator></creators>"
+        + "<relatedIdentifiers><relatedIdentifier><identifier>Nested</identifier></relatedIdentifier></relatedIdentifiers>"
+        + "<identifier>Identifier</identifier>"
+        + "</resource></metadata></record>";
+
+
+    /**
+     * Tests if the handlers receive the same elements as {@linkplain Element#selectFirst(String)}.
+     */
+    @Test
+    public void testSameElementsAsSelectFirst()
+    {
+        final Element record = Jsoup.parse(RECORD);
+        final List<String> queries = Arrays.asList(
+                                         DataCiteConstants.TITLES,
+                                         DataCiteConstants.CREATORS,
+                                         DataCiteConstants.IDENTIFIER,
+                                         DataCiteConstants.PUBLISHER);
+
+        final SinglePassMapper<Map<String, Element>> mapper = new SinglePassMapper<>();
+
+        for (final String query : queries)
+            mapper.put(query, (elements, ele) -> elements.put(query, ele));
+
+        final Map<String, Element> mappedElements = new HashMap<>();
+        mapper.map(mappedElements, record);
+
+        for (final String query : queries)
+            assertSame("Expected the same element as Element.selectFirst() for: " + query,
+                       record.selectFirst(query),
+                       mappedElements.get(query));
+
+        assertNull("Expected null for elements that do not exist.",
+                   mappedElements.get(DataCiteConstants.PUBLISHER));
+    }
+
+
+    /**
+     * Tests if handlers are called in the order of their registration,
+     * and if replaced handlers keep their position.
+     */
+    @Test
+    public void testHandlerOrder()
+    {
+        final SinglePassMapper<List<String>> mapper = new SinglePassMapper<>();
+        mapper.put(DataCiteConstants.IDENTIFIER, (calls, ele) -> calls.add("old identifier"));
+        mapper.put(DataCiteConstants.TITLES, (calls, ele) -> calls.add("titles"));
+        mapper.put(DataCiteConstants.CREATORS, (calls, ele) -> calls.add("creators"));
+        mapper.put(DataCiteConstants.IDENTIFIER, (calls, ele) -> calls.add("identifier"));
+        mapper.remove(DataCiteConstants.CREATORS);
+
+        final List<String> calls = new ArrayList<>();
+        mapper.map(calls, Jsoup.parse(RECORD));
+
+        assertEquals("Expected replaced handlers to keep their position, and removed handlers not to be called.",
+                     Arrays.asList("identifier", "titles"),
+                     calls);
+    }
+
+
+    /**
+     * Tests if queries that do not match elements by their local name are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedQuery()
+    {
+        new SinglePassMapper<Object>().put("resource > identifier", (target, ele) -> {});
+    }
+}
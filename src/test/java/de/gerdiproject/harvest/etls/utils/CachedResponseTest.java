@@ -0,0 +1,108 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain CachedResponse}.
+ *
+ * @author Robin Weiss
+ */
+public class CachedResponseTest
+{
+    private static final String URL = "http://www.mo.ck/oai?verb=Identify";
+    private static final String CONTENT = "<OAI-PMH><Identify/></OAI-PMH>";
+    private static final String ENTITY_TAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+    private static final long TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+
+
+    /**
+     * Tests if a response is only expired after its time to live has passed.
+     */
+    @Test
+    public void testExpiration()
+    {
+        final long now = System.currentTimeMillis();
+
+        assertFalse("Expected a recently validated response not to be expired.",
+                    createResponse(now - TIME_TO_LIVE / 2).isExpired(TIME_TO_LIVE));
+        assertTrue("Expected a response to be expired once its time to live has passed.",
+                   createResponse(now - TIME_TO_LIVE).isExpired(TIME_TO_LIVE));
+        assertTrue("Expected every response to be expired if there is no time to live.",
+                   createResponse(now).isExpired(0));
+    }
+
+
+    /**
+     * Tests if revalidating an expired response keeps its content and validators,
+     * and makes it valid for another time to live.
+     */
+    @Test
+    public void testRevalidation()
+    {
+        final CachedResponse expiredResponse = createResponse(0);
+        final CachedResponse revalidatedResponse = expiredResponse.revalidate();
+
+        assertFalse("Expected a revalidated response not to be expired.",
+                    revalidatedResponse.isExpired(TIME_TO_LIVE));
+        assertEquals("Expected the content to be kept by the revalidation.",
+                     CONTENT,
+                     revalidatedResponse.getContent());
+        assertEquals("Expected the ETag to be kept by the revalidation.",
+                     ENTITY_TAG,
+                     revalidatedResponse.getEntityTag());
+        assertEquals("Expected the Last-Modified date to be kept by the revalidation.",
+                     LAST_MODIFIED,
+                     revalidatedResponse.getLastModified());
+        assertTrue("Expected the expired response to remain unchanged.",
+                   expiredResponse.isExpired(TIME_TO_LIVE));
+    }
+
+
+    /**
+     * Tests if only responses with validators can be revalidated via conditional requests.
+     */
+    @Test
+    public void testRevalidatable()
+    {
+        assertTrue("Expected a response with validators to be revalidatable.",
+                   createResponse(0).isRevalidatable());
+        assertFalse("Expected a response without validators not to be revalidatable.",
+                    new CachedResponse(URL, CONTENT, null, null, 0).isRevalidatable());
+    }
+
+
+    /**
+     * Creates a cached response with an ETag and a Last-Modified date.
+     *
+     * @param validationTime the time at which the response was validated, in milliseconds since the epoch
+     *
+     * @return a cached response
+     */
+    private static CachedResponse createResponse(final long validationTime)
+    {
+        return new CachedResponse(URL, CONTENT, ENTITY_TAG, LAST_MODIFIED, validationTime);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ConcurrentHarvestLimiter}
+ * and the {@linkplain BackgroundThreadFactory}.
+ *
+ * @author Robin Weiss
+ */
+public class ConcurrentHarvestLimiterTest
+{
+    private static final int MAX_HARVESTS = 2;
+    private static final String THREAD_NAME = "Test";
+
+
+    /**
+     * Tests if a harvest that exceeds the limit waits until it is interrupted,
+     * for instance because it was aborted.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testLimit() throws InterruptedException
+    {
+        final ConcurrentHarvestLimiter limiter = new ConcurrentHarvestLimiter();
+        limiter.setLimit(MAX_HARVESTS);
+
+        for (int i = 0; i < MAX_HARVESTS; i++)
+            limiter.acquire();
+
+        final AtomicBoolean wasInterrupted = new AtomicBoolean();
+        final Thread waitingHarvest = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (final InterruptedException e) {
+                wasInterrupted.set(true);
+            }
+        });
+        waitingHarvest.start();
+        awaitWaitingState(waitingHarvest);
+
+        waitingHarvest.interrupt();
+        waitingHarvest.join();
+
+        assertTrue("Expected a harvest above the limit to wait until it was interrupted.",
+                   wasInterrupted.get());
+        assertEquals("Expected an interrupted harvest not to be counted as running.",
+                     MAX_HARVESTS,
+                     limiter.getRunningHarvests());
+
+        limiter.release();
+        limiter.acquire();
+
+        assertEquals("Expected a harvest to run after another harvest finished.",
+                     MAX_HARVESTS,
+                     limiter.getRunningHarvests());
+    }
+
+
+    /**
+     * Tests if raising the limit allows waiting harvests to run.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testRaisedLimit() throws InterruptedException
+    {
+        final ConcurrentHarvestLimiter limiter = new ConcurrentHarvestLimiter();
+        limiter.setLimit(1);
+        limiter.acquire();
+
+        final Thread waitingHarvest = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (final InterruptedException e) { // NOPMD the test fails if the harvest does not run
+            }
+        });
+        waitingHarvest.start();
+        awaitWaitingState(waitingHarvest);
+
+        limiter.setLimit(0);
+        waitingHarvest.join();
+
+        assertEquals("Expected the waiting harvest to run after the limit was removed.",
+                     MAX_HARVESTS,
+                     limiter.getRunningHarvests());
+    }
+
+
+    /**
+     * Tests if the background threads are named and do not prevent the JVM from shutting down,
+     * regardless of whether the runtime supports virtual threads.
+     */
+    @Test
+    public void testBackgroundThreads()
+    {
+        final BackgroundThreadFactory factory = new BackgroundThreadFactory(THREAD_NAME, true);
+        final Thread thread = factory.newThread(() -> {});
+
+        assertEquals("Expected virtual threads to be used if, and only if they are supported.",
+                     BackgroundThreadFactory.isVirtualThreadSupported(),
+                     factory.isVirtual());
+        assertTrue("Expected background threads to be daemon threads.", thread.isDaemon());
+        assertTrue("Expected background threads to be named after their purpose.", thread.getName().startsWith(THREAD_NAME));
+    }
+
+
+    /**
+     * Waits until a thread is blocked while waiting for the limiter.
+     *
+     * @param thread the thread that is expected to wait
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    private static void awaitWaitingState(final Thread thread) throws InterruptedException
+    {
+        while (thread.isAlive() && thread.getState() != Thread.State.WAITING)
+            Thread.sleep(1);
+    }
+}
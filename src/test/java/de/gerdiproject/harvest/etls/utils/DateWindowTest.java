@@ -0,0 +1,106 @@
+/*
+ *  Copyright © 2019 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.enums.DatestampGranularity;
+
+/**
+ * This class provides Unit Tests for the {@linkplain DateWindow}.
+ *
+ * @author Robin Weiss
+ */
+public class DateWindowTest
+{
+    private static final Instant FROM_DATE = Instant.parse("2000-01-01T00:00:00Z");
+    private static final Instant UNTIL_DATE = Instant.parse("2000-01-10T12:34:56Z");
+
+
+    /**
+     * Tests if a date range is split into the requested number of windows.
+     */
+    @Test
+    public void testWindowCount()
+    {
+        final List<DateWindow> windows = DateWindow.split(FROM_DATE, UNTIL_DATE, 3, DatestampGranularity.DAY);
+
+        assertEquals("Expected the date range to be split into the requested number of windows.",
+                     3,
+                     windows.size());
+    }
+
+
+    /**
+     * Tests if the windows are consecutive and do not overlap.
+     */
+    @Test
+    public void testWindowBorders()
+    {
+        final List<DateWindow> windows = DateWindow.split(FROM_DATE, UNTIL_DATE, 3, DatestampGranularity.DAY);
+
+        assertEquals("Expected the first window to start at the beginning of the date range.",
+                     "2000-01-01",
+                     windows.get(0).getFrom());
+
+        assertEquals("Expected the first window to end one day before the second window starts.",
+                     "2000-01-03",
+                     windows.get(0).getUntil());
+
+        assertEquals("Expected the second window to start one day after the first window ends.",
+                     "2000-01-04",
+                     windows.get(1).getFrom());
+
+        assertEquals("Expected the last window to end at the end of the date range.",
+                     "2000-01-10",
+                     windows.get(2).getUntil());
+    }
+
+
+    /**
+     * Tests if the window borders are formatted according to the granularity.
+     */
+    @Test
+    public void testSecondGranularity()
+    {
+        final List<DateWindow> windows = DateWindow.split(FROM_DATE, UNTIL_DATE, 2, DatestampGranularity.SECOND);
+
+        assertEquals("Expected the window borders to be formatted with seconds.",
+                     "2000-01-10T12:34:56Z",
+                     windows.get(1).getUntil());
+    }
+
+
+    /**
+     * Tests if a date range that is shorter than the requested number of windows
+     * is split into fewer windows.
+     */
+    @Test
+    public void testTooManyWindows()
+    {
+        final List<DateWindow> windows = DateWindow.split(FROM_DATE, FROM_DATE.plusSeconds(3600), 5, DatestampGranularity.DAY);
+
+        assertEquals("Expected a single window if the date range covers only one datestamp.",
+                     1,
+                     windows.size());
+    }
+}
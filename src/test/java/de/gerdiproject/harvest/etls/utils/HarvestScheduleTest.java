@@ -0,0 +1,123 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain HarvestSchedule}.
+ *
+ * @author Robin Weiss
+ */
+public class HarvestScheduleTest
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MIN_INTERVAL = HOUR;
+    private static final long MAX_INTERVAL = 7 * 24 * HOUR;
+    private static final int TARGET_RECORDS = 1000;
+
+
+    /**
+     * Tests if a repository that changes often is harvested more often than a quiet repository.
+     */
+    @Test
+    public void testChangeRate()
+    {
+        final HarvestSchedule firstSchedule = HarvestSchedule.INITIAL.afterHarvest(0, 100000, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        assertEquals("Expected the first harvest to be followed by the minimum interval, because the change rate is unknown.",
+                     MIN_INTERVAL,
+                     firstSchedule.getInterval());
+
+        // 500 records per hour
+        final HarvestSchedule busySchedule = firstSchedule.afterHarvest(10 * HOUR, 5000, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        // 1 record per hour
+        final HarvestSchedule quietSchedule = firstSchedule.afterHarvest(10 * HOUR, 10, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        assertEquals("Expected the interval to be chosen so that the next harvest yields the targeted number of records.",
+                     2 * HOUR,
+                     busySchedule.getInterval());
+        assertEquals("Expected the interval not to exceed the maximum interval.",
+                     MAX_INTERVAL,
+                     quietSchedule.getInterval());
+        assertEquals("Expected the next harvest to follow the harvest after the interval.",
+                     12 * HOUR,
+                     busySchedule.getNextHarvestTime());
+    }
+
+
+    /**
+     * Tests if the records that were harvested again because of the incremental overlap
+     * do not inflate the change rate.
+     */
+    @Test
+    public void testIncrementalOverlap()
+    {
+        final long overlap = 24 * HOUR;
+        final HarvestSchedule firstSchedule = HarvestSchedule.INITIAL.afterHarvest(0, 100000, true, overlap, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        // 500 records per hour, including the 24 hours before the previous harvest
+        final HarvestSchedule schedule = firstSchedule.afterHarvest(16 * HOUR, 20000, true, overlap, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        assertEquals("Expected the change rate to cover the time since the previous harvest plus the overlap.",
+                     500,
+                     schedule.getRecordsPerHour(),
+                     0.001);
+        assertEquals("Expected the interval to be chosen so that the next harvest yields the targeted number of records.",
+                     2 * HOUR,
+                     schedule.getInterval());
+    }
+
+
+    /**
+     * Tests if the interval of a repository that does not change at all grows with every harvest.
+     */
+    @Test
+    public void testUnchangedRepository()
+    {
+        HarvestSchedule schedule = HarvestSchedule.INITIAL.afterHarvest(0, 10, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+        schedule = schedule.afterHarvest(schedule.getNextHarvestTime(), 0, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+        schedule = schedule.afterHarvest(schedule.getNextHarvestTime(), 0, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+
+        assertEquals("Expected the interval to double with every harvest that found no changes.",
+                     4 * MIN_INTERVAL,
+                     schedule.getInterval());
+    }
+
+
+    /**
+     * Tests if a failed harvest is retried without losing the time of the last successful harvest.
+     */
+    @Test
+    public void testFailure()
+    {
+        final HarvestSchedule schedule = HarvestSchedule.INITIAL.afterHarvest(0, 10, true, 0, MIN_INTERVAL, MAX_INTERVAL, TARGET_RECORDS);
+        final HarvestSchedule retrySchedule = schedule.afterFailure(5 * HOUR, MIN_INTERVAL);
+
+        assertEquals("Expected the last successful harvest to be kept.",
+                     schedule.getLastHarvestTime(),
+                     retrySchedule.getLastHarvestTime());
+        assertEquals("Expected the failed harvest to be retried after the minimum interval.",
+                     5 * HOUR + MIN_INTERVAL,
+                     retrySchedule.getNextHarvestTime());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain HostRateLimiter}.
+ *
+ * @author Robin Weiss
+ */
+public class HostRateLimiterTest
+{
+    private static final String HOST = "http://www.mo.ck:80";
+    private static final int MAX_CONCURRENT_REQUESTS = 8;
+    private static final int REQUESTS_PER_SECOND = 20;
+    private static final long FAST_LATENCY = 10;
+
+
+    /**
+     * Tests if the concurrency limit is halved when the host is overloaded.
+     */
+    @Test
+    public void testMultiplicativeDecrease()
+    {
+        final HostRateLimiter limiter = new HostRateLimiter(HOST);
+        limiter.setLimits(0, MAX_CONCURRENT_REQUESTS);
+        limiter.onOverload(-1);
+
+        assertEquals("Expected the concurrency limit to be halved after an overload.",
+                     MAX_CONCURRENT_REQUESTS / 2,
+                     limiter.getConcurrencyLimit());
+
+        // concurrent failures of the same overload must only be counted once
+        limiter.onOverload(-1);
+
+        assertEquals("Expected the concurrency limit to be halved only once per overload.",
+                     MAX_CONCURRENT_REQUESTS / 2,
+                     limiter.getConcurrencyLimit());
+    }
+
+
+    /**
+     * Tests if the concurrency limit recovers gradually after an overload.
+     */
+    @Test
+    public void testAdditiveIncrease()
+    {
+        final HostRateLimiter limiter = new HostRateLimiter(HOST);
+        limiter.setLimits(0, MAX_CONCURRENT_REQUESTS);
+        limiter.onOverload(-1);
+
+        // every response raises the limit by the reciprocal of the limit
+        for (int i = 0; i <= MAX_CONCURRENT_REQUESTS / 2; i++)
+            limiter.onResponse(FAST_LATENCY);
+
+        assertEquals("Expected the concurrency limit to grow by one after about as many fast responses as the limit.",
+                     MAX_CONCURRENT_REQUESTS / 2 + 1,
+                     limiter.getConcurrencyLimit());
+
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS * MAX_CONCURRENT_REQUESTS; i++)
+            limiter.onResponse(FAST_LATENCY);
+
+        assertEquals("Expected the concurrency limit not to exceed the configured maximum.",
+                     MAX_CONCURRENT_REQUESTS,
+                     limiter.getConcurrencyLimit());
+    }
+
+
+    /**
+     * Tests if setting unchanged limits keeps the current concurrency limit.
+     */
+    @Test
+    public void testUnchangedLimits()
+    {
+        final HostRateLimiter limiter = new HostRateLimiter(HOST);
+        limiter.setLimits(REQUESTS_PER_SECOND, MAX_CONCURRENT_REQUESTS);
+        limiter.onOverload(-1);
+        limiter.setLimits(REQUESTS_PER_SECOND, MAX_CONCURRENT_REQUESTS);
+
+        assertEquals("Expected unchanged limits not to reset the reduced concurrency limit.",
+                     MAX_CONCURRENT_REQUESTS / 2,
+                     limiter.getConcurrencyLimit());
+    }
+
+
+    /**
+     * Tests if requests are throttled once the token bucket is empty.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testTokenBucket() throws InterruptedException
+    {
+        final HostRateLimiter limiter = new HostRateLimiter(HOST);
+        limiter.setLimits(REQUESTS_PER_SECOND, 0);
+
+        final long startTime = System.currentTimeMillis();
+
+        // the first second of requests can be sent at once, the rest must wait for new tokens
+        for (int i = 0; i < REQUESTS_PER_SECOND * 3 / 2; i++)
+            limiter.acquire().release();
+
+        final long duration = System.currentTimeMillis() - startTime;
+
+        assertTrue("Expected the requests exceeding the burst size to be delayed, but they took " + duration + " ms.",
+                   duration >= 1000 / 2 - FAST_LATENCY);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.transformers.constants.Iso19139Constants;
+
+/**
+ * This class provides Unit Tests for the {@linkplain NamespaceResolver}.
+ *
+ * @author Robin Weiss
+ */
+public class NamespaceResolverTest
+{
+    private static final String PREFIXED_RECORD =
+        "<metadata><gmd:MD_Metadata><gmd:identificationInfo><gmd:MD_DataIdentification>"
+        + "<gmd:citation><gmd:CI_Citation><gmd:title><gco:CharacterString>Title</gco:CharacterString></gmd:title></gmd:CI_Citation></gmd:citation>"
+        + "</gmd:MD_DataIdentification></gmd:identificationInfo></gmd:MD_Metadata></metadata>";
+
+    private static final String UNPREFIXED_RECORD =
+        "<metadata><MD_Metadata><identificationInfo><MD_DataIdentification>"
+        + "<citation><CI_Citation><title><gco:CharacterString>Title</gco:CharacterString></title></CI_Citation></citation>"
+        + "</MD_DataIdentification></identificationInfo></MD_Metadata></metadata>";
+
+    private static final String MIXED_RECORD =
+        "<metadata><gmd:MD_Metadata><gmd:identificationInfo><MD_DataIdentification>"
+        + "<gmd:citation><gmd:CI_Citation><title><gco:CharacterString>Title</gco:CharacterString></title></gmd:CI_Citation></gmd:citation>"
+        + "</MD_DataIdentification></gmd:identificationInfo></gmd:MD_Metadata></metadata>";
+
+    private final NamespaceResolver resolver = new NamespaceResolver(
+        Iso19139Constants.DATA_IDENTIFICATION,
+        Iso19139Constants.TITLE);
+
+
+    /**
+     * Tests if the prefix of prefixed records is resolved, and if the exact
+     * query selects the same elements as the original query.
+     */
+    @Test
+    public void testPrefixedRecord()
+    {
+        final Element metadata = Jsoup.parse(PREFIXED_RECORD).selectFirst("metadata");
+        final ResolvedQueries queries = resolver.resolve(metadata);
+
+        assertEquals("Expected the prefix of the record to be resolved.",
+                     "gmd",
+                     queries.getPrefix());
+        assertEquals("Expected the exact query to only match the prefix of the record.",
+                     "gmd|citation > gmd|CI_Citation > gmd|title > gco|CharacterString",
+                     queries.get(Iso19139Constants.TITLE));
+        assertSameSelection(metadata, queries);
+    }
+
+
+    /**
+     * Tests if the queries of records without prefixes are resolved to their unprefixed branch.
+     */
+    @Test
+    public void testUnprefixedRecord()
+    {
+        final Element metadata = Jsoup.parse(UNPREFIXED_RECORD).selectFirst("metadata");
+        final ResolvedQueries queries = resolver.resolve(metadata);
+
+        assertEquals("Expected an empty prefix for unprefixed records.",
+                     "",
+                     queries.getPrefix());
+        assertEquals("Expected the unprefixed branch of the query.",
+                     "citation > CI_Citation > title",
+                     queries.get(Iso19139Constants.TITLE));
+        assertSameSelection(metadata, queries);
+    }
+
+
+    /**
+     * Tests if the queries remain unchanged if a record mixes prefixed and unprefixed elements.
+     */
+    @Test
+    public void testMixedRecord()
+    {
+        final Element metadata = Jsoup.parse(MIXED_RECORD).selectFirst("metadata");
+        final ResolvedQueries queries = resolver.resolve(metadata);
+
+        assertSame("Expected mixed records not to be resolved.",
+                   ResolvedQueries.UNRESOLVED,
+                   queries);
+        assertSame("Expected the original query.",
+                   Iso19139Constants.TITLE,
+                   queries.get(Iso19139Constants.TITLE));
+    }
+
+
+    /**
+     * Tests if queries that were not registered remain unchanged.
+     */
+    @Test
+    public void testUnregisteredQuery()
+    {
+        final ResolvedQueries queries = resolver.resolve(Jsoup.parse(PREFIXED_RECORD).selectFirst("metadata"));
+
+        assertSame("Expected unregistered queries to remain unchanged.",
+                   Iso19139Constants.KEYWORDS,
+                   queries.get(Iso19139Constants.KEYWORDS));
+    }
+
+
+    /**
+     * Tests if the queries of records remain unchanged once many different
+     * prefixes were resolved, while the queries of known prefixes remain resolved.
+     */
+    @Test
+    public void testManyPrefixes()
+    {
+        final ResolvedQueries knownQueries = resolver.resolve(Jsoup.parse(PREFIXED_RECORD).selectFirst("metadata"));
+        ResolvedQueries queries = knownQueries;
+
+        for (int i = 0; i < 100 && queries != ResolvedQueries.UNRESOLVED; i++) {
+            final String record = PREFIXED_RECORD.replace("gmd:", "gmd" + i + ":");
+            queries = resolver.resolve(Jsoup.parse(record).selectFirst("metadata"));
+        }
+
+        assertSame("Expected the queries of new prefixes to remain unchanged.",
+                   ResolvedQueries.UNRESOLVED,
+                   queries);
+        assertSame("Expected the queries of known prefixes to remain resolved.",
+                   knownQueries,
+                   resolver.resolve(Jsoup.parse(PREFIXED_RECORD).selectFirst("metadata")));
+    }
+
+
+    /**
+     * Asserts that the resolved queries select the same elements as the original queries.
+     *
+     * @param metadata the element to which the queries are applied
+     * @param queries the resolved queries
+     */
+    private static void assertSameSelection(final Element metadata, final ResolvedQueries queries)
+    {
+        assertEquals("Expected the same elements as the original query.",
+                     metadata.select(Iso19139Constants.TITLE),
+                     metadata.select(queries.get(Iso19139Constants.TITLE)));
+        assertEquals("Expected the same elements as the original query.",
+                     metadata.select(Iso19139Constants.DATA_IDENTIFICATION),
+                     metadata.select(queries.get(Iso19139Constants.DATA_IDENTIFICATION)));
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.gerdiproject.harvest.application.events.GetCacheFolderEvent;
+import de.gerdiproject.harvest.etls.constants.OaiPmhConstants;
+import de.gerdiproject.harvest.event.EventSystem;
+import de.gerdiproject.harvest.utils.data.HttpRequesterUtils;
+
+/**
+ * This class provides Unit Tests for the response cache and the connection reuse of the
+ * {@linkplain OaiPmhHttpClient}. The responses are served by a local HTTP server that counts
+ * the requests it receives, and the client ports of the connections that sent them.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhHttpClientTest
+{
+    private static final String SERVED_CONTENT = "<OAI-PMH><repositoryName>Served</repositoryName></OAI-PMH>";
+    private static final String PERSISTED_CONTENT = "<OAI-PMH><repositoryName>Persisted</repositoryName></OAI-PMH>";
+    private static final String REPOSITORY_NAME_SELECTION = "repositoryName";
+    private static final String ENTITY_TAG = "\"v1\"";
+    private static final long TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private static final String MISSING_PATH = "/missing";
+    private static final int REQUEST_COUNT = 5;
+
+    @Rule
+    public final TemporaryFolder cacheFolder = new TemporaryFolder();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+    private String url;
+
+
+    /**
+     * Provides a cache folder and starts a local server that answers conditional requests
+     * with matching ETags with HTTP status 304, requests of a missing path with HTTP status 404,
+     * and all other requests with new content.
+     *
+     * @throws IOException if the server cannot be started
+     */
+    @Before
+    public void before() throws IOException
+    {
+        EventSystem.addSynchronousListener(GetCacheFolderEvent.class, cacheFolder::getRoot);
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/oai", this::respond);
+        server.createContext(MISSING_PATH, this::respondNotFound);
+        server.start();
+
+        // the port is part of the URL, so that every test uses its own cached response
+        this.url = String.format("http://127.0.0.1:%d/oai?verb=Identify", server.getAddress().getPort());
+    }
+
+
+    /**
+     * Stops the local server and removes the cache folder provider.
+     */
+    @After
+    public void after()
+    {
+        server.stop(0);
+        EventSystem.removeSynchronousListener(GetCacheFolderEvent.class);
+    }
+
+
+    /**
+     * Tests if a response that was persisted by a previous run of the harvester service
+     * is reused without sending a request, as long as it has not expired.
+     */
+    @Test
+    public void testPersistedResponseIsReused()
+    {
+        getPersistedFile().save(new CachedResponse(url, PERSISTED_CONTENT, null, null, System.currentTimeMillis()));
+
+        final Document doc = new OaiPmhHttpClient(new RetryPolicy(0, 0, 0)).getCachedDocument(url, TIME_TO_LIVE);
+
+        assertNotNull("Expected the persisted response to be parsed.",
+                      doc);
+        assertEquals("Expected the persisted response to be reused.",
+                     "Persisted",
+                     doc.selectFirst(REPOSITORY_NAME_SELECTION).text());
+        assertEquals("Expected no request to be sent for a persisted response that has not expired.",
+                     0,
+                     requestCount.get());
+    }
+
+
+    /**
+     * Tests if an expired persisted response is revalidated with a conditional request,
+     * and reused if the repository confirms that it has not changed.
+     */
+    @Test
+    public void testExpiredResponseIsRevalidated()
+    {
+        getPersistedFile().save(new CachedResponse(url, PERSISTED_CONTENT, ENTITY_TAG, null, 0));
+
+        final Document doc = new OaiPmhHttpClient(new RetryPolicy(0, 0, 0)).getCachedDocument(url, TIME_TO_LIVE);
+
+        assertEquals("Expected the expired response to be reused after it was revalidated.",
+                     "Persisted",
+                     doc.selectFirst(REPOSITORY_NAME_SELECTION).text());
+        assertEquals("Expected a single conditional request to be sent.",
+                     1,
+                     requestCount.get());
+        assertFalse("Expected the revalidated response to be persisted with a new validation time.",
+                    getPersistedFile().load().isExpired(TIME_TO_LIVE));
+    }
+
+
+    /**
+     * Tests if a requested response is persisted, so that it can be reused after a restart.
+     */
+    @Test
+    public void testRequestedResponseIsPersisted()
+    {
+        final Document doc = new OaiPmhHttpClient(new RetryPolicy(0, 0, 0)).getCachedDocument(url, TIME_TO_LIVE);
+
+        assertEquals("Expected the response to be requested if nothing was persisted.",
+                     "Served",
+                     doc.selectFirst(REPOSITORY_NAME_SELECTION).text());
+        assertEquals("Expected the requested response to be persisted.",
+                     SERVED_CONTENT,
+                     getPersistedFile().load().getContent());
+        assertEquals("Expected the ETag of the requested response to be persisted.",
+                     ENTITY_TAG,
+                     getPersistedFile().load().getEntityTag());
+    }
+
+
+    /**
+     * Tests if consecutive requests to the same host are sent via the same kept-alive connection.
+     */
+    @Test
+    public void testConnectionIsKeptAlive()
+    {
+        final OaiPmhHttpClient client = new OaiPmhHttpClient(new RetryPolicy(0, 0, 0));
+
+        for (int i = 0; i < REQUEST_COUNT; i++)
+            assertNotNull("Expected the response to be retrieved.",
+                          client.getDocument(url));
+
+        assertEquals("Expected all requests to be received.",
+                     REQUEST_COUNT,
+                     requestCount.get());
+        assertEquals("Expected all requests to be sent via the same connection.",
+                     1,
+                     clientPorts.size());
+    }
+
+
+    /**
+     * Tests if successful and failed requests are counted per host,
+     * and if a failed request does not prevent the connection from being reused.
+     */
+    @Test
+    public void testRequestStatistics()
+    {
+        final OaiPmhHttpClient client = new OaiPmhHttpClient(new RetryPolicy(0, 0, 0));
+
+        client.getDocument(url);
+        assertNull("Expected no document for a missing response.",
+                   client.getDocument(url.replace("/oai", MISSING_PATH)));
+        client.getDocument(url);
+
+        final String host = String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+        final ConnectionStatistics statistics = OaiPmhHttpClient.getAllStatistics().stream()
+                                                .filter((final ConnectionStatistics s) -> s.getHost().equals(host))
+                                                .findAny()
+                                                .orElse(null);
+
+        assertNotNull("Expected the requests to be counted for their host.",
+                      statistics);
+        assertEquals("Expected all requests to be counted.",
+                     3,
+                     statistics.getRequests());
+        assertEquals("Expected the missing response to be counted as a failed request.",
+                     1,
+                     statistics.getFailedRequests());
+        assertEquals("Expected no TLS connections to be counted for HTTP requests.",
+                     0,
+                     statistics.getTlsConnections());
+        assertEquals("Expected all requests to be sent via the same connection.",
+                     1,
+                     clientPorts.size());
+    }
+
+
+    /**
+     * Returns the file in which the {@linkplain OaiPmhHttpClient} persists the cached response of the tested URL.
+     *
+     * @return the file of the cached response
+     */
+    private AtomicJsonFile<CachedResponse> getPersistedFile()
+    {
+        return new AtomicJsonFile<>(
+                   HttpRequesterUtils.urlToFilePath(url, new File(OaiPmhConstants.CACHED_RESPONSES_FOLDER)).toString(),
+                   CachedResponse.class);
+    }
+
+
+    /**
+     * Answers a request of the local server and counts it.
+     *
+     * @param exchange the request and its response
+     *
+     * @throws IOException if the response cannot be sent
+     */
+    private void respond(final HttpExchange exchange) throws IOException
+    {
+        requestCount.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+
+        if (ENTITY_TAG.equals(exchange.getRequestHeaders().getFirst(OaiPmhConstants.IF_NONE_MATCH_HEADER))) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            exchange.close();
+            return;
+        }
+
+        final byte[] content = SERVED_CONTENT.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(OaiPmhConstants.ETAG_HEADER, ENTITY_TAG);
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, content.length);
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content);
+        }
+    }
+
+
+    /**
+     * Answers a request of the local server with HTTP status 404 and counts it.
+     *
+     * @param exchange the request and its response
+     *
+     * @throws IOException if the response cannot be sent
+     */
+    private void respondNotFound(final HttpExchange exchange) throws IOException
+    {
+        requestCount.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+
+        final byte[] content = "<OAI-PMH />".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, content.length);
+
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(content);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain OaiPmhRepository}.
+ *
+ * @author Robin Weiss
+ */
+public class OaiPmhRepositoryTest
+{
+    private static final String HOST_URL = "http://www.mo.ck/oai";
+
+
+    /**
+     * Tests if the ETL name of a repository cannot break the keys of its parameters.
+     */
+    @Test
+    public void testEtlName()
+    {
+        final OaiPmhRepository repository = new OaiPmhRepository("Mocked Repository (Test)", HOST_URL, null, null, null, null);
+
+        assertEquals("Expected all characters that are invalid in parameter keys to be removed.",
+                     "MockedRepositoryTest",
+                     repository.getEtlName(0));
+    }
+
+
+    /**
+     * Tests if repositories without a name are named after their position in the repository list.
+     */
+    @Test
+    public void testUnnamedRepository()
+    {
+        final OaiPmhRepository repository = new OaiPmhRepository(null, HOST_URL, null, null, null, null);
+
+        assertEquals("Expected unnamed repositories to be numbered, starting with 1.",
+                     "OaiPmhETL3",
+                     repository.getEtlName(2));
+    }
+}
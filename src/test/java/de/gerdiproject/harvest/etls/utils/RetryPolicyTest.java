@@ -0,0 +1,104 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain RetryPolicy}.
+ *
+ * @author Robin Weiss
+ */
+public class RetryPolicyTest
+{
+    private static final RetryPolicy POLICY = new RetryPolicy(3, 1000, 5000);
+
+
+    /**
+     * Tests if server errors and rate limits are retried, but other client errors are not.
+     */
+    @Test
+    public void testRetryableStatusCodes()
+    {
+        assertTrue("Expected 503 responses to be retried.", POLICY.isRetryable(503));
+        assertTrue("Expected 429 responses to be retried.", POLICY.isRetryable(429));
+        assertFalse("Expected 404 responses not to be retried.", POLICY.isRetryable(404));
+    }
+
+
+    /**
+     * Tests if the backoff delay grows exponentially, but stays between half and all of its nominal value.
+     */
+    @Test
+    public void testBackoffDelay()
+    {
+        for (int i = 0; i < 100; i++) {
+            final long firstDelay = POLICY.getBackoffDelay(0);
+            final long thirdDelay = POLICY.getBackoffDelay(2);
+
+            assertTrue("Expected the first delay to be jittered around the initial delay: " + firstDelay,
+                       firstDelay >= 500 && firstDelay <= 1000);
+
+            assertTrue("Expected the third delay to be jittered around four times the initial delay: " + thirdDelay,
+                       thirdDelay >= 2000 && thirdDelay <= 4000);
+        }
+    }
+
+
+    /**
+     * Tests if the backoff delay does not exceed the maximum delay.
+     */
+    @Test
+    public void testMaxBackoffDelay()
+    {
+        assertTrue("Expected the delay to be capped by the maximum delay.",
+                   POLICY.getBackoffDelay(100) <= 5000);
+    }
+
+
+    /**
+     * Tests if a "Retry-After" header with a number of seconds is converted to milliseconds.
+     */
+    @Test
+    public void testRetryAfterSeconds()
+    {
+        assertEquals("Expected the Retry-After seconds to be converted to milliseconds.",
+                     120000,
+                     RetryPolicy.parseRetryAfter("120"));
+    }
+
+
+    /**
+     * Tests if a "Retry-After" header with a date in the past results in no delay,
+     * and if an invalid header is ignored.
+     */
+    @Test
+    public void testRetryAfterDate()
+    {
+        assertEquals("Expected a past Retry-After date to cause no delay.",
+                     0,
+                     RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+        assertEquals("Expected an invalid Retry-After header to be ignored.",
+                     -1,
+                     RetryPolicy.parseRetryAfter("soon"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class provides Unit Tests for the {@linkplain ScalableBloomFilter}.
+ *
+ * @author Robin Weiss
+ */
+public class ScalableBloomFilterTest
+{
+    private static final int INITIAL_CAPACITY = 100;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int ADDED_COUNT = 10000;
+    private static final int CHECKED_COUNT = 100000;
+    private static final double TOLERANCE = 1.5;
+
+
+    /**
+     * Tests if all added strings are recognized, even after the filter grew beyond its initial capacity.
+     */
+    @Test
+    public void testNoFalseNegatives()
+    {
+        final ScalableBloomFilter filter = new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_RATE);
+
+        for (int i = 0; i < ADDED_COUNT; i++)
+            filter.add("record" + i);
+
+        for (int i = 0; i < ADDED_COUNT; i++)
+            assertTrue("Expected the added string 'record" + i + "' to be recognized.", filter.mightContain("record" + i));
+    }
+
+
+    /**
+     * Tests if adding a string reports whether it was added before.
+     */
+    @Test
+    public void testAddReportsDuplicates()
+    {
+        final ScalableBloomFilter filter = new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_RATE);
+
+        assertFalse("Expected a new string to be reported as new.", filter.add("record"));
+        assertTrue("Expected a string that was added before to be reported as duplicate.", filter.add("record"));
+        assertEquals("Expected duplicates not to be counted.", 1, filter.size());
+    }
+
+
+    /**
+     * Tests if the false positive rate stays close to the specified rate, after the filter grew.
+     */
+    @Test
+    public void testFalsePositiveRate()
+    {
+        final ScalableBloomFilter filter = new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_RATE);
+
+        for (int i = 0; i < ADDED_COUNT; i++)
+            filter.add("record" + i);
+
+        int falsePositives = 0;
+
+        for (int i = 0; i < CHECKED_COUNT; i++) {
+            if (filter.mightContain("other" + i))
+                falsePositives++;
+        }
+
+        assertTrue("Expected a false positive rate of about " + FALSE_POSITIVE_RATE + ", but got " + falsePositives + " of " + CHECKED_COUNT,
+                   falsePositives <= CHECKED_COUNT * FALSE_POSITIVE_RATE * TOLERANCE);
+    }
+}
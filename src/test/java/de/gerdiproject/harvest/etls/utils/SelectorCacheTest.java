@@ -0,0 +1,77 @@
+/*
+ *  Copyright © 2018 Robin Weiss (http://www.gerdi-project.de/)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package de.gerdiproject.harvest.etls.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.junit.Test;
+
+import de.gerdiproject.harvest.etls.transformers.constants.DataCiteConstants;
+import de.gerdiproject.harvest.utils.HtmlUtils;
+
+/**
+ * This class provides Unit Tests for the {@linkplain SelectorCache}.
+ *
+ * @author Robin Weiss
+ */
+public class SelectorCacheTest
+{
+    private static final String RECORD =
+        "<record><metadata><resource>"
+        + "<creators><creator><creatorName>Doe, Jane</creatorName></creator></creators>"
+        + "<datacite:creators><datacite:creator><datacite:creatorName>Roe, Richard</datacite:creatorName></datacite:creator></datacite:creators>"
+        + "</resource></metadata></record>";
+
+
+    /**
+     * Tests if a query is only parsed once.
+     */
+    @Test
+    public void testCaching()
+    {
+        assertSame("Expected the same query to be parsed only once.",
+                   SelectorCache.getEvaluator(DataCiteConstants.CREATORS),
+                   SelectorCache.getEvaluator(DataCiteConstants.CREATORS));
+    }
+
+
+    /**
+     * Tests if the cached queries select the same elements as Jsoup.
+     */
+    @Test
+    public void testSameSelection()
+    {
+        final Element record = Jsoup.parse(RECORD, "", Parser.xmlParser());
+
+        assertEquals("Expected the same elements as Element.select().",
+                     record.select(DataCiteConstants.CREATORS),
+                     SelectorCache.select(record, DataCiteConstants.CREATORS));
+        assertEquals("Expected the same element as Element.selectFirst().",
+                     record.selectFirst(DataCiteConstants.CREATOR_NAME),
+                     SelectorCache.selectFirst(record, DataCiteConstants.CREATOR_NAME));
+        assertEquals("Expected the same texts as HtmlUtils.getStrings().",
+                     HtmlUtils.getStrings(record, DataCiteConstants.CREATOR_NAME),
+                     SelectorCache.getStrings(record, DataCiteConstants.CREATOR_NAME));
+        assertNull("Expected null if no element matches.",
+                   SelectorCache.getString(record, DataCiteConstants.PUBLISHER));
+    }
+}